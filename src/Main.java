@@ -31,7 +31,7 @@ import java.util.ArrayList;
 public class Main
 {
     private static File file=new File("file.txt");
-    private static DataBase dataBase=new DataBase("content.dat","users.dat");
+    private static DataBase dataBase=new DataBase("content.dat","users.dat","journal.dat");
 
      /** The main method checks if the data file exists, initializes data if not, and then launches the
      LoginFrame to start the application.*/
@@ -42,6 +42,11 @@ public class Main
                 initializeData();
                 file.createNewFile();
             }
+            //Changes are written in the background, so the windows don't freeze while files are written
+            dataBase.enableWriteBehind(WriteBehindPersister.DEFAULT_DELAY_MILLIS,WriteBehindPersister.DEFAULT_MAX_PENDING_WRITES);
+            //The search bar suggests titles as it is typed in, so its indexes are built while the user logs in
+            dataBase.indexSearchInBackground();
+            Runtime.getRuntime().addShutdownHook(new Thread(dataBase::awaitDurable));
             new LoginFrame(dataBase);
     }
 
@@ -8,6 +8,8 @@ package api;
  */
 public class Admin extends User
 {
+    private static final long serialVersionUID=89244097355412057L;
+
     /**
      * Constructs an Admin object with the provided username, password, name, and last name.
      *
@@ -21,6 +23,21 @@ public class Admin extends User
         super(username,password,name,lastName);
     }
 
+    /**
+     * Constructs an Admin object with a password that is already hashed.
+     * Used when admins are read from a file.
+     *
+     * @param username the username of the admin
+     * @param password the hashed password of the admin
+     * @param salt     the salt the password was hashed with
+     * @param name     the name of the admin
+     * @param lastName the last name of the admin
+     */
+    Admin(String username,String password,String salt,String name,String lastName)
+    {
+        super(username,password,salt,name,lastName);
+    }
+
     /**
      * Compares if two objects are equal, specifically comparing if the object is an instance of Admin
      * and checking equality using the User superclass's equals method.
@@ -0,0 +1,1607 @@
+package api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * The {@code BinaryCodec} class encodes content and users in the compact binary format used by {@link FileManager}.
+ * <p>
+ * Strings are stored as their length followed by their UTF-8 bytes, and numbers as variable-length integers,
+ * except for the IDs of content and users, which are random and stored as 8 bytes.
+ * Instead of storing nested objects, every piece of content that is referenced is stored once in a table
+ * and referred to by its position in it: related content refers to the content table, and reviews refer to
+ * a table of their reviewers. Reviewers and favorites are only stored as references to the other file: their ID,
+ * along with their username, name and surname, or title and people involved, so that the ones that aren't stored
+ * can still be decoded. {@link DataBase} resolves them by ID when both files are loaded.
+ * <p>
+ * The fields of every piece of content (its header) are stored apart from its seasons, related content and
+ * reviews (its details), along with the length of each details record. This way the content can be decoded
+ * without its details, which are only decoded when first accessed (see {@link #decodeContentLazily}).
+ * <p>
+ * Content and users are stored in chunks of at most {@code CHUNK_SIZE} entries, preceded by the length of
+ * every chunk. Chunks don't depend on each other, so they are decoded in parallel.
+ * <p>
+ * Between snapshots, only the content and users that changed are encoded, as segments that also hold the keys
+ * of the removed ones (see {@link #encodeContentSegment} and {@link #encodeUserSegment}).
+ * <p>
+ * Every mutation appended to a {@link Journal} is encoded on its own (see {@link #encodeJournalRecord}), so the
+ * content and users a record refers to are stored by their ID and key rather than through tables, and a record
+ * only grows with the entities it was performed on.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+public class BinaryCodec
+{
+    /**
+     * The version of the encoding, stored at the beginning of every encoded file.
+     */
+    public static final int VERSION=5;
+
+    /**
+     * The version of the encoding in which reviewers and favorites were referred to by their username, or title
+     * and people involved, without their IDs. Still decoded, and resolved by these keys.
+     */
+    private static final int KEYED_VERSION=4;
+
+    /**
+     * The version of the encoding in which content and users had no IDs. Still decoded, with new IDs.
+     */
+    private static final int UNIDENTIFIED_VERSION=3;
+
+    /**
+     * The version of the encoding in which content and users weren't split into chunks. Still decoded,
+     * as a single chunk.
+     */
+    private static final int UNCHUNKED_VERSION=2;
+
+    /**
+     * The first version of the encoding, in which the seasons of a series were stored along with its fields
+     * and the details of the content had no index. Still decoded.
+     */
+    private static final int UNINDEXED_VERSION=1;
+
+    private static final int CONTENT=0, VIEWABLE_CONTENT=1, MOVIE=2, SERIES=3;
+    private static final int USER=0, SUBSCRIBER=1, ADMIN=2;
+
+    /**
+     * The maximum number of pieces of content or users in a chunk.
+     */
+    static final int CHUNK_SIZE=4096;
+
+    /**
+     * Encodes a collection of content.
+     *
+     * @param content The content to be encoded.
+     * @return The encoded content.
+     */
+    public static byte[] encodeContent(Collection<? extends Content> content)
+    {
+        //Content in the collection is stored first, followed by related content that isn't part of it
+        ArrayList<Content> contentTable=new ArrayList<>();
+        HashMap<Content,Integer> contentReferences=new HashMap<>();
+        for (Content content1 : content)
+        {
+            addToTable(content1,contentTable,contentReferences);
+        }
+        int storedContent=contentTable.size();
+        for (int i=0;i<contentTable.size();i++)
+        {
+            for (Content related : contentTable.get(i).getRelatedContent())
+            {
+                addToTable(related,contentTable,contentReferences);
+            }
+        }
+
+        ArrayList<User> reviewerTable=new ArrayList<>();
+        HashMap<User,Integer> reviewerReferences=new HashMap<>();
+        for (Content content1 : contentTable)
+        {
+            for (Review review : content1.getReviews().values())
+            {
+                addToTable(review.getReviewer(),reviewerTable,reviewerReferences);
+            }
+        }
+
+        Encoder encoder=new Encoder();
+        encoder.writeVarint(VERSION);
+
+        encoder.writeVarint(reviewerTable.size());
+        for (User reviewer : reviewerTable)
+        {
+            encoder.writeVarint(userKind(reviewer));
+            encoder.writeLong(reviewer.getId());
+            encoder.writeString(reviewer.getUsername());
+            encoder.writeString(reviewer.getName());
+            encoder.writeString(reviewer.getSurname());
+        }
+
+        encoder.writeVarint(storedContent);
+        encoder.writeVarint(contentTable.size());
+
+        //Every chunk stores the headers of its content, then the lengths of their details, then the details
+        ArrayList<byte[]> chunks=new ArrayList<>();
+        for (int start=0;start<contentTable.size();start+=CHUNK_SIZE)
+        {
+            List<Content> chunkContent=contentTable.subList(start,Math.min(start+CHUNK_SIZE,contentTable.size()));
+            Encoder chunk=new Encoder();
+            for (Content content1 : chunkContent)
+            {
+                encodeHeader(chunk,content1);
+            }
+
+            Encoder details=new Encoder();
+            for (Content content1 : chunkContent)
+            {
+                int detailsStart=details.size();
+                encodeDetails(details,content1,contentReferences,reviewerReferences);
+                chunk.writeVarint(details.size()-detailsStart);
+            }
+            chunk.writeBytes(details.toByteArray());
+            chunks.add(chunk.toByteArray());
+        }
+        writeChunks(encoder,chunks);
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Decodes content encoded by {@link #encodeContent(Collection)}.
+     * Reviewers are decoded as users that only have an ID, a username, a name and a surname.
+     *
+     * @param bytes The encoded content.
+     * @return A HashSet of the decoded content.
+     * @throws IOException if the bytes aren't valid encoded content.
+     */
+    public static HashSet<Content> decodeContent(byte[] bytes) throws IOException
+    {
+        return decodeContent(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes content encoded by {@link #encodeContent(Collection)} from a buffer, such as a mapped file.
+     * Reviewers are decoded as users that only have an ID, a username, a name and a surname.
+     *
+     * @param buffer The encoded content, from its position to its limit.
+     * @return A HashSet of the decoded content.
+     * @throws IOException if the buffer doesn't contain valid encoded content.
+     */
+    public static HashSet<Content> decodeContent(ByteBuffer buffer) throws IOException
+    {
+        return new HashSet<>(decodeContent(buffer,null,false));
+    }
+
+    /**
+     * Decodes the headers of content encoded by {@link #encodeContent(Collection)}, leaving the details of every
+     * piece of content to be decoded from the buffer when they are first accessed. The buffer must not change
+     * for as long as the content is in use.
+     *
+     * @param buffer    The encoded content, from its position to its limit.
+     * @param reviewers Finds the user with a given ID or username, returning {@code null} if there is none, in which
+     *                  case the reviewer is decoded as a user that only has an ID, a username, a name and a surname.
+     *                  Only called when the details of content with reviews are first decoded.
+     * @return A HashSet of the decoded content.
+     * @throws IOException if the buffer doesn't contain valid encoded content.
+     */
+    public static HashSet<Content> decodeContentLazily(ByteBuffer buffer,ReviewerResolver reviewers) throws IOException
+    {
+        return new HashSet<>(decodeContent(buffer,reviewers,true));
+    }
+
+    /**
+     * Decodes content encoded by {@link #encodeContent(Collection)}, decoding its chunks in parallel.
+     *
+     * @param buffer    The encoded content, from its position to its limit.
+     * @param reviewers Finds reviewers by ID or username, or {@code null} if reviewers should always be decoded.
+     * @param lazily    Whether the details of the content are decoded when they are first accessed.
+     * @return A list of the decoded content, in the order it was encoded.
+     * @throws IOException if the buffer doesn't contain valid encoded content.
+     */
+    static List<Content> decodeContent(ByteBuffer buffer,ReviewerResolver reviewers,boolean lazily) throws IOException
+    {
+        ArrayList<Content> content=new ArrayList<>();
+        decodeContent(buffer,reviewers,lazily,content::addAll);
+        return content;
+    }
+
+    /**
+     * Decodes content encoded by {@link #encodeContent(Collection)}, decoding its chunks in parallel and handing
+     * the decoded content to a consumer on the calling thread. If the details of the content are decoded lazily,
+     * the content of every chunk is handed over as soon as its headers are decoded, while the chunks that follow it
+     * are still being decoded, so the consumer can index the content as it is decoded. Otherwise, the content is
+     * handed over once all of it is decoded.
+     * <p>
+     * If a chunk can't be decoded, the content of the chunks before it has already been handed over.
+     *
+     * @param buffer    The encoded content, from its position to its limit.
+     * @param reviewers Finds reviewers by ID or username, or {@code null} if reviewers should always be decoded.
+     * @param lazily    Whether the details of the content are decoded when they are first accessed.
+     * @param consumer  Receives the decoded content, a chunk at a time and in the order it was encoded.
+     * @throws IOException if the buffer doesn't contain valid encoded content.
+     */
+    static void decodeContent(ByteBuffer buffer,ReviewerResolver reviewers,boolean lazily,Consumer<List<Content>> consumer) throws IOException
+    {
+        decodeContent(buffer,reviewers,lazily,null,consumer);
+    }
+
+    /**
+     * Decodes content encoded by {@link #encodeContent(Collection)} as {@link #decodeContent(ByteBuffer, ReviewerResolver, boolean, Consumer)}
+     * does, verifying every part of the buffer just before it is decoded. The tables before the chunks are verified
+     * once they are read, the headers of a chunk before its content is handed over, and the details of a piece of
+     * content before they are decoded, so a buffer whose details are decoded lazily is only verified as it is used.
+     * Details that turn out to be damaged when they are first accessed are left empty.
+     *
+     * @param buffer    The encoded content, from its position to its limit.
+     * @param reviewers Finds reviewers by ID or username, or {@code null} if reviewers should always be decoded.
+     * @param lazily    Whether the details of the content are decoded when they are first accessed.
+     * @param verifier  Verifies the parts of the buffer, or {@code null} if the buffer has already been verified.
+     * @param consumer  Receives the decoded content, a chunk at a time and in the order it was encoded.
+     * @throws IOException if the buffer doesn't contain valid encoded content, or the verifier rejects a part of it.
+     */
+    static void decodeContent(ByteBuffer buffer,ReviewerResolver reviewers,boolean lazily,RegionVerifier verifier,Consumer<List<Content>> consumer) throws IOException
+    {
+        Decoder decoder=new Decoder(buffer);
+        int version=decoder.readVarint();
+        if(version<UNINDEXED_VERSION || version>VERSION)
+        {
+            throw new IOException("Unsupported encoding version " + version);
+        }
+        if(verifier!=null && version<=UNCHUNKED_VERSION)
+        {
+            //Content that isn't split into chunks is decoded at once
+            verifier.verify(buffer.position(),buffer.remaining());
+            verifier=null;
+        }
+
+        ReviewerTable reviewerTable=new ReviewerTable(decoder.readCount(),reviewers);
+        for (int i=0;i<reviewerTable.size();i++)
+        {
+            reviewerTable.read(decoder,i,version>KEYED_VERSION);
+        }
+
+        int storedContent=decoder.readCount();
+        Content[] contentTable=new Content[decoder.readCount()];
+        if(storedContent>contentTable.length)
+        {
+            throw new IOException("Stored content exceeds content table");
+        }
+
+        if(version==UNINDEXED_VERSION)
+        {
+            for (int i=0;i<contentTable.length;i++)
+            {
+                contentTable[i]=decodeHeader(decoder,true,false);
+                contentTable[i].clearDirty();
+            }
+            for (Content content : contentTable)
+            {
+                decodeDetails(decoder,content,contentTable,reviewerTable,false);
+            }
+            decoder.checkFullyRead();
+            consumer.accept(Arrays.asList(contentTable).subList(0,storedContent));
+            return;
+        }
+
+        Decoder[] chunks=readChunks(decoder,version,contentTable.length);
+        if(verifier!=null)
+        {
+            int tablesEnd=chunks.length>0 ? chunks[0].offset() : buffer.limit();
+            verifier.verify(buffer.position(),tablesEnd-buffer.position());
+        }
+        RegionVerifier chunkVerifier=verifier;
+        Decoder[][] details=new Decoder[chunks.length][];
+        //Related content can be in any chunk, so details that are decoded lazily wait for the headers of all chunks
+        CountDownLatch headersDecoded=new CountDownLatch(chunks.length);
+        ArrayList<Callable<Void>> headerTasks=new ArrayList<>();
+        for (int c=0;c<chunks.length;c++)
+        {
+            int chunk=c;
+            headerTasks.add(() -> {
+                try
+                {
+                    int start=chunk*CHUNK_SIZE;
+                    int end=chunks.length==1 ? contentTable.length : Math.min(start+CHUNK_SIZE,contentTable.length);
+                    int headersStart=chunks[chunk].offset();
+                    for (int i=start;i<end;i++)
+                    {
+                        contentTable[i]=decodeHeader(chunks[chunk],false,version>UNIDENTIFIED_VERSION);
+                        contentTable[i].clearDirty();
+                    }
+                    int[] detailsLengths=new int[end-start];
+                    for (int i=0;i<detailsLengths.length;i++)
+                    {
+                        detailsLengths[i]=chunks[chunk].readCount();
+                    }
+                    if(chunkVerifier!=null)
+                    {
+                        chunkVerifier.verify(headersStart,chunks[chunk].offset()-headersStart);
+                    }
+                    details[chunk]=new Decoder[detailsLengths.length];
+                    for (int i=0;i<detailsLengths.length;i++)
+                    {
+                        details[chunk][i]=chunks[chunk].slice(detailsLengths[i]);
+                        if(lazily)
+                        {
+                            contentTable[start+i].setDetailsLoader(new DetailsLoader(details[chunk][i],contentTable[start+i],contentTable,reviewerTable,headersDecoded,chunkVerifier));
+                        }
+                    }
+                    chunks[chunk].checkFullyRead();
+                    return null;
+                }
+                finally
+                {
+                    headersDecoded.countDown();
+                }
+            });
+        }
+        List<Future<Void>> headers=start(headerTasks);
+
+        if(lazily)
+        {
+            for (int c=0;c<chunks.length;c++)
+            {
+                await(headers.get(c));
+                int start=c*CHUNK_SIZE;
+                int end=chunks.length==1 ? storedContent : Math.min(start+CHUNK_SIZE,storedContent);
+                if(start<end)
+                {
+                    consumer.accept(Arrays.asList(contentTable).subList(start,end));
+                }
+            }
+        }
+        else
+        {
+            for (Future<Void> header : headers)
+            {
+                await(header);
+            }
+            //Related content can be in any chunk, so details are decoded once all headers are
+            ArrayList<Callable<Void>> detailTasks=new ArrayList<>();
+            for (int c=0;c<chunks.length;c++)
+            {
+                int chunk=c;
+                detailTasks.add(() -> {
+                    int start=chunk*CHUNK_SIZE;
+                    for (int i=0;i<details[chunk].length;i++)
+                    {
+                        if(chunkVerifier!=null)
+                        {
+                            details[chunk][i].verify(chunkVerifier);
+                        }
+                        decodeDetails(details[chunk][i],contentTable[start+i],contentTable,reviewerTable,true);
+                        details[chunk][i].checkFullyRead();
+                    }
+                    return null;
+                });
+            }
+            runInParallel(detailTasks);
+            consumer.accept(Arrays.asList(contentTable).subList(0,storedContent));
+        }
+    }
+
+    /**
+     * Encodes a collection of users.
+     *
+     * @param users The users to be encoded.
+     * @return The encoded users.
+     */
+    public static byte[] encodeUsers(Collection<? extends User> users)
+    {
+        Encoder encoder=new Encoder();
+        encoder.writeVarint(VERSION);
+        encoder.writeVarint(users.size());
+
+        ArrayList<byte[]> chunks=new ArrayList<>();
+        Encoder chunk=new Encoder();
+        int chunkUsers=0;
+        for (User user : users)
+        {
+            encodeUserFields(chunk,user);
+            if(user instanceof Subscriber subscriber)
+            {
+                chunk.writeVarint(subscriber.getFavorites().size());
+                for (Content favorite : subscriber.getFavorites())
+                {
+                    encodeContentReference(chunk,favorite);
+                }
+            }
+            if(++chunkUsers==CHUNK_SIZE)
+            {
+                chunks.add(chunk.toByteArray());
+                chunk=new Encoder();
+                chunkUsers=0;
+            }
+        }
+        if(chunkUsers>0)
+        {
+            chunks.add(chunk.toByteArray());
+        }
+        writeChunks(encoder,chunks);
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Decodes users encoded by {@link #encodeUsers(Collection)}.
+     * Favorites are decoded as content that only has an ID, a title and people involved.
+     *
+     * @param bytes The encoded users.
+     * @return A HashSet of the decoded users.
+     * @throws IOException if the bytes aren't valid encoded users.
+     */
+    public static HashSet<User> decodeUsers(byte[] bytes) throws IOException
+    {
+        return decodeUsers(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes users encoded by {@link #encodeUsers(Collection)} from a buffer, such as a mapped file.
+     * Favorites are decoded as content that only has an ID, a title and people involved.
+     *
+     * @param buffer The encoded users, from its position to its limit.
+     * @return A HashSet of the decoded users.
+     * @throws IOException if the buffer doesn't contain valid encoded users.
+     */
+    public static HashSet<User> decodeUsers(ByteBuffer buffer) throws IOException
+    {
+        return new HashSet<>(decodeUserList(buffer));
+    }
+
+    /**
+     * Decodes users encoded by {@link #encodeUsers(Collection)}, decoding their chunks in parallel.
+     *
+     * @param buffer The encoded users, from its position to its limit.
+     * @return A list of the decoded users, in the order they were encoded.
+     * @throws IOException if the buffer doesn't contain valid encoded users.
+     */
+    static List<User> decodeUserList(ByteBuffer buffer) throws IOException
+    {
+        Decoder decoder=new Decoder(buffer);
+        int version=decoder.readVarint();
+        if(version<UNINDEXED_VERSION || version>VERSION)
+        {
+            throw new IOException("Unsupported encoding version " + version);
+        }
+
+        User[] users=new User[decoder.readCount()];
+        Decoder[] chunks=readChunks(decoder,version,users.length);
+        ArrayList<Callable<Void>> tasks=new ArrayList<>();
+        for (int c=0;c<chunks.length;c++)
+        {
+            int chunk=c;
+            tasks.add(() -> {
+                int start=chunk*CHUNK_SIZE;
+                int end=chunks.length==1 ? users.length : Math.min(start+CHUNK_SIZE,users.length);
+                for (int i=start;i<end;i++)
+                {
+                    users[i]=decodeUser(chunks[chunk],version);
+                }
+                chunks[chunk].checkFullyRead();
+                return null;
+            });
+        }
+        runInParallel(tasks);
+        return Arrays.asList(users);
+    }
+
+    /**
+     * Encodes the content that changed since the last snapshot, along with the keys (title and people involved)
+     * of the content that was removed since then, as a segment of the content file.
+     *
+     * @param changed     The content that was added or changed.
+     * @param removedKeys The title and people involved of every piece of content that was removed.
+     * @return The encoded segment.
+     */
+    public static byte[] encodeContentSegment(Collection<? extends Content> changed, Collection<List<String>> removedKeys)
+    {
+        Encoder encoder=new Encoder();
+        encoder.writeVarint(VERSION);
+        encoder.writeVarint(removedKeys.size());
+        for (List<String> key : removedKeys)
+        {
+            encoder.writeString(key.get(0));
+            encoder.writeString(key.get(1));
+        }
+        encoder.writeBytes(encodeContent(changed));
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Decodes a segment encoded by {@link #encodeContentSegment}. The changed content is decoded along with its details.
+     *
+     * @param buffer    The encoded segment, from its position to its limit.
+     * @param reviewers Finds the user with a given ID or username, returning {@code null} if there is none, in which
+     *                  case the reviewer is decoded as a user that only has an ID, a username, a name and a surname.
+     * @return The decoded segment.
+     * @throws IOException if the buffer doesn't contain a valid segment.
+     */
+    public static Segment<Content> decodeContentSegment(ByteBuffer buffer, ReviewerResolver reviewers) throws IOException
+    {
+        Decoder decoder=new Decoder(buffer);
+        int version=decoder.readVarint();
+        if(version<UNIDENTIFIED_VERSION || version>VERSION)
+        {
+            throw new IOException("Unsupported segment version " + version);
+        }
+        ArrayList<List<String>> removedKeys=new ArrayList<>();
+        int removedCount=decoder.readCount();
+        for (int i=0;i<removedCount;i++)
+        {
+            removedKeys.add(Arrays.asList(decoder.readString(),decoder.readString()));
+        }
+        return new Segment<>(decodeContent(decoder.remaining(),reviewers,false),removedKeys);
+    }
+
+    /**
+     * Encodes the users that changed since the last snapshot, along with the usernames of the users
+     * that were removed since then, as a segment of the user file.
+     *
+     * @param changed          The users that were added or changed.
+     * @param removedUsernames The username of every user that was removed.
+     * @return The encoded segment.
+     */
+    public static byte[] encodeUserSegment(Collection<? extends User> changed, Collection<String> removedUsernames)
+    {
+        Encoder encoder=new Encoder();
+        encoder.writeVarint(VERSION);
+        encoder.writeVarint(removedUsernames.size());
+        for (String username : removedUsernames)
+        {
+            encoder.writeString(username);
+        }
+        encoder.writeBytes(encodeUsers(changed));
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Decodes a segment encoded by {@link #encodeUserSegment}. The key of every removed user is a list
+     * that only holds its username.
+     *
+     * @param buffer The encoded segment, from its position to its limit.
+     * @return The decoded segment.
+     * @throws IOException if the buffer doesn't contain a valid segment.
+     */
+    public static Segment<User> decodeUserSegment(ByteBuffer buffer) throws IOException
+    {
+        Decoder decoder=new Decoder(buffer);
+        int version=decoder.readVarint();
+        if(version<UNIDENTIFIED_VERSION || version>VERSION)
+        {
+            throw new IOException("Unsupported segment version " + version);
+        }
+        ArrayList<List<String>> removedKeys=new ArrayList<>();
+        int removedCount=decoder.readCount();
+        for (int i=0;i<removedCount;i++)
+        {
+            removedKeys.add(List.of(decoder.readString()));
+        }
+        return new Segment<>(decodeUserList(decoder.remaining()),removedKeys);
+    }
+
+    /**
+     * The entities stored in a segment: the ones that were added or changed, and the keys of the ones that were
+     * removed. Removals are applied before the changes, so an entity that was removed and added again is kept.
+     *
+     * @param <T> The type of the entities, {@link Content} or {@link User}.
+     */
+    public static class Segment<T>
+    {
+        private final List<T> changed;
+        private final List<List<String>> removedKeys;
+
+        Segment(List<T> changed, List<List<String>> removedKeys)
+        {
+            this.changed=changed;
+            this.removedKeys=removedKeys;
+        }
+
+        /**
+         * Returns the entities that were added or changed.
+         *
+         * @return A list of the changed entities, in the order they were encoded.
+         */
+        public List<T> getChanged()
+        {
+            return changed;
+        }
+
+        /**
+         * Returns the keys of the entities that were removed.
+         *
+         * @return A list of keys: title and people involved for content, username for users.
+         */
+        public List<List<String>> getRemovedKeys()
+        {
+            return removedKeys;
+        }
+    }
+
+    /**
+     * Encodes a mutation of a {@link DataBase} as a record of its {@link Journal}. Only the fields and details of
+     * the entities the mutation was performed on are stored: the content and users they refer to are stored by
+     * their ID and key (title and people involved, or username), so the record doesn't depend on the rest of the
+     * database. Removals only store the ID and key of the removed entities.
+     *
+     * @param record The record to be encoded.
+     * @return The encoded record.
+     */
+    public static byte[] encodeJournalRecord(JournalRecord record)
+    {
+        boolean removal=isRemoval(record.getOperation());
+        Encoder encoder=new Encoder();
+        encoder.writeVarint(VERSION);
+        encoder.writeVarint(record.getOperation().ordinal());
+
+        Content[] content=record.getContent();
+        encoder.writeVarint(content.length);
+        for (Content content1 : content)
+        {
+            if(removal)
+            {
+                encodeContentReference(encoder,content1);
+                continue;
+            }
+            encodeHeader(encoder,content1);
+            if(content1 instanceof Series series)
+            {
+                encodeSeasons(encoder,series);
+            }
+            encoder.writeVarint(content1.getRelatedContent().size());
+            for (Content related : content1.getRelatedContent())
+            {
+                encodeContentReference(encoder,related);
+            }
+            encoder.writeVarint(content1.getReviews().size());
+            for (Review review : content1.getReviews().values())
+            {
+                encoder.writeVarint(review.getRating());
+                encoder.writeString(review.getText());
+                encoder.writeSignedVarint(review.getDate().toEpochDay());
+                encodeUserReference(encoder,review.getReviewer());
+            }
+        }
+
+        User[] users=record.getUsers();
+        encoder.writeVarint(users.length);
+        for (User user : users)
+        {
+            if(removal)
+            {
+                encodeUserReference(encoder,user);
+                continue;
+            }
+            encodeUserFields(encoder,user);
+            if(user instanceof Subscriber subscriber)
+            {
+                encoder.writeVarint(subscriber.getFavorites().size());
+                for (Content favorite : subscriber.getFavorites())
+                {
+                    encodeContentReference(encoder,favorite);
+                }
+            }
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Decodes a record encoded by {@link #encodeJournalRecord}. The content and users the record refers to are
+     * decoded as copies that only have an ID and a key, which {@link DataBase} replaces with the stored ones.
+     *
+     * @param buffer The encoded record, from its position to its limit.
+     * @return The decoded record.
+     * @throws IOException if the buffer doesn't contain a valid record.
+     */
+    public static JournalRecord decodeJournalRecord(ByteBuffer buffer) throws IOException
+    {
+        Decoder decoder=new Decoder(buffer);
+        int version=decoder.readVarint();
+        //Records were first encoded in the version that introduced IDs
+        if(version<=UNIDENTIFIED_VERSION || version>VERSION)
+        {
+            throw new IOException("Unsupported record version " + version);
+        }
+        JournalRecord.Operation[] operations=JournalRecord.Operation.values();
+        JournalRecord.Operation operation=operations[decoder.readReference(operations.length)];
+        boolean removal=isRemoval(operation);
+
+        Content[] content=new Content[decoder.readCount()];
+        for (int i=0;i<content.length;i++)
+        {
+            if(removal)
+            {
+                content[i]=decodeContentReference(decoder);
+                continue;
+            }
+            content[i]=decodeHeader(decoder,false,true);
+            if(content[i] instanceof Series series)
+            {
+                series.restoreSeasons(decodeSeasons(decoder));
+            }
+            ArrayList<Content> relatedContent=new ArrayList<>();
+            int relatedCount=decoder.readCount();
+            for (int j=0;j<relatedCount;j++)
+            {
+                relatedContent.add(decodeContentReference(decoder));
+            }
+            ArrayList<Review> reviews=new ArrayList<>();
+            int reviewCount=decoder.readCount();
+            for (int j=0;j<reviewCount;j++)
+            {
+                int rating=decoder.readVarint();
+                String text=decoder.readString();
+                LocalDate date=LocalDate.ofEpochDay(decoder.readSignedVarint());
+                Review review=new Review(rating,text,decodeUserReference(decoder),date);
+                review.clearDirty();
+                reviews.add(review);
+            }
+            content[i].restoreDetails(relatedContent,reviews);
+            content[i].clearDirty();
+        }
+
+        User[] users=new User[decoder.readCount()];
+        for (int i=0;i<users.length;i++)
+        {
+            if(removal)
+            {
+                users[i]=decodeUserReference(decoder);
+                continue;
+            }
+            users[i]=decodeUserFields(decoder,true);
+            if(users[i] instanceof Subscriber subscriber)
+            {
+                int favorites=decoder.readCount();
+                for (int j=0;j<favorites;j++)
+                {
+                    subscriber.addToFavorites(decodeContentReference(decoder));
+                }
+            }
+            users[i].clearDirty();
+        }
+        decoder.checkFullyRead();
+        return new JournalRecord(operation,content,users);
+    }
+
+    /**
+     * Returns whether an operation removes the entities it was performed on, which are then only stored by
+     * their ID and key.
+     */
+    private static boolean isRemoval(JournalRecord.Operation operation)
+    {
+        return operation==JournalRecord.Operation.REMOVE_CONTENT || operation==JournalRecord.Operation.REMOVE_USERS;
+    }
+
+    /**
+     * Encodes a reference to a piece of content: its ID, title and people involved.
+     */
+    private static void encodeContentReference(Encoder encoder, Content content)
+    {
+        encoder.writeLong(content.getId());
+        encoder.writeString(content.getTitle());
+        encoder.writeString(content.getPeopleInvolved());
+    }
+
+    /**
+     * Decodes a reference to a piece of content as content that only has an ID, a title and people involved.
+     */
+    private static Content decodeContentReference(Decoder decoder) throws IOException
+    {
+        long id=decoder.readLong();
+        Content content=new Content(decoder.readString(),decoder.readString());
+        content.restoreId(id);
+        content.clearDirty();
+        return content;
+    }
+
+    /**
+     * Encodes a reference to a user: its kind, ID, username, name and surname.
+     */
+    private static void encodeUserReference(Encoder encoder, User user)
+    {
+        encoder.writeVarint(userKind(user));
+        encoder.writeLong(user.getId());
+        encoder.writeString(user.getUsername());
+        encoder.writeString(user.getName());
+        encoder.writeString(user.getSurname());
+    }
+
+    /**
+     * Decodes a reference to a user as a user that only has an ID, a username, a name and a surname.
+     */
+    private static User decodeUserReference(Decoder decoder) throws IOException
+    {
+        int kind=decoder.readVarint();
+        long id=decoder.readLong();
+        User user=newUser(kind,decoder.readString(),null,null,decoder.readString(),decoder.readString());
+        user.restoreId(id);
+        user.clearDirty();
+        return user;
+    }
+
+    private static void encodeUserFields(Encoder encoder, User user)
+    {
+        encoder.writeVarint(userKind(user));
+        encoder.writeLong(user.getId());
+        encoder.writeString(user.getUsername());
+        encoder.writeString(user.getPassword());
+        encoder.writeString(user.getSalt());
+        encoder.writeString(user.getName());
+        encoder.writeString(user.getSurname());
+    }
+
+    /**
+     * Decodes a user.
+     *
+     * @param decoder The decoder positioned at the user.
+     * @param version The version of the encoding: users are stored with their IDs, which they are otherwise given,
+     *                since the identified version, and their favorites with their IDs since the keyed version.
+     */
+    private static User decodeUser(Decoder decoder, int version) throws IOException
+    {
+        User user=decodeUserFields(decoder,version>UNIDENTIFIED_VERSION);
+        if(user instanceof Subscriber subscriber)
+        {
+            int favorites=decoder.readCount();
+            for (int j=0;j<favorites;j++)
+            {
+                if(version>KEYED_VERSION)
+                {
+                    subscriber.addToFavorites(decodeContentReference(decoder));
+                    continue;
+                }
+                String title=decoder.readString();
+                String peopleInvolved=decoder.readString();
+                subscriber.addToFavorites(new Content(title,peopleInvolved));
+            }
+        }
+        user.clearDirty();
+        return user;
+    }
+
+    /**
+     * Decodes the fields of a user, without its favorites.
+     */
+    private static User decodeUserFields(Decoder decoder, boolean withId) throws IOException
+    {
+        int kind=decoder.readVarint();
+        long id=withId ? decoder.readLong() : 0;
+        String username=decoder.readString();
+        String password=decoder.readString();
+        String salt=decoder.readString();
+        String name=decoder.readString();
+        String surname=decoder.readString();
+        User user=newUser(kind,username,password,salt,name,surname);
+        if(withId)
+        {
+            user.restoreId(id);
+        }
+        return user;
+    }
+
+    private static void writeChunks(Encoder encoder, ArrayList<byte[]> chunks)
+    {
+        encoder.writeVarint(chunks.size());
+        for (byte[] chunk : chunks)
+        {
+            encoder.writeVarint(chunk.length);
+        }
+        for (byte[] chunk : chunks)
+        {
+            encoder.writeBytes(chunk);
+        }
+    }
+
+    /**
+     * Reads the chunks that hold the specified number of entries. Encodings from before chunks were
+     * introduced are read as a single chunk.
+     *
+     * @return A decoder for every chunk.
+     */
+    private static Decoder[] readChunks(Decoder decoder, int version, int entries) throws IOException
+    {
+        if(version==UNCHUNKED_VERSION || version==UNINDEXED_VERSION)
+        {
+            return new Decoder[]{decoder};
+        }
+
+        int chunkCount=decoder.readCount();
+        if(chunkCount!=(entries+CHUNK_SIZE-1)/CHUNK_SIZE)
+        {
+            throw new IOException("Chunk count doesn't match number of entries");
+        }
+        int[] chunkLengths=new int[chunkCount];
+        for (int i=0;i<chunkCount;i++)
+        {
+            chunkLengths[i]=decoder.readCount();
+        }
+        Decoder[] chunks=new Decoder[chunkCount];
+        for (int i=0;i<chunkCount;i++)
+        {
+            chunks[i]=decoder.slice(chunkLengths[i]);
+        }
+        decoder.checkFullyRead();
+        return chunks;
+    }
+
+    /**
+     * Runs the tasks on the common fork-join pool, or on the calling thread if there is only one.
+     *
+     * @throws IOException if any of the tasks failed.
+     */
+    private static void runInParallel(List<Callable<Void>> tasks) throws IOException
+    {
+        for (Future<Void> future : start(tasks))
+        {
+            await(future);
+        }
+    }
+
+    /**
+     * Starts the tasks on the common fork-join pool, or runs the task on the calling thread if there is only one.
+     *
+     * @return The futures of the tasks, in the same order.
+     */
+    private static List<Future<Void>> start(List<Callable<Void>> tasks)
+    {
+        if(tasks.size()==1)
+        {
+            FutureTask<Void> task=new FutureTask<>(tasks.get(0));
+            task.run();
+            return List.of(task);
+        }
+        ArrayList<Future<Void>> futures=new ArrayList<>(tasks.size());
+        for (Callable<Void> task : tasks)
+        {
+            futures.add(ForkJoinPool.commonPool().submit(task));
+        }
+        return futures;
+    }
+
+    /**
+     * Waits for a task started by {@link #start(List)} to finish.
+     *
+     * @throws IOException if the task failed.
+     */
+    private static void await(Future<Void> future) throws IOException
+    {
+        try
+        {
+            future.get();
+        }
+        catch (ExecutionException e)
+        {
+            if(e.getCause() instanceof IOException ioException)
+            {
+                throw ioException;
+            }
+            throw new IOException("Decoding failed",e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Decoding was interrupted",e);
+        }
+    }
+
+    private static <T> void addToTable(T entity, ArrayList<T> table, HashMap<T,Integer> references)
+    {
+        if(!references.containsKey(entity))
+        {
+            references.put(entity,table.size());
+            table.add(entity);
+        }
+    }
+
+    private static void encodeHeader(Encoder encoder, Content content)
+    {
+        encoder.writeVarint(contentKind(content));
+        encoder.writeLong(content.getId());
+        encoder.writeString(content.getTitle());
+        encoder.writeString(content.getPeopleInvolved());
+        if(content instanceof ViewableContent viewableContent)
+        {
+            encoder.writeString(viewableContent.getSynopsis());
+            encoder.writeString(viewableContent.getIsSuitableForMinors());
+            encoder.writeString(viewableContent.getGenre());
+        }
+        if(content instanceof Movie movie)
+        {
+            encoder.writeVarint(movie.getYearOfRelease());
+            encoder.writeVarint(movie.getDuration());
+        }
+    }
+
+    private static void encodeDetails(Encoder encoder, Content content, HashMap<Content,Integer> contentReferences, HashMap<User,Integer> reviewerReferences)
+    {
+        if(content instanceof Series series)
+        {
+            encodeSeasons(encoder,series);
+        }
+
+        encoder.writeVarint(content.getRelatedContent().size());
+        for (Content related : content.getRelatedContent())
+        {
+            encoder.writeVarint(contentReferences.get(related));
+        }
+
+        encoder.writeVarint(content.getReviews().size());
+        for (Review review : content.getReviews().values())
+        {
+            encoder.writeVarint(review.getRating());
+            encoder.writeString(review.getText());
+            encoder.writeSignedVarint(review.getDate().toEpochDay());
+            encoder.writeVarint(reviewerReferences.get(review.getReviewer()));
+        }
+    }
+
+    private static void encodeSeasons(Encoder encoder, Series series)
+    {
+        encoder.writeVarint(series.getSeasons().size());
+        for (Season season : series.getSeasons())
+        {
+            encoder.writeVarint(season.getSeasonNumber());
+            encoder.writeVarint(season.getYearOfRelease());
+            encoder.writeVarint(season.getEpisodes().size());
+            for (Episode episode : season.getEpisodes())
+            {
+                encoder.writeVarint(episode.getDuration());
+            }
+        }
+    }
+
+    /**
+     * Decodes the fields of a piece of content.
+     *
+     * @param decoder       The decoder positioned at the header.
+     * @param inlineSeasons Whether the seasons of a series follow its header, as in the unindexed version.
+     * @param withId        Whether the content is stored with its ID, which it is otherwise given.
+     */
+    private static Content decodeHeader(Decoder decoder, boolean inlineSeasons, boolean withId) throws IOException
+    {
+        int kind=decoder.readVarint();
+        long id=withId ? decoder.readLong() : 0;
+        Content content=decodeFields(decoder,kind,inlineSeasons);
+        if(withId)
+        {
+            content.restoreId(id);
+        }
+        return content;
+    }
+
+    private static Content decodeFields(Decoder decoder, int kind, boolean inlineSeasons) throws IOException
+    {
+        String title=decoder.readString();
+        String peopleInvolved=decoder.readString();
+        if(kind==CONTENT)
+        {
+            return new Content(title,peopleInvolved);
+        }
+
+        //Invalid values are replaced by empty strings, so that they are rejected by the constructors as before
+        String synopsis=decoder.readString();
+        String isSuitableForMinors=Objects.requireNonNullElse(decoder.readString(),"");
+        String genre=Objects.requireNonNullElse(decoder.readString(),"");
+        switch (kind)
+        {
+            case VIEWABLE_CONTENT:
+                return new ViewableContent(title,synopsis,isSuitableForMinors,genre,peopleInvolved);
+            case MOVIE:
+                int yearOfRelease=decoder.readVarint();
+                int duration=decoder.readVarint();
+                return new Movie(title,synopsis,isSuitableForMinors,genre,peopleInvolved,yearOfRelease,duration);
+            case SERIES:
+                ArrayList<Season> seasons=inlineSeasons ? decodeSeasons(decoder) : new ArrayList<>();
+                return new Series(title,synopsis,isSuitableForMinors,genre,peopleInvolved,seasons);
+            default:
+                throw new IOException("Unknown content kind " + kind);
+        }
+    }
+
+    private static ArrayList<Season> decodeSeasons(Decoder decoder) throws IOException
+    {
+        ArrayList<Season> seasons=new ArrayList<>();
+        int seasonCount=decoder.readCount();
+        for (int i=0;i<seasonCount;i++)
+        {
+            int seasonNumber=decoder.readVarint();
+            int seasonYearOfRelease=decoder.readVarint();
+            ArrayList<Episode> episodes=new ArrayList<>();
+            int episodeCount=decoder.readCount();
+            for (int j=0;j<episodeCount;j++)
+            {
+                episodes.add(new Episode(decoder.readVarint()));
+            }
+            seasons.add(new Season(seasonNumber,seasonYearOfRelease,episodes));
+        }
+        return seasons;
+    }
+
+    /**
+     * Decodes the seasons, related content and reviews of a piece of content and adds them to it.
+     *
+     * @param decoder       The decoder positioned at the details.
+     * @param content       The content the details belong to.
+     * @param contentTable  The decoded content, which related content refers to.
+     * @param reviewerTable The decoded reviewers, which reviews refer to.
+     * @param withSeasons   Whether the details start with the seasons of a series.
+     */
+    private static void decodeDetails(Decoder decoder, Content content, Content[] contentTable, ReviewerTable reviewerTable, boolean withSeasons) throws IOException
+    {
+        if(withSeasons && content instanceof Series series)
+        {
+            series.restoreSeasons(decodeSeasons(decoder));
+        }
+
+        ArrayList<Content> relatedContent=new ArrayList<>();
+        int relatedCount=decoder.readCount();
+        for (int i=0;i<relatedCount;i++)
+        {
+            relatedContent.add(contentTable[decoder.readReference(contentTable.length)]);
+        }
+
+        ArrayList<Review> reviews=new ArrayList<>();
+        int reviewCount=decoder.readCount();
+        for (int i=0;i<reviewCount;i++)
+        {
+            int rating=decoder.readVarint();
+            String text=decoder.readString();
+            LocalDate date=LocalDate.ofEpochDay(decoder.readSignedVarint());
+            User reviewer=reviewerTable.get(decoder.readReference(reviewerTable.size()));
+            Review review=new Review(rating,text,reviewer,date);
+            review.clearDirty();
+            reviews.add(review);
+        }
+        content.restoreDetails(relatedContent,reviews);
+    }
+
+    /**
+     * Finds the stored user that a reviewer of decoded content refers to.
+     */
+    public interface ReviewerResolver
+    {
+        /**
+         * Finds the stored user that a reviewer refers to.
+         *
+         * @param id       The ID of the reviewer, or 0 if the content was encoded without the IDs of its reviewers.
+         * @param username The username of the reviewer.
+         * @return The stored user, or {@code null} if there is none.
+         */
+        User find(long id, String username);
+    }
+
+    /**
+     * Verifies parts of a buffer of encoded data before they are decoded, such as against the checksums of the file
+     * the buffer was mapped from.
+     */
+    interface RegionVerifier
+    {
+        /**
+         * Verifies a part of the buffer. Parts may be verified more than once, and from several threads.
+         *
+         * @param offset The index in the buffer of the first byte of the part.
+         * @param length The number of bytes of the part.
+         * @throws IOException if the part is damaged.
+         */
+        void verify(int offset, int length) throws IOException;
+    }
+
+    /**
+     * The reviewers that reviews refer to. A reviewer is only looked up, or decoded, when the first review
+     * written by them is decoded, so that content can be decoded before the users it refers to are loaded.
+     */
+    private static class ReviewerTable
+    {
+        private final int[] kinds;
+        private final long[] ids;
+        private final String[] usernames, names, surnames;
+        private final User[] reviewers;
+        private final ReviewerResolver resolver;
+
+        ReviewerTable(int size, ReviewerResolver resolver)
+        {
+            kinds=new int[size];
+            ids=new long[size];
+            usernames=new String[size];
+            names=new String[size];
+            surnames=new String[size];
+            reviewers=new User[size];
+            this.resolver=resolver;
+        }
+
+        int size()
+        {
+            return reviewers.length;
+        }
+
+        void read(Decoder decoder, int index, boolean withId) throws IOException
+        {
+            kinds[index]=decoder.readVarint();
+            ids[index]=withId ? decoder.readLong() : 0;
+            usernames[index]=decoder.readString();
+            names[index]=decoder.readString();
+            surnames[index]=decoder.readString();
+        }
+
+        synchronized User get(int index) throws IOException
+        {
+            if(reviewers[index]==null)
+            {
+                User reviewer=resolver!=null ? resolver.find(ids[index],usernames[index]) : null;
+                if(reviewer==null)
+                {
+                    reviewer=newUser(kinds[index],usernames[index],null,null,names[index],surnames[index]);
+                    if(ids[index]!=0)
+                    {
+                        reviewer.restoreId(ids[index]);
+                    }
+                }
+                reviewers[index]=reviewer;
+            }
+            return reviewers[index];
+        }
+    }
+
+    /**
+     * Decodes the details of a piece of content when they are first accessed, once the headers of all content are
+     * decoded, since the details refer to related content by its position in the content table.
+     */
+    private static class DetailsLoader implements Runnable
+    {
+        private final Decoder decoder;
+        private final Content content;
+        private final Content[] contentTable;
+        private final ReviewerTable reviewerTable;
+        private final CountDownLatch headersDecoded;
+        private final RegionVerifier verifier;
+
+        DetailsLoader(Decoder decoder, Content content, Content[] contentTable, ReviewerTable reviewerTable, CountDownLatch headersDecoded,
+                      RegionVerifier verifier)
+        {
+            this.decoder=decoder;
+            this.content=content;
+            this.contentTable=contentTable;
+            this.reviewerTable=reviewerTable;
+            this.headersDecoded=headersDecoded;
+            this.verifier=verifier;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                headersDecoded.await();
+                if(verifier!=null)
+                {
+                    decoder.verify(verifier);
+                }
+                decodeDetails(decoder,content,contentTable,reviewerTable,true);
+                decoder.checkFullyRead();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                e.printStackTrace();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static int contentKind(Content content)
+    {
+        if(content instanceof Movie)
+        {
+            return MOVIE;
+        }
+        else if(content instanceof Series)
+        {
+            return SERIES;
+        }
+        else if(content instanceof ViewableContent)
+        {
+            return VIEWABLE_CONTENT;
+        }
+        return CONTENT;
+    }
+
+    private static int userKind(User user)
+    {
+        if(user instanceof Subscriber)
+        {
+            return SUBSCRIBER;
+        }
+        else if(user instanceof Admin)
+        {
+            return ADMIN;
+        }
+        return USER;
+    }
+
+    private static User newUser(int kind, String username, String password, String salt, String name, String surname) throws IOException
+    {
+        return switch (kind)
+        {
+            case USER -> new User(username,password,salt,name,surname);
+            case SUBSCRIBER -> new Subscriber(username,password,salt,name,surname);
+            case ADMIN -> new Admin(username,password,salt,name,surname);
+            default -> throw new IOException("Unknown user kind " + kind);
+        };
+    }
+
+    /**
+     * Writes variable-length integers and strings to a growing byte array.
+     */
+    static class Encoder
+    {
+        private byte[] bytes;
+        private int size;
+
+        Encoder()
+        {
+            bytes=new byte[256];
+            size=0;
+        }
+
+        void writeByte(int b)
+        {
+            if(size==bytes.length)
+            {
+                bytes=Arrays.copyOf(bytes,bytes.length*2);
+            }
+            bytes[size++]=(byte) b;
+        }
+
+        void writeBytes(byte[] b)
+        {
+            if(size+b.length>bytes.length)
+            {
+                bytes=Arrays.copyOf(bytes,Math.max(bytes.length*2,size+b.length));
+            }
+            System.arraycopy(b,0,bytes,size,b.length);
+            size+=b.length;
+        }
+
+        /**
+         * Writes a non-negative number in 7-bit groups, least significant first.
+         */
+        void writeVarint(long value)
+        {
+            while ((value & ~0x7FL)!=0)
+            {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value>>>=7;
+            }
+            writeByte((int) value);
+        }
+
+        /**
+         * Writes a number as 8 bytes, most significant first. Used for numbers that are rarely small, such as IDs.
+         */
+        void writeLong(long value)
+        {
+            for (int shift=56;shift>=0;shift-=8)
+            {
+                writeByte((int) (value>>>shift));
+            }
+        }
+
+        /**
+         * Writes a number that may be negative, zigzag-encoded so that small negative numbers stay short.
+         */
+        void writeSignedVarint(long value)
+        {
+            writeVarint((value<<1)^(value>>63));
+        }
+
+        /**
+         * Writes the length of the string plus one followed by its UTF-8 bytes, or 0 if the string is {@code null}.
+         */
+        void writeString(String value)
+        {
+            if(value==null)
+            {
+                writeVarint(0);
+                return;
+            }
+            byte[] utf8=value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length+1L);
+            writeBytes(utf8);
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        byte[] toByteArray()
+        {
+            return Arrays.copyOf(bytes,size);
+        }
+    }
+
+    /**
+     * Reads what an {@link Encoder} wrote from a buffer, which may be a mapped file,
+     * rejecting values that run past the end of the buffer.
+     */
+    static class Decoder
+    {
+        private final ByteBuffer buffer;
+        private int position;
+        private final int end;
+
+        /**
+         * Creates a decoder for the bytes of the buffer from its position to its limit.
+         * The position of the buffer itself is never changed.
+         */
+        Decoder(ByteBuffer buffer)
+        {
+            this(buffer,buffer.position(),buffer.limit());
+        }
+
+        private Decoder(ByteBuffer buffer, int position, int end)
+        {
+            this.buffer=buffer;
+            this.position=position;
+            this.end=end;
+        }
+
+        int readByte() throws IOException
+        {
+            if(position>=end)
+            {
+                throw new IOException("Unexpected end of encoded data");
+            }
+            return buffer.get(position++) & 0xFF;
+        }
+
+        long readVarlong() throws IOException
+        {
+            long value=0;
+            for (int shift=0;shift<64;shift+=7)
+            {
+                int b=readByte();
+                value|=(long) (b & 0x7F)<<shift;
+                if((b & 0x80)==0)
+                {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable-length integer");
+        }
+
+        int readVarint() throws IOException
+        {
+            long value=readVarlong();
+            if(value>Integer.MAX_VALUE)
+            {
+                throw new IOException("Integer out of range");
+            }
+            return (int) value;
+        }
+
+        long readLong() throws IOException
+        {
+            long value=0;
+            for (int i=0;i<8;i++)
+            {
+                value=(value<<8) | readByte();
+            }
+            return value;
+        }
+
+        long readSignedVarint() throws IOException
+        {
+            long value=readVarlong();
+            return (value>>>1)^-(value & 1);
+        }
+
+        /**
+         * Reads the size of a table or list, which can't be larger than the remaining bytes.
+         */
+        int readCount() throws IOException
+        {
+            int count=readVarint();
+            if(count>end-position)
+            {
+                throw new IOException("Count exceeds encoded data");
+            }
+            return count;
+        }
+
+        int readReference(int tableSize) throws IOException
+        {
+            int reference=readVarint();
+            if(reference>=tableSize)
+            {
+                throw new IOException("Reference out of range");
+            }
+            return reference;
+        }
+
+        String readString() throws IOException
+        {
+            int length=readVarint();
+            if(length==0)
+            {
+                return null;
+            }
+            length--;
+            if(length>end-position)
+            {
+                throw new IOException("String exceeds encoded data");
+            }
+            String value;
+            if(buffer.hasArray())
+            {
+                value=new String(buffer.array(),buffer.arrayOffset()+position,length,StandardCharsets.UTF_8);
+            }
+            else
+            {
+                byte[] utf8=new byte[length];
+                buffer.get(position,utf8);
+                value=new String(utf8,StandardCharsets.UTF_8);
+            }
+            position+=length;
+            return value;
+        }
+
+        /**
+         * Returns a decoder for the next {@code length} bytes, and skips them.
+         */
+        Decoder slice(int length) throws IOException
+        {
+            if(length>end-position)
+            {
+                throw new IOException("Record exceeds encoded data");
+            }
+            Decoder slice=new Decoder(buffer,position,position+length);
+            position+=length;
+            return slice;
+        }
+
+        /**
+         * Returns the index in the buffer of the next byte to be read.
+         */
+        int offset()
+        {
+            return position;
+        }
+
+        /**
+         * Verifies the bytes that haven't been read yet, without reading them.
+         */
+        void verify(RegionVerifier verifier) throws IOException
+        {
+            verifier.verify(position,end-position);
+        }
+
+        /**
+         * Returns a buffer of the bytes that haven't been read yet, and skips them.
+         */
+        ByteBuffer remaining()
+        {
+            ByteBuffer remaining=buffer.duplicate();
+            remaining.limit(end).position(position);
+            position=end;
+            return remaining.slice();
+        }
+
+        void checkFullyRead() throws IOException
+        {
+            if(position!=end)
+            {
+                throw new IOException("Unexpected data after end of encoding");
+            }
+        }
+    }
+}
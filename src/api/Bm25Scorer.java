@@ -0,0 +1,143 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code Bm25Scorer} class scores how relevant a piece of content is to the words of a search with BM25, in its
+ * variant for fields (BM25F): every word of the search adds to the score of the content in proportion to how rare the
+ * word is among all the content (its inverse document frequency), and to how often the fields have it, with diminishing
+ * returns. How often every field has the word is scaled relative to the length of the field, and words of the title count
+ * {@value #TITLE_BOOST} times as much as words of the genre and words of the people involved
+ * {@value #PEOPLE_INVOLVED_BOOST} times as much, before they are added up. That way a word counts for more in the title
+ * than in the people involved whatever its statistics, and a word repeated across fields still has diminishing returns.
+ * <p>
+ * The statistics of the words are taken from {@link TermStatistics} when the scorer is created, so the weight of every
+ * word of the search is only calculated once.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class Bm25Scorer
+{
+    /**
+     * How quickly repeating a word in the fields stops adding to its score.
+     */
+    static final double K1=1.2;
+
+    /**
+     * How much the score of a word in a field is scaled down when the field is longer than average.
+     */
+    static final double B=0.75;
+
+    /**
+     * How much words of the title count, relative to words of the genre.
+     */
+    static final double TITLE_BOOST=3;
+
+    /**
+     * How much words of the people involved count, relative to words of the genre.
+     */
+    static final double PEOPLE_INVOLVED_BOOST=2;
+
+    private static final double[] BOOSTS={TITLE_BOOST,PEOPLE_INVOLVED_BOOST,1};
+
+    private final TermStatistics statistics;
+    private final String[] words;
+    private final double[] weights;
+    private final double[] averageLengths;
+
+    /**
+     * Constructs a {@code Bm25Scorer} for the words of a search.
+     *
+     * @param statistics The statistics of the words of the content that is searched.
+     * @param words      The words of the search, lower-cased. Repeated words are scored once.
+     */
+    Bm25Scorer(TermStatistics statistics, List<String> words)
+    {
+        this.statistics=statistics;
+        ArrayList<String> distinctWords=new ArrayList<>();
+        for (String word : words)
+        {
+            if(!distinctWords.contains(word))
+            {
+                distinctWords.add(word);
+            }
+        }
+        this.words=distinctWords.toArray(new String[0]);
+
+        int size=statistics.size();
+        weights=new double[this.words.length];
+        for (int i=0;i<this.words.length;i++)
+        {
+            int documentFrequency=statistics.documentFrequency(this.words[i]);
+            weights[i]=Math.log(1+(size-documentFrequency+0.5)/(documentFrequency+0.5));
+        }
+        averageLengths=new double[TermStatistics.FIELDS];
+        for (int field=0;field<TermStatistics.FIELDS;field++)
+        {
+            averageLengths[field]=statistics.averageLength(field);
+        }
+    }
+
+    /**
+     * Scores a piece of content.
+     *
+     * @param content The content.
+     * @return The score, which is 0 if no field has a word of the search and higher for more relevant content.
+     */
+    double score(Content content)
+    {
+        if(words.length==0)
+        {
+            return 0;
+        }
+        String[][] terms=statistics.terms(content);
+        double[] frequencies=new double[words.length];
+        for (int field=0;field<TermStatistics.FIELDS;field++)
+        {
+            String[] fieldTerms=terms[field];
+            if(fieldTerms.length==0)
+            {
+                continue;
+            }
+            //Fields that most content lacks, such as the genre, have an average length below one term
+            double lengthNorm=1-B+B*fieldTerms.length/Math.max(averageLengths[field],1);
+            for (int i=0;i<words.length;i++)
+            {
+                int frequency=0;
+                for (String term : fieldTerms)
+                {
+                    if(term.equals(words[i]))
+                    {
+                        frequency++;
+                    }
+                }
+                frequencies[i]+=BOOSTS[field]*frequency/lengthNorm;
+            }
+        }
+        double score=0;
+        for (int i=0;i<words.length;i++)
+        {
+            score+=weights[i]*frequencies[i]*(K1+1)/(frequencies[i]+K1);
+        }
+        return score;
+    }
+
+    /**
+     * Checks if the search has words to score content by.
+     *
+     * @return {@code true} if content may score above 0, {@code false} if every piece of content scores 0.
+     */
+    boolean hasWords()
+    {
+        return words.length>0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BM25 of "+Arrays.toString(words)+" in the title, people involved and genre";
+    }
+}
@@ -1,22 +1,56 @@
 package api;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * The {@code Content} class represents a piece of content, such as a movie, book, or any creative work.
  * It includes information about the title, people involved, related content, and reviews.
  * This class is Serializable for data persistence.
+ * <p>
+ * Content read from a mapped file may have its related content and reviews (its details) decoded
+ * only when they are first accessed. Every method that uses them loads them first.
+ * <p>
+ * Content keeps track of whether it has changed since it was last written (it is dirty), so that
+ * {@link DataBase} only writes the content that changed when it checkpoints.
+ * <p>
+ * Every piece of content has an ID that never changes, even when its title or people involved are edited,
+ * by which {@link DataBase#getContentById(long)} finds it. Content is equal to the content with the same ID.
+ * <p>
+ * The fields that searches match against are also kept lower-cased and stripped of whitespace (as search keys),
+ * so that {@link SearchManager} doesn't normalize them again for every search. The keys are computed when they
+ * are first needed and discarded whenever their field is set.
  *
  * @authors Iraklis Fountoukidis, Chrysoula Tegousi
  * @version 2024-01-10
  */
 public class Content implements Serializable
 {
+    //The version of the class before IDs were introduced, so that content serialized back then can still be read
+    private static final long serialVersionUID=4271222790137816056L;
+
+    private static final Pattern WHITESPACE=Pattern.compile("\\s");
+    private static final ClassValue<String> CATEGORY_KEYS=new ClassValue<>()
+    {
+        @Override
+        protected String computeValue(Class<?> type)
+        {
+            return normalize(type.toString());
+        }
+    };
+
+    private long id=EntityIds.next();
     private String title,peopleInvolved;
     private HashSet<Content> relatedContent;
     private HashMap<User,Review> reviews;
+    private transient volatile Runnable detailsLoader;
+    private transient boolean dirty,keyChanged;
+    private transient String titleKey,peopleInvolvedKey;
 
     public Content(String title,String peopleInvolved,Content... relatedContent)
     {
@@ -50,7 +84,10 @@ public class Content implements Serializable
      */
     public void setTitle(String title)
     {
+        markDirty();
+        keyChanged|=!Objects.equals(this.title,title);
         this.title=title;
+        titleKey=null;
     }
 
 
@@ -61,7 +98,10 @@ public class Content implements Serializable
      */
     public void setPeopleInvolved(String peopleInvolved)
     {
+        markDirty();
+        keyChanged|=!Objects.equals(this.peopleInvolved,peopleInvolved);
         this.peopleInvolved=peopleInvolved;
+        peopleInvolvedKey=null;
     }
 
     /**
@@ -71,6 +111,8 @@ public class Content implements Serializable
      */
     public void addToReviews(Review...reviews)
     {
+        loadDetails();
+        markDirty();
         for (Review review : reviews)
         {
             this.reviews.put(review.getReviewer(),review);
@@ -84,6 +126,8 @@ public class Content implements Serializable
      */
     public void addToReviews(HashSet<Review> reviews)
     {
+        loadDetails();
+        markDirty();
 
         for (Review review : reviews)
         {
@@ -98,9 +142,13 @@ public class Content implements Serializable
      */
     public void removeFromReviews(Review...reviews)
     {
+        loadDetails();
         for (Review review : reviews)
         {
-            this.reviews.remove(review.getReviewer(),review);
+            if(this.reviews.remove(review.getReviewer(),review))
+            {
+                markDirty();
+            }
         }
     }
 
@@ -111,9 +159,13 @@ public class Content implements Serializable
      */
     public void removeFromReviews(HashSet<Review> reviews)
     {
+        loadDetails();
         for (Review review : reviews)
         {
-            this.reviews.remove(review.getReviewer(),review);
+            if(this.reviews.remove(review.getReviewer(),review))
+            {
+                markDirty();
+            }
         }
     }
 
@@ -122,6 +174,8 @@ public class Content implements Serializable
      */
     public void deleteReviews()
     {
+        loadDetails();
+        markDirty();
         reviews.clear();
     }
 
@@ -133,6 +187,8 @@ public class Content implements Serializable
      */
     public void addToRelatedContent(Content...relatedContent)
     {
+        loadDetails();
+        markDirty();
         Collections.addAll(this.relatedContent, relatedContent);
     }
 
@@ -143,6 +199,8 @@ public class Content implements Serializable
      */
     public void addToRelatedContent(HashSet<Content> relatedContent)
     {
+        loadDetails();
+        markDirty();
         this.relatedContent.addAll(relatedContent);
     }
 
@@ -153,13 +211,17 @@ public class Content implements Serializable
      */
     public void removeFromRelatedContent(Content...relatedContent)
     {
+        loadDetails();
         if(this.relatedContent.isEmpty())
         {
             return;
         }
         for (Content content : relatedContent)
         {
-            this.relatedContent.remove(content);
+            if(this.relatedContent.remove(content))
+            {
+                markDirty();
+            }
         }
     }
 
@@ -170,11 +232,15 @@ public class Content implements Serializable
      */
     public void removeFromRelatedContent(HashSet<Content> relatedContent)
     {
+        loadDetails();
         if(this.relatedContent.isEmpty())
         {
             return;
         }
-        this.relatedContent.removeAll(relatedContent);
+        if(this.relatedContent.removeAll(relatedContent))
+        {
+            markDirty();
+        }
     }
 
 
@@ -183,9 +249,31 @@ public class Content implements Serializable
      */
     public void deleteRelatedContent()
     {
+        loadDetails();
+        markDirty();
         relatedContent.clear();
     }
 
+    /**
+     * Returns the ID of the content, which identifies it in the database.
+     *
+     * @return The ID of the content.
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+    /**
+     * Sets the ID of content read from a file to the ID it was written with.
+     *
+     * @param id The ID of the content.
+     */
+    void restoreId(long id)
+    {
+        this.id=id;
+    }
+
     /**
      * Returns the title of the content.
      *
@@ -206,6 +294,59 @@ public class Content implements Serializable
         return peopleInvolved;
     }
 
+    /**
+     * Returns the title of the content, lower-cased and stripped of whitespace.
+     *
+     * @return The search key of the title.
+     */
+    String getTitleKey()
+    {
+        String key=titleKey;
+        if(key==null)
+        {
+            key=normalize(title);
+            titleKey=key;
+        }
+        return key;
+    }
+
+    /**
+     * Returns the people involved in the content, lower-cased and stripped of whitespace.
+     *
+     * @return The search key of the people involved.
+     */
+    String getPeopleInvolvedKey()
+    {
+        String key=peopleInvolvedKey;
+        if(key==null)
+        {
+            key=normalize(peopleInvolved);
+            peopleInvolvedKey=key;
+        }
+        return key;
+    }
+
+    /**
+     * Returns the name of the class of the content (its category), lower-cased and stripped of whitespace.
+     *
+     * @return The search key of the category.
+     */
+    String getCategoryKey()
+    {
+        return CATEGORY_KEYS.get(getClass());
+    }
+
+    /**
+     * Lower-cases a field and strips it of whitespace, which is how searches compare fields.
+     *
+     * @param field The field.
+     * @return The normalized field.
+     */
+    static String normalize(String field)
+    {
+        return WHITESPACE.matcher(field.toLowerCase()).replaceAll("");
+    }
+
 
     /**
      * Returns a set of related content associated with the content.
@@ -214,6 +355,7 @@ public class Content implements Serializable
      */
     public HashSet<Content> getRelatedContent()
     {
+        loadDetails();
         return relatedContent;
     }
 
@@ -224,6 +366,7 @@ public class Content implements Serializable
      */
     public HashMap<User,Review> getReviews()
     {
+        loadDetails();
         return reviews;
     }
 
@@ -234,6 +377,7 @@ public class Content implements Serializable
      */
     public Double getAverageRating()
     {
+        loadDetails();
         int sum=0;
         if(!reviews.isEmpty())
         {
@@ -253,6 +397,7 @@ public class Content implements Serializable
      */
     public String getFormattedAverageRating()
     {
+        loadDetails();
         String averageRatingFormatted="-";
 
         if(!reviews.isEmpty())
@@ -288,6 +433,7 @@ public class Content implements Serializable
      */
     public void edit(String title,String peopleInvolved,HashSet<Content> relatedContent)
     {
+        loadDetails();
         setTitle(title);
         setPeopleInvolved(peopleInvolved);
 
@@ -295,8 +441,173 @@ public class Content implements Serializable
     }
 
     /**
-     * Overrides the equals method to compare Content objects based on their title, people involved,
-     * and related content.
+     * Sets the loader that decodes the related content and reviews of this content when they are first accessed.
+     *
+     * @param detailsLoader The loader of the details, or {@code null} if they are already loaded.
+     */
+    void setDetailsLoader(Runnable detailsLoader)
+    {
+        this.detailsLoader=detailsLoader;
+    }
+
+    /**
+     * Returns whether the related content and reviews of this content have been decoded.
+     *
+     * @return {@code true} if the details are loaded, {@code false} if they are yet to be decoded.
+     */
+    boolean detailsLoaded()
+    {
+        return detailsLoader==null;
+    }
+
+    /**
+     * Decodes the related content and reviews of this content, if that hasn't happened yet.
+     * Safe to call from several threads; the details are only decoded once.
+     */
+    void loadDetails()
+    {
+        if(detailsLoader!=null)
+        {
+            synchronized (this)
+            {
+                Runnable loader=detailsLoader;
+                if(loader!=null)
+                {
+                    loader.run();
+                    detailsLoader=null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds decoded details to the content without loading them first. Used by the details loader.
+     *
+     * @param relatedContent The related content that was decoded.
+     * @param reviews        The reviews that were decoded.
+     */
+    void restoreDetails(Collection<Content> relatedContent,Collection<Review> reviews)
+    {
+        this.relatedContent.addAll(relatedContent);
+        for (Review review : reviews)
+        {
+            this.reviews.put(review.getReviewer(),review);
+        }
+    }
+
+    /**
+     * Marks the content as changed since it was last written.
+     */
+    void markDirty()
+    {
+        dirty=true;
+    }
+
+    /**
+     * Returns whether the content, or any of its reviews, changed since it was last written.
+     *
+     * @return {@code true} if the content is dirty, {@code false} otherwise.
+     */
+    boolean isDirty()
+    {
+        if(dirty)
+        {
+            return true;
+        }
+        if(detailsLoaded())
+        {
+            for (Review review : reviews.values())
+            {
+                if(review.isDirty())
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the title or people involved of the content, by which it is keyed in the segments of the
+     * content file, changed since it was last written.
+     *
+     * @return {@code true} if the key of the content changed, {@code false} otherwise.
+     */
+    boolean isKeyChanged()
+    {
+        return keyChanged;
+    }
+
+    /**
+     * Marks the content and its reviews as written.
+     */
+    void clearDirty()
+    {
+        dirty=false;
+        keyChanged=false;
+        if(detailsLoaded())
+        {
+            for (Review review : reviews.values())
+            {
+                review.clearDirty();
+            }
+        }
+    }
+
+    /**
+     * Replaces the state of this content with the state of a newer copy of it, such as one read from
+     * a segment of the content file, so that references to this content stay valid.
+     *
+     * @param other The newer copy of the content, of the same class, which must not be used afterwards.
+     */
+    void restoreFrom(Content other)
+    {
+        other.loadDetails();
+        synchronized (this)
+        {
+            detailsLoader=null;
+        }
+        title=other.title;
+        peopleInvolved=other.peopleInvolved;
+        titleKey=null;
+        peopleInvolvedKey=null;
+        relatedContent=other.relatedContent;
+        reviews=other.reviews;
+        dirty=false;
+        keyChanged=false;
+    }
+
+    /**
+     * Loads the details of the content before it is serialized, so that they are written along with it.
+     *
+     * @param out The stream the content is written to.
+     * @throws IOException if the content couldn't be written.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        loadDetails();
+        out.defaultWriteObject();
+    }
+
+    /**
+     * Gives content that was serialized before IDs were introduced a new ID.
+     *
+     * @param in The stream the content is read from.
+     * @throws IOException            if the content couldn't be read.
+     * @throws ClassNotFoundException if the class of a field couldn't be found.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        if(id==0)
+        {
+            id=EntityIds.next();
+        }
+    }
+
+    /**
+     * Overrides the equals method to compare Content objects based on their ID, which stays the same however
+     * the content is edited, so that edited content is still found in the sets and maps that hold it.
      *
      * @param obj The object to compare with this Content.
      * @return {@code true} if the objects are equal, {@code false} otherwise.
@@ -312,7 +623,8 @@ public class Content implements Serializable
             return true;
         }
 
-        return title.equals(content.getTitle()) && peopleInvolved.equals(content.getPeopleInvolved());
+        //Content that is still being deserialized from before IDs were introduced doesn't have an ID yet
+        return id!=0 && id==content.getId();
     }
 
     /**
@@ -327,14 +639,14 @@ public class Content implements Serializable
     }
 
     /**
-     * Generates a hash code for this Content object based on its title and people involved.
+     * Generates a hash code for this Content object based on its ID.
      *
      * @return The hash code value for this object.
      */
     @Override
     public int hashCode()
     {
-        return Objects.hash(title, peopleInvolved);
+        return Long.hashCode(id);
     }
 
 }
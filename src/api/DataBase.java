@@ -1,10 +1,19 @@
 package api;
 
-import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
 
 /**
  * The {@code DataBase} class represents a database that manages various types of content
@@ -13,6 +22,24 @@ import java.util.HashMap;
  * <p>
  * The database is initialized with content and user information from specified file paths.
  * It utilizes a {@link FileManager} to read and write data to files.
+ * <p>
+ * Optionally, the database can be journaled. In that case every mutation is appended to a {@link Journal}
+ * instead of rewriting the content and user files, and the files are only rewritten as a whole (checkpoint)
+ * after a number of journaled mutations, or when {@link #checkpoint()} is called.
+ * <p>
+ * By default, every mutation is written before the method that performed it returns. With
+ * {@link #enableWriteBehind(long, int)}, mutations are only encoded by the calling thread, and written
+ * to disk in the background by a {@link WriteBehindPersister}; {@link #awaitDurable()} waits for them.
+ * <p>
+ * The database keeps track of the content and users that were changed or removed since the last checkpoint.
+ * A checkpoint only encodes them, as a segment appended to the content and user files (see {@link FileManager}),
+ * so its cost is proportional to the changes rather than to the whole database. The files are only rewritten as
+ * a whole (compacted) once a number of segments has been written, or when the changes that were made are unknown.
+ * <p>
+ * The indexes of searches are built when a search first needs them, or in the background with
+ * {@link #indexSearchInBackground()}, so that the first search doesn't wait for them.
+ * <p>
+ * Content and users can also be found by their ID ({@link Content#getId()}, {@link User#getId()}) in constant time.
  *
  * @authors Iraklis Fountoukidis, Chrysoula Tegousi
  * @version 2024-01-10
@@ -27,8 +54,55 @@ public class DataBase
     private HashSet<Subscriber> subscribers;
     private HashSet<User> users;
     private HashMap<String,User> authentication;
+    private final LongHashMap<Content> contentById=new LongHashMap<>();
+    private final LongHashMap<User> usersById=new LongHashMap<>();
+    private final ReferenceIndex<Content> relatedReferrers=new ReferenceIndex<>();
+    private final ReferenceIndex<Subscriber> favoriteReferrers=new ReferenceIndex<>();
+    private final ReferenceIndex<Content> reviewedContent=new ReferenceIndex<>();
+    private boolean referrersIndexed;
+    private SearchIndex searchIndex=new SearchIndex();
+    private boolean searchIndexed;
+    private FutureTask<SearchIndex> searchIndexBuild;
+    private final Set<Content> searchIndexChanges=Collections.newSetFromMap(new IdentityHashMap<>());
+    private final SearchCache searchCache=new SearchCache(SEARCH_CACHE_QUERIES,SEARCH_CACHE_RESULTS);
+    private long contentVersion;
     private FileManager fileManager;
+    private Journal journal;
+    private int checkpointInterval;
+    private boolean replaying;
+    private Thread userLoader;
+    private int journaledMutations;
+    private WriteBehindPersister persister;
+    private final ArrayList<byte[]> pendingJournalFrames=new ArrayList<>();
+    private boolean journalClearPending;
+    private final LinkedHashMap<List<String>,Content> changedContent=new LinkedHashMap<>();
+    private final LinkedHashMap<String,User> changedUsers=new LinkedHashMap<>();
+    private final LinkedHashSet<List<String>> removedContentKeys=new LinkedHashSet<>();
+    private final LinkedHashSet<String> removedUsernames=new LinkedHashSet<>();
+    private boolean compactionNeeded;
+    private boolean snapshotWritten;
+    private int segmentCount;
+    private int maxSegments;
+
+    /**
+     * The keys under which the database marks its writes as pending, so that writes to the same file coalesce.
+     */
+    private static final String CONTENT_FILE="content", USER_FILE="users", JOURNAL_FILE="journal";
 
+    /**
+     * The default number of journaled mutations after which the database is checkpointed.
+     */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL=1000;
+
+    /**
+     * The default number of segments after which the content and user files are compacted.
+     */
+    public static final int DEFAULT_MAX_SEGMENTS=32;
+
+    /**
+     * The number of queries whose results are kept, and the number of results kept for all of them together.
+     */
+    private static final int SEARCH_CACHE_QUERIES=64, SEARCH_CACHE_RESULTS=200_000;
 
     /**
      * Constructs a new {@code DataBase} object with specified content and user file paths.
@@ -39,6 +113,23 @@ public class DataBase
      */
     public DataBase(String contentFilePath,String userFilePath)
     {
+        this(contentFilePath,userFilePath,null);
+    }
+
+    /**
+     * Constructs a new journaled {@code DataBase} object with specified content, user and journal file paths.
+     * Initializes the database with content and user information from files if they exist, and then applies
+     * the mutations recorded in the journal since the last checkpoint.
+     *
+     * @param contentFilePath The file path for content information.
+     * @param userFilePath    The file path for user information.
+     * @param journalFilePath The file path for the journal, or {@code null} if the database isn't journaled.
+     */
+    public DataBase(String contentFilePath,String userFilePath,String journalFilePath)
+    {
+        checkpointInterval=DEFAULT_CHECKPOINT_INTERVAL;
+        maxSegments=DEFAULT_MAX_SEGMENTS;
+        replaying=false;
         fileManager=new FileManager(contentFilePath,userFilePath);
         content=new HashSet<>();
         viewableContent = new HashSet<>();
@@ -49,39 +140,37 @@ public class DataBase
         admins=new HashSet<>();
         subscribers=new HashSet<>();
 
+        fileManager.migrateFiles();
 
-        File contentFile= new File(contentFilePath);
-        if(contentFile.exists()) {
-            content = fileManager.readContentFile();
-            for (Content content1 : content)
-            {
-                if (content1 instanceof ViewableContent viewableContent)
-                {
-                    this.viewableContent.add(viewableContent);
-                }
-                if (content1 instanceof Movie movie)
-                {
-                    movies.add(movie);
-                }
-                else if (content1 instanceof Series series)
-                {
-                    this.series.add(series);
-                }
-            }
+        //Users are read on their own thread while the content is read, and each of them decodes in parallel
+        if(fileManager.userFileExists())
+        {
+            userLoader=new Thread(() -> fileManager.readUserFile(this::indexUser),"user-loader");
+            userLoader.start();
+        }
+        if(fileManager.contentFileExists())
+        {
+            fileManager.readContentFile(this::findReviewer,this::indexContent);
         }
+        awaitUsers();
+        //Segments can't be appended to a damaged snapshot that the previous one was read instead of
+        snapshotWritten=fileManager.contentFileExists() && fileManager.userFileExists() && !fileManager.isPreviousSnapshotRead();
+        applySegments();
 
-        File userFile=new File(userFilePath);
-        if(userFile.exists())
+        if(journalFilePath!=null)
         {
-            users = fileManager.readUserFile();
-            for (User user : users) {
-                authentication.put(user.getUsername(), user);
-                if (user instanceof Subscriber subscriber) {
-                    subscribers.add(subscriber);
-                } else if (user instanceof Admin admin) {
-                    admins.add(admin);
-                }
-            }
+            journal=new Journal(journalFilePath);
+            replayJournal();
+            journaledMutations=journal.getRecordCount();
+        }
+
+        linkReferences();
+
+        //Content and users read from an older encoding were given new IDs, which only stay the same once written
+        if(fileManager.isEncodingOutdated())
+        {
+            compactionNeeded=true;
+            checkpoint();
         }
     }
 
@@ -93,45 +182,21 @@ public class DataBase
      */
     public void addToContent(Content...content)
     {
-        Collections.addAll(this.content,content);
         for (Content content1 : content)
         {
-            if(content1 instanceof ViewableContent viewableContent)
-            {
-                this.viewableContent.add(viewableContent);
-            }
-            if(content1 instanceof Movie movie)
-            {
-                movies.add(movie);
-            }
-            if(content1 instanceof Series series)
-            {
-                this.series.add(series);
-            }
+            indexContent(content1);
         }
-        fileManager.writeContentFile(this.content);
+        persist(new JournalRecord(JournalRecord.Operation.ADD_CONTENT,content));
     }
 
 
     public void addToContent(HashSet<Content> content)
     {
-        this.content.addAll(content);
         for (Content content1 : content)
         {
-            if(content1 instanceof ViewableContent viewableContent)
-            {
-                this.viewableContent.add(viewableContent);
-            }
-            if(content1 instanceof Movie movie)
-            {
-                movies.add(movie);
-            }
-            if(content1 instanceof Series series)
-            {
-                this.series.add(series);
-            }
+            indexContent(content1);
         }
-        fileManager.writeContentFile(this.content);
+        persist(new JournalRecord(JournalRecord.Operation.ADD_CONTENT,content.toArray(new Content[0])));
     }
 
 
@@ -149,33 +214,14 @@ public class DataBase
 
         for (Content content1 : content)
         {
-            this.content.remove(content1);
-            if(content1 instanceof ViewableContent viewableContent)
-            {
-                this.viewableContent.remove(viewableContent);
-            }
-            if(content1 instanceof Movie movie)
-            {
-                movies.remove(movie);
-            }
-            if(content1 instanceof Series series)
-            {
-                this.series.remove(series);
-            }
-        }
-
-        for (Content content1 : this.content)
-        {
-            content1.removeFromRelatedContent(content);
+            unindexContent(content1);
         }
-
-        for (Subscriber subscriber : subscribers)
+        for (Content content1 : content)
         {
-            subscriber.removeFromFavorites(content);
+            unlinkContent(content1);
         }
 
-        fileManager.writeContentFile(this.content);
-        fileManager.writeUserFile(users);
+        persist(new JournalRecord(JournalRecord.Operation.REMOVE_CONTENT,content));
     }
 
     /** Removes content from the database.
@@ -190,46 +236,200 @@ public class DataBase
             return;
         }
 
-        this.content.removeAll(content);
+        for (Content content1 : content)
+        {
+            unindexContent(content1);
+        }
+        for (Content content1 : content)
+        {
+            unlinkContent(content1);
+        }
+        persist(new JournalRecord(JournalRecord.Operation.REMOVE_CONTENT,content.toArray(new Content[0])));
+    }
+
+    /**
+     * Edits content and user information in the database.
+     * Writes updated content information to the content file.
+     * This is a checkpoint that rewrites the files as a whole, since the changes that were made are unknown.
+     */
+
+    public void editFiles()
+    {
+        //The references that changed are unknown too, so they are indexed again when they are next needed
+        referrersIndexed=false;
+        relatedReferrers.clear();
+        favoriteReferrers.clear();
+        reviewedContent.clear();
+        //Edits that go through this method may change the title or people involved of content
+        searchIndexed=false;
+        clearSearchIndex();
+        contentVersion++;
+
+        compactionNeeded=true;
+        checkpoint();
+    }
 
+    /**
+     * Records changes made in place to content of the database, such as added or removed reviews or edited details.
+     * Only the given content is journaled. If the changes affect the title or people involved of the content, the
+     * next checkpoint rewrites the files as a whole, since the old key of the content can't be removed by a segment.
+     *
+     * @param content The content that was edited.
+     */
+    public void editContent(Content...content)
+    {
         for (Content content1 : content)
         {
-            if(content1 instanceof ViewableContent viewableContent)
-            {
-                this.viewableContent.remove(viewableContent);
-            }
-            if(content1 instanceof Movie movie)
+            //Related content and reviews that were removed are only dropped from the index when they are found to be stale
+            indexReferences(content1);
+            reindexSearch(content1);
+        }
+        persist(new JournalRecord(JournalRecord.Operation.EDIT_CONTENT,content));
+    }
+
+    /**
+     * Records changes made in place to users of the database, such as added or removed favorites or edited account
+     * details. Only the given users are journaled. If the changes affect the username, name or surname of the users,
+     * the next checkpoint rewrites the files as a whole, since the old username can't be removed by a segment.
+     *
+     * @param users The users that were edited.
+     */
+    public void editUsers(User...users)
+    {
+        for (User user : users)
+        {
+            authentication.put(user.getUsername(),user);
+            if(user instanceof Subscriber subscriber)
             {
-                movies.remove(movie);
+                indexFavorites(subscriber);
             }
-            if(content1 instanceof Series series)
+        }
+        persist(new JournalRecord(JournalRecord.Operation.EDIT_USERS,users));
+    }
+
+    /**
+     * Writes the content and users that changed since the last checkpoint to the content and user files,
+     * or rewrites the files as a whole if they need to be compacted.
+     * If the database is journaled, the journal is emptied afterwards.
+     */
+    public void checkpoint()
+    {
+        journaledMutations=0;
+        if(compactionNeeded || !snapshotWritten || segmentCount>=maxSegments || keysChanged())
+        {
+            writeSnapshots();
+        }
+        else
+        {
+            writeSegments();
+        }
+
+        if(journal==null)
+        {
+            return;
+        }
+        if(persister!=null)
+        {
+            synchronized (pendingJournalFrames)
             {
-                this.series.remove(series);
+                //The frames that haven't been appended yet are part of the checkpoint
+                pendingJournalFrames.clear();
+                journalClearPending=true;
             }
+            persister.markDirty(JOURNAL_FILE,this::writePendingJournalFrames);
+        }
+        else
+        {
+            journal.clear();
         }
+    }
 
-        for (Content content1 : this.content)
+    /**
+     * Sets the number of segments after which a checkpoint rewrites the content and user files as a whole.
+     *
+     * @param maxSegments The number of segments between compactions.
+     */
+    public void setMaxSegments(int maxSegments)
+    {
+        if(maxSegments<=0)
         {
-            content1.removeFromRelatedContent(content);
+            throw new IllegalArgumentException("Invalid argument passed as maximum segments. Maximum segments must be a positive integer");
         }
+        this.maxSegments=maxSegments;
+    }
 
-        for (Subscriber subscriber : subscribers)
+    /**
+     * Makes the database write its changes to disk in the background, instead of before every mutation returns.
+     * Changes are encoded by the thread that makes them, and bursts of changes are written together after
+     * the specified delay, or once the specified number of changes has been made.
+     *
+     * @param delayMillis      The time in milliseconds that changes are held back, waiting for more changes.
+     * @param maxPendingWrites The number of changes after which they are written without waiting.
+     */
+    public void enableWriteBehind(long delayMillis,int maxPendingWrites)
+    {
+        if(persister==null)
         {
-            subscriber.removeFromFavorites(content);
+            persister=new WriteBehindPersister(delayMillis,maxPendingWrites);
         }
-        fileManager.writeContentFile(this.content);
-        fileManager.writeUserFile(users);
     }
 
     /**
-     * Edits content and user information in the database.
-     * Writes updated content information to the content file.
+     * Returns whether the database writes its changes to disk in the background.
+     *
+     * @return {@code true} if write-behind is enabled, {@code false} otherwise.
      */
+    public boolean isWriteBehind()
+    {
+        return persister!=null;
+    }
 
-    public void editFiles()
+    /**
+     * Starts writing the changes that are waiting to be written, without waiting for them.
+     * Does nothing unless write-behind is enabled.
+     */
+    public void flush()
+    {
+        if(persister!=null)
+        {
+            persister.flush();
+        }
+    }
+
+    /**
+     * Waits until every change made to the database so far has been written to disk.
+     * Returns immediately unless write-behind is enabled.
+     */
+    public void awaitDurable()
+    {
+        if(persister!=null)
+        {
+            persister.awaitDurable();
+        }
+    }
+
+    /**
+     * Sets the number of journaled mutations after which the database is checkpointed.
+     *
+     * @param checkpointInterval The number of mutations between checkpoints.
+     */
+    public void setCheckpointInterval(int checkpointInterval)
+    {
+        if(checkpointInterval<=0)
+        {
+            throw new IllegalArgumentException("Invalid argument passed as checkpoint interval. Checkpoint interval must be a positive integer");
+        }
+        this.checkpointInterval=checkpointInterval;
+    }
+
+    /**
+     * Returns whether the database is journaled.
+     *
+     * @return {@code true} if mutations are appended to a journal, {@code false} otherwise.
+     */
+    public boolean isJournaled()
     {
-        fileManager.writeContentFile(content);
-        fileManager.writeUserFile(users);
+        return journal!=null;
     }
 
     /**
@@ -243,6 +443,11 @@ public class DataBase
             return;
         }
         content.clear();
+        contentById.clear();
+        relatedReferrers.clear();
+        favoriteReferrers.clear();
+        reviewedContent.clear();
+        clearSearchIndex();
         viewableContent.clear();
         series.clear();
         movies.clear();
@@ -250,8 +455,7 @@ public class DataBase
         {
             subscriber.deleteFavorites();
         }
-        fileManager.writeContentFile(this.content);
-        fileManager.writeUserFile(users);
+        persist(new JournalRecord(JournalRecord.Operation.DELETE_ALL_CONTENT));
     }
 
     /**
@@ -268,23 +472,16 @@ public class DataBase
 
         for (ViewableContent viewableContent1 : viewableContent)
         {
-            for (Subscriber subscriber : subscribers)
-            {
-                subscriber.removeFromFavorites(viewableContent1);
-            }
-
-            for (Content content1 : content)
-            {
-                content1.removeFromRelatedContent(viewableContent1);
-            }
+            contentById.remove(viewableContent1.getId());
+            reindexSearch(viewableContent1);
+            unlinkContent(viewableContent1);
         }
 
         content.removeAll(viewableContent);
         viewableContent.clear();
         movies.clear();
         series.clear();
-        fileManager.writeContentFile(this.content);
-        fileManager.writeUserFile(users);
+        persist(new JournalRecord(JournalRecord.Operation.DELETE_ALL_VIEWABLE_CONTENT));
     }
 
     /**
@@ -301,21 +498,15 @@ public class DataBase
 
         for(Movie movie : movies)
         {
-            for (Subscriber subscriber : subscribers)
-            {
-                subscriber.removeFromFavorites(movie);
-            }
-            for (Content content1 : content)
-            {
-                content1.removeFromRelatedContent(movie);
-            }
+            contentById.remove(movie.getId());
+            reindexSearch(movie);
+            unlinkContent(movie);
         }
 
         content.removeAll(movies);
         viewableContent.removeAll(movies);
         movies.clear();
-        fileManager.writeContentFile(this.content);
-        fileManager.writeUserFile(users);
+        persist(new JournalRecord(JournalRecord.Operation.DELETE_ALL_MOVIES));
     }
 
     /**
@@ -332,39 +523,156 @@ public class DataBase
 
         for(Series series1: series)
         {
-            for (Subscriber subscriber : subscribers)
-            {
-                subscriber.removeFromFavorites(series1);
-            }
-
-            for (Content content1 : content)
-            {
-                content1.removeFromRelatedContent(series1);
-            }
+            contentById.remove(series1.getId());
+            reindexSearch(series1);
+            unlinkContent(series1);
         }
 
         content.removeAll(series);
         viewableContent.removeAll(series);
         series.clear();
-        fileManager.writeContentFile(this.content);
-        fileManager.writeUserFile(users);
+        persist(new JournalRecord(JournalRecord.Operation.DELETE_ALL_SERIES));
     }
 
     /**
      * Searches for content in the database based on specified search criteria.
-     * Utilizes a {@link SearchManager} to perform the search.
+     * Utilizes a {@link SearchManager} to perform the search, which plans it through the indexes of the content.
      *
-     * @param searchCriteria The criteria used for searching content.
+     * @param searchCriteria The criteria used for searching content, in the string form described
+     *                       in {@link SearchQuery#parse(String...)}.
      * @return An ArrayList of content matching the search criteria.
      */
     public ArrayList<Content> searchContent(String...searchCriteria)
     {
-        SearchManager searchManager=new SearchManager(content);
-        ArrayList<Content> results=new ArrayList<>();
+        return search(SearchQuery.parse(searchCriteria));
+    }
+
+    /**
+     * Searches for content in the database based on a query.
+     * Utilizes a {@link SearchManager} to perform the search, which plans it through the indexes of the content.
+     * The results of recent queries are kept until the content or its reviews change, so a repeated query
+     * isn't carried out again.
+     *
+     * @param query The query, built with {@link SearchQuery#builder()}.
+     * @return An ArrayList of content matching the query.
+     */
+    public ArrayList<Content> search(SearchQuery query)
+    {
+        ArrayList<Content> results=searchCache.get(query,contentVersion);
+        if(results==null)
+        {
+            indexSearch();
+            SearchManager searchManager=new SearchManager(content,searchIndex);
+            results=searchManager.search(query);
+            searchCache.put(query,results,contentVersion);
+        }
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Returns the number of searches whose results were kept from an earlier search of the same query.
+     *
+     * @return The number of search cache hits.
+     */
+    public long getSearchCacheHits()
+    {
+        return searchCache.getHits();
+    }
+
+    /**
+     * Returns the number of searches that had to be carried out, because their results weren't kept or the content
+     * changed since they were found.
+     *
+     * @return The number of search cache misses.
+     */
+    public long getSearchCacheMisses()
+    {
+        return searchCache.getMisses();
+    }
+
+    /**
+     * Streams the results of a query, as described in {@link SearchManager#stream(SearchQuery, boolean)}.
+     * The database must not be changed before the stream is consumed.
+     *
+     * @param query  The query, built with {@link SearchQuery#builder()}.
+     * @param ranked {@code true} if the results have to be in the order of {@link #search(SearchQuery)}.
+     * @return A sequential stream of the results.
+     */
+    public Stream<SearchHit> stream(SearchQuery query, boolean ranked)
+    {
+        indexSearch();
+        return new SearchManager(content,searchIndex).stream(query,ranked);
+    }
+
+    /**
+     * Returns a page of the results of a query, as described in {@link SearchManager#search(SearchQuery, int, int)}.
+     *
+     * @param query  The query, built with {@link SearchQuery#builder()}.
+     * @param offset The number of results before the page.
+     * @param limit  The maximum number of results of the page.
+     * @return The page of results, with the cursor of the next page.
+     * @throws IllegalArgumentException If the offset is negative or the limit isn't positive.
+     */
+    public SearchPage search(SearchQuery query, int offset, int limit) throws IllegalArgumentException
+    {
+        indexSearch();
+        return new SearchManager(content,searchIndex).search(query,offset,limit);
+    }
+
+    /**
+     * Returns the page of the results of a query that follows a cursor, as described in
+     * {@link SearchManager#search(SearchQuery, SearchPage.Cursor, int)}.
+     *
+     * @param query  The query, built with {@link SearchQuery#builder()}.
+     * @param cursor The cursor of the page, as returned by {@link SearchPage#getNextCursor()}, or {@code null} for the first page.
+     * @param limit  The maximum number of results of the page.
+     * @return The page of results, with the cursor of the next page.
+     * @throws IllegalArgumentException If the limit isn't positive.
+     */
+    public SearchPage search(SearchQuery query, SearchPage.Cursor cursor, int limit) throws IllegalArgumentException
+    {
+        indexSearch();
+        return new SearchManager(content,searchIndex).search(query,cursor,limit);
+    }
+
+    /**
+     * Suggests the titles and names of the people involved of content that start with what has been typed in the
+     * search bar, from the ones of the best rated content to the ones of the worst. Every suggestion is found in the
+     * time it takes to follow the prefix, without searching the content.
+     *
+     * @param prefix What has been typed in the search bar.
+     * @param limit  The maximum number of suggestions, which is at most 10.
+     * @return An ArrayList of the suggested titles and names, which is empty if nothing has been typed.
+     */
+    public ArrayList<String> suggest(String prefix, int limit)
+    {
+        indexSearch();
+        return searchIndex.getSuggestions().suggest(prefix,limit);
+    }
 
-        results=searchManager.searchContent(searchCriteria);
+    /**
+     * Counts the results of a query, and the results it would have for every option of its filters, as described in
+     * {@link SearchManager#facets(SearchQuery)}, so that the options can show how many results choosing them yields.
+     *
+     * @param query The query, built with {@link SearchQuery#builder()}.
+     * @return The counts of the results.
+     */
+    public SearchFacets facets(SearchQuery query)
+    {
+        indexSearch();
+        return new SearchManager(content,searchIndex).facets(query);
+    }
 
-        return results;
+    /**
+     * Describes how a query would be carried out, without carrying it out.
+     *
+     * @param query The query, built with {@link SearchQuery#builder()}.
+     * @return A description of the plan of the query, as returned by {@link SearchManager#explain(SearchQuery)}.
+     */
+    public String explain(SearchQuery query)
+    {
+        indexSearch();
+        return new SearchManager(content,searchIndex).explain(query);
     }
 
     /**
@@ -375,21 +683,11 @@ public class DataBase
      */
     public void addToUsers(User...users)
     {
-        Collections.addAll(this.users,users);
         for (User user : users)
         {
-            authentication.put(user.getUsername(),user);
-
-            if(user instanceof Admin admin)
-            {
-                admins.add(admin);
-            }
-            else if(user instanceof Subscriber subscriber)
-            {
-                subscribers.add(subscriber);
-            }
+            indexUser(user);
         }
-        fileManager.writeUserFile(this.users);
+        persist(new JournalRecord(JournalRecord.Operation.ADD_USERS,users));
     }
 
     /**
@@ -400,21 +698,11 @@ public class DataBase
      */
     public void addToUsers(HashSet<User> users)
     {
-        this.users.addAll(users);
         for (User user : users)
         {
-            authentication.put(user.getUsername(),user);
-
-            if(user instanceof Admin admin)
-            {
-                admins.add(admin);
-            }
-            else if(user instanceof Subscriber subscriber)
-            {
-                subscribers.add(subscriber);
-            }
+            indexUser(user);
         }
-        fileManager.writeUserFile(this.users);
+        persist(new JournalRecord(JournalRecord.Operation.ADD_USERS,users.toArray(new User[0])));
     }
 
     /**
@@ -431,26 +719,10 @@ public class DataBase
         }
         for(User user : users)
         {
-            authentication.remove(user.getUsername(),user);
-            this.users.remove(user);
-            if(user instanceof Admin admin)
-            {
-                admins.remove(admin);
-            }
-            else if(user instanceof Subscriber subscriber)
-            {
-                subscribers.remove(subscriber);
-            }
-            for (Content content1 : content)
-            {
-                if(content1.getReviews().containsKey(user))
-                {
-                    content1.removeFromReviews(content1.getReviews().get(user));
-                }
-            }
+            unindexUser(user);
+            unlinkUser(user);
         }
-        fileManager.writeUserFile(this.users);
-        fileManager.writeContentFile(content);
+        persist(new JournalRecord(JournalRecord.Operation.REMOVE_USERS,users));
     }
 
     /**
@@ -466,30 +738,13 @@ public class DataBase
             return;
         }
 
-        this.users.removeAll(users);
         for(User user : users)
         {
-            authentication.remove(user.getUsername(),user);
-
-            if(user instanceof Admin admin)
-            {
-                admins.remove(admin);
-            }
-            else if(user instanceof Subscriber subscriber)
-            {
-                subscribers.remove(subscriber);
-                for (Content content1 : content)
-                {
-                    if(content1.getReviews().containsKey(subscriber))
-                    {
-                        content1.removeFromReviews(content1.getReviews().get(subscriber));
-                    }
-                }
-            }
-        }
-        fileManager.writeUserFile(this.users);
-        fileManager.writeContentFile(content);
-    }
+            unindexUser(user);
+            unlinkUser(user);
+        }
+        persist(new JournalRecord(JournalRecord.Operation.REMOVE_USERS,users.toArray(new User[0])));
+    }
 
     /**
      * Deletes all users from the database.
@@ -504,21 +759,16 @@ public class DataBase
 
         for(User user: users)
         {
-            for (Content content1 : content)
-            {
-                if(content1.getReviews().containsKey(user))
-                {
-                    content1.removeFromReviews(content1.getReviews().get(user));
-                }
-            }
+            unlinkUser(user);
         }
 
         authentication.clear();
         users.clear();
+        usersById.clear();
+        favoriteReferrers.clear();
         subscribers.clear();
         admins.clear();
-        fileManager.writeUserFile(this.users);
-        fileManager.writeContentFile(content);
+        persist(new JournalRecord(JournalRecord.Operation.DELETE_USERS));
     }
 
     /**
@@ -537,19 +787,12 @@ public class DataBase
         for (Admin admin : admins)
         {
             authentication.remove(admin.getUsername(),admin);
-
-            for (Content content1 : content)
-            {
-                if(content1.getReviews().containsKey(admin))
-                {
-                    content1.removeFromReviews(content1.getReviews().get(admin));
-                }
-            }
+            usersById.remove(admin.getId());
+            unlinkUser(admin);
         }
 
         admins.clear();
-        fileManager.writeUserFile(this.users);
-        fileManager.writeContentFile(content);
+        persist(new JournalRecord(JournalRecord.Operation.DELETE_ADMINS));
     }
 
     /**
@@ -568,22 +811,59 @@ public class DataBase
         for(Subscriber subscriber : subscribers)
         {
             authentication.remove(subscriber.getUsername(),subscriber);
+            usersById.remove(subscriber.getId());
+            unindexFavorites(subscriber);
+            unlinkUser(subscriber);
+        }
+        users.removeAll(subscribers);
+        subscribers.clear();
+        persist(new JournalRecord(JournalRecord.Operation.DELETE_SUBSCRIBERS));
+    }
 
-            for (Content content1 : content)
+
+    /**
+     * Finds the content with the specified ID.
+     *
+     * @param id The ID of the content.
+     * @return The content with the ID, or {@code null} if there is none in the database.
+     */
+    public Content getContentById(long id)
+    {
+        return contentById.get(id);
+    }
+
+    /**
+     * Finds the reviews that a user has submitted, such as for showing them in the profile of the user.
+     * Only the content the user has reviewed is visited.
+     *
+     * @param user The reviewer.
+     * @return A HashMap of the content of the database the user has reviewed, mapped to the review of the user.
+     */
+    public HashMap<Content,Review> getReviewsBy(User user)
+    {
+        indexReferrers();
+        HashMap<Content,Review> reviews=new HashMap<>();
+        for (Content content1 : reviewedContent.get(user.getId()))
+        {
+            Review review=content1.getReviews().get(user);
+            if(review!=null && contentById.get(content1.getId())==content1)
             {
-                if(!content1.getReviews().isEmpty())
-                {
-                    content1.getReviews().clear();
-                    content1.getReviews().clear();
-                }
+                reviews.put(content1,review);
             }
         }
-        users.removeAll(subscribers);
-        subscribers.clear();
-        fileManager.writeUserFile(this.users);
-        fileManager.writeContentFile(content);
+        return reviews;
     }
 
+    /**
+     * Finds the user with the specified ID.
+     *
+     * @param id The ID of the user.
+     * @return The user with the ID, or {@code null} if there is none in the database.
+     */
+    public User getUserById(long id)
+    {
+        return usersById.get(id);
+    }
 
     /**
      * Gets the set of all content in the database.
@@ -664,4 +944,936 @@ public class DataBase
     {
         return subscribers;
     }
+
+    /**
+     * Persists a mutation of the database. If the database is journaled, the mutation is appended to
+     * the journal, and the database is checkpointed if the journal got too long. Otherwise, the files
+     * affected by the mutation are rewritten.
+     *
+     * @param record The mutation that was performed, along with the content or users it was performed on.
+     */
+    private void persist(JournalRecord record)
+    {
+        if(record.getOperation().affectsContent())
+        {
+            contentVersion++;
+        }
+        //Mutations replayed from the journal are tracked too, since the next checkpoint must include them
+        trackChanges(record);
+        if(replaying)
+        {
+            return;
+        }
+
+        if(journal==null)
+        {
+            checkpoint();
+            return;
+        }
+
+        if(persister!=null)
+        {
+            byte[] frame=Journal.encode(record);
+            synchronized (pendingJournalFrames)
+            {
+                pendingJournalFrames.add(frame);
+            }
+            persister.markDirty(JOURNAL_FILE,this::writePendingJournalFrames);
+        }
+        else
+        {
+            journal.append(record);
+        }
+
+        if(++journaledMutations>=checkpointInterval)
+        {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Encodes the content and marks the content file to be written in the background.
+     * The content is encoded by the calling thread, since it may be changed while the file is written.
+     */
+    private void writeContentBehind()
+    {
+        byte[] encodedContent=BinaryCodec.encodeContent(content);
+        persister.markDirty(CONTENT_FILE,() -> fileManager.writeContentFile(encodedContent));
+    }
+
+    /**
+     * Encodes the users and marks the user file to be written in the background.
+     */
+    private void writeUsersBehind()
+    {
+        byte[] encodedUsers=BinaryCodec.encodeUsers(users);
+        persister.markDirty(USER_FILE,() -> fileManager.writeUserFile(encodedUsers));
+    }
+
+    /**
+     * Appends the journal frames that are waiting to be written, emptying the journal first if a checkpoint
+     * has been written since the last append. Runs on the write-behind thread.
+     */
+    private void writePendingJournalFrames()
+    {
+        ArrayList<byte[]> frames;
+        boolean clear;
+        synchronized (pendingJournalFrames)
+        {
+            frames=new ArrayList<>(pendingJournalFrames);
+            pendingJournalFrames.clear();
+            clear=journalClearPending;
+            journalClearPending=false;
+        }
+        if(clear)
+        {
+            journal.clear();
+        }
+        journal.appendEncoded(frames);
+    }
+
+    /**
+     * Applies the mutations recorded in the journal to the database, in the order they were performed.
+     */
+    private void replayJournal()
+    {
+        replaying=true;
+        for (JournalRecord record : journal.readRecords())
+        {
+            switch (record.getOperation())
+            {
+                case ADD_CONTENT -> addToContent(restoreContent(record.getContent()));
+                case REMOVE_CONTENT -> removeFromContent(storedContent(record.getContent()));
+                case EDIT_CONTENT -> editContent(restoreContent(record.getContent()));
+                case DELETE_ALL_CONTENT -> deleteAllContent();
+                case DELETE_ALL_VIEWABLE_CONTENT -> deleteAllViewableContent();
+                case DELETE_ALL_MOVIES -> deleteAllMovies();
+                case DELETE_ALL_SERIES -> deleteAllSeries();
+                case ADD_USERS -> addToUsers(restoreUsers(record.getUsers()));
+                case REMOVE_USERS -> removeFromUsers(storedUsers(record.getUsers()));
+                case EDIT_USERS -> editUsers(restoreUsers(record.getUsers()));
+                case DELETE_USERS -> deleteUsers();
+                case DELETE_ADMINS -> deleteAdmins();
+                case DELETE_SUBSCRIBERS -> deleteSubscribers();
+            }
+        }
+        replaying=false;
+    }
+
+    /**
+     * Replaces the stored content with the copies of it in a journal record, as content read from a segment is.
+     * Content that is still stored is updated in place, so that the content sets, the content by ID and the search
+     * index keep holding the instances that other content and the application refer to.
+     *
+     * @param content The content of the record.
+     * @return The stored content, updated, along with the copies of the content that isn't stored.
+     */
+    private Content[] restoreContent(Content[] content)
+    {
+        Content[] restored=new Content[content.length];
+        for (int i=0;i<content.length;i++)
+        {
+            Content content1=content[i];
+            Content stored=contentById.get(content1.getId());
+            unindexContent(stored);
+            if(stored!=null && !contentKey(stored).equals(contentKey(content1)))
+            {
+                //The old key of renamed content can't be removed by a segment
+                compactionNeeded=true;
+            }
+            if(stored!=null && stored.getClass()==content1.getClass())
+            {
+                stored.restoreFrom(content1);
+                content1=stored;
+            }
+            indexContent(content1);
+            restored[i]=content1;
+        }
+        return restored;
+    }
+
+    /**
+     * Replaces the stored users with the copies of them in a journal record, updating the stored users in place.
+     *
+     * @param users The users of the record.
+     * @return The stored users, updated, along with the copies of the users that aren't stored.
+     */
+    private User[] restoreUsers(User[] users)
+    {
+        User[] restored=new User[users.length];
+        for (int i=0;i<users.length;i++)
+        {
+            User user=users[i];
+            User stored=usersById.get(user.getId());
+            unindexUser(stored);
+            if(stored!=null && !stored.getUsername().equals(user.getUsername()))
+            {
+                compactionNeeded=true;
+            }
+            if(stored!=null && stored.getClass()==user.getClass())
+            {
+                stored.restoreFrom(user);
+                user=stored;
+            }
+            indexUser(user);
+            restored[i]=user;
+        }
+        return restored;
+    }
+
+    /**
+     * Finds the stored content that the content of a journal record refers to by its ID, since removals are
+     * journaled as content that only has an ID and a key.
+     *
+     * @param content The content of the record.
+     * @return The content that is still stored.
+     */
+    private Content[] storedContent(Content[] content)
+    {
+        ArrayList<Content> stored=new ArrayList<>();
+        for (Content content1 : content)
+        {
+            Content stored1=contentById.get(content1.getId());
+            if(stored1!=null)
+            {
+                stored.add(stored1);
+            }
+        }
+        return stored.toArray(new Content[0]);
+    }
+
+    /**
+     * Finds the stored users that the users of a journal record refer to by their ID.
+     *
+     * @param users The users of the record.
+     * @return The users that are still stored.
+     */
+    private User[] storedUsers(User[] users)
+    {
+        ArrayList<User> stored=new ArrayList<>();
+        for (User user : users)
+        {
+            User stored1=usersById.get(user.getId());
+            if(stored1!=null)
+            {
+                stored.add(stored1);
+            }
+        }
+        return stored.toArray(new User[0]);
+    }
+
+    /**
+     * Records which content and users a mutation changed or removed, so that the next checkpoint writes them.
+     * Mutations that affect more entities than they name, or that rename them since they were last written, make
+     * the next checkpoint a compaction, since the key a segment would have to remove is unknown.
+     *
+     * @param record The operation that was performed, along with the content or users it was performed on.
+     */
+    private void trackChanges(JournalRecord record)
+    {
+        switch (record.getOperation())
+        {
+            case ADD_CONTENT, EDIT_CONTENT -> {
+                for (Content content1 : record.getContent())
+                {
+                    compactionNeeded|=content1.isKeyChanged();
+                    changedContent.put(contentKey(content1),content1);
+                }
+            }
+            case REMOVE_CONTENT -> {
+                for (Content content1 : record.getContent())
+                {
+                    compactionNeeded|=content1.isKeyChanged();
+                    changedContent.remove(contentKey(content1));
+                    removedContentKeys.add(contentKey(content1));
+                }
+            }
+            case ADD_USERS, EDIT_USERS -> {
+                for (User user : record.getUsers())
+                {
+                    compactionNeeded|=user.isKeyChanged();
+                    changedUsers.put(user.getUsername(),user);
+                }
+            }
+            case REMOVE_USERS -> {
+                for (User user : record.getUsers())
+                {
+                    compactionNeeded|=user.isKeyChanged();
+                    changedUsers.remove(user.getUsername());
+                    removedUsernames.add(user.getUsername());
+                }
+            }
+            //Bulk deletions don't name the content and users they removed or changed
+            default -> compactionNeeded=true;
+        }
+    }
+
+    /**
+     * Records a piece of content that was changed as a side effect of a mutation, if it was changed.
+     *
+     * @param content The content that may have been changed.
+     */
+    private void trackIfDirty(Content content)
+    {
+        if(content.isDirty())
+        {
+            changedContent.put(contentKey(content),content);
+        }
+    }
+
+    /**
+     * Records a user that was changed as a side effect of a mutation, if it was changed.
+     *
+     * @param user The user that may have been changed.
+     */
+    private void trackIfDirty(User user)
+    {
+        if(user.isDirty())
+        {
+            changedUsers.put(user.getUsername(),user);
+        }
+    }
+
+    /**
+     * Checks whether any of the changed content or users was renamed after it was recorded,
+     * in which case its old key can't be removed by a segment.
+     *
+     * @return {@code true} if a key changed, {@code false} otherwise.
+     */
+    private boolean keysChanged()
+    {
+        for (Map.Entry<List<String>,Content> entry : changedContent.entrySet())
+        {
+            if(!entry.getKey().equals(contentKey(entry.getValue())))
+            {
+                return true;
+            }
+        }
+        for (Map.Entry<String,User> entry : changedUsers.entrySet())
+        {
+            if(!entry.getKey().equals(entry.getValue().getUsername()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rewrites the content and user files as a whole, which also discards their segments.
+     */
+    private void writeSnapshots()
+    {
+        if(persister!=null)
+        {
+            writeContentBehind();
+            writeUsersBehind();
+        }
+        else
+        {
+            fileManager.writeContentFile(content);
+            fileManager.writeUserFile(users);
+        }
+
+        for (Content content1 : content)
+        {
+            content1.clearDirty();
+        }
+        for (User user : users)
+        {
+            user.clearDirty();
+        }
+        clearChanges();
+        compactionNeeded=false;
+        snapshotWritten=true;
+        segmentCount=0;
+    }
+
+    /**
+     * Appends the content and users that changed since the last checkpoint, and the keys of the ones that were
+     * removed, as segments of the content and user files.
+     */
+    private void writeSegments()
+    {
+        ArrayList<Content> changed=new ArrayList<>();
+        for (Content content1 : changedContent.values())
+        {
+            //Content that was removed again is only tracked by its key
+            if(content.contains(content1))
+            {
+                content1.clearDirty();
+                changed.add(content1);
+            }
+        }
+        ArrayList<User> changedUsers=new ArrayList<>();
+        for (User user : this.changedUsers.values())
+        {
+            if(users.contains(user))
+            {
+                user.clearDirty();
+                changedUsers.add(user);
+            }
+        }
+
+        boolean written=false;
+        if(!changed.isEmpty() || !removedContentKeys.isEmpty())
+        {
+            byte[] segment=BinaryCodec.encodeContentSegment(changed,removedContentKeys);
+            if(persister!=null)
+            {
+                //Every segment is appended, so none of them may replace another pending one
+                persister.markDirty(new Object(),() -> fileManager.appendContentSegment(segment));
+            }
+            else
+            {
+                fileManager.appendContentSegment(segment);
+            }
+            written=true;
+        }
+        if(!changedUsers.isEmpty() || !removedUsernames.isEmpty())
+        {
+            byte[] segment=BinaryCodec.encodeUserSegment(changedUsers,removedUsernames);
+            if(persister!=null)
+            {
+                persister.markDirty(new Object(),() -> fileManager.appendUserSegment(segment));
+            }
+            else
+            {
+                fileManager.appendUserSegment(segment);
+            }
+            written=true;
+        }
+        if(written)
+        {
+            segmentCount++;
+        }
+        clearChanges();
+    }
+
+    /**
+     * Forgets the changes recorded since the last checkpoint, once they have been written.
+     */
+    private void clearChanges()
+    {
+        changedContent.clear();
+        changedUsers.clear();
+        removedContentKeys.clear();
+        removedUsernames.clear();
+    }
+
+    /**
+     * Applies the segments appended to the user and content files since they were last compacted to the
+     * users and content read from them. Content that is still stored is updated in place, since the content
+     * read from the content file may refer to it before its details are decoded.
+     */
+    private void applySegments()
+    {
+        List<BinaryCodec.Segment<User>> userSegments=fileManager.readUserSegments();
+        for (BinaryCodec.Segment<User> segment : userSegments)
+        {
+            for (List<String> key : segment.getRemovedKeys())
+            {
+                unindexUser(authentication.get(key.get(0)));
+            }
+            for (User user : segment.getChanged())
+            {
+                unindexUser(authentication.get(user.getUsername()));
+                indexUser(user);
+            }
+        }
+
+        List<BinaryCodec.Segment<Content>> contentSegments=fileManager.readContentSegments(this::findReviewer);
+        HashMap<List<String>,Content> contentByKey=new HashMap<>();
+        if(!contentSegments.isEmpty())
+        {
+            for (Content content1 : content)
+            {
+                contentByKey.put(contentKey(content1),content1);
+            }
+        }
+        for (BinaryCodec.Segment<Content> segment : contentSegments)
+        {
+            for (List<String> key : segment.getRemovedKeys())
+            {
+                unindexContent(contentByKey.remove(key));
+            }
+            for (Content content1 : segment.getChanged())
+            {
+                Content stored=contentByKey.get(contentKey(content1));
+                unindexContent(stored);
+                if(stored!=null && stored.getClass()==content1.getClass())
+                {
+                    stored.restoreFrom(content1);
+                    content1=stored;
+                }
+                indexContent(content1);
+                contentByKey.put(contentKey(content1),content1);
+            }
+        }
+        segmentCount=Math.max(userSegments.size(),contentSegments.size());
+    }
+
+    /**
+     * Removes content from the content sets of the database, without changing any other content or user.
+     *
+     * @param content The content to be removed, or {@code null}.
+     */
+    private void unindexContent(Content content)
+    {
+        if(content==null)
+        {
+            return;
+        }
+        this.content.remove(content);
+        contentById.remove(content.getId());
+        reindexSearch(content);
+        contentVersion++;
+        unindexReferences(content);
+        if (content instanceof ViewableContent viewableContent)
+        {
+            this.viewableContent.remove(viewableContent);
+        }
+        if (content instanceof Movie movie)
+        {
+            movies.remove(movie);
+        }
+        else if (content instanceof Series series)
+        {
+            this.series.remove(series);
+        }
+    }
+
+    /**
+     * Removes a user from the user sets of the database, without changing any content.
+     *
+     * @param user The user to be removed, or {@code null}.
+     */
+    private void unindexUser(User user)
+    {
+        if(user==null)
+        {
+            return;
+        }
+        users.remove(user);
+        usersById.remove(user.getId());
+        authentication.remove(user.getUsername(),user);
+        if (user instanceof Subscriber subscriber) {
+            subscribers.remove(subscriber);
+            unindexFavorites(subscriber);
+        } else if (user instanceof Admin admin) {
+            admins.remove(admin);
+        }
+    }
+
+    /**
+     * Removes content that was removed from the database from the related content of other content and the
+     * favorites of subscribers. Only the content and subscribers that refer to it are visited.
+     *
+     * @param content The content that was removed.
+     */
+    private void unlinkContent(Content content)
+    {
+        indexReferrers();
+        for (Content referrer : relatedReferrers.removeAll(content.getId()))
+        {
+            referrer.removeFromRelatedContent(content);
+            trackIfDirty(referrer);
+        }
+        for (Subscriber subscriber : favoriteReferrers.removeAll(content.getId()))
+        {
+            subscriber.removeFromFavorites(content);
+            trackIfDirty(subscriber);
+        }
+        unindexReferences(content);
+    }
+
+    /**
+     * Removes the reviews of a user that was removed from the database from the content they were submitted to.
+     * Only the content the user has reviewed is visited.
+     *
+     * @param user The user that was removed.
+     */
+    private void unlinkUser(User user)
+    {
+        indexReferrers();
+        for (Content content1 : reviewedContent.removeAll(user.getId()))
+        {
+            Review review=content1.getReviews().get(user);
+            if(review!=null)
+            {
+                content1.removeFromReviews(review);
+                trackIfDirty(content1);
+                //The rating of the content changed, by which its suggestions are ranked
+                reindexSearch(content1);
+            }
+        }
+    }
+
+    /**
+     * Builds the index of the content and subscribers that refer to every piece of content, and of the content
+     * every user has reviewed, if it hasn't been built yet. The index is only built when it is first needed, since
+     * it needs the related content and reviews of every piece of content, which are otherwise only decoded when
+     * they are first accessed.
+     */
+    private void indexReferrers()
+    {
+        if(referrersIndexed)
+        {
+            return;
+        }
+        referrersIndexed=true;
+        for (Content content1 : content)
+        {
+            indexReferences(content1);
+        }
+        for (Subscriber subscriber : subscribers)
+        {
+            indexFavorites(subscriber);
+        }
+    }
+
+    /**
+     * Builds the indexes of the content used by searches, if they haven't been built yet.
+     * The indexes are only built when they are first needed, so that loading the database doesn't wait for them.
+     * If they are being built in the background, they are waited for, and the content that was added, edited or
+     * removed in the meantime is updated in them.
+     */
+    private void indexSearch()
+    {
+        if(searchIndexed)
+        {
+            return;
+        }
+        searchIndexed=true;
+        FutureTask<SearchIndex> build=searchIndexBuild;
+        searchIndexBuild=null;
+        if(build!=null)
+        {
+            try
+            {
+                searchIndex=build.get();
+                for (Content content1 : searchIndexChanges)
+                {
+                    searchIndex.remove(content1);
+                    Content current=contentById.get(content1.getId());
+                    if(current!=null)
+                    {
+                        searchIndex.add(current);
+                    }
+                }
+                searchIndexChanges.clear();
+                return;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                e.printStackTrace();
+            }
+            catch (ExecutionException e)
+            {
+                //Content that was edited while it was indexed may fail to be read, so the indexes are built again
+                e.printStackTrace();
+            }
+            searchIndexChanges.clear();
+        }
+        for (Content content1 : content)
+        {
+            searchIndex.add(content1);
+        }
+    }
+
+    /**
+     * Starts building the indexes of the content used by searches on a thread of their own, if they haven't been
+     * built yet, so that the first search or suggestion doesn't build them on the thread that asks for it, such as
+     * the thread of the windows. Building them reads the title, people involved and reviews of every piece of
+     * content, which decodes the details of content that was read lazily. The first search that needs them waits
+     * for them instead of building them again.
+     */
+    public void indexSearchInBackground()
+    {
+        if(searchIndexed || searchIndexBuild!=null)
+        {
+            return;
+        }
+        ArrayList<Content> indexedContent=new ArrayList<>(content);
+        searchIndexBuild=new FutureTask<>(() -> {
+            SearchIndex index=new SearchIndex();
+            for (Content content1 : indexedContent)
+            {
+                index.add(content1);
+            }
+            return index;
+        });
+        Thread indexer=new Thread(searchIndexBuild,"search-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    /**
+     * Updates a piece of content in the indexes of searches after it was added, edited or removed, if they have been
+     * built. While they are being built in the background, the content is only noted, and updated once they are.
+     *
+     * @param content The content, which is indexed if it is in the database and removed from the indexes otherwise.
+     */
+    private void reindexSearch(Content content)
+    {
+        if(searchIndexBuild!=null)
+        {
+            searchIndexChanges.add(content);
+        }
+        else if(contentById.get(content.getId())!=content)
+        {
+            searchIndex.remove(content);
+        }
+        else if(searchIndexed)
+        {
+            searchIndex.add(content);
+        }
+    }
+
+    /**
+     * Empties the indexes of searches, and drops the indexes that are being built in the background.
+     */
+    private void clearSearchIndex()
+    {
+        searchIndexBuild=null;
+        searchIndexChanges.clear();
+        searchIndex.clear();
+    }
+
+    /**
+     * Adds the related content and the reviewers of a piece of content to the index of referrers, if it has been built.
+     *
+     * @param content The content that refers to its related content and reviewers.
+     */
+    private void indexReferences(Content content)
+    {
+        if(referrersIndexed)
+        {
+            for (Content related : content.getRelatedContent())
+            {
+                relatedReferrers.add(related.getId(),content);
+            }
+            for (User reviewer : content.getReviews().keySet())
+            {
+                reviewedContent.add(reviewer.getId(),content);
+            }
+        }
+    }
+
+    /**
+     * Removes the related content and the reviewers of a piece of content from the index of referrers,
+     * if it has been built.
+     *
+     * @param content The content that no longer refers to its related content and reviewers.
+     */
+    private void unindexReferences(Content content)
+    {
+        if(referrersIndexed)
+        {
+            for (Content related : content.getRelatedContent())
+            {
+                relatedReferrers.remove(related.getId(),content);
+            }
+            for (User reviewer : content.getReviews().keySet())
+            {
+                reviewedContent.remove(reviewer.getId(),content);
+            }
+        }
+    }
+
+    /**
+     * Adds the favorites of a subscriber to the index of referrers, if it has been built.
+     *
+     * @param subscriber The subscriber that refers to its favorites.
+     */
+    private void indexFavorites(Subscriber subscriber)
+    {
+        if(referrersIndexed)
+        {
+            for (Content favorite : subscriber.getFavorites())
+            {
+                favoriteReferrers.add(favorite.getId(),subscriber);
+            }
+        }
+    }
+
+    /**
+     * Removes the favorites of a subscriber from the index of referrers, if it has been built.
+     *
+     * @param subscriber The subscriber that no longer refers to its favorites.
+     */
+    private void unindexFavorites(Subscriber subscriber)
+    {
+        if(referrersIndexed)
+        {
+            for (Content favorite : subscriber.getFavorites())
+            {
+                favoriteReferrers.remove(favorite.getId(),subscriber);
+            }
+        }
+    }
+
+    /**
+     * Returns the key content is identified by in the content file: its title and people involved.
+     *
+     * @param content The content.
+     * @return A list of the title and people involved of the content.
+     */
+    private static List<String> contentKey(Content content)
+    {
+        return Arrays.asList(content.getTitle(),content.getPeopleInvolved());
+    }
+
+    /**
+     * Replaces the copies of users and content that are referenced by reviews, related content and favorites
+     * with the users and content stored in the database, so that every entity is only loaded once.
+     * Reviewers and content are matched by ID, or by username and by title and people involved if they were
+     * read from an encoding without the IDs of the entities they refer to.
+     */
+    private void linkReferences()
+    {
+        HashMap<List<String>,Content> contentByKey=new HashMap<>();
+        for (Content content1 : content)
+        {
+            contentByKey.put(Arrays.asList(content1.getTitle(),content1.getPeopleInvolved()),content1);
+        }
+
+        for (Content content1 : content)
+        {
+            //Content whose details haven't been decoded yet already refers to the stored content and users
+            if(!content1.detailsLoaded())
+            {
+                continue;
+            }
+            linkContent(content1.getRelatedContent(),contentByKey);
+
+            for (Review review : new ArrayList<>(content1.getReviews().values()))
+            {
+                User reviewer=usersById.get(review.getReviewer().getId());
+                if(reviewer==null)
+                {
+                    reviewer=authentication.get(review.getReviewer().getUsername());
+                }
+                if(reviewer!=null && reviewer!=review.getReviewer())
+                {
+                    content1.getReviews().remove(review.getReviewer(),review);
+                    review.setReviewer(reviewer);
+                    content1.getReviews().put(reviewer,review);
+                }
+            }
+        }
+
+        for (Subscriber subscriber : subscribers)
+        {
+            linkContent(subscriber.getFavorites(),contentByKey);
+        }
+    }
+
+    /**
+     * Adds content to the content sets of the database, such as content read from the content file.
+     *
+     * @param content The content to be added.
+     */
+    private void indexContent(Content content)
+    {
+        if(this.content.add(content))
+        {
+            contentById.put(content.getId(),content);
+            reindexSearch(content);
+        }
+        contentVersion++;
+        indexReferences(content);
+        if (content instanceof ViewableContent viewableContent)
+        {
+            this.viewableContent.add(viewableContent);
+        }
+        if (content instanceof Movie movie)
+        {
+            movies.add(movie);
+        }
+        else if (content instanceof Series series)
+        {
+            this.series.add(series);
+        }
+    }
+
+    /**
+     * Adds a user to the user sets of the database. Also called on the user loading thread,
+     * for every user read from the user file.
+     *
+     * @param user The user to be added.
+     */
+    private void indexUser(User user)
+    {
+        if(users.add(user))
+        {
+            usersById.put(user.getId(),user);
+        }
+        authentication.put(user.getUsername(), user);
+        if (user instanceof Subscriber subscriber) {
+            subscribers.add(subscriber);
+            indexFavorites(subscriber);
+        } else if (user instanceof Admin admin) {
+            admins.add(admin);
+        }
+    }
+
+    /**
+     * Finds the reviewer with the specified ID when the reviews of content read from the content file
+     * are decoded, waiting for the users to be read first. Reviewers of content encoded without their IDs
+     * are found by their username.
+     *
+     * @param id       The ID of the reviewer, or 0 if the content was encoded without it.
+     * @param username The username of the reviewer.
+     * @return The user with the ID, or {@code null} if there is none.
+     */
+    private User findReviewer(long id,String username)
+    {
+        awaitUsers();
+        return id!=0 ? usersById.get(id) : authentication.get(username);
+    }
+
+    /**
+     * Waits until the users have been read from the user file, if they are still being read.
+     */
+    private void awaitUsers()
+    {
+        Thread loader=userLoader;
+        if(loader!=null)
+        {
+            try
+            {
+                loader.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Replaces the content of a set with the content stored in the database with the same ID, or else with the
+     * equally titled content, if there is any.
+     *
+     * @param contentSet   The set whose content is replaced.
+     * @param contentByKey The content of the database by title and people involved.
+     */
+    private void linkContent(HashSet<Content> contentSet,HashMap<List<String>,Content> contentByKey)
+    {
+        ArrayList<Content> linked=new ArrayList<>();
+        for (Content content1 : contentSet)
+        {
+            Content stored=contentById.get(content1.getId());
+            if(stored==null)
+            {
+                stored=contentByKey.get(Arrays.asList(content1.getTitle(),content1.getPeopleInvolved()));
+            }
+            linked.add(stored!=null ? stored : content1);
+        }
+        contentSet.clear();
+        contentSet.addAll(linked);
+    }
 }
@@ -0,0 +1,36 @@
+package api;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@code EntityIds} class generates the IDs of content and users.
+ * <p>
+ * IDs are random non-zero 64-bit numbers, so that entities created by different runs of the program, or before
+ * the database is loaded, never need to be renumbered to avoid the IDs of the entities read from the files.
+ * The chance that two of them collide is negligible for any realistic number of entities.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+final class EntityIds
+{
+    private EntityIds()
+    {
+    }
+
+    /**
+     * Generates a new ID.
+     *
+     * @return A random ID, which is never 0.
+     */
+    static long next()
+    {
+        long id;
+        do
+        {
+            id=ThreadLocalRandom.current().nextLong();
+        }
+        while (id==0);
+        return id;
+    }
+}
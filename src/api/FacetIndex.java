@@ -0,0 +1,417 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * The {@code FacetIndex} class gives every piece of content a dense ordinal, and keeps a {@link BitSet} of the
+ * ordinals of the content of every category, genre and suitability for minors (its postings), and of the reviewed
+ * content of every whole star of average rating. The content that passes a list of filters is then found with
+ * word-wise operations on the postings instead of checking every piece of content, which is how
+ * {@link SearchManager} finds the candidates of filtered searches and counts the results of every option of the
+ * filters.
+ * <p>
+ * The ordinals of removed content are given to the next content that is added, so the postings stay as small
+ * as the content. Content is compared by identity.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class FacetIndex
+{
+    /**
+     * The highest average rating, whose postings are kept for every whole star up to it.
+     */
+    static final int MAX_RATING=5;
+
+    private final IdentityHashMap<Content,Integer> ordinals;
+    private Content[] contentByOrdinal;
+    private double[] ratings;
+    private final BitSet all;
+    private int firstFree;
+    private final EnumMap<SearchQuery.Category,BitSet> categories;
+    private final HashMap<String,BitSet> genres;
+    private final HashMap<String,BitSet> suitability;
+    private final BitSet[] ratingPostings;
+
+    /**
+     * Constructs a new empty FacetIndex.
+     */
+    FacetIndex()
+    {
+        ordinals=new IdentityHashMap<>();
+        contentByOrdinal=new Content[16];
+        ratings=new double[16];
+        all=new BitSet();
+        categories=new EnumMap<>(SearchQuery.Category.class);
+        for (SearchQuery.Category category : SearchQuery.Category.values())
+        {
+            categories.put(category,new BitSet());
+        }
+        genres=new HashMap<>();
+        suitability=new HashMap<>();
+        ratingPostings=new BitSet[MAX_RATING+1];
+        for (int stars=0;stars<=MAX_RATING;stars++)
+        {
+            ratingPostings[stars]=new BitSet();
+        }
+    }
+
+    /**
+     * Adds a piece of content to the postings. If the content is already indexed, it is indexed again under the
+     * same ordinal, such as after its fields or reviews were edited.
+     *
+     * @param content The content to be indexed.
+     */
+    void add(Content content)
+    {
+        Integer indexedOrdinal=ordinals.get(content);
+        int ordinal;
+        if(indexedOrdinal!=null)
+        {
+            ordinal=indexedOrdinal;
+            clearPostings(ordinal);
+        }
+        else
+        {
+            ordinal=all.nextClearBit(firstFree);
+            firstFree=ordinal+1;
+            if(ordinal==contentByOrdinal.length)
+            {
+                contentByOrdinal=Arrays.copyOf(contentByOrdinal,2*ordinal);
+                ratings=Arrays.copyOf(ratings,2*ordinal);
+            }
+            ordinals.put(content,ordinal);
+            contentByOrdinal[ordinal]=content;
+            all.set(ordinal);
+        }
+
+        categories.get(SearchQuery.Category.of(content)).set(ordinal);
+        if(content instanceof ViewableContent viewableContent)
+        {
+            if(viewableContent.getGenre()!=null)
+            {
+                genres.computeIfAbsent(viewableContent.getGenreKey(),key -> new BitSet()).set(ordinal);
+            }
+            if(viewableContent.getIsSuitableForMinors()!=null)
+            {
+                suitability.computeIfAbsent(viewableContent.getSuitabilityKey(),key -> new BitSet()).set(ordinal);
+            }
+        }
+        if(content.getReviews().isEmpty())
+        {
+            ratings[ordinal]=Double.NaN;
+        }
+        else
+        {
+            ratings[ordinal]=content.getAverageRating();
+            ratingPostings[stars(ratings[ordinal])].set(ordinal);
+        }
+    }
+
+    /**
+     * Removes a piece of content from the postings, freeing its ordinal.
+     *
+     * @param content The content to be removed.
+     */
+    void remove(Content content)
+    {
+        Integer ordinal=ordinals.remove(content);
+        if(ordinal==null)
+        {
+            return;
+        }
+        clearPostings(ordinal);
+        contentByOrdinal[ordinal]=null;
+        all.clear(ordinal);
+        firstFree=Math.min(firstFree,ordinal);
+    }
+
+    /**
+     * Removes all content from the postings.
+     */
+    void clear()
+    {
+        ordinals.clear();
+        Arrays.fill(contentByOrdinal,null);
+        all.clear();
+        firstFree=0;
+        for (BitSet postings : categories.values())
+        {
+            postings.clear();
+        }
+        genres.clear();
+        suitability.clear();
+        for (BitSet postings : ratingPostings)
+        {
+            postings.clear();
+        }
+    }
+
+    /**
+     * Returns the number of pieces of content in the postings.
+     *
+     * @return The number of indexed pieces of content.
+     */
+    int size()
+    {
+        return ordinals.size();
+    }
+
+    /**
+     * Returns the ordinal of a piece of content.
+     *
+     * @param content The content.
+     * @return The ordinal, or -1 if the content isn't indexed.
+     */
+    int ordinal(Content content)
+    {
+        Integer ordinal=ordinals.get(content);
+        return ordinal==null ? -1 : ordinal;
+    }
+
+    /**
+     * Returns the content of an ordinal.
+     *
+     * @param ordinal The ordinal.
+     * @return The content, or {@code null} if no content has the ordinal.
+     */
+    Content content(int ordinal)
+    {
+        return ordinal<contentByOrdinal.length ? contentByOrdinal[ordinal] : null;
+    }
+
+    /**
+     * Returns the content of some ordinals.
+     *
+     * @param ordinals The ordinals.
+     * @return A list of the content, in the order of its ordinals.
+     */
+    List<Content> content(BitSet ordinals)
+    {
+        ArrayList<Content> content=new ArrayList<>(ordinals.cardinality());
+        for (int ordinal=ordinals.nextSetBit(0);ordinal>=0;ordinal=ordinals.nextSetBit(ordinal+1))
+        {
+            content.add(contentByOrdinal[ordinal]);
+        }
+        return content;
+    }
+
+    /**
+     * Returns the postings of a category.
+     *
+     * @param category The category.
+     * @return The BitSet of the ordinals of the content of the category, which must not be modified.
+     */
+    BitSet getCategory(SearchQuery.Category category)
+    {
+        return categories.get(category);
+    }
+
+    /**
+     * Returns the postings of a genre.
+     *
+     * @param genreKey The search key of the genre.
+     * @return The BitSet of the ordinals of the viewable content of the genre, which must not be modified.
+     */
+    BitSet getGenre(String genreKey)
+    {
+        return genres.getOrDefault(genreKey,new BitSet());
+    }
+
+    /**
+     * Returns the postings of a suitability for minors.
+     *
+     * @param suitabilityKey The search key of the suitability ("yes" or "no").
+     * @return The BitSet of the ordinals of the viewable content of the suitability, which must not be modified.
+     */
+    BitSet getSuitability(String suitabilityKey)
+    {
+        return suitability.getOrDefault(suitabilityKey,new BitSet());
+    }
+
+    /**
+     * Checks if the content that passes a filter is found through the postings of the fields of content alone.
+     * The minimum rating isn't, since the postings of ratings only hold whole stars, so the content of the lowest
+     * star is still checked.
+     *
+     * @param filter The filter.
+     * @return {@code true} if the filter is of the category, genre or suitability for minors.
+     */
+    static boolean isIndexed(SearchQuery.Filter filter)
+    {
+        return filter instanceof SearchQuery.CategoryFilter || filter instanceof SearchQuery.GenreFilter
+                || filter instanceof SearchQuery.SuitabilityFilter;
+    }
+
+    /**
+     * Counts the content that a filter doesn't reject.
+     *
+     * @param filter The filter.
+     * @return The number of pieces of content.
+     */
+    int count(SearchQuery.Filter filter)
+    {
+        return passing(filter).cardinality();
+    }
+
+    /**
+     * Returns the ordinals of all the content.
+     *
+     * @return A new BitSet of the ordinals.
+     */
+    BitSet all()
+    {
+        return (BitSet) all.clone();
+    }
+
+    /**
+     * Finds the content that passes a list of filters, in the same way as {@link SearchQuery#matchesFilters(Content)}.
+     * The filters are combined from the last one to the first, so that content that a filter accepts passes
+     * regardless of the filters that follow it.
+     *
+     * @param filters The filters, in the order they are checked.
+     * @return A new BitSet of the ordinals of the content that passes the filters.
+     */
+    BitSet matching(List<SearchQuery.Filter> filters)
+    {
+        BitSet matching=all();
+        for (int i=filters.size()-1;i>=0;i--)
+        {
+            SearchQuery.Filter filter=filters.get(i);
+            matching.and(passing(filter));
+            if(filter.mayAccept())
+            {
+                matching.or(accepting(filter));
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Finds the content that a filter doesn't reject.
+     */
+    private BitSet passing(SearchQuery.Filter filter)
+    {
+        BitSet passing=new BitSet();
+        if(filter instanceof SearchQuery.CategoryFilter categoryFilter)
+        {
+            for (SearchQuery.Category category : categoryFilter.getCategories())
+            {
+                passing.or(categories.get(category));
+            }
+            passing.or(accepting(filter));
+        }
+        else if(filter instanceof SearchQuery.GenreFilter genreFilter)
+        {
+            for (String genreKey : genreFilter.getGenreKeys())
+            {
+                orIfPresent(passing,genres.get(genreKey));
+            }
+            //Content that isn't viewable passes the filter
+            passing.or(categories.get(SearchQuery.Category.CONTENT));
+        }
+        else if(filter instanceof SearchQuery.SuitabilityFilter suitabilityFilter)
+        {
+            for (String suitabilityKey : suitabilityFilter.getSuitabilityKeys())
+            {
+                orIfPresent(passing,suitability.get(suitabilityKey));
+            }
+            passing.or(categories.get(SearchQuery.Category.CONTENT));
+        }
+        else if(filter instanceof SearchQuery.MinRatingFilter minRatingFilter)
+        {
+            double minRating=minRatingFilter.getMinRating();
+            int minStars=minRating<=0 ? 0 : stars(minRating);
+            for (int stars=minStars+1;stars<=MAX_RATING;stars++)
+            {
+                passing.or(ratingPostings[stars]);
+            }
+            //Only the content of the lowest star may have a lower rating than the minimum
+            BitSet lowest=ratingPostings[minStars];
+            for (int ordinal=lowest.nextSetBit(0);ordinal>=0;ordinal=lowest.nextSetBit(ordinal+1))
+            {
+                if(ratings[ordinal]>=minRating)
+                {
+                    passing.set(ordinal);
+                }
+            }
+        }
+        else
+        {
+            for (int ordinal=all.nextSetBit(0);ordinal>=0;ordinal=all.nextSetBit(ordinal+1))
+            {
+                if(filter.test(contentByOrdinal[ordinal])!=SearchQuery.Outcome.REJECT)
+                {
+                    passing.set(ordinal);
+                }
+            }
+        }
+        return passing;
+    }
+
+    /**
+     * Finds the content that a filter accepts regardless of the filters that follow it.
+     */
+    private BitSet accepting(SearchQuery.Filter filter)
+    {
+        if(filter instanceof SearchQuery.CategoryFilter)
+        {
+            //Only plain content is accepted, and the filter accepts all of it if it accepts any
+            return filter.mayAccept() ? categories.get(SearchQuery.Category.CONTENT) : new BitSet();
+        }
+        BitSet accepting=new BitSet();
+        if(filter.mayAccept())
+        {
+            for (int ordinal=all.nextSetBit(0);ordinal>=0;ordinal=all.nextSetBit(ordinal+1))
+            {
+                if(filter.test(contentByOrdinal[ordinal])==SearchQuery.Outcome.ACCEPT)
+                {
+                    accepting.set(ordinal);
+                }
+            }
+        }
+        return accepting;
+    }
+
+    private static void orIfPresent(BitSet bits, BitSet postings)
+    {
+        if(postings!=null)
+        {
+            bits.or(postings);
+        }
+    }
+
+    private void clearPostings(int ordinal)
+    {
+        for (BitSet postings : categories.values())
+        {
+            postings.clear(ordinal);
+        }
+        for (BitSet postings : genres.values())
+        {
+            postings.clear(ordinal);
+        }
+        for (BitSet postings : suitability.values())
+        {
+            postings.clear(ordinal);
+        }
+        for (BitSet postings : ratingPostings)
+        {
+            postings.clear(ordinal);
+        }
+    }
+
+    /**
+     * Returns the whole stars of an average rating, which are the postings of the rating.
+     */
+    private static int stars(double rating)
+    {
+        return Math.max(0,Math.min(MAX_RATING,(int) Math.floor(rating)));
+    }
+}
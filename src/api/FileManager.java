@@ -1,16 +1,83 @@
 package api;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
 
 /**
  * Handles reading from and writing to files for Content and User objects.
+ * Objects are stored in the compact binary format of {@link BinaryCodec}. Files written with Java serialization
+ * by older versions are still read, and can be converted with {@link #migrateFiles()}.
+ * <p>
+ * Files are written as crash-safe snapshots: the objects are written to a temporary file along with
+ * the CRC32C checksum of every block, the temporary file is synced to disk and then atomically
+ * renamed over the snapshot. The snapshot it replaces is kept as a previous snapshot, so that if the
+ * current one turns out to be damaged, the last good snapshot is read instead.
+ * <p>
+ * The checksums are stored before the objects, which are stored contiguously, so that the content file
+ * can be memory-mapped and its content decoded lazily (see {@link #readContentFile(BinaryCodec.ReviewerResolver, Consumer)}),
+ * with every block verified when it is first decoded.
+ * <p>
+ * Between snapshots, the changes to the content and users can be appended as segments (see
+ * {@link BinaryCodec#encodeContentSegment}) to a segments file next to each snapshot, which starts with
+ * an identity of the snapshot it belongs to. Segments are only read along with that snapshot, and the
+ * segments file is deleted whenever a new snapshot is written. If the previous snapshot was read instead of a
+ * damaged one, only the segments that belong to the previous snapshot are read.
  *  @authors Iraklis Fountoukidis, Chrysoula Tegousi
  *  @version 2024-01-10
  */
 public class FileManager
 {
     private  String contentFilePath, usersFilePath;
+    /**
+     * The file path of the snapshot that was read for every file path, which is the previous snapshot if the
+     * current one was damaged, or {@link #NO_SNAPSHOT} if neither could be read. Files are read on several threads.
+     */
+    private final Map<String,String> readSnapshots=new ConcurrentHashMap<>();
+
+    /**
+     * Marks the beginning of a snapshot file ("MyTV" in ASCII).
+     */
+    private static final int MAGIC=0x4D795456;
+    private static final int FORMAT_VERSION=3;
+    /**
+     * Version of the snapshots that stored their objects in the binary format, split into blocks
+     * that were each preceded by their length and checksum.
+     */
+    private static final int BLOCK_FORMAT_VERSION=2;
+    /**
+     * Version of the snapshots that stored their objects with Java serialization.
+     */
+    private static final int SERIALIZED_FORMAT_VERSION=1;
+    /**
+     * Version reported for files written before snapshots were checksummed.
+     */
+    private static final int UNCHECKSUMMED_FORMAT_VERSION=0;
+    private static final int BLOCK_SIZE=64*1024;
+    private static final String TEMPORARY_SUFFIX=".tmp", PREVIOUS_SUFFIX=".prev", SEGMENTS_SUFFIX=".segments";
+    private static final String NO_SNAPSHOT="";
+    /**
+     * Whether a file can be renamed over while it is memory-mapped, which Windows doesn't allow. Where it can't,
+     * content that is decoded lazily is read into memory instead, so that the next snapshot can replace the file.
+     */
+    private static final boolean MAPPED_FILES_RENAMABLE=!System.getProperty("os.name","").startsWith("Windows");
+
+    private static final Logger LOGGER=Logger.getLogger(FileManager.class.getName());
+    /**
+     * Marks the beginning of a segments file ("MyTS" in ASCII).
+     */
+    private static final int SEGMENTS_MAGIC=0x4D795453;
 
     /**
      * Constructs a FileManager object with the provided file paths for content and users.
@@ -27,99 +94,857 @@ public class FileManager
 
     /**
      * Reads content objects from the content file.
+     * If the content file is damaged, the previous snapshot of the content is read instead.
      *
      * @return a HashSet containing Content objects read from the file
      */
     public HashSet<Content> readContentFile()
     {
-        HashSet<Content> contentObjects = new HashSet<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(contentFilePath)))
+        HashSet<Content> content=new HashSet<>();
+        readSnapshot(contentFilePath,Content.class,null,content::add);
+        return content;
+    }
+
+    /**
+     * Reads content objects from the content file, decoding only the fields of every piece of content.
+     * The content file is memory-mapped, and the seasons, related content and reviews of a piece of content
+     * are decoded from it when they are first accessed, so loading a large catalog doesn't decode all of it.
+     * The blocks of the file are verified as they are first decoded too, so loading it doesn't read all of it.
+     * If the tables or the fields of the content are damaged, the previous snapshot of the content is read instead;
+     * details that turn out to be damaged when they are first accessed are left empty.
+     * <p>
+     * The mapped file stays open until the content is no longer referenced. On Windows, which doesn't allow
+     * mapped files to be renamed over, the file is read into memory instead, and its content still decoded lazily.
+     *
+     * <p>
+     * The chunks of the content file are decoded in parallel, and the content of every chunk is handed to the
+     * indexer as soon as it is decoded, while the chunks after it are still being decoded. If a chunk turns out
+     * to be damaged after some content was handed over, the previous snapshot isn't read, so that no content is
+     * indexed twice.
+     *
+     * @param reviewers finds the user with a given ID or username, to be set as the reviewer of the reviews they wrote.
+     *                  Only called when the reviews of a piece of content are first decoded.
+     * @param indexer   receives every piece of content read from the file
+     */
+    public void readContentFile(BinaryCodec.ReviewerResolver reviewers, Consumer<Content> indexer)
+    {
+        readSnapshot(contentFilePath,Content.class,reviewers,indexer);
+    }
+
+    /**
+     * Reads user objects from the user file.
+     * If the user file is damaged, the previous snapshot of the users is read instead.
+     *
+     * @return a HashSet containing User objects read from the file
+     */
+    public HashSet<User> readUserFile()
+    {
+        HashSet<User> users=new HashSet<>();
+        readSnapshot(usersFilePath,User.class,null,users::add);
+        return users;
+    }
+
+    /**
+     * Reads user objects from the user file, handing every user to the indexer.
+     * If the user file is damaged, the previous snapshot of the users is read instead.
+     *
+     * @param indexer receives every user read from the file
+     */
+    public void readUserFile(Consumer<User> indexer)
+    {
+        readSnapshot(usersFilePath,User.class,null,indexer);
+    }
+
+
+    /**
+     * Writes content objects to the content file.
+     *
+     * @param objects a HashSet containing Content objects to be written to the file
+     */
+    public void writeContentFile(HashSet<Content> objects)
+    {
+        writeContentFile(BinaryCodec.encodeContent(objects));
+    }
+
+    /**
+     * Writes content that has already been encoded with {@link BinaryCodec#encodeContent} to the content file.
+     * Lets the content be encoded on one thread and written on another.
+     *
+     * @param encodedContent the encoded content to be written to the file
+     */
+    public void writeContentFile(byte[] encodedContent)
+    {
+        try
+        {
+            writeSnapshot(contentFilePath,encodedContent);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * Writes user objects to the user file.
+     *
+     * @param objects a HashSet containing User objects to be written to the file
+     */
+    public void writeUserFile(HashSet<User> objects)
+    {
+        writeUserFile(BinaryCodec.encodeUsers(objects));
+    }
+
+    /**
+     * Writes users that have already been encoded with {@link BinaryCodec#encodeUsers} to the user file.
+     *
+     * @param encodedUsers the encoded users to be written to the file
+     */
+    public void writeUserFile(byte[] encodedUsers)
+    {
+        try {
+            writeSnapshot(usersFilePath,encodedUsers);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends a segment encoded with {@link BinaryCodec#encodeContentSegment} to the segments of the content file,
+     * and syncs it to disk. If the segments belong to an older snapshot, they are discarded first.
+     *
+     * @param segment the encoded segment to be appended
+     */
+    public void appendContentSegment(byte[] segment)
+    {
+        appendSegment(contentFilePath,segment);
+    }
+
+    /**
+     * Appends a segment encoded with {@link BinaryCodec#encodeUserSegment} to the segments of the user file,
+     * and syncs it to disk. If the segments belong to an older snapshot, they are discarded first.
+     *
+     * @param segment the encoded segment to be appended
+     */
+    public void appendUserSegment(byte[] segment)
+    {
+        appendSegment(usersFilePath,segment);
+    }
+
+    /**
+     * Reads the segments appended to the content file since its snapshot was written, in the order they were appended.
+     * Segments that were only partially written, and the ones that follow them, are ignored.
+     *
+     * @param reviewers finds the user with a given ID or username, to be set as the reviewer of the reviews they wrote
+     * @return a list of the segments, which is empty if there are none
+     */
+    public List<BinaryCodec.Segment<Content>> readContentSegments(BinaryCodec.ReviewerResolver reviewers)
+    {
+        List<BinaryCodec.Segment<Content>> segments=new ArrayList<>();
+        try
         {
-            while (true)
+            for (ByteBuffer segment : readSegments(contentFilePath))
             {
-                try
-                {
-                    Content obj = (Content) ois.readObject();
-                    contentObjects.add(obj);
-                }
-                catch (EOFException e)
-                {
-                    break;
-                }
+                segments.add(BinaryCodec.decodeContentSegment(segment,reviewers));
             }
         }
-        catch (IOException | ClassNotFoundException e)
+        catch (IOException e)
         {
             e.printStackTrace();
         }
-        return contentObjects;
+        return segments;
     }
 
     /**
-     * Reads user objects from the user file.
+     * Reads the segments appended to the user file since its snapshot was written, in the order they were appended.
+     * Segments that were only partially written, and the ones that follow them, are ignored.
      *
-     * @return a HashSet containing User objects read from the file
+     * @return a list of the segments, which is empty if there are none
      */
-    public HashSet<User> readUserFile()
+    public List<BinaryCodec.Segment<User>> readUserSegments()
     {
-        HashSet<User> objects = new HashSet<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(usersFilePath)))
+        List<BinaryCodec.Segment<User>> segments=new ArrayList<>();
+        try
         {
-            while (true)
+            for (ByteBuffer segment : readSegments(usersFilePath))
             {
-                try {
-                    User obj = (User) ois.readObject();
-                    objects.add(obj);
-                }
-                catch (EOFException e)
+                segments.add(BinaryCodec.decodeUserSegment(segment));
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        return segments;
+    }
+
+    /**
+     * Checks whether there is a snapshot of the content, either current or previous.
+     *
+     * @return {@code true} if content has been written before, {@code false} otherwise
+     */
+    public boolean contentFileExists()
+    {
+        return snapshotExists(contentFilePath);
+    }
+
+    /**
+     * Checks whether there is a snapshot of the users, either current or previous.
+     *
+     * @return {@code true} if users have been written before, {@code false} otherwise
+     */
+    public boolean userFileExists()
+    {
+        return snapshotExists(usersFilePath);
+    }
+
+    /**
+     * Checks whether the content or the users were read from their previous snapshot, since the current one was
+     * damaged. Segments that are appended belong to the current snapshot, so the next snapshot should be written
+     * as a whole instead.
+     *
+     * @return {@code true} if a previous snapshot was read, {@code false} otherwise
+     */
+    public boolean isPreviousSnapshotRead()
+    {
+        return readSnapshots.containsValue(contentFilePath+PREVIOUS_SUFFIX) || readSnapshots.containsValue(usersFilePath+PREVIOUS_SUFFIX);
+    }
+
+    private boolean snapshotExists(String filePath)
+    {
+        return new File(filePath).exists() || new File(filePath+PREVIOUS_SUFFIX).exists();
+    }
+
+    /**
+     * Converts content and user files written in older formats, such as Java serialization, to the current format.
+     * Files that are already in the current format, or don't exist, are left as they are.
+     *
+     * @return {@code true} if at least one of the files was converted, {@code false} otherwise
+     */
+    public boolean migrateFiles()
+    {
+        boolean migrated=false;
+        if(snapshotExists(contentFilePath) && snapshotVersion(contentFilePath)<FORMAT_VERSION)
+        {
+            writeContentFile(readContentFile());
+            migrated=true;
+        }
+        if(snapshotExists(usersFilePath) && snapshotVersion(usersFilePath)<FORMAT_VERSION)
+        {
+            writeUserFile(readUserFile());
+            migrated=true;
+        }
+        return migrated;
+    }
+
+    /**
+     * Checks whether the content or user file stores its objects in an older version of the encoding of
+     * {@link BinaryCodec}, such as one without the IDs of content and users. Unlike the older formats that
+     * {@link #migrateFiles()} converts, such files are read along with their segments, and rewritten by the
+     * {@link DataBase} that reads them.
+     *
+     * @return {@code true} if one of the files needs to be rewritten, {@code false} otherwise
+     */
+    public boolean isEncodingOutdated()
+    {
+        return encodingVersion(contentFilePath)<BinaryCodec.VERSION || encodingVersion(usersFilePath)<BinaryCodec.VERSION;
+    }
+
+    /**
+     * Reads the version of the encoding of the objects of a snapshot in the current format, which is the first
+     * byte of its payload, without verifying the snapshot.
+     *
+     * @param filePath the file path of the snapshot
+     * @return the version of the encoding, or {@code BinaryCodec.VERSION} if the file doesn't exist,
+     *         can't be read or isn't in the current format
+     */
+    private int encodingVersion(String filePath)
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath),StandardOpenOption.READ))
+        {
+            ByteBuffer header=ByteBuffer.allocate(16);
+            readFully(channel,header);
+            if(header.hasRemaining() || header.getInt(0)!=MAGIC || header.getInt(4)!=FORMAT_VERSION || header.getLong(8)<=0)
+            {
+                return BinaryCodec.VERSION;
+            }
+            long blockCount=(header.getLong(8)+BLOCK_SIZE-1)/BLOCK_SIZE;
+            ByteBuffer version=ByteBuffer.allocate(1);
+            channel.position(16+4*blockCount);
+            readFully(channel,version);
+            return version.hasRemaining() ? BinaryCodec.VERSION : version.get(0);
+        }
+        catch (IOException e)
+        {
+            return BinaryCodec.VERSION;
+        }
+    }
+
+    /**
+     * Reads the format version from the header of a snapshot.
+     *
+     * @param filePath the file path of the snapshot
+     * @return the version of the snapshot, or {@code FORMAT_VERSION} if the file can't be read
+     */
+    private int snapshotVersion(String filePath)
+    {
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(filePath)))
+        {
+            if(dis.readInt()!=MAGIC)
+            {
+                return UNCHECKSUMMED_FORMAT_VERSION;
+            }
+            return dis.readInt();
+        }
+        catch (EOFException e)
+        {
+            return UNCHECKSUMMED_FORMAT_VERSION;
+        }
+        catch (IOException e)
+        {
+            return FORMAT_VERSION;
+        }
+    }
+
+    /**
+     * Writes the objects to a temporary file, syncs it to disk and atomically renames it to the given file path.
+     * The snapshot that is replaced is kept as the previous snapshot. It is linked (or copied) to the previous
+     * snapshot instead of being moved there, so that the file path always holds either the replaced snapshot,
+     * along with the segments that belong to it, or the new one, even if the program stops in between.
+     *
+     * @param filePath the file path of the snapshot
+     * @param payload  the encoded objects to be written
+     * @throws IOException if the snapshot couldn't be written
+     */
+    private void writeSnapshot(String filePath, byte[] payload) throws IOException
+    {
+        Path target=Paths.get(filePath);
+        Path temporary=Paths.get(filePath+TEMPORARY_SUFFIX);
+        Path previous=Paths.get(filePath+PREVIOUS_SUFFIX);
+
+        int blockCount=(payload.length+BLOCK_SIZE-1)/BLOCK_SIZE;
+        try (FileOutputStream fos = new FileOutputStream(temporary.toFile()))
+        {
+            DataOutputStream dos=new DataOutputStream(new BufferedOutputStream(fos));
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeLong(payload.length);
+            for (int i=0;i<blockCount;i++)
+            {
+                CRC32C crc=new CRC32C();
+                crc.update(payload,i*BLOCK_SIZE,Math.min(BLOCK_SIZE,payload.length-i*BLOCK_SIZE));
+                dos.writeInt((int) crc.getValue());
+            }
+            dos.write(payload);
+            dos.flush();
+            fos.getFD().sync();
+        }
+
+        if(Files.exists(target))
+        {
+            Path linked=Paths.get(filePath+PREVIOUS_SUFFIX+TEMPORARY_SUFFIX);
+            Files.deleteIfExists(linked);
+            try
+            {
+                Files.createLink(linked,target);
+            }
+            catch (UnsupportedOperationException | IOException e)
+            {
+                Files.copy(target,linked);
+            }
+            Files.move(linked,previous,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(temporary,target,StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target);
+        readSnapshots.remove(filePath);
+
+        //The segments are part of the new snapshot, and no longer match its identity if deleting them fails
+        Files.deleteIfExists(Paths.get(filePath+SEGMENTS_SUFFIX));
+    }
+
+    /**
+     * Appends a segment to the segments file of a snapshot as a frame of its length, its CRC32C checksum
+     * and its bytes, and syncs the file to disk. A segments file that belongs to another snapshot is
+     * started over, and a frame that was only partially written is cut off first.
+     *
+     * @param filePath the file path of the snapshot
+     * @param segment  the encoded segment
+     */
+    private void appendSegment(String filePath, byte[] segment)
+    {
+        Path segmentsPath=Paths.get(filePath+SEGMENTS_SUFFIX);
+        try
+        {
+            int identity=snapshotIdentity(filePath);
+            long validLength=scanSegments(segmentsPath,identity,null);
+            boolean created=!Files.exists(segmentsPath);
+
+            CRC32C crc=new CRC32C();
+            crc.update(segment);
+            ByteBuffer frame=ByteBuffer.allocate(16+segment.length);
+            if(validLength<0)
+            {
+                frame.putInt(SEGMENTS_MAGIC).putInt(identity);
+                validLength=0;
+            }
+            frame.putInt(segment.length).putInt((int) crc.getValue()).put(segment).flip();
+
+            try (FileChannel channel = FileChannel.open(segmentsPath,StandardOpenOption.CREATE,StandardOpenOption.WRITE))
+            {
+                channel.truncate(validLength);
+                channel.position(validLength);
+                while (frame.hasRemaining())
                 {
-                    break;
+                    channel.write(frame);
                 }
+                channel.force(true);
+            }
+            if(created)
+            {
+                syncDirectory(segmentsPath);
             }
         }
-        catch (IOException | ClassNotFoundException e)
+        catch (IOException e)
         {
             e.printStackTrace();
         }
-        return objects;
     }
 
+    /**
+     * Reads the complete segments appended to the segments file of a snapshot, if they belong to the snapshot that
+     * was read: the current snapshot, or the previous one if the current one was damaged. No segments are read if
+     * neither snapshot could be read.
+     *
+     * @param filePath the file path of the snapshot
+     * @return a buffer for every complete segment, in the order they were appended
+     * @throws IOException if the segments file couldn't be read
+     */
+    private List<ByteBuffer> readSegments(String filePath) throws IOException
+    {
+        List<ByteBuffer> segments=new ArrayList<>();
+        Path segmentsPath=Paths.get(filePath+SEGMENTS_SUFFIX);
+        String readSnapshot=readSnapshots.getOrDefault(filePath,filePath);
+        if(Files.exists(segmentsPath) && !readSnapshot.equals(NO_SNAPSHOT))
+        {
+            scanSegments(segmentsPath,snapshotIdentity(readSnapshot),segments);
+        }
+        return segments;
+    }
 
     /**
-     * Writes content objects to the content file.
+     * Walks through the frames of a segments file, stopping at the first one that is incomplete or damaged.
      *
-     * @param objects a HashSet containing Content objects to be written to the file
+     * @param segmentsPath the path of the segments file
+     * @param identity     the identity of the snapshot the segments must belong to
+     * @param segments     the list the segments are added to, or {@code null} if they are only being checked
+     * @return the length of the file up to the end of the last complete frame, or -1 if the file doesn't exist
+     *         or belongs to another snapshot
+     * @throws IOException if the segments file couldn't be read
      */
-    public void writeContentFile(HashSet<Content> objects)
+    private long scanSegments(Path segmentsPath, int identity, List<ByteBuffer> segments) throws IOException
+    {
+        if(!Files.exists(segmentsPath))
+        {
+            return -1;
+        }
+        ByteBuffer file=ByteBuffer.wrap(Files.readAllBytes(segmentsPath));
+        if(file.limit()<8 || file.getInt(0)!=SEGMENTS_MAGIC || file.getInt(4)!=identity)
+        {
+            return -1;
+        }
+
+        int position=8;
+        while (file.limit()-position>=8)
+        {
+            int length=file.getInt(position);
+            if(length<0 || length>file.limit()-position-8)
+            {
+                break;
+            }
+            ByteBuffer segment=file.duplicate();
+            segment.limit(position+8+length).position(position+8);
+            segment=segment.slice();
+
+            CRC32C crc=new CRC32C();
+            crc.update(segment.duplicate());
+            if((int) crc.getValue()!=file.getInt(position+4))
+            {
+                break;
+            }
+            if(segments!=null)
+            {
+                segments.add(segment);
+            }
+            position+=8+length;
+        }
+        return position;
+    }
+
+    /**
+     * Computes the identity of a snapshot, which is the checksum of its header and block checksums,
+     * so that it changes whenever a different snapshot is written.
+     *
+     * @param filePath the file path of the snapshot
+     * @return the identity of the snapshot, or 0 if it doesn't exist or isn't in the current format
+     * @throws IOException if the snapshot couldn't be read
+     */
+    private int snapshotIdentity(String filePath) throws IOException
     {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(contentFilePath)))
+        if(!Files.exists(Paths.get(filePath)))
         {
-            for (Content obj : objects)
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath),StandardOpenOption.READ))
+        {
+            ByteBuffer header=ByteBuffer.allocate(16);
+            readFully(channel,header);
+            if(header.hasRemaining() || header.getInt(0)!=MAGIC || header.getInt(4)!=FORMAT_VERSION)
+            {
+                return 0;
+            }
+            long payloadLength=header.getLong(8);
+            long blockCount=(payloadLength+BLOCK_SIZE-1)/BLOCK_SIZE;
+            if(payloadLength<0 || 16+4*blockCount>channel.size())
             {
-                oos.writeObject(obj);
+                return 0;
             }
+
+            ByteBuffer checksums=ByteBuffer.allocate((int) (4*blockCount));
+            readFully(channel,checksums);
+            CRC32C crc=new CRC32C();
+            crc.update(header.flip());
+            crc.update(checksums.flip());
+            return (int) crc.getValue();
+        }
+    }
+
+    /**
+     * Syncs the directory of the given file, so that renaming the file is durable.
+     * Not every platform allows directories to be opened, in which case nothing is done.
+     *
+     * @param file a file in the directory to be synced
+     */
+    private void syncDirectory(Path file)
+    {
+        Path directory=file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory,StandardOpenOption.READ))
+        {
+            channel.force(true);
         }
         catch (IOException e)
         {
-            e.printStackTrace();
+            //the rename is still atomic, it may just not have reached the disk yet
         }
     }
 
+    /**
+     * Reads the objects of a snapshot, verifying its checksums, and hands them to a consumer. The checksums of
+     * content that is decoded lazily are verified as it is decoded. If the snapshot is
+     * missing or damaged, the previous snapshot is read instead, unless some of its objects were already handed
+     * over. Snapshots written with Java serialization are read as they are. Which snapshot was read is recorded,
+     * so that only the segments that belong to it are read.
+     *
+     * @param filePath  the file path of the snapshot
+     * @param type      the type of the objects stored in the snapshot
+     * @param reviewers finds reviewers by ID or username if content is to be decoded lazily, otherwise {@code null}
+     * @param consumer  receives the objects of the snapshot, none of which are received if no snapshot could be read
+     * @return the file path of the snapshot that was read, or {@code null} if neither snapshot could be read
+     */
+    private <T> String readSnapshot(String filePath, Class<T> type, BinaryCodec.ReviewerResolver reviewers, Consumer<T> consumer)
+    {
+        String readSnapshot=readSnapshotOrPrevious(filePath,type,reviewers,consumer);
+        readSnapshots.put(filePath,readSnapshot!=null ? readSnapshot : NO_SNAPSHOT);
+        return readSnapshot;
+    }
+
+    private <T> String readSnapshotOrPrevious(String filePath, Class<T> type, BinaryCodec.ReviewerResolver reviewers, Consumer<T> consumer)
+    {
+        int[] handedOver={0};
+        Consumer<T> counter=object -> {
+            handedOver[0]++;
+            consumer.accept(object);
+        };
+        try
+        {
+            readObjects(openSnapshot(filePath,reviewers!=null),type,counter,reviewers);
+            return filePath;
+        }
+        catch (IOException | ClassNotFoundException | ClassCastException e)
+        {
+            if(handedOver[0]>0)
+            {
+                LOGGER.log(Level.SEVERE,"Snapshot " + filePath + " is damaged after " + handedOver[0] + " objects were read",e);
+                return filePath;
+            }
+            if(new File(filePath).exists())
+            {
+                LOGGER.log(Level.WARNING,"Snapshot " + filePath + " is damaged, reading previous snapshot",e);
+            }
+        }
+
+        try
+        {
+            readObjects(openSnapshot(filePath+PREVIOUS_SUFFIX,reviewers!=null),type,consumer,reviewers);
+            return filePath+PREVIOUS_SUFFIX;
+        }
+        catch (IOException | ClassNotFoundException | ClassCastException e)
+        {
+            if(new File(filePath+PREVIOUS_SUFFIX).exists())
+            {
+                LOGGER.log(Level.SEVERE,"Previous snapshot " + filePath + PREVIOUS_SUFFIX + " is damaged too",e);
+            }
+        }
+        return null;
+    }
 
     /**
-     * Writes user objects to the user file.
+     * Decodes the objects of a verified snapshot and hands them to a consumer. Lazily decoded content is handed
+     * over a chunk at a time, as soon as every chunk is decoded; all other objects once all of them are decoded.
+     */
+    private <T> void readObjects(Snapshot snapshot, Class<T> type, Consumer<T> consumer, BinaryCodec.ReviewerResolver reviewers) throws IOException, ClassNotFoundException
+    {
+        List<T> objects=new ArrayList<>();
+        if(snapshot.version>=BLOCK_FORMAT_VERSION)
+        {
+            if(type==Content.class)
+            {
+                BinaryCodec.decodeContent(snapshot.payload,reviewers,reviewers!=null,snapshot.verifier,chunk -> {
+                    for (Content content : chunk)
+                    {
+                        consumer.accept(type.cast(content));
+                    }
+                });
+                return;
+            }
+            for (User user : BinaryCodec.decodeUserList(snapshot.payload))
+            {
+                objects.add(type.cast(user));
+            }
+        }
+        else
+        {
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(snapshot.payload.array())))
+            {
+                while (true)
+                {
+                    try
+                    {
+                        objects.add(type.cast(ois.readObject()));
+                    }
+                    catch (EOFException e)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+        objects.forEach(consumer);
+    }
+
+    /**
+     * Opens a snapshot and verifies all of its blocks, or, if its objects are decoded lazily, leaves the blocks of
+     * a snapshot in the current format to be verified as they are decoded.
      *
-     * @param objects a HashSet containing User objects to be written to the file
+     * @param filePath the file path of the snapshot
+     * @param lazily   whether the objects of the snapshot are decoded lazily, in which case the snapshot is
+     *                 memory-mapped instead of read into memory where mapped files can be renamed over
+     * @return the version and contents of the snapshot
+     * @throws IOException if the snapshot doesn't exist or is damaged
      */
-    public void writeUserFile(HashSet<User> objects)
+    private Snapshot openSnapshot(String filePath, boolean lazily) throws IOException
     {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(usersFilePath))) {
-            for (User obj : objects) {
-                oos.writeObject(obj);
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath),StandardOpenOption.READ))
+        {
+            if(lazily && MAPPED_FILES_RENAMABLE)
+            {
+                file=channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+            }
+            else
+            {
+                file=ByteBuffer.wrap(Files.readAllBytes(Paths.get(filePath)));
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+
+        if(file.limit()<8 || file.getInt(0)!=MAGIC)
+        {
+            return new Snapshot(UNCHECKSUMMED_FORMAT_VERSION,copy(file,0,file.limit()));
+        }
+        int version=file.getInt(4);
+        if(version==FORMAT_VERSION)
+        {
+            BlockChecksums checksums=new BlockChecksums(file);
+            if(lazily)
+            {
+                return new Snapshot(version,checksums.payload,checksums);
+            }
+            checksums.verify(0,checksums.payload.limit());
+            return new Snapshot(version,checksums.payload);
+        }
+        if(version!=BLOCK_FORMAT_VERSION && version!=SERIALIZED_FORMAT_VERSION)
+        {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        return new Snapshot(version,readBlocks(file));
     }
 
+    /**
+     * The checksums of the blocks of a snapshot in the current format, which verify the blocks of its objects the
+     * first time a part of them is verified.
+     */
+    private static class BlockChecksums implements BinaryCodec.RegionVerifier
+    {
+        private final ByteBuffer file;
+        private final ByteBuffer payload;
+        private final int payloadOffset;
+        private final BitSet verified;
+
+        /**
+         * Reads the layout of a snapshot, without verifying its blocks.
+         *
+         * @param file the snapshot
+         * @throws IOException if the snapshot is incomplete
+         */
+        BlockChecksums(ByteBuffer file) throws IOException
+        {
+            if(file.limit()<16)
+            {
+                throw new IOException("Snapshot is incomplete");
+            }
+            long payloadLength=file.getLong(8);
+            long blockCount=(payloadLength+BLOCK_SIZE-1)/BLOCK_SIZE;
+            if(payloadLength<0 || 16+4*blockCount+payloadLength!=file.limit())
+            {
+                throw new IOException("Snapshot is incomplete");
+            }
+            this.file=file;
+            payloadOffset=(int) (16+4*blockCount);
+            ByteBuffer payload=file.duplicate();
+            payload.position(payloadOffset);
+            this.payload=payload.slice();
+            verified=new BitSet((int) blockCount);
+        }
+
+        /**
+         * Verifies the blocks that hold a part of the objects of the snapshot and haven't been verified yet.
+         *
+         * @param offset the offset of the part in the objects
+         * @param length the number of bytes of the part
+         * @throws IOException if one of the blocks is damaged
+         */
+        @Override
+        public void verify(int offset, int length) throws IOException
+        {
+            if(length<=0)
+            {
+                return;
+            }
+            for (int i=offset/BLOCK_SIZE;i<=(offset+length-1)/BLOCK_SIZE;i++)
+            {
+                synchronized (verified)
+                {
+                    if(verified.get(i))
+                    {
+                        continue;
+                    }
+                }
+                //Blocks are verified outside the lock, so that chunks are verified in parallel
+                int blockOffset=payloadOffset+i*BLOCK_SIZE;
+                ByteBuffer block=file.duplicate();
+                block.limit(Math.min(blockOffset+BLOCK_SIZE,file.limit())).position(blockOffset);
+                CRC32C crc=new CRC32C();
+                crc.update(block);
+                if((int) crc.getValue()!=file.getInt(16+4*i))
+                {
+                    throw new IOException("Checksum mismatch in block at offset " + blockOffset);
+                }
+                synchronized (verified)
+                {
+                    verified.set(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the blocks of a snapshot written in the block format, verifying each of them.
+     *
+     * @param file the snapshot
+     * @return a buffer of the objects stored in the snapshot
+     * @throws IOException if the snapshot is damaged
+     */
+    private ByteBuffer readBlocks(ByteBuffer file) throws IOException
+    {
+        ByteArrayOutputStream payload=new ByteArrayOutputStream(file.limit());
+        int position=8;
+        while (true)
+        {
+            if(file.limit()-position<8)
+            {
+                throw new IOException("Snapshot is incomplete");
+            }
+            int length=file.getInt(position);
+            int checksum=file.getInt(position+4);
+            position+=8;
+            if(length==0)
+            {
+                return ByteBuffer.wrap(payload.toByteArray());
+            }
+            if(length<0 || length>file.limit()-position)
+            {
+                throw new IOException("Snapshot is incomplete");
+            }
+
+            byte[] block=copy(file,position,length).array();
+            CRC32C crc=new CRC32C();
+            crc.update(block);
+            if((int) crc.getValue()!=checksum)
+            {
+                throw new IOException("Checksum mismatch in block at offset " + (position-8));
+            }
+            payload.write(block);
+            position+=length;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if(channel.read(buffer)<0)
+            {
+                return;
+            }
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer, int offset, int length)
+    {
+        byte[] bytes=new byte[length];
+        buffer.get(offset,bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * The contents of a snapshot, along with the version of the format they are stored in and the checksums
+     * they are still to be verified against, if they are verified as they are decoded.
+     */
+    private static class Snapshot
+    {
+        private final int version;
+        private final ByteBuffer payload;
+        private final BinaryCodec.RegionVerifier verifier;
+
+        Snapshot(int version, ByteBuffer payload)
+        {
+            this(version,payload,null);
+        }
+
+        Snapshot(int version, ByteBuffer payload, BinaryCodec.RegionVerifier verifier)
+        {
+            this.version=version;
+            this.payload=payload;
+            this.verifier=verifier;
+        }
+    }
 }
@@ -0,0 +1,423 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code FuzzyIndex} class is an index of the words (terms) of the title and people involved of content, which
+ * lets {@link SearchManager} find content whose words match the words of a search with a few typos.
+ * <p>
+ * A word of a search matches a term if the term can be turned into it with at most a few single-character
+ * insertions, deletions, substitutions or transpositions of adjacent characters: none for words shorter than
+ * {@value #MIN_FUZZY_LENGTH} characters, one for longer words and two for words of at least
+ * {@value #MIN_TWO_TYPO_LENGTH} characters. Terms are found through a dictionary of the strings left when
+ * characters are deleted from them, since a term and a word within a distance share a string left by deleting
+ * at most as many characters from each of them. Only the terms that share such a string with the word are then
+ * compared to it. Terms that contain digits are only matched exactly.
+ * <p>
+ * Content is compared by identity.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class FuzzyIndex
+{
+    /**
+     * The length of the shortest words that may have a typo.
+     */
+    static final int MIN_FUZZY_LENGTH=4;
+
+    /**
+     * The length of the shortest words that may have two typos.
+     */
+    static final int MIN_TWO_TYPO_LENGTH=8;
+
+    private final HashMap<String,Set<Content>> terms;
+    private final HashMap<String,Set<String>> deletes;
+    private final IdentityHashMap<Content,List<String>> indexedTerms;
+
+    /**
+     * Constructs a new empty FuzzyIndex.
+     */
+    FuzzyIndex()
+    {
+        terms=new HashMap<>();
+        deletes=new HashMap<>();
+        indexedTerms=new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds the terms of a piece of content to the index. If the content is already indexed,
+     * its terms are replaced, such as after they were edited.
+     *
+     * @param content The content to be indexed.
+     */
+    void add(Content content)
+    {
+        remove(content);
+        List<String> contentTerms=terms(content);
+        indexedTerms.put(content,contentTerms);
+        for (String term : contentTerms)
+        {
+            Set<Content> set=terms.get(term);
+            if(set==null)
+            {
+                set=Collections.newSetFromMap(new IdentityHashMap<>());
+                terms.put(term,set);
+                for (String delete : deletes(term,maxDeletes(term)))
+                {
+                    deletes.computeIfAbsent(delete,key -> new HashSet<>(2)).add(term);
+                }
+            }
+            set.add(content);
+        }
+    }
+
+    /**
+     * Removes the terms of a piece of content from the index.
+     *
+     * @param content The content to be removed.
+     */
+    void remove(Content content)
+    {
+        List<String> contentTerms=indexedTerms.remove(content);
+        if(contentTerms==null)
+        {
+            return;
+        }
+        for (String term : contentTerms)
+        {
+            Set<Content> set=terms.get(term);
+            if(set!=null && set.remove(content) && set.isEmpty())
+            {
+                terms.remove(term);
+                for (String delete : deletes(term,maxDeletes(term)))
+                {
+                    Set<String> deleteTerms=deletes.get(delete);
+                    if(deleteTerms!=null && deleteTerms.remove(term) && deleteTerms.isEmpty())
+                    {
+                        deletes.remove(delete);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all content from the index.
+     */
+    void clear()
+    {
+        terms.clear();
+        deletes.clear();
+        indexedTerms.clear();
+    }
+
+    /**
+     * Returns the number of pieces of content in the index.
+     *
+     * @return The number of indexed pieces of content.
+     */
+    int size()
+    {
+        return indexedTerms.size();
+    }
+
+    /**
+     * Finds the content that has a term matching every word of a search. Only the postings of the word that
+     * matches the least content are iterated, and their content is looked up in the postings of the other words,
+     * so common words such as "the" don't make a search slower.
+     *
+     * @param words The words of the search, as returned by {@link #terms(String)}. Must not be empty.
+     * @return A set of the content that matches the words fuzzily.
+     */
+    Set<Content> matches(List<String> words)
+    {
+        ArrayList<List<Set<Content>>> postings=new ArrayList<>();
+        for (String word : words)
+        {
+            ArrayList<Set<Content>> wordPostings=new ArrayList<>();
+            for (String term : matchingTerms(word))
+            {
+                wordPostings.add(terms.get(term));
+            }
+            if(wordPostings.isEmpty())
+            {
+                return Collections.emptySet();
+            }
+            postings.add(wordPostings);
+        }
+        postings.sort(Comparator.comparingInt(FuzzyIndex::size));
+        Set<Content> matches=Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Set<Content> posting : postings.get(0))
+        {
+            for (Content content : posting)
+            {
+                if(!matches.contains(content) && matchesAll(content,postings))
+                {
+                    matches.add(content);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the indexed terms that match a word of a search.
+     *
+     * @param word The word.
+     * @return The set of matching terms.
+     */
+    Set<String> matchingTerms(String word)
+    {
+        HashSet<String> matching=new HashSet<>();
+        int maxDistance=maxDistance(word);
+        if(maxDistance==0)
+        {
+            if(terms.containsKey(word))
+            {
+                matching.add(word);
+            }
+            return matching;
+        }
+        for (String delete : deletes(word,maxDistance))
+        {
+            Set<String> deleteTerms=deletes.get(delete);
+            if(deleteTerms==null)
+            {
+                continue;
+            }
+            for (String term : deleteTerms)
+            {
+                if(!matching.contains(term) && distance(word,term,maxDistance)<=maxDistance)
+                {
+                    matching.add(term);
+                }
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Checks if a piece of content has a term matching every word of a search, without the index.
+     *
+     * @param content The content.
+     * @param words   The words of the search, as returned by {@link #terms(String)}.
+     * @return {@code true} if every word matches a term of the content, {@code false} otherwise.
+     */
+    static boolean matches(Content content, List<String> words)
+    {
+        List<String> contentTerms=terms(content);
+        for (String word : words)
+        {
+            int maxDistance=maxDistance(word);
+            boolean matched=false;
+            for (int i=0;i<contentTerms.size() && !matched;i++)
+            {
+                String term=contentTerms.get(i);
+                matched=hasDigit(term) ? term.equals(word) : distance(word,term,maxDistance)<=maxDistance;
+            }
+            if(!matched)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits a text into lower-case words of letters and digits.
+     *
+     * @param text The text.
+     * @return The list of words, in order.
+     */
+    static List<String> terms(String text)
+    {
+        ArrayList<String> words=new ArrayList<>();
+        for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+        {
+            if(!word.isEmpty())
+            {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns the number of typos a word of a search may have.
+     *
+     * @param word The word.
+     * @return The maximum distance of the terms that match the word.
+     */
+    static int maxDistance(String word)
+    {
+        if(word.length()<MIN_FUZZY_LENGTH || hasDigit(word))
+        {
+            return 0;
+        }
+        return word.length()<MIN_TWO_TYPO_LENGTH ? 1 : 2;
+    }
+
+    /**
+     * Calculates the distance between two strings: the number of single-character insertions, deletions,
+     * substitutions and transpositions of adjacent characters that turn one into the other.
+     *
+     * @param string1 The first string.
+     * @param string2 The second string.
+     * @param max     The largest distance of interest.
+     * @return The distance, or a number larger than {@code max} if the distance is larger.
+     */
+    static int distance(String string1, String string2, int max)
+    {
+        int length1=string1.length(),length2=string2.length();
+        if(Math.abs(length1-length2)>max)
+        {
+            return max+1;
+        }
+        int[] previous=new int[length2+1],current=new int[length2+1],beforePrevious=new int[length2+1];
+        for (int j=0;j<=length2;j++)
+        {
+            previous[j]=j;
+        }
+        for (int i=1;i<=length1;i++)
+        {
+            current[0]=i;
+            int rowMin=current[0];
+            for (int j=1;j<=length2;j++)
+            {
+                int cost=string1.charAt(i-1)==string2.charAt(j-1) ? 0 : 1;
+                int value=Math.min(Math.min(previous[j]+1,current[j-1]+1),previous[j-1]+cost);
+                if(i>1 && j>1 && string1.charAt(i-1)==string2.charAt(j-2) && string1.charAt(i-2)==string2.charAt(j-1))
+                {
+                    value=Math.min(value,beforePrevious[j-2]+1);
+                }
+                current[j]=value;
+                rowMin=Math.min(rowMin,value);
+            }
+            if(rowMin>max)
+            {
+                return max+1;
+            }
+            int[] recycled=beforePrevious;
+            beforePrevious=previous;
+            previous=current;
+            current=recycled;
+        }
+        return previous[length2];
+    }
+
+    /**
+     * Returns the terms of the title and people involved of a piece of content.
+     */
+    private static List<String> terms(Content content)
+    {
+        ArrayList<String> contentTerms=new ArrayList<>(terms(content.getTitle()));
+        for (String term : terms(content.getPeopleInvolved()))
+        {
+            if(!contentTerms.contains(term))
+            {
+                contentTerms.add(term);
+            }
+        }
+        return contentTerms;
+    }
+
+    /**
+     * Returns the number of pieces of content in the postings of the terms that match a word, counting content
+     * that has more than one of the terms more than once.
+     */
+    private static int size(List<Set<Content>> wordPostings)
+    {
+        int size=0;
+        for (Set<Content> posting : wordPostings)
+        {
+            size+=posting.size();
+        }
+        return size;
+    }
+
+    /**
+     * Checks if a piece of content is in the postings of every word but the first, which it was found in.
+     */
+    private static boolean matchesAll(Content content, List<List<Set<Content>>> postings)
+    {
+        for (int i=1;i<postings.size();i++)
+        {
+            boolean matched=false;
+            for (Set<Content> posting : postings.get(i))
+            {
+                if(posting.contains(content))
+                {
+                    matched=true;
+                    break;
+                }
+            }
+            if(!matched)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of characters deleted from a term in the dictionary, which is enough for every word
+     * that may match the term: a word within two typos of it is at least two characters shorter than the shortest
+     * word that may have two typos.
+     */
+    private static int maxDeletes(String term)
+    {
+        if(hasDigit(term) || term.length()<MIN_FUZZY_LENGTH-1)
+        {
+            return 0;
+        }
+        return term.length()<MIN_TWO_TYPO_LENGTH-2 ? 1 : 2;
+    }
+
+    /**
+     * Returns the strings left when at most some characters are deleted from a string, including the string itself.
+     */
+    private static Set<String> deletes(String string, int maxDeletes)
+    {
+        HashSet<String> deletes=new HashSet<>();
+        deletes.add(string);
+        ArrayList<String> level=new ArrayList<>();
+        level.add(string);
+        for (int deleted=0;deleted<maxDeletes;deleted++)
+        {
+            ArrayList<String> next=new ArrayList<>();
+            for (String delete : level)
+            {
+                for (int i=0;i<delete.length();i++)
+                {
+                    String shorter=delete.substring(0,i)+delete.substring(i+1);
+                    if(deletes.add(shorter))
+                    {
+                        next.add(shorter);
+                    }
+                }
+            }
+            level=next;
+        }
+        return deletes;
+    }
+
+    private static boolean hasDigit(String word)
+    {
+        for (int i=0;i<word.length();i++)
+        {
+            if(Character.isDigit(word.charAt(i)))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
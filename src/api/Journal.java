@@ -0,0 +1,244 @@
+package api;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * The {@code Journal} class is an append-only log of the mutations applied to a {@link DataBase}.
+ * Instead of rewriting the whole content and user files after every change, the database appends a
+ * {@link JournalRecord} to the journal, so the cost of a write is proportional to the change.
+ * The journal is emptied every time the database writes a full snapshot (checkpoint).
+ * <p>
+ * Each record is stored as a frame of its length, a CRC32C checksum and the record as encoded by
+ * {@link BinaryCodec#encodeJournalRecord}.
+ * A frame that was only partially written (e.g. because the program was killed) is detected through
+ * its length or checksum and discarded, along with anything that follows it.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+public class Journal
+{
+    private final String journalFilePath;
+    private int recordCount;
+
+    /**
+     * Constructs a Journal object for the specified file. If the file already contains records,
+     * they are counted and any incomplete record at the end of the file is discarded.
+     *
+     * @param journalFilePath The file path of the journal.
+     */
+    public Journal(String journalFilePath)
+    {
+        this.journalFilePath=journalFilePath;
+        recordCount=0;
+
+        File journalFile=new File(journalFilePath);
+        if(journalFile.exists())
+        {
+            long validLength=scan(null);
+            if(validLength<journalFile.length())
+            {
+                truncate(validLength);
+            }
+        }
+    }
+
+    /**
+     * Appends a record to the end of the journal.
+     *
+     * @param record The record to be appended.
+     */
+    public void append(JournalRecord record)
+    {
+        byte[] frame=encode(record);
+        try (FileOutputStream fos = new FileOutputStream(journalFilePath,true))
+        {
+            fos.write(frame);
+            recordCount++;
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Encodes a record as a frame that can be appended with {@link #appendEncoded(List)}.
+     * Lets the record be encoded on one thread and appended on another.
+     *
+     * @param record The record to be encoded.
+     * @return The frame of the record, including its length and checksum.
+     */
+    public static byte[] encode(JournalRecord record)
+    {
+        byte[] encoded=BinaryCodec.encodeJournalRecord(record);
+
+        CRC32C crc=new CRC32C();
+        crc.update(encoded);
+
+        ByteBuffer frame=ByteBuffer.allocate(encoded.length+8);
+        frame.putInt(encoded.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(encoded);
+        return frame.array();
+    }
+
+    /**
+     * Appends frames encoded by {@link #encode(JournalRecord)} to the end of the journal with a single write,
+     * and syncs the journal to disk.
+     *
+     * @param frames The frames to be appended, in order.
+     */
+    public void appendEncoded(List<byte[]> frames)
+    {
+        if(frames.isEmpty())
+        {
+            return;
+        }
+        try (FileOutputStream fos = new FileOutputStream(journalFilePath,true))
+        {
+            BufferedOutputStream out=new BufferedOutputStream(fos);
+            for (byte[] frame : frames)
+            {
+                out.write(frame);
+            }
+            out.flush();
+            fos.getFD().sync();
+            recordCount+=frames.size();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads all complete records of the journal, in the order they were appended.
+     *
+     * @return An ArrayList of the records of the journal.
+     */
+    public ArrayList<JournalRecord> readRecords()
+    {
+        ArrayList<JournalRecord> records=new ArrayList<>();
+        if(new File(journalFilePath).exists())
+        {
+            scan(records);
+        }
+        return records;
+    }
+
+    /**
+     * Empties the journal. Called after all of its records have been written to a snapshot.
+     */
+    public void clear()
+    {
+        truncate(0);
+        recordCount=0;
+    }
+
+    /**
+     * Returns the number of records currently stored in the journal.
+     *
+     * @return The number of records.
+     */
+    public int getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Returns the file path of the journal.
+     *
+     * @return The file path of the journal.
+     */
+    public String getJournalFilePath()
+    {
+        return journalFilePath;
+    }
+
+    /**
+     * Walks through the frames of the journal file, counting the complete ones and
+     * optionally decoding them.
+     *
+     * @param records The list the records are added to, or {@code null} if they only need to be counted.
+     * @return The length of the file up to the end of the last complete frame.
+     */
+    private long scan(ArrayList<JournalRecord> records)
+    {
+        long validLength=0;
+        int count=0;
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFilePath))))
+        {
+            while (true)
+            {
+                int length;
+                int checksum;
+                byte[] frame;
+                try
+                {
+                    length=dis.readInt();
+                    checksum=dis.readInt();
+                    if(length<0)
+                    {
+                        break;
+                    }
+                    frame=new byte[length];
+                    dis.readFully(frame);
+                }
+                catch (EOFException e)
+                {
+                    break;
+                }
+
+                CRC32C crc=new CRC32C();
+                crc.update(frame);
+                if((int) crc.getValue()!=checksum)
+                {
+                    break;
+                }
+
+                if(records!=null)
+                {
+                    try
+                    {
+                        records.add(BinaryCodec.decodeJournalRecord(ByteBuffer.wrap(frame)));
+                    }
+                    catch (IOException e)
+                    {
+                        e.printStackTrace();
+                        break;
+                    }
+                }
+                validLength+=8+length;
+                count++;
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        recordCount=count;
+        return validLength;
+    }
+
+    /**
+     * Truncates the journal file to the specified length.
+     *
+     * @param length The new length of the file.
+     */
+    private void truncate(long length)
+    {
+        try (RandomAccessFile file = new RandomAccessFile(journalFilePath,"rw"))
+        {
+            file.setLength(length);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package api;
+
+/**
+ * The {@code JournalRecord} class represents a single mutation of a {@link DataBase}, as it is appended to
+ * its {@link Journal}. A record stores the operation that was performed and the entities it was performed on,
+ * so that it can be applied again to the last snapshot when the database is loaded.
+ * <p>
+ * Records are encoded by {@link BinaryCodec#encodeJournalRecord}, which stores the content and users a record
+ * refers to (related content, reviewers and favorites) by their IDs and keys only. A decoded record therefore
+ * holds copies of the entities it was performed on, whose references are copies that only have an ID and a key.
+ * <p>
+ * Every operation is idempotent, so applying a record that is already part of the snapshot has no effect.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+public class JournalRecord
+{
+    /**
+     * The mutations of a {@link DataBase} that can be journaled, along with the files they affect.
+     * Operations are encoded by their position, so new ones are only added at the end.
+     */
+    public enum Operation
+    {
+        ADD_CONTENT(true,false),
+        REMOVE_CONTENT(true,true),
+        EDIT_CONTENT(true,false),
+        DELETE_ALL_CONTENT(true,true),
+        DELETE_ALL_VIEWABLE_CONTENT(true,true),
+        DELETE_ALL_MOVIES(true,true),
+        DELETE_ALL_SERIES(true,true),
+        ADD_USERS(false,true),
+        REMOVE_USERS(true,true),
+        EDIT_USERS(false,true),
+        DELETE_USERS(true,true),
+        DELETE_ADMINS(true,true),
+        DELETE_SUBSCRIBERS(true,true);
+
+        private final boolean affectsContent,affectsUsers;
+
+        Operation(boolean affectsContent,boolean affectsUsers)
+        {
+            this.affectsContent=affectsContent;
+            this.affectsUsers=affectsUsers;
+        }
+
+        /**
+         * Returns whether the operation changes the content file of the database.
+         *
+         * @return {@code true} if the content file is affected, {@code false} otherwise.
+         */
+        public boolean affectsContent()
+        {
+            return affectsContent;
+        }
+
+        /**
+         * Returns whether the operation changes the user file of the database.
+         *
+         * @return {@code true} if the user file is affected, {@code false} otherwise.
+         */
+        public boolean affectsUsers()
+        {
+            return affectsUsers;
+        }
+    }
+
+    private final Operation operation;
+    private final Content[] content;
+    private final User[] users;
+
+    /**
+     * Constructs a new JournalRecord for an operation that wasn't performed on specific entities,
+     * such as the deletion of all movies.
+     *
+     * @param operation The operation that was performed.
+     */
+    public JournalRecord(Operation operation)
+    {
+        this(operation,new Content[0],new User[0]);
+    }
+
+    /**
+     * Constructs a new JournalRecord for the specified operation and the content it was performed on.
+     *
+     * @param operation The operation that was performed.
+     * @param content   The content the operation was performed on.
+     */
+    public JournalRecord(Operation operation,Content...content)
+    {
+        this(operation,content,new User[0]);
+    }
+
+    /**
+     * Constructs a new JournalRecord for the specified operation and the users it was performed on.
+     *
+     * @param operation The operation that was performed.
+     * @param users     The users the operation was performed on.
+     */
+    public JournalRecord(Operation operation,User...users)
+    {
+        this(operation,new Content[0],users);
+    }
+
+    /**
+     * Constructs a new JournalRecord with both content and users, as it is decoded.
+     */
+    JournalRecord(Operation operation,Content[] content,User[] users)
+    {
+        this.operation=operation;
+        this.content=content.clone();
+        this.users=users.clone();
+    }
+
+    /**
+     * Returns the operation of the record.
+     *
+     * @return The operation that was performed.
+     */
+    public Operation getOperation()
+    {
+        return operation;
+    }
+
+    /**
+     * Returns the content the operation was performed on.
+     *
+     * @return An array of the content stored in the record.
+     */
+    public Content[] getContent()
+    {
+        return content.clone();
+    }
+
+    /**
+     * Returns the users the operation was performed on.
+     *
+     * @return An array of the users stored in the record.
+     */
+    public User[] getUsers()
+    {
+        return users.clone();
+    }
+}
@@ -0,0 +1,187 @@
+package api;
+
+import java.util.Arrays;
+
+/**
+ * The {@code LongHashMap} class maps {@code long} keys, such as the IDs of content and users, to values.
+ * Unlike a {@link java.util.HashMap}, the keys aren't boxed: they are stored in an array and found by
+ * linear probing, so a lookup doesn't allocate and touches at most a few adjacent slots.
+ * <p>
+ * The key 0 marks empty slots, so it can't be used as a key.
+ *
+ * @param <V> The type of the values.
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class LongHashMap<V>
+{
+    private static final int INITIAL_CAPACITY=16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Constructs a new empty LongHashMap.
+     */
+    LongHashMap()
+    {
+        keys=new long[INITIAL_CAPACITY];
+        values=new Object[INITIAL_CAPACITY];
+        size=0;
+    }
+
+    /**
+     * Returns the value mapped to a key.
+     *
+     * @param key The key.
+     * @return The value mapped to the key, or {@code null} if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key)
+    {
+        if(key==0)
+        {
+            return null;
+        }
+        for (int slot=slot(key,keys.length);keys[slot]!=0;slot=(slot+1) & (keys.length-1))
+        {
+            if(keys[slot]==key)
+            {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps a key to a value, replacing the value it was mapped to.
+     *
+     * @param key   The key, which must not be 0.
+     * @param value The value.
+     * @return The value the key was mapped to, or {@code null} if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value)
+    {
+        if(key==0)
+        {
+            throw new IllegalArgumentException("Invalid argument passed as key. Key must not be 0");
+        }
+        //The table is kept at most half full, so that probe sequences stay short
+        if(2*(size+1)>keys.length)
+        {
+            resize(keys.length*2);
+        }
+
+        int slot=slot(key,keys.length);
+        while (keys[slot]!=0)
+        {
+            if(keys[slot]==key)
+            {
+                V previous=(V) values[slot];
+                values[slot]=value;
+                return previous;
+            }
+            slot=(slot+1) & (keys.length-1);
+        }
+        keys[slot]=key;
+        values[slot]=value;
+        size++;
+        return null;
+    }
+
+    /**
+     * Removes the mapping of a key.
+     *
+     * @param key The key.
+     * @return The value the key was mapped to, or {@code null} if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key)
+    {
+        if(key==0)
+        {
+            return null;
+        }
+        int mask=keys.length-1;
+        int slot=slot(key,keys.length);
+        while (keys[slot]!=key)
+        {
+            if(keys[slot]==0)
+            {
+                return null;
+            }
+            slot=(slot+1) & mask;
+        }
+        V removed=(V) values[slot];
+
+        //Moves back the keys that follow in the probe sequence, so that none of them is cut off by the empty slot
+        int empty=slot;
+        for (int next=(empty+1) & mask;keys[next]!=0;next=(next+1) & mask)
+        {
+            int home=slot(keys[next],keys.length);
+            if(((next-home) & mask)>=((next-empty) & mask))
+            {
+                keys[empty]=keys[next];
+                values[empty]=values[next];
+                empty=next;
+            }
+        }
+        keys[empty]=0;
+        values[empty]=null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Returns the number of keys that are mapped to a value.
+     *
+     * @return The size of the map.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    void clear()
+    {
+        Arrays.fill(keys,0);
+        Arrays.fill(values,null);
+        size=0;
+    }
+
+    private void resize(int capacity)
+    {
+        long[] oldKeys=keys;
+        Object[] oldValues=values;
+        keys=new long[capacity];
+        values=new Object[capacity];
+        for (int i=0;i<oldKeys.length;i++)
+        {
+            if(oldKeys[i]!=0)
+            {
+                int slot=slot(oldKeys[i],capacity);
+                while (keys[slot]!=0)
+                {
+                    slot=(slot+1) & (capacity-1);
+                }
+                keys[slot]=oldKeys[i];
+                values[slot]=oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the slot a key is stored at if there are no collisions. The key is mixed first,
+     * so that keys that only differ in their high bits don't collide.
+     */
+    private static int slot(long key, int capacity)
+    {
+        long hash=key*0x9E3779B97F4A7C15L;
+        return (int) (hash^(hash>>>32)) & (capacity-1);
+    }
+}
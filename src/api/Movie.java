@@ -1,7 +1,6 @@
 package api;
 
 import java.util.HashSet;
-import java.util.Objects;
 
 
 /**
@@ -16,6 +15,8 @@ import java.util.Objects;
 
 public class Movie extends ViewableContent
 {
+    private static final long serialVersionUID=-5831138054319637632L;
+
     private int duration,yearOfRelease;
 
     /**
@@ -102,6 +103,7 @@ public class Movie extends ViewableContent
     {
         if(yearOfReleaseIsValid(yearOfRelease))
         {
+            markDirty();
             this.yearOfRelease = yearOfRelease;
         }
         else
@@ -119,6 +121,7 @@ public class Movie extends ViewableContent
     {
         if(durationIsValid(duration))
         {
+            markDirty();
             this.duration = duration;
         }
         else
@@ -279,36 +282,15 @@ public class Movie extends ViewableContent
         }
     }
 
-    /**
-     * Overrides the equals method to compare Movie objects based on their title, synopsis,
-     * suitability for minors, genre, year of release, duration, and related content.
-     *
-     * @param obj The object to compare with this Movie.
-     * @return {@code true} if the objects are equal, {@code false} otherwise.
-     */
-    public boolean equals(Object obj)
-    {
-        if(!(obj instanceof Movie movie))
-        {
-            return false;
-        }
-
-        return super.equals(movie) && duration==movie.getDuration()
-                && yearOfRelease==movie.getYearOfRelease();
-    }
-
-    /**
-     * Generates a hash code for this Movie object based on its title, synopsis,
-     * suitability for minors, genre, year of release, duration, and related content.
-     *
-     * @return The hash code value for this object.
-     */
     @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(),yearOfRelease,duration);
+    void restoreFrom(Content other)
+    {
+        super.restoreFrom(other);
+        Movie movie=(Movie) other;
+        yearOfRelease=movie.yearOfRelease;
+        duration=movie.duration;
     }
 
-
     /**
      * Returns a string representation of this Movie object.
      *
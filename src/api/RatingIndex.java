@@ -0,0 +1,202 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The {@code RatingIndex} class keeps the content ordered by its average rating, from highest to lowest, and then
+ * by its id, which is the order of the results of searches that rank content by its rating alone. Content without
+ * reviews has a rating of 0, so it comes last. The average rating of every piece of content is kept along with it,
+ * so that it is found without going through its reviews.
+ * <p>
+ * The content with at least a minimum rating is then found by walking the content from the highest rating down to
+ * the minimum (a range scan), and the best rated content that passes some filters by walking it until enough
+ * content has passed them. The number of pieces of content of every rating is kept too, from which the content
+ * with at least a minimum rating is counted without walking it.
+ * <p>
+ * Content is compared by identity.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class RatingIndex
+{
+    /**
+     * Represents a piece of content in the index, with the rating and id by which it is ordered when it was indexed.
+     */
+    private static class Entry implements Comparable<Entry>
+    {
+        private final double rating;
+        private final long id;
+        private final Content content;
+
+        Entry(double rating, long id, Content content)
+        {
+            this.rating=rating;
+            this.id=id;
+            this.content=content;
+        }
+
+        @Override
+        public int compareTo(Entry other)
+        {
+            int comparison=Double.compare(other.rating,rating);
+            return comparison!=0 ? comparison : Long.compare(id,other.id);
+        }
+    }
+
+    private final TreeSet<Entry> entries;
+    private final IdentityHashMap<Content,Entry> indexedEntries;
+    private final TreeMap<Double,Integer> counts;
+
+    /**
+     * Constructs a new empty RatingIndex.
+     */
+    RatingIndex()
+    {
+        entries=new TreeSet<>();
+        indexedEntries=new IdentityHashMap<>();
+        counts=new TreeMap<>();
+    }
+
+    /**
+     * Adds a piece of content to the index, with its current average rating. If the content is already indexed,
+     * it is moved to its current rating, such as after its reviews changed.
+     *
+     * @param content The content to be indexed.
+     */
+    void add(Content content)
+    {
+        remove(content);
+        Entry entry=new Entry(content.getReviews().isEmpty() ? 0 : content.getAverageRating(),content.getId(),content);
+        entries.add(entry);
+        indexedEntries.put(content,entry);
+        counts.merge(entry.rating,1,Integer::sum);
+    }
+
+    /**
+     * Removes a piece of content from the index.
+     *
+     * @param content The content to be removed.
+     */
+    void remove(Content content)
+    {
+        Entry entry=indexedEntries.remove(content);
+        if(entry==null)
+        {
+            return;
+        }
+        entries.remove(entry);
+        if(counts.merge(entry.rating,-1,Integer::sum)==0)
+        {
+            counts.remove(entry.rating);
+        }
+    }
+
+    /**
+     * Removes all content from the index.
+     */
+    void clear()
+    {
+        entries.clear();
+        indexedEntries.clear();
+        counts.clear();
+    }
+
+    /**
+     * Returns the number of pieces of content in the index.
+     *
+     * @return The number of indexed pieces of content.
+     */
+    int size()
+    {
+        return indexedEntries.size();
+    }
+
+    /**
+     * Returns the average rating of a piece of content, as it was indexed.
+     *
+     * @param content The content.
+     * @return The average rating, or 0 if the content has no reviews. The current rating of the content is returned
+     * if it isn't indexed.
+     */
+    double rating(Content content)
+    {
+        Entry entry=indexedEntries.get(content);
+        return entry!=null ? entry.rating : content.getAverageRating();
+    }
+
+    /**
+     * Counts the reviewed content with at least a minimum average rating.
+     *
+     * @param minRating The minimum average rating.
+     * @return The number of pieces of content.
+     */
+    int count(double minRating)
+    {
+        int count=0;
+        for (int ratingCount : counts.tailMap(lowestReviewed(minRating),true).values())
+        {
+            count+=ratingCount;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the reviewed content with at least a minimum average rating.
+     *
+     * @param minRating The minimum average rating.
+     * @return A list of the content, from the highest rating to the lowest, and then by id.
+     */
+    List<Content> atLeast(double minRating)
+    {
+        ArrayList<Content> content=new ArrayList<>(count(minRating));
+        iterator(Double.POSITIVE_INFINITY,lowestReviewed(minRating)).forEachRemaining(content::add);
+        return content;
+    }
+
+    /**
+     * Iterates over the content whose average rating is between two ratings, from the highest rating to the
+     * lowest, and then by id. The content is found as it is iterated over, so only the content up to the last
+     * one needed is walked. The content must not be indexed again while it is iterated over.
+     *
+     * @param maxRating The highest average rating, inclusive.
+     * @param minRating The lowest average rating, inclusive, which is 0 for content without reviews.
+     * @return An iterator over the content.
+     */
+    Iterator<Content> iterator(double maxRating, double minRating)
+    {
+        if(!(maxRating>=minRating))
+        {
+            return List.<Content>of().iterator();
+        }
+        Iterator<Entry> range=entries.subSet(new Entry(maxRating,Long.MIN_VALUE,null),true,new Entry(minRating,Long.MAX_VALUE,null),true).iterator();
+        return new Iterator<>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return range.hasNext();
+            }
+
+            @Override
+            public Content next()
+            {
+                return range.next().content;
+            }
+        };
+    }
+
+    /**
+     * Returns the lowest rating of the reviewed content with at least a minimum rating, since content without
+     * reviews has a rating of 0 but doesn't have any minimum rating.
+     */
+    private static double lowestReviewed(double minRating)
+    {
+        return Math.max(minRating,Double.MIN_VALUE);
+    }
+}
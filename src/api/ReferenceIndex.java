@@ -0,0 +1,100 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code ReferenceIndex} class is a reverse index of references between the entities of a {@link DataBase}:
+ * for the ID of every referenced entity, it holds the entities that refer to it (its referrers), such as the
+ * content that lists a piece of content as related. It lets the database find the referrers of an entity
+ * without scanning every entity that could refer to it.
+ * <p>
+ * Referrers are compared by identity.
+ *
+ * @param <T> The type of the referrers.
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class ReferenceIndex<T>
+{
+    private final LongHashMap<Set<T>> referrers;
+
+    /**
+     * Constructs a new empty ReferenceIndex.
+     */
+    ReferenceIndex()
+    {
+        referrers=new LongHashMap<>();
+    }
+
+    /**
+     * Records that an entity refers to the entity with the specified ID.
+     *
+     * @param id       The ID of the referenced entity.
+     * @param referrer The entity that refers to it.
+     */
+    void add(long id, T referrer)
+    {
+        Set<T> set=referrers.get(id);
+        if(set==null)
+        {
+            set=Collections.newSetFromMap(new IdentityHashMap<>());
+            referrers.put(id,set);
+        }
+        set.add(referrer);
+    }
+
+    /**
+     * Records that an entity no longer refers to the entity with the specified ID.
+     *
+     * @param id       The ID of the referenced entity.
+     * @param referrer The entity that referred to it.
+     */
+    void remove(long id, T referrer)
+    {
+        Set<T> set=referrers.get(id);
+        if(set!=null)
+        {
+            set.remove(referrer);
+            if(set.isEmpty())
+            {
+                referrers.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Returns the entities that refer to the entity with the specified ID.
+     *
+     * @param id The ID of the referenced entity.
+     * @return A list of the referrers, which is empty if there are none.
+     */
+    List<T> get(long id)
+    {
+        Set<T> set=referrers.get(id);
+        return set==null ? new ArrayList<>() : new ArrayList<>(set);
+    }
+
+    /**
+     * Forgets every referrer of the entity with the specified ID, such as when the entity is removed.
+     *
+     * @param id The ID of the referenced entity.
+     * @return A list of the referrers it had, which is empty if there were none.
+     */
+    List<T> removeAll(long id)
+    {
+        Set<T> set=referrers.remove(id);
+        return set==null ? new ArrayList<>() : new ArrayList<>(set);
+    }
+
+    /**
+     * Forgets every reference.
+     */
+    void clear()
+    {
+        referrers.clear();
+    }
+}
@@ -12,10 +12,13 @@ import java.util.Objects;
  */
 public class Review implements Serializable
 {
+    private static final long serialVersionUID=-8270178330364289667L;
+
     private String text;
     private int rating;
     private LocalDate date;
     private User reviewer;
+    private transient boolean dirty;
 
     /**
      * Constructs a Review object with a rating, text, and reviewer.
@@ -38,6 +41,20 @@ public class Review implements Serializable
         date=LocalDate.now();
     }
 
+    /**
+     * Constructs a Review object with the date it was made. Used when reviews are read from a file.
+     *
+     * @param rating   the rating given in the review
+     * @param text     the text content of the review
+     * @param reviewer the user who made the review
+     * @param date     the date the review was made or last edited
+     */
+    Review(int rating, String text, User reviewer, LocalDate date)
+    {
+        this(rating,text,reviewer);
+        this.date=date;
+    }
+
     /**
      * Sets the rating for the review if it is valid.
      *
@@ -47,6 +64,7 @@ public class Review implements Serializable
     {
         if(ratingIsValid(rating))
         {
+            dirty=true;
             this.rating = rating;
         }
         else
@@ -91,6 +109,7 @@ public class Review implements Serializable
      */
     public void setText(String text)
     {
+        dirty=true;
         this.text=text;
     }
 
@@ -124,6 +143,34 @@ public class Review implements Serializable
         return reviewer;
     }
 
+    /**
+     * Sets the user who made the review. Used to replace a copy of the reviewer with the user stored in the database.
+     *
+     * @param reviewer the user who made the review
+     */
+    void setReviewer(User reviewer)
+    {
+        this.reviewer=reviewer;
+    }
+
+    /**
+     * Returns whether the review has been changed since it was last written to disk.
+     *
+     * @return {@code true} if the review has unsaved changes, {@code false} otherwise.
+     */
+    boolean isDirty()
+    {
+        return dirty;
+    }
+
+    /**
+     * Marks the review as written to disk.
+     */
+    void clearDirty()
+    {
+        dirty=false;
+    }
+
     /**
      * Edits the review with new rating and text, updating the date to the current date.
      *
@@ -132,6 +179,7 @@ public class Review implements Serializable
      */
     public void edit(int rating, String text)
     {
+        dirty=true;
         date=LocalDate.now();
 
         try {
@@ -0,0 +1,155 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code SearchCache} class keeps the results of the latest searches of a {@link DataBase}, so that searches
+ * that are repeated, such as the ones of the filters of the search panel, aren't carried out again.
+ * <p>
+ * Results are keyed by their {@link SearchQuery} and tagged with the version of the content of the database they
+ * were found in. The database changes its version whenever its content changes, including its reviews, so results
+ * found in an older version are never returned. The cache holds a limited number of queries and results, and the
+ * least recently used queries are dropped first.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class SearchCache
+{
+    /**
+     * Represents the results of a query, along with the version of the content they were found in.
+     */
+    private static class Entry
+    {
+        private final ArrayList<Content> results;
+        private final long version;
+
+        Entry(ArrayList<Content> results, long version)
+        {
+            this.results=results;
+            this.version=version;
+        }
+    }
+
+    private final int maxQueries;
+    private final int maxResults;
+    private final LinkedHashMap<SearchQuery,Entry> entries;
+    private int cachedResults;
+    private long hits,misses;
+
+    /**
+     * Constructs a new empty SearchCache.
+     *
+     * @param maxQueries The maximum number of queries whose results are kept.
+     * @param maxResults The maximum number of results kept for all the queries together.
+     */
+    SearchCache(int maxQueries, int maxResults)
+    {
+        this.maxQueries=maxQueries;
+        this.maxResults=maxResults;
+        entries=new LinkedHashMap<>(16,0.75f,true);
+    }
+
+    /**
+     * Returns the results of a query, if they are kept and were found in the current version of the content.
+     * Counts a hit if they were, and a miss otherwise.
+     *
+     * @param query   The query.
+     * @param version The current version of the content.
+     * @return The results, which must not be modified, or {@code null} if they have to be found again.
+     */
+    synchronized ArrayList<Content> get(SearchQuery query, long version)
+    {
+        Entry entry=entries.get(query);
+        if(entry!=null && entry.version!=version)
+        {
+            remove(query);
+            entry=null;
+        }
+        if(entry==null)
+        {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.results;
+    }
+
+    /**
+     * Keeps the results of a query, dropping the least recently used queries if there are too many of them
+     * or of their results. Results that are too many to be kept on their own aren't kept.
+     *
+     * @param query   The query.
+     * @param results The results, which must not be modified afterwards.
+     * @param version The version of the content the results were found in.
+     */
+    synchronized void put(SearchQuery query, ArrayList<Content> results, long version)
+    {
+        remove(query);
+        if(results.size()>maxResults)
+        {
+            return;
+        }
+        entries.put(query,new Entry(results,version));
+        cachedResults+=results.size();
+
+        Iterator<Map.Entry<SearchQuery,Entry>> iterator=entries.entrySet().iterator();
+        while (entries.size()>maxQueries || cachedResults>maxResults)
+        {
+            Map.Entry<SearchQuery,Entry> eldest=iterator.next();
+            cachedResults-=eldest.getValue().results.size();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Drops all kept results.
+     */
+    synchronized void clear()
+    {
+        entries.clear();
+        cachedResults=0;
+    }
+
+    /**
+     * Returns the number of queries whose results are kept.
+     *
+     * @return The number of kept queries.
+     */
+    synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of searches whose results were found in the cache.
+     *
+     * @return The number of hits.
+     */
+    synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of searches whose results weren't found in the cache.
+     *
+     * @return The number of misses.
+     */
+    synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    private void remove(SearchQuery query)
+    {
+        Entry entry=entries.remove(query);
+        if(entry!=null)
+        {
+            cachedResults-=entry.results.size();
+        }
+    }
+}
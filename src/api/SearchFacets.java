@@ -0,0 +1,114 @@
+package api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@code SearchFacets} class holds the number of results of a query, along with the number of results it would
+ * have for every option of its filters (its facets): every category, genre, minimum rating in whole stars and
+ * suitability for minors. The count of an option is the number of results of the query if the filter of its facet
+ * were replaced by the option, with the text and the other filters of the query kept, so that the options can show
+ * how many results choosing them yields.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+public class SearchFacets
+{
+    private final int total;
+    private final Map<SearchQuery.Category,Integer> categoryCounts;
+    private final Map<String,Integer> genreCounts;
+    private final Map<Integer,Integer> minRatingCounts;
+    private final Map<Boolean,Integer> suitabilityCounts;
+
+    /**
+     * Constructs {@code SearchFacets}.
+     *
+     * @param total             The number of results of the query.
+     * @param categoryCounts    The number of results of every category.
+     * @param genreCounts       The number of results of every genre, such as "Drama".
+     * @param minRatingCounts   The number of results of every minimum rating in whole stars.
+     * @param suitabilityCounts The number of results that are, and aren't, suitable for minors.
+     */
+    SearchFacets(int total, Map<SearchQuery.Category,Integer> categoryCounts, Map<String,Integer> genreCounts,
+                 Map<Integer,Integer> minRatingCounts, Map<Boolean,Integer> suitabilityCounts)
+    {
+        this.total=total;
+        this.categoryCounts=Collections.unmodifiableMap(categoryCounts);
+        this.genreCounts=Collections.unmodifiableMap(genreCounts);
+        this.minRatingCounts=Collections.unmodifiableMap(minRatingCounts);
+        this.suitabilityCounts=Collections.unmodifiableMap(suitabilityCounts);
+    }
+
+    /**
+     * Gets the number of results of the query.
+     *
+     * @return The number of results.
+     */
+    public int getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * Gets the number of results the query would have for every category.
+     *
+     * @return An unmodifiable map of every category to its number of results.
+     */
+    public Map<SearchQuery.Category,Integer> getCategoryCounts()
+    {
+        return categoryCounts;
+    }
+
+    /**
+     * Gets the number of results the query would have for every genre.
+     *
+     * @return An unmodifiable map of every genre, such as "Drama", to its number of results.
+     */
+    public Map<String,Integer> getGenreCounts()
+    {
+        return genreCounts;
+    }
+
+    /**
+     * Gets the number of results the query would have for every minimum rating, from 1 to 5 stars.
+     *
+     * @return An unmodifiable map of every minimum rating to its number of results.
+     */
+    public Map<Integer,Integer> getMinRatingCounts()
+    {
+        return minRatingCounts;
+    }
+
+    /**
+     * Gets the number of results the query would have for content that is, and isn't, suitable for minors.
+     *
+     * @return An unmodifiable map of {@code true} and {@code false} to their number of results.
+     */
+    public Map<Boolean,Integer> getSuitabilityCounts()
+    {
+        return suitabilityCounts;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof SearchFacets facets && total==facets.total && categoryCounts.equals(facets.categoryCounts)
+                && genreCounts.equals(facets.genreCounts) && minRatingCounts.equals(facets.minRatingCounts)
+                && suitabilityCounts.equals(facets.suitabilityCounts);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(total,categoryCounts,genreCounts,minRatingCounts,suitabilityCounts);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SearchFacets{total="+total+", categories="+categoryCounts+", genres="+genreCounts
+                +", min ratings="+minRatingCounts+", suitable for minors="+suitabilityCounts+"}";
+    }
+}
@@ -0,0 +1,67 @@
+package api;
+
+/**
+ * The {@code SearchHit} class represents a result of a search streamed by {@link SearchManager#stream(SearchQuery, boolean)}:
+ * a piece of content that matches the query, with the number of its fields that match the text of the query and the
+ * score by which it is ranked.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+public final class SearchHit
+{
+    private final Content content;
+    private final int matchedFields;
+    private final double score;
+
+    /**
+     * Constructs a {@code SearchHit}.
+     *
+     * @param content       The content that matches the query.
+     * @param matchedFields The number of fields of the content that match the text of the query.
+     * @param score         The score of the content, by which results are ranked.
+     */
+    SearchHit(Content content, int matchedFields, double score)
+    {
+        this.content=content;
+        this.matchedFields=matchedFields;
+        this.score=score;
+    }
+
+    /**
+     * Returns the content that matches the query.
+     *
+     * @return The content.
+     */
+    public Content getContent()
+    {
+        return content;
+    }
+
+    /**
+     * Returns the number of fields of the content that match the text of the query.
+     *
+     * @return The number of matched fields, or 0 if the query has no text.
+     */
+    public int getMatchedFields()
+    {
+        return matchedFields;
+    }
+
+    /**
+     * Returns the score of the content, by which results are ranked from the highest to the lowest, as described in
+     * {@link SearchManager#search(SearchQuery)}.
+     *
+     * @return The score, which is negative for content that only matches a fuzzy query with typos.
+     */
+    public double getScore()
+    {
+        return score;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SearchHit{content="+content.getTitle()+", matchedFields="+matchedFields+", score="+score+"}";
+    }
+}
@@ -0,0 +1,204 @@
+package api;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The {@code SearchIndex} class holds the indexes of the content of a {@link DataBase} that {@link SearchManager}
+ * uses to plan searches: a {@link TrigramIndex} for the text of searches, a {@link FuzzyIndex} for the words of
+ * fuzzy searches, a {@link SuggestionTrie} that completes searches as they are typed, the {@link TermStatistics} by
+ * which results are ranked, and the {@link FacetIndex} that keeps the postings of the content of every category,
+ * genre, suitability for minors and rating for the filters. The filters are combined through the postings, and
+ * their sizes are the statistics by which the planner estimates how much content each filter keeps. The
+ * {@link RatingIndex} orders the content by its average rating, through which the content with a minimum rating and
+ * the best rated content are found. The content is also ordered by id, apart for viewable content and the rest, so that the first pages of searches that rank content
+ * by id alone are found without checking every piece of content.
+ * <p>
+ * Content is compared by identity.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class SearchIndex
+{
+    private final TrigramIndex trigrams;
+    private final FuzzyIndex fuzzy;
+    private final SuggestionTrie suggestions;
+    private final TermStatistics statistics;
+    private final FacetIndex facets;
+    private final RatingIndex ratings;
+    private final TreeMap<Long,Content> viewableById;
+    private final TreeMap<Long,Content> otherById;
+
+    /**
+     * Constructs a new empty SearchIndex.
+     */
+    SearchIndex()
+    {
+        trigrams=new TrigramIndex();
+        fuzzy=new FuzzyIndex();
+        suggestions=new SuggestionTrie();
+        statistics=new TermStatistics();
+        facets=new FacetIndex();
+        ratings=new RatingIndex();
+        viewableById=new TreeMap<>();
+        otherById=new TreeMap<>();
+    }
+
+    /**
+     * Adds a piece of content to the indexes. If the content is already indexed, it is indexed again,
+     * such as after its fields were edited.
+     *
+     * @param content The content to be indexed.
+     */
+    void add(Content content)
+    {
+        remove(content);
+        trigrams.add(content);
+        fuzzy.add(content);
+        suggestions.add(content);
+        statistics.add(content);
+        facets.add(content);
+        ratings.add(content);
+        if(content instanceof ViewableContent)
+        {
+            viewableById.put(content.getId(),content);
+        }
+        else
+        {
+            otherById.put(content.getId(),content);
+        }
+    }
+
+    /**
+     * Removes a piece of content from the indexes.
+     *
+     * @param content The content to be removed.
+     */
+    void remove(Content content)
+    {
+        if(facets.ordinal(content)<0)
+        {
+            return;
+        }
+        trigrams.remove(content);
+        fuzzy.remove(content);
+        suggestions.remove(content);
+        statistics.remove(content);
+        facets.remove(content);
+        ratings.remove(content);
+        if(content instanceof ViewableContent)
+        {
+            viewableById.remove(content.getId(),content);
+        }
+        else
+        {
+            otherById.remove(content.getId(),content);
+        }
+    }
+
+    /**
+     * Removes all content from the indexes.
+     */
+    void clear()
+    {
+        trigrams.clear();
+        fuzzy.clear();
+        suggestions.clear();
+        statistics.clear();
+        facets.clear();
+        ratings.clear();
+        viewableById.clear();
+        otherById.clear();
+    }
+
+    /**
+     * Returns the number of pieces of content in the indexes.
+     *
+     * @return The number of indexed pieces of content.
+     */
+    int size()
+    {
+        return facets.size();
+    }
+
+    /**
+     * Returns the index of the trigrams of the content.
+     *
+     * @return The trigram index.
+     */
+    TrigramIndex getTrigrams()
+    {
+        return trigrams;
+    }
+
+    /**
+     * Returns the index of the words of the title and people involved of the content.
+     *
+     * @return The fuzzy index.
+     */
+    FuzzyIndex getFuzzy()
+    {
+        return fuzzy;
+    }
+
+    /**
+     * Returns the trie of the titles and names of the people involved of the content, ranked by rating.
+     *
+     * @return The suggestion trie.
+     */
+    SuggestionTrie getSuggestions()
+    {
+        return suggestions;
+    }
+
+    /**
+     * Returns the statistics of the terms of the content.
+     *
+     * @return The term statistics.
+     */
+    TermStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Returns the postings of the content, through which filters are combined and counted.
+     *
+     * @return The facet index.
+     */
+    FacetIndex getFacets()
+    {
+        return facets;
+    }
+
+    /**
+     * Returns the content ordered by its average rating.
+     *
+     * @return The rating index.
+     */
+    RatingIndex getRatings()
+    {
+        return ratings;
+    }
+
+    /**
+     * Returns the viewable content, ordered by id.
+     *
+     * @return A map of the ids of the viewable content to the content, which must not be modified.
+     */
+    NavigableMap<Long,Content> getViewableById()
+    {
+        return viewableById;
+    }
+
+    /**
+     * Returns the content that isn't viewable, ordered by id.
+     *
+     * @return A map of the ids of the content to the content, which must not be modified.
+     */
+    NavigableMap<Long,Content> getOtherById()
+    {
+        return otherById;
+    }
+}
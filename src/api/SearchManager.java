@@ -2,6 +2,11 @@ package api;
 
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The {@code SearchManager} class provides methods for searching and filtering content based on various criteria.
@@ -17,23 +22,113 @@ public class SearchManager
      */
     private final HashSet<Content> content;
 
+    /**
+     * The indexes of the content, used to plan searches, or {@code null} if every piece of content is checked.
+     */
+    private final SearchIndex searchIndex;
+
+    /**
+     * The pool in which scans of many candidates are split into shards that are checked in parallel.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The number of candidates from which a scan is split into shards, so that smaller scans stay sequential.
+     */
+    private final int parallelThreshold;
+
+    /**
+     * The default number of candidates from which a scan is split into shards.
+     */
+    static final int PARALLEL_THRESHOLD=50_000;
+
+    /**
+     * The number of candidates of a shard, below which a shard isn't split further, unless the threshold is lower.
+     */
+    private static final int SHARD_SIZE=8_192;
+
+    /**
+     * The estimated cost of checking a filter that loads the reviews of content, relative to a filter of its fields.
+     */
+    private static final double REVIEWS_COST=10;
+
+    /**
+     * The largest share of the content that the matches of the fuzzy index may be for them to be added to the
+     * candidates of the trigram index. Copying more of them costs more than scanning all the content.
+     */
+    private static final double MAX_FUZZY_CANDIDATE_SHARE=0.25;
+
+    /**
+     * The estimated share of content that passes a filter for which there are no statistics.
+     */
+    private static final double DEFAULT_SELECTIVITY=0.5;
+
+    /**
+     * The order of search results: by their score, from highest to lowest, and then by the id of the content.
+     */
+    private static final Comparator<CriteriaMatched> RANKING=(criteriaMatched1,criteriaMatched2) ->
+            compare(criteriaMatched1.getScore(),criteriaMatched1.getContent().getId(),
+                    criteriaMatched2.getScore(),criteriaMatched2.getContent().getId());
+
+    /**
+     * The order of streamed search results, which is the same as {@link #RANKING}.
+     */
+    private static final Comparator<SearchHit> HIT_RANKING=(hit1,hit2) ->
+            compare(hit1.getScore(),hit1.getContent().getId(),hit2.getScore(),hit2.getContent().getId());
+
+    /**
+     * The statistics of the terms of the content, by which results are scored when there are no indexes,
+     * or {@code null} if they haven't been needed yet.
+     */
+    private TermStatistics statistics;
+
     /**
      * Creates a new {@code SearchManager} with the specified content set.
      *
      * @param content The set of content to be searched.
      */
     public SearchManager(HashSet<Content> content)
+    {
+        this(content,null);
+    }
+
+    /**
+     * Creates a new {@code SearchManager} with the specified content set and its indexes.
+     *
+     * @param content     The set of content to be searched.
+     * @param searchIndex The indexes of the content, or {@code null} if every piece of content is checked.
+     */
+    SearchManager(HashSet<Content> content, SearchIndex searchIndex)
+    {
+        this(content,searchIndex,ForkJoinPool.commonPool(),PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Creates a new {@code SearchManager} with the specified content set, its indexes and the pool in which large scans
+     * are carried out.
+     *
+     * @param content           The set of content to be searched.
+     * @param searchIndex       The indexes of the content, or {@code null} if every piece of content is checked.
+     * @param pool              The pool in which scans are split into shards.
+     * @param parallelThreshold The number of candidates from which a scan is split into shards.
+     */
+    SearchManager(HashSet<Content> content, SearchIndex searchIndex, ForkJoinPool pool, int parallelThreshold)
     {
         this.content=content;
+        this.searchIndex=searchIndex;
+        this.pool=pool;
+        this.parallelThreshold=parallelThreshold;
     }
 
     /**
-     * Represents a pair of content and the number of matched search criteria. Used for sorting search results.
+     * Represents a piece of content along with the number of matched search criteria and its score. Used for sorting
+     * search results.
      */
     static class CriteriaMatched implements Comparable<CriteriaMatched>
     {
         private final Content content;
         private int matchedCriteria;
+        private double score;
 
         /**
          * Constructs a {@code CriteriaMatched} object for the specified content.
@@ -66,6 +161,26 @@ public class SearchManager
             return matchedCriteria;
         }
 
+        /**
+         * Sets the score of the content, by which results are ranked.
+         *
+         * @param score The score.
+         */
+        public void setScore(double score)
+        {
+            this.score=score;
+        }
+
+        /**
+         * Gets the score of the content, by which results are ranked.
+         *
+         * @return The score.
+         */
+        public double getScore()
+        {
+            return score;
+        }
+
         /**
          * Gets the content for which the criteria are matched.
          *
@@ -78,7 +193,7 @@ public class SearchManager
 
 
         /**
-         * Compares two {@code CriteriaMatched} objects based on the number of matched criteria.
+         * Compares two {@code CriteriaMatched} objects based on their score.
          *
          * @param other The other {@code CriteriaMatched} object to compare.
          * @return A negative integer, zero, or a positive integer as this object is less than, equal to, or greater than the specified object.
@@ -86,86 +201,920 @@ public class SearchManager
         @Override
         public int compareTo(CriteriaMatched other)
         {
-            return Integer.compare(this.matchedCriteria, other.getMatchedCriteria());
+            return Double.compare(this.score, other.getScore());
         }
     }
 
     /**
      * Searches and filters content based on the specified search criteria.
      *
-     * @param searchCriteria The search criteria to apply.
+     * @param searchCriteria The search criteria to apply, in the string form described in {@link SearchQuery#parse(String...)}.
      * @return An {@code ArrayList} of content that matches the search criteria.
      */
     public ArrayList<Content> searchContent(String...searchCriteria)
+    {
+        return search(SearchQuery.parse(searchCriteria));
+    }
+
+    /**
+     * Searches and filters content based on a query. If the query has a text, the content that matches it is ranked by
+     * the BM25 score of the words of the text in its title, people involved and genre, from highest to lowest, as
+     * described in {@link SearchPlan#score(Content, int)}. The average rating of the content is added to its score
+     * if the query weighs ratings. Content with the same score is ordered by its id. Content that only matches the
+     * words of a fuzzy query with typos comes after the content that matches the text.
+     *
+     * @param query The query.
+     * @return An {@code ArrayList} of content that matches the query.
+     */
+    public ArrayList<Content> search(SearchQuery query)
     {
         ArrayList<Content> results=new ArrayList<>();
-        ArrayList<CriteriaMatched> criteriaMatchedArrayList=new ArrayList<>();
 
-        if(searchCriteria.length==0)
+        SearchPlan plan=plan(query);
+        //The candidates of filters that are combined through their postings are the results, if their ids alone rank them
+        if(isRankedById(query) && plan.candidatesPassFilters())
         {
-            results.addAll(content);
+            results.addAll(plan.candidates());
+            results.sort(Comparator.comparingLong(Content::getId));
             return results;
         }
+        ArrayList<CriteriaMatched> criteriaMatchedArrayList=scan(plan,query.getText(),null,Integer.MAX_VALUE);
+        criteriaMatchedArrayList.sort(RANKING);
 
-        else if(searchCriteria.length%2==0)
+        HashSet<Content> added=new HashSet<>();
+        for (CriteriaMatched criteriaMatched : criteriaMatchedArrayList)
         {
-            for (Content content1 : content)
+            if(added.add(criteriaMatched.getContent()))
+            {
+                results.add(criteriaMatched.getContent());
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Streams the results of a query. Content is only checked against the query as the stream is consumed, so a
+     * caller that only needs the first results, such as with {@link Stream#limit(long)} or
+     * {@link Stream#findFirst()}, doesn't wait for the rest of the content to be checked, and the results aren't
+     * kept in a list. The content must not be edited before the stream is consumed.
+     * <p>
+     * Ranked results come in the order of {@link #search(SearchQuery)}. Ranking a query without a text or with an
+     * empty one, that doesn't weigh ratings, still only checks content as it is needed, but ranking other queries checks all the content when the
+     * first result is taken. Unranked results come in no particular order and are always found as they are needed.
+     *
+     * @param query  The query.
+     * @param ranked {@code true} if the results have to be in the order of {@link #search(SearchQuery)}.
+     * @return A sequential stream of the results.
+     */
+    public Stream<SearchHit> stream(SearchQuery query, boolean ranked)
+    {
+        SearchPlan plan=plan(query);
+        String userSearch=query.getText();
+        Iterator<SearchHit> hits;
+        if(!ranked)
+        {
+            hits=hits(plan,userSearch,plan.candidates().iterator());
+        }
+        else if(searchIndex!=null && isRankedById(query))
+        {
+            hits=hits(plan,userSearch,inRankingOrder(null));
+        }
+        else if(searchIndex!=null && isRankedByRating(query))
+        {
+            hits=hits(plan,userSearch,inRatingOrder(query,null));
+        }
+        else
+        {
+            hits=rankedHits(plan,userSearch);
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(hits,Spliterator.ORDERED | Spliterator.NONNULL),false);
+    }
+
+    /**
+     * Returns a page of the results of a query, in the order of {@link #search(SearchQuery)}. Only the results up to
+     * the end of the page are kept while the content is searched, so the first pages of a query with many results
+     * are found without sorting all of them.
+     *
+     * @param query  The query.
+     * @param offset The number of results before the page.
+     * @param limit  The maximum number of results of the page.
+     * @return The page of results, with the cursor of the next page.
+     * @throws IllegalArgumentException If the offset is negative or the limit isn't positive.
+     */
+    public SearchPage search(SearchQuery query, int offset, int limit) throws IllegalArgumentException
+    {
+        if(offset<0 || limit<=0)
+        {
+            throw new IllegalArgumentException("The offset must not be negative and the limit must be positive");
+        }
+        return page(query,null,offset,limit);
+    }
+
+    /**
+     * Returns the page of the results of a query that follows a cursor, in the order of {@link #search(SearchQuery)}.
+     * Only the results up to the end of the page are kept while the content is searched.
+     *
+     * @param query  The query.
+     * @param cursor The cursor of the page, as returned by {@link SearchPage#getNextCursor()}, or {@code null} for the first page.
+     * @param limit  The maximum number of results of the page.
+     * @return The page of results, with the cursor of the next page.
+     * @throws IllegalArgumentException If the limit isn't positive.
+     */
+    public SearchPage search(SearchQuery query, SearchPage.Cursor cursor, int limit) throws IllegalArgumentException
+    {
+        if(limit<=0)
+        {
+            throw new IllegalArgumentException("The limit must be positive");
+        }
+        return page(query,cursor,0,limit);
+    }
+
+    /**
+     * Finds a page of results by keeping only the best results of the scan. One more result than the page holds is
+     * kept, to find out if there is a next page. The candidates of a plan are distinct, since they come from sets
+     * of content, so results don't have to be deduplicated.
+     */
+    private SearchPage page(SearchQuery query, SearchPage.Cursor cursor, int offset, int limit)
+    {
+        int kept=(int) Math.min(Integer.MAX_VALUE-8,(long) offset+limit+1);
+        SearchPlan plan=plan(query);
+        String userSearch=query.getText();
+
+        //Without a text, or with an empty one, content is ranked by its id, or by its rating alone, so it can be checked
+        //in order until the page is full, which pays off unless the filters keep little content
+        double estimate=plan.getAccessPath().getEstimate();
+        if(searchIndex!=null && (double) kept*content.size()<estimate*estimate)
+        {
+            if(isRankedById(query))
+            {
+                return orderedPage(plan,userSearch,inRankingOrder(cursor),cursor,offset,limit);
+            }
+            if(isRankedByRating(query))
+            {
+                return orderedPage(plan,userSearch,inRatingOrder(query,cursor),cursor,offset,limit);
+            }
+        }
+
+        ArrayList<CriteriaMatched> hits=scan(plan,userSearch,cursor,kept);
+        hits.sort(RANKING);
+        ArrayList<Content> results=new ArrayList<>();
+        for (int i=offset;i<Math.min(hits.size(),offset+limit);i++)
+        {
+            results.add(hits.get(i).getContent());
+        }
+        SearchPage.Cursor nextCursor=null;
+        if(hits.size()>offset+limit)
+        {
+            CriteriaMatched last=hits.get(offset+limit-1);
+            nextCursor=new SearchPage.Cursor(last.getScore(),last.getContent().getId());
+        }
+        return new SearchPage(results,nextCursor);
+    }
+
+    /**
+     * Finds a page of the results of a query without a text or with an empty one by checking the content in the order
+     * of the results. Content up to the cursor is skipped, in case the content starts before it.
+     */
+    private SearchPage orderedPage(SearchPlan plan, String userSearch, Iterator<Content> inOrder, SearchPage.Cursor cursor,
+                                   int offset, int limit)
+    {
+        Iterator<SearchHit> hits=hits(plan,userSearch,inOrder);
+        ArrayList<Content> results=new ArrayList<>();
+        SearchHit last=null;
+        int skipped=0;
+        while (results.size()<limit && hits.hasNext())
+        {
+            SearchHit hit=hits.next();
+            //Content up to the cursor was on earlier pages
+            if(cursor!=null && compare(hit.getScore(),hit.getContent().getId(),cursor.getScore(),cursor.getId())<=0)
+            {
+                continue;
+            }
+            if(skipped<offset)
+            {
+                skipped++;
+                continue;
+            }
+            last=hit;
+            results.add(hit.getContent());
+        }
+        SearchPage.Cursor nextCursor=null;
+        if(last!=null && hits.hasNext())
+        {
+            nextCursor=new SearchPage.Cursor(last.getScore(),last.getContent().getId());
+        }
+        return new SearchPage(results,nextCursor);
+    }
+
+    /**
+     * Checks if every piece of content that matches a query scores 0, so that the results are ordered by id alone:
+     * the query has no text, or an empty one, and doesn't weigh ratings.
+     *
+     * @param query The query.
+     * @return {@code true} if the results are ordered by id, {@code false} otherwise.
+     */
+    private static boolean isRankedById(SearchQuery query)
+    {
+        return (query.getText()==null || query.getText().isEmpty()) && query.getRatingWeight()==0;
+    }
+
+    /**
+     * Checks if content that matches a query is ranked by its average rating alone, and then by its id: the query
+     * has no text, or an empty one, and weighs ratings.
+     *
+     * @param query The query.
+     * @return {@code true} if the results are ordered by rating, {@code false} otherwise.
+     */
+    private static boolean isRankedByRating(SearchQuery query)
+    {
+        return (query.getText()==null || query.getText().isEmpty()) && query.getRatingWeight()>0;
+    }
+
+    /**
+     * Iterates over the content in the order of the results of a search whose results are ordered by rating, from a
+     * cursor on, by walking the rating index down to the minimum rating of the results, if they have one. The content
+     * is found as it is iterated over, so only the content up to the last result needed is checked.
+     * <p>
+     * The rating of the cursor is found from its score, which may be off by its last bit, so the content starts just
+     * above it and may start before the cursor.
+     *
+     * @param query  The query, which weighs ratings.
+     * @param cursor The cursor after which to start, or {@code null} to start from the best rated piece of content.
+     * @return An iterator over the content, which doesn't check the filters of the search.
+     */
+    private Iterator<Content> inRatingOrder(SearchQuery query, SearchPage.Cursor cursor)
+    {
+        double maxRating=cursor!=null ? Math.nextUp(cursor.getScore()/query.getRatingWeight()) : Double.POSITIVE_INFINITY;
+        double minRating=minRating(query.getFilters());
+        return searchIndex.getRatings().iterator(maxRating,Double.isNaN(minRating) ? 0 : minRating);
+    }
+
+    /**
+     * Iterates over the content in the order of the results of a search whose results are ordered by id, from a
+     * cursor on, by merging the viewable content and the rest of the content, which are each ordered by id.
+     * The content is found as it is iterated over, so only the content up to the last result needed is checked.
+     *
+     * @param cursor The cursor after which to start, or {@code null} to start from the first piece of content.
+     * @return An iterator over the content, which doesn't check the filters of the search.
+     */
+    private Iterator<Content> inRankingOrder(SearchPage.Cursor cursor)
+    {
+        ArrayList<Iterator<Content>> iterators=new ArrayList<>();
+        for (NavigableMap<Long,Content> contentById : List.of(searchIndex.getViewableById(),searchIndex.getOtherById()))
+        {
+            iterators.add((cursor!=null ? contentById.tailMap(cursor.getId(),false) : contentById).values().iterator());
+        }
+        return mergeById(iterators);
+    }
+
+    /**
+     * Checks the candidates of a plan and keeps the best of the hits. If there are enough candidates, they are split
+     * into shards that are checked in parallel in the pool, and the best hits of every shard are merged.
+     *
+     * @param plan       The plan of the search.
+     * @param userSearch The text of the search, or {@code null} if it has none.
+     * @param cursor     The cursor after which hits are kept, or {@code null} to keep hits from the first one.
+     * @param kept       The number of hits to keep, or {@code Integer.MAX_VALUE} to keep all of them.
+     * @return The kept hits, in no particular order.
+     */
+    private ArrayList<CriteriaMatched> scan(SearchPlan plan, String userSearch, SearchPage.Cursor cursor, int kept)
+    {
+        Collection<Content> candidates=plan.candidates();
+        if(candidates.size()<parallelThreshold)
+        {
+            return scanShard(plan,userSearch,cursor,kept,candidates.spliterator());
+        }
+        int shardSize=Math.max(1,Math.min(SHARD_SIZE,parallelThreshold));
+        return pool.invoke(new ShardScan(plan,userSearch,cursor,kept,shardSize,candidates.spliterator()));
+    }
+
+    /**
+     * Represents the scan of a shard of the candidates, which splits itself in two until the shards are small enough.
+     */
+    private static class ShardScan extends RecursiveTask<ArrayList<CriteriaMatched>>
+    {
+        private static final long serialVersionUID=6004185128392061392L;
+
+        private final SearchPlan plan;
+        private final String userSearch;
+        private final SearchPage.Cursor cursor;
+        private final int kept;
+        private final int shardSize;
+        private final Spliterator<Content> shard;
+
+        ShardScan(SearchPlan plan, String userSearch, SearchPage.Cursor cursor, int kept, int shardSize, Spliterator<Content> shard)
+        {
+            this.plan=plan;
+            this.userSearch=userSearch;
+            this.cursor=cursor;
+            this.kept=kept;
+            this.shardSize=shardSize;
+            this.shard=shard;
+        }
+
+        @Override
+        protected ArrayList<CriteriaMatched> compute()
+        {
+            Spliterator<Content> half=shard.estimateSize()>shardSize ? shard.trySplit() : null;
+            if(half==null)
+            {
+                return scanShard(plan,userSearch,cursor,kept,shard);
+            }
+            ShardScan other=new ShardScan(plan,userSearch,cursor,kept,shardSize,half);
+            other.fork();
+            ArrayList<CriteriaMatched> hits=compute();
+            hits.addAll(other.join());
+            if(hits.size()>kept)
+            {
+                hits.sort(RANKING);
+                hits.subList(kept,hits.size()).clear();
+            }
+            return hits;
+        }
+    }
+
+    /**
+     * Checks a shard of the candidates of a plan and keeps the best of the hits. If only some of the hits are kept,
+     * the best hits seen so far are kept in a heap whose head is the worst of them.
+     */
+    private static ArrayList<CriteriaMatched> scanShard(SearchPlan plan, String userSearch, SearchPage.Cursor cursor,
+                                                        int kept, Spliterator<Content> shard)
+    {
+        ArrayList<CriteriaMatched> all=kept==Integer.MAX_VALUE ? new ArrayList<>() : null;
+        PriorityQueue<CriteriaMatched> heap=all==null ? new PriorityQueue<>(Math.min(kept,1024),RANKING.reversed()) : null;
+        boolean passesFilters=plan.candidatesPassFilters();
+        shard.forEachRemaining(content1 -> {
+            if(!passesFilters && !plan.matchesFilters(content1))
+            {
+                return;
+            }
+            int fieldsMatched=userSearch==null ? 0 : matchedFields(content1,userSearch);
+            if(userSearch!=null && fieldsMatched==0 && !plan.matchesFuzzily(content1))
+            {
+                return;
+            }
+            double score=plan.score(content1,fieldsMatched);
+            //Content up to the cursor was on earlier pages
+            if(cursor!=null && compare(score,content1.getId(),cursor.getScore(),cursor.getId())<=0)
+            {
+                return;
+            }
+            //Content after the worst of the kept results can't be kept
+            CriteriaMatched worst=heap!=null && heap.size()==kept ? heap.peek() : null;
+            if(worst!=null && compare(score,content1.getId(),worst.getScore(),worst.getContent().getId())>=0)
+            {
+                return;
+            }
+            CriteriaMatched criteriaMatched=new CriteriaMatched(content1);
+            criteriaMatched.increaseMatchedCriteria(fieldsMatched);
+            criteriaMatched.setScore(score);
+            if(all!=null)
+            {
+                all.add(criteriaMatched);
+                return;
+            }
+            heap.add(criteriaMatched);
+            if(heap.size()>kept)
+            {
+                heap.poll();
+            }
+        });
+        return all!=null ? all : new ArrayList<>(heap);
+    }
+
+    /**
+     * Iterates over the hits among some candidates, checking each candidate only when the iterator reaches it.
+     *
+     * @param plan       The plan of the search, whose filters the hits pass.
+     * @param userSearch The text of the search, or {@code null} if it has none.
+     * @param candidates The candidates, in the order of the hits.
+     * @return An iterator over the hits.
+     */
+    private static Iterator<SearchHit> hits(SearchPlan plan, String userSearch, Iterator<Content> candidates)
+    {
+        return new Iterator<>()
+        {
+            private SearchHit next;
+
+            @Override
+            public boolean hasNext()
+            {
+                while (next==null && candidates.hasNext())
+                {
+                    Content content1=candidates.next();
+                    if(plan.matchesFilters(content1))
+                    {
+                        int fieldsMatched=userSearch==null ? 0 : matchedFields(content1,userSearch);
+                        if(userSearch==null || fieldsMatched>0 || plan.matchesFuzzily(content1))
+                        {
+                            next=new SearchHit(content1,fieldsMatched,plan.score(content1,fieldsMatched));
+                        }
+                    }
+                }
+                return next!=null;
+            }
+
+            @Override
+            public SearchHit next()
+            {
+                if(!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                SearchHit hit=next;
+                next=null;
+                return hit;
+            }
+        };
+    }
+
+    /**
+     * Iterates over the hits of a search in the order of the results, by keeping all of them in a heap that is only
+     * filled when the first hit is needed. Each hit is then taken from the heap when the iterator reaches it, so
+     * taking the first hits doesn't sort all of them.
+     */
+    private Iterator<SearchHit> rankedHits(SearchPlan plan, String userSearch)
+    {
+        return new Iterator<>()
+        {
+            private PriorityQueue<SearchHit> heap;
+
+            @Override
+            public boolean hasNext()
             {
-                if(matchesCriteriaInFilters(content1,searchCriteria))
+                if(heap==null)
                 {
-                    CriteriaMatched criteriaMatched= new CriteriaMatched(content1);
-                    criteriaMatched.increaseMatchedCriteria(1);
-                    criteriaMatchedArrayList.add(criteriaMatched);
+                    heap=new PriorityQueue<>(HIT_RANKING);
+                    for (CriteriaMatched criteriaMatched : scan(plan,userSearch,null,Integer.MAX_VALUE))
+                    {
+                        heap.add(new SearchHit(criteriaMatched.getContent(),criteriaMatched.getMatchedCriteria(),criteriaMatched.getScore()));
+                    }
+                }
+                return !heap.isEmpty();
+            }
+
+            @Override
+            public SearchHit next()
+            {
+                if(!hasNext())
+                {
+                    throw new NoSuchElementException();
                 }
+                return heap.poll();
+            }
+        };
+    }
+
+    /**
+     * Merges iterators of content that are each ordered by id into one iterator ordered by id.
+     */
+    private static Iterator<Content> mergeById(List<Iterator<Content>> iterators)
+    {
+        PriorityQueue<Map.Entry<Content,Iterator<Content>>> heads=new PriorityQueue<>(Math.max(1,iterators.size()),
+                Comparator.comparingLong(head -> head.getKey().getId()));
+        for (Iterator<Content> iterator : iterators)
+        {
+            if(iterator.hasNext())
+            {
+                heads.add(new AbstractMap.SimpleEntry<>(iterator.next(),iterator));
             }
         }
-        else if(searchCriteria.length==1)
+        return new Iterator<>()
         {
-            String criterion=searchCriteria[0];
-            for (Content content1 : content)
+            @Override
+            public boolean hasNext()
+            {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Content next()
+            {
+                Map.Entry<Content,Iterator<Content>> head=heads.poll();
+                if(head==null)
+                {
+                    throw new NoSuchElementException();
+                }
+                if(head.getValue().hasNext())
+                {
+                    heads.add(new AbstractMap.SimpleEntry<>(head.getValue().next(),head.getValue()));
+                }
+                return head.getKey();
+            }
+        };
+    }
+
+    /**
+     * Compares the positions of two results in the order of search results.
+     *
+     * @return A negative integer if the first result comes first, zero if they are the same, or a positive integer otherwise.
+     */
+    private static int compare(double score1, long id1, double score2, long id2)
+    {
+        int comparison=Double.compare(score2,score1);
+        return comparison!=0 ? comparison : Long.compare(id1,id2);
+    }
+
+    /**
+     * Describes how a query is carried out: the access path through which the content that may match it is found,
+     * the access paths that were considered and the order in which its filters are checked.
+     *
+     * @param query The query.
+     * @return A description of the plan of the query, on several lines.
+     */
+    public String explain(SearchQuery query)
+    {
+        return plan(query).explain();
+    }
+
+    /**
+     * Counts the results of a query, and the results it would have for every option of its filters, as described in
+     * {@link SearchFacets}. The content that matches the text of the query is found once. With indexes, the content
+     * that passes the filters of every option is then found through the postings of the {@link FacetIndex} and
+     * intersected with it, so no content is checked again for every option. Without indexes, every piece of content
+     * that matches the text is checked against the filters of every option in a single pass.
+     *
+     * @param query The query.
+     * @return The counts of the results.
+     */
+    public SearchFacets facets(SearchQuery query)
+    {
+        ArrayList<SearchQuery> options=new ArrayList<>();
+        options.add(query);
+        for (SearchQuery.Category category : SearchQuery.Category.values())
+        {
+            options.add(withFacet(query,SearchQuery.builder().category(category)));
+        }
+        for (String genre : SearchQuery.GENRES)
+        {
+            options.add(withFacet(query,SearchQuery.builder().genre(genre)));
+        }
+        for (int stars=1;stars<=FacetIndex.MAX_RATING;stars++)
+        {
+            options.add(withFacet(query,SearchQuery.builder().minRating(stars)));
+        }
+        options.add(withFacet(query,SearchQuery.builder().suitableForMinors(true)));
+        options.add(withFacet(query,SearchQuery.builder().suitableForMinors(false)));
+
+        int[] counts=new int[options.size()];
+        //The content that matches the text doesn't depend on the filters
+        SearchPlan plan=plan(query.withFilters(List.of()));
+        String userSearch=query.getText();
+        if(searchIndex!=null)
+        {
+            FacetIndex facetIndex=searchIndex.getFacets();
+            BitSet matches=userSearch==null ? facetIndex.all() : new BitSet();
+            if(userSearch!=null)
             {
-                int fieldsMatched=matchedCriteriaInSearchBar(content1,criterion);
-                if(fieldsMatched>0)
+                for (Content content1 : plan.candidates())
                 {
-                    CriteriaMatched criteriaMatched= new CriteriaMatched(content1);
-                    criteriaMatched.increaseMatchedCriteria(fieldsMatched);
-                    criteriaMatchedArrayList.add(criteriaMatched);
+                    int ordinal=facetIndex.ordinal(content1);
+                    if(ordinal>=0 && (matchedFields(content1,userSearch)>0 || plan.matchesFuzzily(content1)))
+                    {
+                        matches.set(ordinal);
+                    }
                 }
             }
+            for (int i=0;i<options.size();i++)
+            {
+                BitSet optionMatches=facetIndex.matching(options.get(i).getFilters());
+                optionMatches.and(matches);
+                counts[i]=optionMatches.cardinality();
+            }
         }
         else
         {
-            String lastCriterion=searchCriteria[searchCriteria.length-1];
-            for (Content content1 : content)
+            for (Content content1 : plan.candidates())
             {
-                if(matchesCriteriaInFilters(content1,searchCriteria))
+                if(userSearch!=null && matchedFields(content1,userSearch)==0 && !plan.matchesFuzzily(content1))
+                {
+                    continue;
+                }
+                for (int i=0;i<options.size();i++)
                 {
-                    int fieldsMatched=1;
-                    fieldsMatched+=matchedCriteriaInSearchBar(content1,lastCriterion);
-                    if(fieldsMatched>1)
+                    if(options.get(i).matchesFilters(content1))
                     {
-                        CriteriaMatched criteriaMatched= new CriteriaMatched(content1);
-                        criteriaMatched.increaseMatchedCriteria(fieldsMatched);
-                        criteriaMatchedArrayList.add(criteriaMatched);
+                        counts[i]++;
                     }
                 }
             }
         }
 
-        criteriaMatchedArrayList.sort(Comparator.reverseOrder());
+        int option=0;
+        int total=counts[option++];
+        EnumMap<SearchQuery.Category,Integer> categoryCounts=new EnumMap<>(SearchQuery.Category.class);
+        for (SearchQuery.Category category : SearchQuery.Category.values())
+        {
+            categoryCounts.put(category,counts[option++]);
+        }
+        LinkedHashMap<String,Integer> genreCounts=new LinkedHashMap<>();
+        for (String genre : SearchQuery.GENRES)
+        {
+            genreCounts.put(genre,counts[option++]);
+        }
+        TreeMap<Integer,Integer> minRatingCounts=new TreeMap<>();
+        for (int stars=1;stars<=FacetIndex.MAX_RATING;stars++)
+        {
+            minRatingCounts.put(stars,counts[option++]);
+        }
+        LinkedHashMap<Boolean,Integer> suitabilityCounts=new LinkedHashMap<>();
+        suitabilityCounts.put(true,counts[option++]);
+        suitabilityCounts.put(false,counts[option]);
+        return new SearchFacets(total,categoryCounts,genreCounts,minRatingCounts,suitabilityCounts);
+    }
 
-        if(!criteriaMatchedArrayList.isEmpty())
+    /**
+     * Returns a copy of a query whose filters of the same kind as an option are replaced by the option, in place of the
+     * first of them, or followed by it if the query has none.
+     *
+     * @param query  The query.
+     * @param option A builder of a query with the option as its only filter.
+     * @return The copy of the query.
+     */
+    private static SearchQuery withFacet(SearchQuery query, SearchQuery.Builder option)
+    {
+        SearchQuery.Filter optionFilter=option.build().getFilters().get(0);
+        ArrayList<SearchQuery.Filter> filters=new ArrayList<>();
+        boolean replaced=false;
+        for (SearchQuery.Filter filter : query.getFilters())
         {
-            for (CriteriaMatched criteriaMatched : criteriaMatchedArrayList)
+            if(filter.getClass()!=optionFilter.getClass())
             {
-                if(!results.contains(criteriaMatched.getContent()))
-                {results.add(criteriaMatched.getContent());}
+                filters.add(filter);
             }
+            else if(!replaced)
+            {
+                filters.add(optionFilter);
+                replaced=true;
+            }
+        }
+        if(!replaced)
+        {
+            filters.add(optionFilter);
         }
+        return query.withFilters(filters);
+    }
 
-        return results;
+    /**
+     * Plans a query. The content that may match the query (the candidates) is found through the access path with the
+     * fewest estimated candidates: the content that passes the filters of the category, genre and suitability,
+     * combined word-wise through their postings in the {@link FacetIndex}, the content with at least the minimum
+     * rating, found through a range scan of the {@link RatingIndex}, the index of trigrams for the text, or every
+     * piece of content. The postings are combined in the order of the filters, so content that a filter accepts
+     * regardless of the filters that follow passes them, and the number of candidates of the postings and of the
+     * rating index is exact.
+     * <p>
+     * The words of a fuzzy query are matched through the fuzzy index, and the content they match is added to the
+     * candidates found through the trigram index, unless it is more than a quarter of the content. Without indexes, they are matched against every candidate.
+     * <p>
+     * The filters up to each filter that can accept content are checked from the one that rejects the most content
+     * for its cost to the one that rejects the least, which gives the same result as the order of the query.
+     * The minimum rating is checked against the ratings kept in the rating index. Without indexes, every piece of
+     * content is checked, the filters are ordered by cost alone and the minimum rating is checked through the
+     * reviews of the content.
+     * <p>
+     * Results are scored with the term statistics of the indexes, or with statistics counted from the content the
+     * first time a query has words if there are no indexes.
+     *
+     * @param query The query.
+     * @return The plan of the query.
+     */
+    SearchPlan plan(SearchQuery query)
+    {
+        List<SearchQuery.Filter> filters=query.getFilters();
+        String userSearch=query.getText();
+        List<String> words=query.getWords();
+
+        Predicate<Content> fuzzyMatch=null;
+        String fuzzyDescription=null;
+        Set<Content> fuzzyMatches=null;
+        if(query.isFuzzy() && !words.isEmpty())
+        {
+            if(searchIndex!=null)
+            {
+                fuzzyMatches=searchIndex.getFuzzy().matches(words);
+                fuzzyMatch=fuzzyMatches::contains;
+                fuzzyDescription="words "+words+" matched with typos through the fuzzy index ("+fuzzyMatches.size()+" matches)";
+            }
+            else
+            {
+                fuzzyMatch=content1 -> FuzzyIndex.matches(content1,words);
+                fuzzyDescription="words "+words+" matched with typos against the title and people involved of every candidate";
+            }
+        }
+
+        ArrayList<SearchPlan.AccessPath> paths=new ArrayList<>();
+        if(searchIndex!=null)
+        {
+            if(userSearch!=null && isIndexable(userSearch))
+            {
+                TrigramIndex trigrams=searchIndex.getTrigrams();
+                if(fuzzyMatches==null)
+                {
+                    paths.add(new SearchPlan.AccessPath("trigram index for \""+userSearch+"\"",trigrams.estimate(userSearch),
+                            () -> trigrams.candidates(userSearch)));
+                }
+                else if(fuzzyMatches.size()<=content.size()*MAX_FUZZY_CANDIDATE_SHARE)
+                {
+                    Set<Content> matches=fuzzyMatches;
+                    paths.add(new SearchPlan.AccessPath("trigram index for \""+userSearch+"\" and fuzzy index for "+words,
+                            trigrams.estimate(userSearch)+matches.size(),() -> {
+                        Set<Content> candidates=trigrams.candidates(userSearch);
+                        candidates.addAll(matches);
+                        return candidates;
+                    }));
+                }
+            }
+            //Filters of the minimum rating are left out, which only adds candidates that they reject
+            ArrayList<SearchQuery.Filter> indexedFilters=new ArrayList<>();
+            for (SearchQuery.Filter filter : filters)
+            {
+                if(FacetIndex.isIndexed(filter))
+                {
+                    indexedFilters.add(filter);
+                }
+            }
+            if(!indexedFilters.isEmpty())
+            {
+                FacetIndex facets=searchIndex.getFacets();
+                BitSet matching=facets.matching(indexedFilters);
+                paths.add(new SearchPlan.AccessPath("postings of "+indexedFilters,matching.cardinality(),() -> facets.content(matching),
+                        indexedFilters.size()==filters.size()));
+            }
+            double minRating=minRating(filters);
+            if(!Double.isNaN(minRating))
+            {
+                RatingIndex ratings=searchIndex.getRatings();
+                boolean ratingFiltersOnly=true;
+                for (SearchQuery.Filter filter : filters)
+                {
+                    ratingFiltersOnly&=filter instanceof SearchQuery.MinRatingFilter;
+                }
+                paths.add(new SearchPlan.AccessPath("rating index from "+minRating,ratings.count(minRating),() -> ratings.atLeast(minRating),
+                        ratingFiltersOnly));
+            }
+        }
+        SearchPlan.AccessPath fullScan=new SearchPlan.AccessPath("full scan",content.size(),() -> content);
+        paths.add(fullScan);
+
+        SearchPlan.AccessPath accessPath=fullScan;
+        for (SearchPlan.AccessPath path : paths)
+        {
+            if(path.getEstimate()<accessPath.getEstimate())
+            {
+                accessPath=path;
+            }
+        }
+
+        //Orders the filters between the ones that can accept content, which stay in place
+        IdentityHashMap<SearchQuery.Filter,Double> selectivities=new IdentityHashMap<>();
+        for (SearchQuery.Filter filter : filters)
+        {
+            selectivities.put(filter,selectivity(filter));
+        }
+        Comparator<SearchQuery.Filter> byRank=Comparator.comparingDouble((SearchQuery.Filter filter1) -> rank(filter1,selectivities.get(filter1))).reversed();
+        ArrayList<SearchQuery.Filter> orderedFilters=new ArrayList<>();
+        ArrayList<SearchQuery.Filter> group=new ArrayList<>();
+        for (SearchQuery.Filter filter : filters)
+        {
+            if(filter.mayAccept())
+            {
+                group.sort(byRank);
+                orderedFilters.addAll(group);
+                orderedFilters.add(filter);
+                group.clear();
+            }
+            else
+            {
+                group.add(filter);
+            }
+        }
+        group.sort(byRank);
+        orderedFilters.addAll(group);
+
+        ArrayList<String> filterEstimates=new ArrayList<>();
+        for (SearchQuery.Filter filter : orderedFilters)
+        {
+            double selectivity=selectivities.get(filter);
+            filterEstimates.add((Double.isNaN(selectivity) ? "selectivity unknown" : String.format(Locale.ROOT,"selectivity %.2f",selectivity))
+                    +String.format(Locale.ROOT,", cost %.0f",cost(filter)));
+        }
+        Bm25Scorer scorer=new Bm25Scorer(words.isEmpty() ? new TermStatistics() : statistics(),words);
+        return new SearchPlan(accessPath,paths,orderedFilters,filterEstimates,userSearch,fuzzyMatch,fuzzyDescription,
+                scorer,query.getRatingWeight(),searchIndex!=null ? searchIndex.getRatings() : null,content.size());
     }
 
+    /**
+     * Finds the minimum rating that every result of a query has: the highest minimum rating of the filters before
+     * the first filter that can accept content, since content that a filter accepts doesn't have to pass the
+     * filters that follow it.
+     *
+     * @param filters The filters of the query, in the order of the query.
+     * @return The minimum rating, or {@code Double.NaN} if the results don't have one.
+     */
+    private static double minRating(List<SearchQuery.Filter> filters)
+    {
+        double minRating=Double.NaN;
+        for (SearchQuery.Filter filter : filters)
+        {
+            if(filter instanceof SearchQuery.MinRatingFilter minRatingFilter)
+            {
+                minRating=Double.isNaN(minRating) ? minRatingFilter.getMinRating() : Math.max(minRating,minRatingFilter.getMinRating());
+            }
+            else if(filter.mayAccept())
+            {
+                break;
+            }
+        }
+        return minRating;
+    }
+
+    /**
+     * Returns the statistics of the terms of the content: the ones of the indexes, or ones counted from the content
+     * when they are first needed if there are no indexes.
+     *
+     * @return The term statistics.
+     */
+    private TermStatistics statistics()
+    {
+        if(searchIndex!=null)
+        {
+            return searchIndex.getStatistics();
+        }
+        if(statistics==null)
+        {
+            statistics=new TermStatistics();
+            for (Content content1 : content)
+            {
+                statistics.add(content1);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Checks if the content that may match a search of the search bar can be found through the index of trigrams.
+     * It can't if every piece of content matches the search, or it may match the search through its suitability for
+     * minors, which isn't indexed.
+     *
+     * @param userSearch The search of the search bar, lower-cased and stripped of whitespace.
+     * @return {@code true} if the index of trigrams can be used, {@code false} otherwise.
+     */
+    private static boolean isIndexable(String userSearch)
+    {
+        return !(userSearch.isEmpty() || userSearch.contains("suitable") || userSearch.contains("<18")
+                || userSearch.contains(">18") || userSearch.contains(">=18"));
+    }
+
+    /**
+     * Estimates the share of content that a filter doesn't reject, from the size of its postings, or from the number
+     * of pieces of content with at least its minimum rating.
+     *
+     * @param filter The filter.
+     * @return The estimated share, from 0 to 1, or {@code Double.NaN} if there are no statistics for the filter.
+     */
+    private double selectivity(SearchQuery.Filter filter)
+    {
+        if(searchIndex==null)
+        {
+            return Double.NaN;
+        }
+        int size=searchIndex.size();
+        if(filter instanceof SearchQuery.MinRatingFilter minRatingFilter)
+        {
+            return size==0 ? 1 : (double) searchIndex.getRatings().count(minRatingFilter.getMinRating())/size;
+        }
+        if(!FacetIndex.isIndexed(filter))
+        {
+            return Double.NaN;
+        }
+        return size==0 ? 1 : (double) searchIndex.getFacets().count(filter)/size;
+    }
+
+    /**
+     * Estimates the cost of checking a filter on a piece of content. The minimum rating only loads the reviews of
+     * content if there is no rating index.
+     *
+     * @param filter The filter.
+     * @return The estimated cost, relative to a filter of the fields of content.
+     */
+    private double cost(SearchQuery.Filter filter)
+    {
+        return searchIndex==null && filter instanceof SearchQuery.MinRatingFilter ? REVIEWS_COST : 1;
+    }
+
+    /**
+     * Ranks a filter by the share of content it rejects for its cost. Filters with a higher rank are checked first.
+     *
+     * @param filter      The filter.
+     * @param selectivity The estimated share of content that the filter doesn't reject.
+     * @return The rank of the filter.
+     */
+    private double rank(SearchQuery.Filter filter, double selectivity)
+    {
+        return (1-(Double.isNaN(selectivity) ? DEFAULT_SELECTIVITY : selectivity))/cost(filter);
+    }
 
     /**
      * Calculates the number of matched criteria for a specific content in the search bar.
@@ -175,13 +1124,25 @@ public class SearchManager
      * @return The number of fields matched.
      */
     public int matchedCriteriaInSearchBar(Content content, String searchCriterion)
+    {
+        return matchedFields(content,Content.normalize(searchCriterion));
+    }
+
+    /**
+     * Calculates the number of matched criteria for a specific content in the search bar, comparing the search
+     * with the search keys of the content, so that nothing is allocated for every piece of content.
+     *
+     * @param content    The content to check for matches.
+     * @param userSearch The search, lower-cased and stripped of whitespace.
+     * @return The number of fields matched.
+     */
+    private static int matchedFields(Content content, String userSearch)
     {
         int fieldsMatched=0;
-        String contentTitle=content.getTitle().toLowerCase().replaceAll("\\s", "");
-        String contentPeopleInvolved=content.getPeopleInvolved().toLowerCase().replaceAll("\\s", "");
-        String contentCategory=content.getClass().toString().toLowerCase().replaceAll("\\s", "");
+        String contentTitle=content.getTitleKey();
+        String contentPeopleInvolved=content.getPeopleInvolvedKey();
+        String contentCategory=content.getCategoryKey();
 
-        String userSearch=searchCriterion.toLowerCase().replaceAll("\\s", "");
         if(userSearch.isEmpty())
         {
             fieldsMatched++;
@@ -200,8 +1161,8 @@ public class SearchManager
         }
         if(content instanceof ViewableContent viewableContent)
         {
-            String contentGenre=viewableContent.getGenre().toLowerCase().replaceAll("\\s", "");
-            String contentSuitability=viewableContent.getIsSuitableForMinors().toLowerCase();
+            String contentGenre=viewableContent.getGenreKey();
+            String contentSuitability=viewableContent.getSuitabilityKey();
 
             if(contentGenre.contains(userSearch) || userSearch.contains(contentGenre))
             {
@@ -237,104 +1198,6 @@ public class SearchManager
      */
     public boolean matchesCriteriaInFilters(Content content, String...searchCriteria)
     {
-
-        boolean criterionMatched=true;
-
-        if(content==null)
-        {
-            return false;
-        }
-
-        ViewableContent viewableContent;
-
-        String contentCategory;
-        if(content instanceof Movie)
-        {
-            contentCategory="movies";
-        } else if (content instanceof Series)
-        {
-          contentCategory="series";
-        } else if (content instanceof ViewableContent)
-        {
-            contentCategory="viewablecontent";
-        }
-        else
-        {
-            contentCategory="content";
-        }
-
-        String contentGenre=null,contentSuitability=null;
-
-        if(content instanceof ViewableContent)
-        {
-            viewableContent=(ViewableContent) content;
-            contentGenre=viewableContent.getGenre().toLowerCase().replaceAll("\\s", "");
-            contentSuitability=viewableContent.getIsSuitableForMinors().toLowerCase().replaceAll("\\s", "");
-        }
-
-        for(int i=0;i<searchCriteria.length-1;i+=2)
-        {
-            String criterion=searchCriteria[i].toLowerCase().replaceAll("\\s", "");
-            String userChosenFilter=searchCriteria[i+1].toLowerCase().replaceAll("\\s", "");
-
-            if(userChosenFilter.isEmpty())
-            {
-                continue;
-            }
-
-            if(criterion.equals("category"))
-            {
-                if(userChosenFilter.equals("content") && contentCategory.equals("content"))
-                {
-                    return true;
-                }
-            }
-
-            switch (criterion)
-            {
-                case "category":
-                    criterionMatched=contentCategory.contains(userChosenFilter) || userChosenFilter.contains(contentCategory);
-                    break;
-                case "minrating":
-                    assert content != null;
-                    if(content.getReviews().isEmpty())
-                    {
-                        criterionMatched=false;
-                    }
-                    else {
-                        criterionMatched = content.getAverageRating() >= Double.parseDouble(userChosenFilter);
-                    }
-                    break;
-                case "genre":
-                    if (contentGenre != null) {
-                        criterionMatched=contentGenre.contains(userChosenFilter) || userChosenFilter.contains(contentGenre);
-                    }
-                    break;
-                case "suitableforminors":
-                    if(contentSuitability!=null)
-                    {
-                        if (userChosenFilter.contains("notsuitable") || userChosenFilter.contains("nosuitable")
-                                || userChosenFilter.contains("unsuitable") || userChosenFilter.contains(">18") ||
-                                userChosenFilter.contains(">=18")) {
-
-                            criterionMatched = contentSuitability.equals("no");
-
-                        }
-                        else if (userChosenFilter.contains("suitable") || userChosenFilter.contains("<18")) {
-                            criterionMatched = contentSuitability.equals("yes");
-                        }
-                        else {
-                            criterionMatched = contentSuitability.contains(userChosenFilter) || userChosenFilter.contains(contentSuitability);
-                        }
-                    }
-                    break;
-            }
-
-            if(!criterionMatched)
-            {
-                return false;
-            }
-        }
-        return true;
+        return SearchQuery.parse(searchCriteria).matchesFilters(content);
     }
 }
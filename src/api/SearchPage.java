@@ -0,0 +1,126 @@
+package api;
+
+import java.util.ArrayList;
+
+/**
+ * The {@code SearchPage} class represents a page of the results of a search, as returned by
+ * {@link SearchManager#search(SearchQuery, int, int)} and {@link SearchManager#search(SearchQuery, Cursor, int)}.
+ * Results are ordered by their score, from highest to lowest, as described in {@link SearchManager#search(SearchQuery)},
+ * and then by the id of the content, so that the same query always returns its results in the same order.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+public class SearchPage
+{
+    private final ArrayList<Content> results;
+    private final Cursor nextCursor;
+
+    /**
+     * Constructs a {@code SearchPage}.
+     *
+     * @param results    The results of the page.
+     * @param nextCursor The cursor of the next page, or {@code null} if this is the last page.
+     */
+    SearchPage(ArrayList<Content> results, Cursor nextCursor)
+    {
+        this.results=results;
+        this.nextCursor=nextCursor;
+    }
+
+    /**
+     * Returns the results of the page.
+     *
+     * @return An {@code ArrayList} of the content of the page, in the order of the results.
+     */
+    public ArrayList<Content> getResults()
+    {
+        return results;
+    }
+
+    /**
+     * Checks if there are results after this page.
+     *
+     * @return {@code true} if there is a next page, {@code false} otherwise.
+     */
+    public boolean hasNext()
+    {
+        return nextCursor!=null;
+    }
+
+    /**
+     * Returns the cursor from which the next page starts.
+     *
+     * @return The cursor of the next page, or {@code null} if this is the last page.
+     */
+    public Cursor getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    /**
+     * Represents the position of the last result of a page. The next page holds the results that come after it,
+     * so content that is added or removed before the position doesn't shift the pages that follow. Scores depend on
+     * how rare the words of the text are among all the content, though, so changes to the content may still move
+     * results across the position.
+     */
+    public static final class Cursor
+    {
+        private final double score;
+        private final long id;
+
+        /**
+         * Constructs a {@code Cursor} after a result.
+         *
+         * @param score The score of the result.
+         * @param id    The id of the content of the result.
+         */
+        Cursor(double score, long id)
+        {
+            this.score=score;
+            this.id=id;
+        }
+
+        /**
+         * Returns the score of the last result of the page.
+         *
+         * @return The score.
+         */
+        double getScore()
+        {
+            return score;
+        }
+
+        /**
+         * Returns the id of the content of the last result of the page.
+         *
+         * @return The id of the content.
+         */
+        long getId()
+        {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(!(obj instanceof Cursor cursor))
+            {
+                return false;
+            }
+            return Double.compare(score,cursor.score)==0 && id==cursor.id;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31*Double.hashCode(score)+Long.hashCode(id);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Cursor{score="+score+", id="+id+"}";
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package api;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The {@code SearchPlan} class represents how {@link SearchManager} carries out a {@link SearchQuery}: the access
+ * path through which it finds the content that may match the query (its candidates), such as the postings of its
+ * filters, the range of the rating index or the trigram index, and the order in which the filters are checked on
+ * the candidates.
+ * Fuzzy queries also match the candidates that don't match their text against the words of the query.
+ * The plan also scores the content that matches, by which the results are ranked.
+ * <p>
+ * {@link #explain()} describes the plan, along with the access paths that were considered and their estimated
+ * number of candidates.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class SearchPlan
+{
+    /**
+     * Represents a way of finding the candidates of a query, along with the estimated number of candidates.
+     */
+    static class AccessPath
+    {
+        private final String description;
+        private final int estimate;
+        private final Supplier<Collection<Content>> candidates;
+        private final boolean passesFilters;
+
+        /**
+         * Constructs an {@code AccessPath}.
+         *
+         * @param description A description of the access path, such as "full scan".
+         * @param estimate    The estimated number of candidates.
+         * @param candidates  Finds the candidates.
+         */
+        AccessPath(String description, int estimate, Supplier<Collection<Content>> candidates)
+        {
+            this(description,estimate,candidates,false);
+        }
+
+        /**
+         * Constructs an {@code AccessPath}.
+         *
+         * @param description   A description of the access path, such as "full scan".
+         * @param estimate      The estimated number of candidates, which is exact if they pass the filters.
+         * @param candidates    Finds the candidates.
+         * @param passesFilters Whether the candidates are exactly the content that passes the filters of the query.
+         */
+        AccessPath(String description, int estimate, Supplier<Collection<Content>> candidates, boolean passesFilters)
+        {
+            this.description=description;
+            this.estimate=estimate;
+            this.candidates=candidates;
+            this.passesFilters=passesFilters;
+        }
+
+        /**
+         * Gets the estimated number of candidates.
+         *
+         * @return The estimate.
+         */
+        int getEstimate()
+        {
+            return estimate;
+        }
+
+        @Override
+        public String toString()
+        {
+            return description+(passesFilters ? " ("+estimate+" passing the filters)" : " (estimated "+estimate+")");
+        }
+    }
+
+    private final AccessPath accessPath;
+    private final List<AccessPath> consideredPaths;
+    private final List<SearchQuery.Filter> filters;
+    private final List<String> filterEstimates;
+    private final String text;
+    private final Predicate<Content> fuzzyMatch;
+    private final String fuzzyDescription;
+    private final Bm25Scorer scorer;
+    private final double ratingWeight;
+    private final RatingIndex ratings;
+    private final int size;
+
+    /**
+     * Constructs a {@code SearchPlan}.
+     *
+     * @param accessPath      The chosen access path.
+     * @param consideredPaths All the access paths that were considered, including the chosen one.
+     * @param filters         The filters in the order they are checked.
+     * @param filterEstimates A description of the estimated selectivity of every filter, in the same order.
+     * @param text             The text of the query, or {@code null} if it has none.
+     * @param fuzzyMatch       Checks if a piece of content matches the words of the query fuzzily, or {@code null}
+     *                         if the query isn't fuzzy.
+     * @param fuzzyDescription A description of how the words of the query are matched, or {@code null} if the query
+     *                         isn't fuzzy.
+     * @param scorer           Scores the content by the words of the query.
+     * @param ratingWeight     How much every star of the average rating of content adds to its score.
+     * @param ratings          The index that keeps the average rating of content, or {@code null} if the rating is
+     *                         found from the reviews of the content.
+     * @param size             The number of pieces of content that are searched.
+     */
+    SearchPlan(AccessPath accessPath, List<AccessPath> consideredPaths, List<SearchQuery.Filter> filters,
+               List<String> filterEstimates, String text, Predicate<Content> fuzzyMatch, String fuzzyDescription,
+               Bm25Scorer scorer, double ratingWeight, RatingIndex ratings, int size)
+    {
+        this.accessPath=accessPath;
+        this.consideredPaths=consideredPaths;
+        this.filters=filters;
+        this.filterEstimates=filterEstimates;
+        this.text=text;
+        this.fuzzyMatch=fuzzyMatch;
+        this.fuzzyDescription=fuzzyDescription;
+        this.scorer=scorer;
+        this.ratingWeight=ratingWeight;
+        this.ratings=ratings;
+        this.size=size;
+    }
+
+    /**
+     * Finds the candidates of the query through the chosen access path.
+     *
+     * @return The content that may match the query, which contains every piece of content that does.
+     */
+    Collection<Content> candidates()
+    {
+        return accessPath.candidates.get();
+    }
+
+    /**
+     * Checks if the candidates are exactly the content that passes the filters of the query, such as when every filter
+     * is combined through its postings, so that the candidates don't have to be checked against the filters.
+     *
+     * @return {@code true} if every candidate passes the filters, {@code false} if they have to be checked.
+     */
+    boolean candidatesPassFilters()
+    {
+        return accessPath.passesFilters;
+    }
+
+    /**
+     * Checks if a piece of content passes the filters of the query, in the order chosen by the plan.
+     * The result is the same as {@link SearchQuery#matchesFilters(Content)}. The minimum rating is checked against the
+     * rating kept in the rating index, if there is one, instead of going through the reviews of the content.
+     *
+     * @param content The content to check.
+     * @return {@code true} if the content passes every filter, {@code false} otherwise.
+     */
+    boolean matchesFilters(Content content)
+    {
+        for (SearchQuery.Filter filter : filters)
+        {
+            SearchQuery.Outcome outcome=ratings!=null && filter instanceof SearchQuery.MinRatingFilter minRatingFilter
+                    ? minRatingFilter.test(ratings.rating(content)) : filter.test(content);
+            switch (outcome)
+            {
+                case REJECT:
+                    return false;
+                case ACCEPT:
+                    return true;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a piece of content matches the words of a fuzzy query with typos. Such content matches the query
+     * even if it doesn't match its text.
+     *
+     * @param content The content to check.
+     * @return {@code true} if the query is fuzzy and the content matches its words, {@code false} otherwise.
+     */
+    boolean matchesFuzzily(Content content)
+    {
+        return fuzzyMatch!=null && fuzzyMatch.test(content);
+    }
+
+    /**
+     * Scores a piece of content that matches the query, by which results are ranked from the highest score to the
+     * lowest: the BM25 score of its fields for the words of the text, plus its average rating times the weight of the
+     * rating. Content that only matches the words of a fuzzy query gets a negative score that is still higher for
+     * higher scores, so it comes after the content that matches the text.
+     *
+     * @param content       The content, which matches the query.
+     * @param matchedFields The number of fields of the content that match the text.
+     * @return The score of the content, which is 0 for all content if the query has no words and doesn't weigh ratings.
+     */
+    double score(Content content, int matchedFields)
+    {
+        double score=scorer.score(content);
+        if(ratingWeight>0)
+        {
+            score+=ratingWeight*(ratings!=null ? ratings.rating(content) : content.getAverageRating());
+        }
+        return text==null || matchedFields>0 ? score : score/(1+score)-1;
+    }
+
+    /**
+     * Returns the chosen access path.
+     *
+     * @return The access path.
+     */
+    AccessPath getAccessPath()
+    {
+        return accessPath;
+    }
+
+    /**
+     * Returns the filters in the order they are checked.
+     *
+     * @return The list of filters.
+     */
+    List<SearchQuery.Filter> getFilters()
+    {
+        return filters;
+    }
+
+    /**
+     * Describes the plan: the chosen access path, the access paths that were considered, the order of the
+     * filters and how the text is matched.
+     *
+     * @return A description of the plan, on several lines.
+     */
+    public String explain()
+    {
+        StringBuilder explanation=new StringBuilder();
+        explanation.append("Access path: ").append(accessPath).append(" of ").append(size).append(" pieces of content\n");
+        explanation.append("Considered: ");
+        for (int i=0;i<consideredPaths.size();i++)
+        {
+            explanation.append(i>0 ? ", " : "").append(consideredPaths.get(i));
+        }
+        explanation.append('\n');
+        explanation.append("Filters:");
+        if(filters.isEmpty())
+        {
+            explanation.append(" none");
+        }
+        for (int i=0;i<filters.size();i++)
+        {
+            explanation.append("\n  ").append(i+1).append(". ").append(filters.get(i)).append(" (").append(filterEstimates.get(i)).append(')');
+        }
+        explanation.append('\n');
+        if(text==null)
+        {
+            explanation.append("Text: none");
+        }
+        else
+        {
+            explanation.append("Text: \"").append(text).append("\" matched against the title, people involved, category and genre of every candidate that passes the filters");
+            if(fuzzyDescription!=null)
+            {
+                explanation.append("\nFuzzy: ").append(fuzzyDescription);
+            }
+        }
+        explanation.append("\nRanking: ");
+        if(scorer.hasWords())
+        {
+            explanation.append(scorer).append(ratingWeight>0 ? " plus " : "");
+        }
+        if(ratingWeight>0)
+        {
+            explanation.append(String.format(Locale.ROOT,"%.2f per star of the average rating",ratingWeight));
+        }
+        explanation.append(scorer.hasWords() || ratingWeight>0 ? ", then by id" : "by id");
+        return explanation.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return explain();
+    }
+}
@@ -0,0 +1,725 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The {@code SearchQuery} class represents a search of the content of a {@link DataBase}: the filters that content
+ * has to pass, such as a category or a minimum rating, and optionally a text that is matched against the title,
+ * people involved, category and genre of content, like the search bar does.
+ * <p>
+ * A query is built once, either with a {@link Builder} or from the string form of a search with
+ * {@link #parse(String...)}, and compiled into a list of filters that {@link SearchManager} checks every piece of
+ * content against, so nothing is parsed or normalized again for every piece of content.
+ * <p>
+ * Content that has no genre or suitability for minors, such as plain content, isn't filtered by them.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+public class SearchQuery
+{
+    /**
+     * The categories of content a search can be filtered by.
+     */
+    public enum Category
+    {
+        CONTENT("content"),
+        VIEWABLE_CONTENT("viewablecontent"),
+        MOVIES("movies"),
+        SERIES("series");
+
+        private final String key;
+
+        Category(String key)
+        {
+            this.key=key;
+        }
+
+        /**
+         * Returns the category of a piece of content.
+         *
+         * @param content The content.
+         * @return The category of the content.
+         */
+        public static Category of(Content content)
+        {
+            if(content instanceof Movie)
+            {
+                return MOVIES;
+            }
+            else if(content instanceof Series)
+            {
+                return SERIES;
+            }
+            else if(content instanceof ViewableContent)
+            {
+                return VIEWABLE_CONTENT;
+            }
+            return CONTENT;
+        }
+    }
+
+    /**
+     * The genres of viewable content, as they are shown.
+     */
+    static final String[] GENRES={"Action","Drama","Horror","Science fiction","Comedy"};
+
+    private final List<Filter> filters;
+    private final String text;
+    private final List<String> words;
+    private final boolean fuzzy;
+    private final double ratingWeight;
+
+    private SearchQuery(List<Filter> filters, String text, List<String> words, boolean fuzzy, double ratingWeight)
+    {
+        this.filters=filters;
+        this.text=text;
+        this.words=words;
+        this.fuzzy=fuzzy;
+        this.ratingWeight=ratingWeight;
+    }
+
+    /**
+     * Returns a new builder of a query.
+     *
+     * @return A builder with no filters and no text.
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Compiles the string form of a search, as used by {@link DataBase#searchContent(String...)}.
+     * Each pair of consecutive elements represents a criterion and its corresponding user-chosen filter.
+     * Supported criteria include "category", "min rating", "genre" and "suitable for minors", and are matched
+     * in the same loose way as before, e.g. a category of "movie" stands for movies. Empty filters and unknown
+     * criteria are ignored. If the number of elements is odd, the last one is the text of the search bar.
+     *
+     * @param searchCriteria The search criteria.
+     * @return The compiled query.
+     * @throws NumberFormatException if a minimum rating isn't a number.
+     */
+    public static SearchQuery parse(String...searchCriteria)
+    {
+        ArrayList<Filter> filters=new ArrayList<>();
+        for (int i=0;i<searchCriteria.length-1;i+=2)
+        {
+            String criterion=Content.normalize(searchCriteria[i]);
+            String userChosenFilter=Content.normalize(searchCriteria[i+1]);
+            if(userChosenFilter.isEmpty())
+            {
+                continue;
+            }
+
+            switch (criterion)
+            {
+                case "category":
+                    EnumSet<Category> categories=EnumSet.noneOf(Category.class);
+                    for (Category category : Category.values())
+                    {
+                        if(category.key.contains(userChosenFilter) || userChosenFilter.contains(category.key))
+                        {
+                            categories.add(category);
+                        }
+                    }
+                    filters.add(new CategoryFilter(categories,userChosenFilter.equals("content")));
+                    break;
+                case "minrating":
+                    filters.add(new MinRatingFilter(Double.parseDouble(userChosenFilter)));
+                    break;
+                case "genre":
+                    HashSet<String> genres=new HashSet<>();
+                    for (String genre : GENRES)
+                    {
+                        String genreKey=Content.normalize(genre);
+                        if(genreKey.contains(userChosenFilter) || userChosenFilter.contains(genreKey))
+                        {
+                            genres.add(genreKey);
+                        }
+                    }
+                    filters.add(new GenreFilter(genres));
+                    break;
+                case "suitableforminors":
+                    HashSet<String> suitability=new HashSet<>();
+                    if(userChosenFilter.contains("notsuitable") || userChosenFilter.contains("nosuitable")
+                            || userChosenFilter.contains("unsuitable") || userChosenFilter.contains(">18")
+                            || userChosenFilter.contains(">=18"))
+                    {
+                        suitability.add("no");
+                    }
+                    else if(userChosenFilter.contains("suitable") || userChosenFilter.contains("<18"))
+                    {
+                        suitability.add("yes");
+                    }
+                    else
+                    {
+                        for (String suitabilityKey : new String[]{"yes","no"})
+                        {
+                            if(suitabilityKey.contains(userChosenFilter) || userChosenFilter.contains(suitabilityKey))
+                            {
+                                suitability.add(suitabilityKey);
+                            }
+                        }
+                    }
+                    filters.add(new SuitabilityFilter(suitability));
+                    break;
+            }
+        }
+        String text=searchCriteria.length%2==1 ? searchCriteria[searchCriteria.length-1] : null;
+        return new SearchQuery(filters,text==null ? null : Content.normalize(text),
+                text==null ? List.of() : FuzzyIndex.terms(text),false,0);
+    }
+
+    /**
+     * Returns a copy of this query that also matches content whose title or people involved contain words close to
+     * the words of the text, such as "breking bad" for "Breaking Bad". Content that only matches this way comes after
+     * the content that matches the text exactly. Words shorter than {@value FuzzyIndex#MIN_FUZZY_LENGTH} characters
+     * and words with digits still have to match exactly.
+     *
+     * @return The fuzzy query.
+     */
+    public SearchQuery fuzzy()
+    {
+        return new SearchQuery(filters,text,words,true,ratingWeight);
+    }
+
+    /**
+     * Checks if the query matches content with typos, as described in {@link #fuzzy()}.
+     *
+     * @return {@code true} if the query is fuzzy, {@code false} otherwise.
+     */
+    public boolean isFuzzy()
+    {
+        return fuzzy;
+    }
+
+    /**
+     * Returns how much the average rating of content adds to its score, as described in {@link Builder#ratingWeight(double)}.
+     *
+     * @return The weight of the rating, which is 0 if results are ranked by relevance alone.
+     */
+    public double getRatingWeight()
+    {
+        return ratingWeight;
+    }
+
+    /**
+     * Returns the words of the text, lower-cased, which are matched against the words of content by fuzzy queries.
+     *
+     * @return The list of words, which is empty if the query has no text.
+     */
+    List<String> getWords()
+    {
+        return words;
+    }
+
+    /**
+     * Returns the text of the search, lower-cased and stripped of whitespace.
+     *
+     * @return The text, or {@code null} if the search only filters content.
+     */
+    public String getText()
+    {
+        return text;
+    }
+
+    /**
+     * Returns the compiled filters of the query, in the order they were given.
+     *
+     * @return The list of filters, which must not be modified.
+     */
+    List<Filter> getFilters()
+    {
+        return filters;
+    }
+
+    /**
+     * Returns a copy of this query with other filters, and the same text.
+     *
+     * @param filters The filters of the copy, in the order they are checked.
+     * @return The copy of the query.
+     */
+    SearchQuery withFilters(List<Filter> filters)
+    {
+        return new SearchQuery(filters,text,words,fuzzy,ratingWeight);
+    }
+
+    /**
+     * Checks if a piece of content passes the filters of the query. The text isn't matched.
+     *
+     * @param content The content to check.
+     * @return {@code true} if the content passes every filter, {@code false} otherwise.
+     */
+    public boolean matchesFilters(Content content)
+    {
+        if(content==null)
+        {
+            return false;
+        }
+        for (Filter filter : filters)
+        {
+            switch (filter.test(content))
+            {
+                case REJECT:
+                    return false;
+                case ACCEPT:
+                    return true;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares this query to another object. Queries are equal if they have the same filters in the same order
+     * and the same text and words, and weigh ratings the same, so they have the same results in the same order.
+     * Texts that only differ in their spaces are the same text but not the same words, since the words are ranked.
+     *
+     * @param obj The object to compare.
+     * @return {@code true} if the object is an equal query, {@code false} otherwise.
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof SearchQuery query && filters.equals(query.filters) && Objects.equals(text,query.text)
+                && fuzzy==query.fuzzy && words.equals(query.words) && Double.compare(ratingWeight,query.ratingWeight)==0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31*filters.hashCode()+Objects.hashCode(text)+words.hashCode()+Double.hashCode(ratingWeight);
+    }
+
+    /**
+     * The outcome of checking a piece of content against a filter.
+     */
+    enum Outcome
+    {
+        /**
+         * The content passes the filter, and is checked against the next one.
+         */
+        PASS,
+        /**
+         * The content doesn't pass the filter.
+         */
+        REJECT,
+        /**
+         * The content passes the filter and every filter that follows it.
+         */
+        ACCEPT
+    }
+
+    /**
+     * A compiled filter of a query.
+     */
+    interface Filter
+    {
+        /**
+         * Checks a piece of content against the filter.
+         *
+         * @param content The content to check.
+         * @return The outcome of the check.
+         */
+        Outcome test(Content content);
+
+        /**
+         * Returns whether the filter may accept content, so that the filters that follow it aren't checked.
+         *
+         * @return {@code true} if {@link #test(Content)} may return {@link Outcome#ACCEPT}.
+         */
+        default boolean mayAccept()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Represents a filter of the categories content may belong to.
+     */
+    static class CategoryFilter implements Filter
+    {
+        private final Set<Category> categories;
+        private final boolean acceptsContent;
+
+        /**
+         * Constructs a {@code CategoryFilter} for the specified categories.
+         *
+         * @param categories     The categories that pass the filter.
+         * @param acceptsContent Whether plain content also passes every filter that follows this one,
+         *                       as when the category "content" is chosen in the string form of a search.
+         */
+        CategoryFilter(Set<Category> categories, boolean acceptsContent)
+        {
+            this.categories=categories;
+            this.acceptsContent=acceptsContent;
+        }
+
+        @Override
+        public Outcome test(Content content)
+        {
+            Category category=Category.of(content);
+            if(acceptsContent && category==Category.CONTENT)
+            {
+                return Outcome.ACCEPT;
+            }
+            return categories.contains(category) ? Outcome.PASS : Outcome.REJECT;
+        }
+
+        @Override
+        public boolean mayAccept()
+        {
+            return acceptsContent;
+        }
+
+        /**
+         * Returns the categories that pass the filter.
+         *
+         * @return The set of categories.
+         */
+        Set<Category> getCategories()
+        {
+            return categories;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof CategoryFilter filter && categories.equals(filter.categories) && acceptsContent==filter.acceptsContent;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31*categories.hashCode()+Boolean.hashCode(acceptsContent);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "category in "+categories+(acceptsContent ? ", accepting content" : "");
+        }
+    }
+
+    /**
+     * Represents a filter of the minimum average rating of content. Content that has no reviews doesn't pass it.
+     */
+    static class MinRatingFilter implements Filter
+    {
+        private final double minRating;
+
+        /**
+         * Constructs a {@code MinRatingFilter} for the specified minimum rating.
+         *
+         * @param minRating The minimum average rating.
+         */
+        MinRatingFilter(double minRating)
+        {
+            this.minRating=minRating;
+        }
+
+        /**
+         * Returns the minimum average rating.
+         *
+         * @return The minimum rating.
+         */
+        double getMinRating()
+        {
+            return minRating;
+        }
+
+        @Override
+        public Outcome test(Content content)
+        {
+            if(content.getReviews().isEmpty())
+            {
+                return Outcome.REJECT;
+            }
+            return content.getAverageRating()>=minRating ? Outcome.PASS : Outcome.REJECT;
+        }
+
+        /**
+         * Checks content by an average rating that was already found, such as the one kept in a {@link RatingIndex}.
+         *
+         * @param averageRating The average rating of the content, which is 0 if it has no reviews.
+         * @return {@link Outcome#PASS} if the content passes the filter, {@link Outcome#REJECT} otherwise.
+         */
+        Outcome test(double averageRating)
+        {
+            //Reviews have positive ratings, so only content without reviews has an average rating of 0
+            return averageRating>0 && averageRating>=minRating ? Outcome.PASS : Outcome.REJECT;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof MinRatingFilter filter && Double.compare(minRating,filter.minRating)==0;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Double.hashCode(minRating);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "min rating "+minRating;
+        }
+    }
+
+    /**
+     * Represents a filter of the genres of viewable content.
+     */
+    static class GenreFilter implements Filter
+    {
+        private final Set<String> genreKeys;
+
+        /**
+         * Constructs a {@code GenreFilter} for the specified genres.
+         *
+         * @param genreKeys The search keys of the genres that pass the filter.
+         */
+        GenreFilter(Set<String> genreKeys)
+        {
+            this.genreKeys=genreKeys;
+        }
+
+        @Override
+        public Outcome test(Content content)
+        {
+            if(content instanceof ViewableContent viewableContent && !genreKeys.contains(viewableContent.getGenreKey()))
+            {
+                return Outcome.REJECT;
+            }
+            return Outcome.PASS;
+        }
+
+        /**
+         * Returns the search keys of the genres that pass the filter.
+         *
+         * @return The set of genre keys.
+         */
+        Set<String> getGenreKeys()
+        {
+            return genreKeys;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof GenreFilter filter && genreKeys.equals(filter.genreKeys);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return genreKeys.hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "genre in "+genreKeys;
+        }
+    }
+
+    /**
+     * Represents a filter of the suitability for minors of viewable content.
+     */
+    static class SuitabilityFilter implements Filter
+    {
+        private final Set<String> suitabilityKeys;
+
+        /**
+         * Constructs a {@code SuitabilityFilter} for the specified suitability.
+         *
+         * @param suitabilityKeys The search keys of the suitability ("yes" or "no") that passes the filter.
+         */
+        SuitabilityFilter(Set<String> suitabilityKeys)
+        {
+            this.suitabilityKeys=suitabilityKeys;
+        }
+
+        @Override
+        public Outcome test(Content content)
+        {
+            if(content instanceof ViewableContent viewableContent && !suitabilityKeys.contains(viewableContent.getSuitabilityKey()))
+            {
+                return Outcome.REJECT;
+            }
+            return Outcome.PASS;
+        }
+
+        /**
+         * Returns the search keys of the suitability that passes the filter.
+         *
+         * @return The set of suitability keys.
+         */
+        Set<String> getSuitabilityKeys()
+        {
+            return suitabilityKeys;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof SuitabilityFilter filter && suitabilityKeys.equals(filter.suitabilityKeys);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31*suitabilityKeys.hashCode()+1;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "suitable for minors in "+suitabilityKeys;
+        }
+    }
+
+    /**
+     * The {@code Builder} class builds a {@link SearchQuery} out of typed filters.
+     */
+    public static class Builder
+    {
+        private final ArrayList<Filter> filters;
+        private String text;
+        private List<String> words=List.of();
+        private boolean fuzzy;
+        private double ratingWeight;
+
+        private Builder()
+        {
+            filters=new ArrayList<>();
+        }
+
+        /**
+         * Keeps only content of the specified categories.
+         *
+         * @param categories The categories.
+         * @return This builder.
+         */
+        public Builder category(Category...categories)
+        {
+            EnumSet<Category> set=EnumSet.noneOf(Category.class);
+            Collections.addAll(set,categories);
+            filters.add(new CategoryFilter(set,false));
+            return this;
+        }
+
+        /**
+         * Keeps only viewable content of the specified genres.
+         *
+         * @param genres The genres, such as "Drama" or "sci-fi".
+         * @return This builder.
+         * @throws IllegalArgumentException if a genre is invalid.
+         */
+        public Builder genre(String...genres) throws IllegalArgumentException
+        {
+            HashSet<String> genreKeys=new HashSet<>();
+            for (String genre : genres)
+            {
+                String canonicalGenre=ViewableContent.canonicalGenre(genre);
+                if(canonicalGenre==null)
+                {
+                    throw new IllegalArgumentException("Invalid argument passed as genre. Valid arguments are: Action, Drama, Horror, Science fiction, Comedy");
+                }
+                genreKeys.add(Content.normalize(canonicalGenre));
+            }
+            filters.add(new GenreFilter(genreKeys));
+            return this;
+        }
+
+        /**
+         * Keeps only content that has reviews, with an average rating of at least the specified one.
+         *
+         * @param minRating The minimum average rating.
+         * @return This builder.
+         */
+        public Builder minRating(double minRating)
+        {
+            filters.add(new MinRatingFilter(minRating));
+            return this;
+        }
+
+        /**
+         * Keeps only viewable content that is, or isn't, suitable for minors.
+         *
+         * @param suitableForMinors Whether the content has to be suitable for minors.
+         * @return This builder.
+         */
+        public Builder suitableForMinors(boolean suitableForMinors)
+        {
+            filters.add(new SuitabilityFilter(Set.of(suitableForMinors ? "yes" : "no")));
+            return this;
+        }
+
+        /**
+         * Sets the text that content has to match, like a search of the search bar.
+         *
+         * @param text The text.
+         * @return This builder.
+         */
+        public Builder text(String text)
+        {
+            this.text=Content.normalize(text);
+            words=FuzzyIndex.terms(text);
+            return this;
+        }
+
+        /**
+         * Sets whether content whose words are close to the words of the text matches too, as described in
+         * {@link SearchQuery#fuzzy()}.
+         *
+         * @param fuzzy {@code true} if the query matches content with typos.
+         * @return This builder.
+         */
+        public Builder fuzzy(boolean fuzzy)
+        {
+            this.fuzzy=fuzzy;
+            return this;
+        }
+
+        /**
+         * Blends the average rating of content into the score by which results are ranked, so that better rated
+         * content comes first among content that is about as relevant to the text. Every star of the average rating
+         * adds the weight to the score, and content without reviews has a rating of 0. Without a text, results are
+         * ranked by their rating alone.
+         *
+         * @param ratingWeight How much every star of the average rating adds to the score, or 0 to rank by relevance alone.
+         * @return This builder.
+         * @throws IllegalArgumentException if the weight is negative or not a number.
+         */
+        public Builder ratingWeight(double ratingWeight) throws IllegalArgumentException
+        {
+            if(!(ratingWeight>=0) || Double.isInfinite(ratingWeight))
+            {
+                throw new IllegalArgumentException("The weight of the rating must be a non-negative number");
+            }
+            this.ratingWeight=ratingWeight;
+            return this;
+        }
+
+        /**
+         * Compiles the query.
+         *
+         * @return The query.
+         */
+        public SearchQuery build()
+        {
+            return new SearchQuery(new ArrayList<>(filters),text,words,fuzzy,ratingWeight);
+        }
+    }
+}
@@ -14,6 +14,8 @@ import java.util.*;
 
 public class Series extends ViewableContent
 {
+    private static final long serialVersionUID=9137641121898971583L;
+
     private ArrayList<Season> seasons;
 
     /**
@@ -61,6 +63,8 @@ public class Series extends ViewableContent
      */
     public void addToSeasons(Season...seasons)
     {
+        loadDetails();
+        markDirty();
         for (Season season : seasons)
         {
             if(!this.seasons.contains(season))
@@ -78,6 +82,8 @@ public class Series extends ViewableContent
      */
     public void addToSeasons(ArrayList<Season> seasons)
     {
+        loadDetails();
+        markDirty();
         for (Season season : seasons)
         {
             if(!this.seasons.contains(season))
@@ -95,6 +101,8 @@ public class Series extends ViewableContent
      */
     public void removeFromSeasons(Season...seasons)
     {
+        loadDetails();
+        markDirty();
         if(this.seasons.isEmpty())
         {
             return;
@@ -118,6 +126,8 @@ public class Series extends ViewableContent
      */
     public void removeFromSeasons(ArrayList<Season> seasons)
     {
+        loadDetails();
+        markDirty();
         if(this.seasons.isEmpty())
         {
             return;
@@ -137,6 +147,8 @@ public class Series extends ViewableContent
 
     public void deleteSeasons()
     {
+        loadDetails();
+        markDirty();
         seasons.clear();
     }
 
@@ -145,6 +157,7 @@ public class Series extends ViewableContent
      */
     public void sortSeasons()
     {
+        loadDetails();
         seasons.sort(Comparator.comparingInt(Season::getSeasonNumber));
     }
 
@@ -155,6 +168,7 @@ public class Series extends ViewableContent
      */
     public ArrayList<Season> getSeasons()
     {
+        loadDetails();
         return seasons;
     }
 
@@ -171,6 +185,7 @@ public class Series extends ViewableContent
      */
     public void edit(String title, String synopsis, String isSuitableForMinors, String genre, String actors, ArrayList<Season> seasons)
     {
+        loadDetails();
         super.edit(title,synopsis,isSuitableForMinors,genre,actors);
         for (Season season : seasons)
         {
@@ -209,6 +224,7 @@ public class Series extends ViewableContent
      */
     public void edit(String title, String synopsis, String isSuitableForMinors, String genre, String actors, ArrayList<Season> seasons, HashSet<Content> related)
     {
+        loadDetails();
         super.edit(title,synopsis,isSuitableForMinors,genre,actors,related);
 
         for (Season season : seasons)
@@ -237,43 +253,21 @@ public class Series extends ViewableContent
     }
 
     /**
-     * Overrides the equals method to compare Series objects based on their title, synopsis,
-     * suitability for minors, genre, and the list of seasons.
+     * Adds decoded seasons to the series without loading its details first. Used by the details loader.
      *
-     * @param obj The object to compare with this Series.
-     * @return {@code true} if the objects are equal, {@code false} otherwise.
+     * @param seasons The seasons that were decoded.
      */
-    public boolean equals(Object obj)
+    void restoreSeasons(ArrayList<Season> seasons)
     {
-        boolean seasonsMatch=true;
-        if(!(obj instanceof Series series))
-        {
-            return false;
-        }
-
-        if(seasons.size()!=series.getSeasons().size())
-        {
-            seasonsMatch = false;
-        }
-        else if(!seasons.isEmpty() && !series.getSeasons().isEmpty())
-        {
-            seasonsMatch=seasons.containsAll(series.getSeasons()) && series.getSeasons().containsAll(seasons);
-        }
-
-        return super.equals(series) && seasonsMatch;
+        this.seasons.addAll(seasons);
+        this.seasons.sort(Comparator.comparingInt(Season::getSeasonNumber));
     }
 
-
-    /**
-     * Generates a hash code for this Series object based on its title, synopsis,
-     * suitability for minors, genre, and the list of seasons.
-     *
-     * @return The hash code value for this object.
-     */
     @Override
-    public int hashCode()
+    void restoreFrom(Content other)
     {
-        return Objects.hash(super.hashCode(),seasons);
+        super.restoreFrom(other);
+        seasons=((Series) other).seasons;
     }
 
 
@@ -285,6 +279,7 @@ public class Series extends ViewableContent
      */
     public String toString()
     {
+        loadDetails();
         return super.toString() + "\n" + "Seasons: " + seasons.size();
     }
 
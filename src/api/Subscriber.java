@@ -10,6 +10,8 @@ import java.util.HashSet;
  */
 public class Subscriber extends User
 {
+    private static final long serialVersionUID=8111685108300793557L;
+
     private HashSet<Content> favorites;
 
     /**
@@ -26,6 +28,22 @@ public class Subscriber extends User
         favorites=new HashSet<>();
     }
 
+    /**
+     * Constructs a Subscriber object with a password that is already hashed.
+     * Used when subscribers are read from a file.
+     *
+     * @param username the username of the subscriber
+     * @param password the hashed password of the subscriber
+     * @param salt     the salt the password was hashed with
+     * @param name     the name of the subscriber
+     * @param lastName the last name of the subscriber
+     */
+    Subscriber(String username, String password, String salt, String name, String lastName)
+    {
+        super(username, password, salt, name, lastName);
+        favorites=new HashSet<>();
+    }
+
     /**
      * Adds content to the subscriber's favorites.
      *
@@ -34,6 +52,7 @@ public class Subscriber extends User
     public void addToFavorites(Content...content)
     {
         Collections.addAll(favorites, content);
+        markDirty();
     }
 
 
@@ -45,6 +64,7 @@ public class Subscriber extends User
     public void addToFavorites(HashSet<Content> content)
     {
         favorites.addAll(content);
+        markDirty();
     }
 
     /**
@@ -60,7 +80,10 @@ public class Subscriber extends User
         }
         for (Content content1 : content)
         {
-            favorites.remove(content1);
+            if(favorites.remove(content1))
+            {
+                markDirty();
+            }
         }
     }
 
@@ -75,7 +98,10 @@ public class Subscriber extends User
         {
             return;
         }
-        favorites.removeAll(content);
+        if(favorites.removeAll(content))
+        {
+            markDirty();
+        }
     }
 
     /**
@@ -84,6 +110,7 @@ public class Subscriber extends User
     public void deleteFavorites()
     {
         favorites.clear();
+        markDirty();
     }
 
     public HashSet<Content> getFavorites()
@@ -91,6 +118,13 @@ public class Subscriber extends User
         return favorites;
     }
 
+    @Override
+    void restoreFrom(User other)
+    {
+        super.restoreFrom(other);
+        favorites=((Subscriber) other).favorites;
+    }
+
 
     /**
      * Overrides the equals method to compare if two objects are equal.
@@ -0,0 +1,485 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The {@code SuggestionTrie} class suggests the titles and the names of the people involved of content that start
+ * with what has been typed in the search bar, for the search to be completed as it is typed.
+ * <p>
+ * Titles and names are kept in a trie of their search keys, lower-cased and stripped of whitespace as the search bar
+ * is. Nodes that would only lead to a single child are merged with it, so every edge of the trie is labeled with the
+ * characters of the keys under it up to the next key or branch, which keeps the trie compact. Every node keeps the
+ * best {@value #MAX_SUGGESTIONS} suggestions under it, so the suggestions of a prefix are found by following the
+ * prefix down the trie and reading the suggestions of the node it ends at, or of the node at the end of the edge it
+ * ends in, without visiting the rest of the nodes under it. Suggestions are ranked by the best average rating of the content they come
+ * from, then by the number of pieces of content they come from, and then alphabetically.
+ * <p>
+ * The suggestions of a node only change along the path of a title or name whose rating changed. If a suggestion got
+ * better, it takes its place in every node of the path. If it got worse or was removed, the nodes whose suggestions
+ * held it find theirs again from their children. The best rating of a suggestion is kept along with the ratings of
+ * its content, so a title or name that many pieces of content share doesn't have to be rescanned when one changes.
+ * <p>
+ * Content is compared by identity.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class SuggestionTrie
+{
+    /**
+     * The maximum number of suggestions kept for every prefix.
+     */
+    static final int MAX_SUGGESTIONS=10;
+
+    private static final char[] NO_KEYS=new char[0];
+    private static final Node[] NO_CHILDREN=new Node[0];
+    private static final Suggestion[] NO_SUGGESTIONS=new Suggestion[0];
+
+    /**
+     * Represents a title or name that is suggested, along with the content it comes from and the number of pieces
+     * of that content with every rating, from which the best rating is read.
+     */
+    private static class Suggestion
+    {
+        private final String text;
+        private final IdentityHashMap<Content,Double> ratings;
+        private final TreeMap<Double,Integer> ratingCounts;
+        private double bestRating;
+
+        Suggestion(String text)
+        {
+            this.text=text;
+            ratings=new IdentityHashMap<>(2);
+            ratingCounts=new TreeMap<>();
+        }
+
+        void put(Content content, double rating)
+        {
+            Double oldRating=ratings.put(content,rating);
+            if(oldRating!=null)
+            {
+                uncount(oldRating);
+            }
+            ratingCounts.merge(rating,1,Integer::sum);
+            updateBestRating();
+        }
+
+        void remove(Content content)
+        {
+            Double oldRating=ratings.remove(content);
+            if(oldRating!=null)
+            {
+                uncount(oldRating);
+                updateBestRating();
+            }
+        }
+
+        private void uncount(double rating)
+        {
+            ratingCounts.computeIfPresent(rating,(rating1,count) -> count==1 ? null : count-1);
+        }
+
+        private void updateBestRating()
+        {
+            bestRating=ratingCounts.isEmpty() ? 0 : Math.max(0,ratingCounts.lastKey());
+        }
+    }
+
+    /**
+     * Represents a node of the trie, with its children ordered by the first character of their edge.
+     */
+    private static class Node
+    {
+        private String edge;
+        private char[] keys=NO_KEYS;
+        private Node[] children=NO_CHILDREN;
+        private Suggestion suggestion;
+        private Suggestion[] best=NO_SUGGESTIONS;
+
+        Node(String edge)
+        {
+            this.edge=edge;
+        }
+
+        Node child(char key)
+        {
+            int index=Arrays.binarySearch(keys,key);
+            return index>=0 ? children[index] : null;
+        }
+
+        void putChild(Node child)
+        {
+            char key=child.edge.charAt(0);
+            int index=Arrays.binarySearch(keys,key);
+            if(index>=0)
+            {
+                children[index]=child;
+                return;
+            }
+            index=-index-1;
+            char[] newKeys=new char[keys.length+1];
+            Node[] newChildren=new Node[children.length+1];
+            System.arraycopy(keys,0,newKeys,0,index);
+            System.arraycopy(children,0,newChildren,0,index);
+            newKeys[index]=key;
+            newChildren[index]=child;
+            System.arraycopy(keys,index,newKeys,index+1,keys.length-index);
+            System.arraycopy(children,index,newChildren,index+1,children.length-index);
+            keys=newKeys;
+            children=newChildren;
+        }
+
+        void removeChild(char key)
+        {
+            int index=Arrays.binarySearch(keys,key);
+            char[] newKeys=new char[keys.length-1];
+            Node[] newChildren=new Node[children.length-1];
+            System.arraycopy(keys,0,newKeys,0,index);
+            System.arraycopy(children,0,newChildren,0,index);
+            System.arraycopy(keys,index+1,newKeys,index,keys.length-index-1);
+            System.arraycopy(children,index+1,newChildren,index,children.length-index-1);
+            keys=newKeys;
+            children=newChildren;
+        }
+
+    }
+
+    private Node root;
+    private final IdentityHashMap<Content,List<String>> indexedKeys;
+
+    /**
+     * Constructs a new empty SuggestionTrie.
+     */
+    SuggestionTrie()
+    {
+        root=new Node("");
+        indexedKeys=new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds the title and the names of the people involved of a piece of content to the trie, ranked by its current
+     * average rating. If the content is already in the trie, its suggestions are replaced, such as after it was
+     * edited or reviewed.
+     *
+     * @param content The content to be added.
+     */
+    void add(Content content)
+    {
+        remove(content);
+        double rating=content.getAverageRating();
+        ArrayList<String> keys=new ArrayList<>();
+        for (String text : texts(content))
+        {
+            String key=Content.normalize(text);
+            if(key.isEmpty() || keys.contains(key))
+            {
+                continue;
+            }
+            keys.add(key);
+
+            Node[] path=path(key);
+            Node node=path[path.length-1];
+            if(node.suggestion==null)
+            {
+                node.suggestion=new Suggestion(text);
+            }
+            Suggestion suggestion=node.suggestion;
+            double oldRating=suggestion.bestRating;
+            int oldCount=suggestion.ratings.size();
+            suggestion.put(content,rating);
+            update(path,suggestion,compare(suggestion,oldRating,oldCount)>0);
+        }
+        indexedKeys.put(content,keys);
+    }
+
+    /**
+     * Removes the title and the names of the people involved of a piece of content from the trie.
+     *
+     * @param content The content to be removed.
+     */
+    void remove(Content content)
+    {
+        List<String> keys=indexedKeys.remove(content);
+        if(keys==null)
+        {
+            return;
+        }
+        for (String key : keys)
+        {
+            Node[] path=path(key);
+            Node node=path[path.length-1];
+            Suggestion suggestion=node.suggestion;
+            suggestion.remove(content);
+            if(suggestion.ratings.isEmpty())
+            {
+                node.suggestion=null;
+            }
+            update(path,suggestion,true);
+            if(node.suggestion==null && compact(path[path.length-2],node) && path.length>2)
+            {
+                compact(path[path.length-3],path[path.length-2]);
+            }
+        }
+    }
+
+    /**
+     * Removes all content from the trie.
+     */
+    void clear()
+    {
+        root=new Node("");
+        indexedKeys.clear();
+    }
+
+    /**
+     * Returns the number of pieces of content in the trie.
+     *
+     * @return The number of pieces of content.
+     */
+    int size()
+    {
+        return indexedKeys.size();
+    }
+
+    /**
+     * Suggests the titles and names that start with what has been typed in the search bar, in the time it takes to
+     * follow the prefix down the trie and copy the suggestions.
+     *
+     * @param prefix What has been typed, in any case and with any whitespace.
+     * @param limit  The maximum number of suggestions, which is at most {@value #MAX_SUGGESTIONS}.
+     * @return A list of the best titles and names that start with the prefix, from best to worst, or an empty list if
+     * nothing has been typed.
+     */
+    ArrayList<String> suggest(String prefix, int limit)
+    {
+        ArrayList<String> suggestions=new ArrayList<>();
+        String key=Content.normalize(prefix);
+        if(key.isEmpty())
+        {
+            return suggestions;
+        }
+        Node node=root;
+        for (int i=0;i<key.length();)
+        {
+            node=node.child(key.charAt(i));
+            int length=node==null ? 0 : Math.min(node.edge.length(),key.length()-i);
+            if(node==null || !node.edge.regionMatches(0,key,i,length))
+            {
+                return suggestions;
+            }
+            i+=length;
+        }
+        for (int i=0;i<Math.min(limit,node.best.length);i++)
+        {
+            suggestions.add(node.best[i].text);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the title and names of the people involved of a piece of content, which are separated by commas.
+     */
+    private static ArrayList<String> texts(Content content)
+    {
+        ArrayList<String> texts=new ArrayList<>();
+        texts.add(content.getTitle().trim());
+        for (String name : content.getPeopleInvolved().split(","))
+        {
+            texts.add(name.trim());
+        }
+        return texts;
+    }
+
+    /**
+     * Returns the nodes from the root to the node of a key. The node of the key is created if it is missing,
+     * splitting the edge the key ends in or branches off from.
+     */
+    private Node[] path(String key)
+    {
+        ArrayList<Node> path=new ArrayList<>();
+        Node node=root;
+        path.add(node);
+        for (int i=0;i<key.length();)
+        {
+            Node child=node.child(key.charAt(i));
+            if(child==null)
+            {
+                child=new Node(key.substring(i));
+                node.putChild(child);
+            }
+            int common=0;
+            while (common<child.edge.length() && i+common<key.length() && child.edge.charAt(common)==key.charAt(i+common))
+            {
+                common++;
+            }
+            if(common<child.edge.length())
+            {
+                //The node of the key is on the edge, so the edge is split there
+                Node middle=new Node(child.edge.substring(0,common));
+                child.edge=child.edge.substring(common);
+                middle.putChild(child);
+                middle.best=child.best;
+                node.putChild(middle);
+                child=middle;
+            }
+            path.add(child);
+            node=child;
+            i+=common;
+        }
+        return path.toArray(new Node[0]);
+    }
+
+    /**
+     * Drops a node that has no suggestion and no children, or merges it with its child if it only has one, so that
+     * every node either has a suggestion or branches.
+     *
+     * @return {@code true} if the node was dropped, {@code false} otherwise.
+     */
+    private static boolean compact(Node parent, Node node)
+    {
+        if(node.suggestion!=null)
+        {
+            return false;
+        }
+        if(node.keys.length==0)
+        {
+            parent.removeChild(node.edge.charAt(0));
+            return true;
+        }
+        if(node.keys.length==1)
+        {
+            Node child=node.children[0];
+            node.edge=node.edge+child.edge;
+            node.keys=child.keys;
+            node.children=child.children;
+            node.suggestion=child.suggestion;
+        }
+        return false;
+    }
+
+    /**
+     * Updates the best suggestions of the nodes of a path after a suggestion at its end changed, from the end of the
+     * path to the root, so that the children of a node are updated before it.
+     *
+     * @param path      The nodes from the root to the node of the suggestion.
+     * @param changed   The suggestion that changed.
+     * @param gotWorse  {@code true} if the suggestion got worse or was removed, {@code false} if it got better.
+     */
+    private static void update(Node[] path, Suggestion changed, boolean gotWorse)
+    {
+        for (int depth=path.length-1;depth>=0;depth--)
+        {
+            Node node=path[depth];
+            int index=indexOf(node.best,changed);
+            if(gotWorse)
+            {
+                if(index<0)
+                {
+                    //A suggestion that got worse can't be among the best if it wasn't already
+                    return;
+                }
+                node.best=collectBest(node);
+            }
+            else
+            {
+                Suggestion[] best=index>=0 ? remove(node.best,index) : node.best;
+                node.best=insert(best,changed);
+            }
+        }
+    }
+
+    /**
+     * Finds the best suggestions of a node from its own suggestion and the best suggestions of its children.
+     */
+    private static Suggestion[] collectBest(Node node)
+    {
+        Suggestion[] best=NO_SUGGESTIONS;
+        if(node.suggestion!=null)
+        {
+            best=insert(best,node.suggestion);
+        }
+        for (Node child : node.children)
+        {
+            for (Suggestion suggestion : child.best)
+            {
+                if(best.length==MAX_SUGGESTIONS && compare(suggestion,best[best.length-1])>=0)
+                {
+                    //The best suggestions of a child are ordered, so the rest of them are worse too
+                    break;
+                }
+                best=insert(best,suggestion);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Inserts a suggestion in its place among the best suggestions of a node, if it is one of the best.
+     */
+    private static Suggestion[] insert(Suggestion[] best, Suggestion suggestion)
+    {
+        int index=best.length;
+        while (index>0 && compare(suggestion,best[index-1])<0)
+        {
+            index--;
+        }
+        if(index==MAX_SUGGESTIONS)
+        {
+            return best;
+        }
+        Suggestion[] inserted=new Suggestion[Math.min(best.length+1,MAX_SUGGESTIONS)];
+        System.arraycopy(best,0,inserted,0,index);
+        inserted[index]=suggestion;
+        System.arraycopy(best,index,inserted,index+1,inserted.length-index-1);
+        return inserted;
+    }
+
+    private static Suggestion[] remove(Suggestion[] best, int index)
+    {
+        Suggestion[] removed=new Suggestion[best.length-1];
+        System.arraycopy(best,0,removed,0,index);
+        System.arraycopy(best,index+1,removed,index,best.length-index-1);
+        return removed;
+    }
+
+    private static int indexOf(Suggestion[] best, Suggestion suggestion)
+    {
+        for (int i=0;i<best.length;i++)
+        {
+            if(best[i]==suggestion)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares two suggestions by their rank: the best first, and then the one that comes from the most content.
+     * Suggestions that rank the same are ordered alphabetically.
+     */
+    private static int compare(Suggestion suggestion1, Suggestion suggestion2)
+    {
+        int comparison=Double.compare(suggestion2.bestRating,suggestion1.bestRating);
+        if(comparison==0)
+        {
+            comparison=Integer.compare(suggestion2.ratings.size(),suggestion1.ratings.size());
+        }
+        return comparison!=0 ? comparison : suggestion1.text.compareTo(suggestion2.text);
+    }
+
+    /**
+     * Compares a suggestion to the rank it had before it changed.
+     *
+     * @return A positive number if the suggestion got worse, a negative one if it got better, or 0 if neither.
+     */
+    private static int compare(Suggestion suggestion, double oldRating, int oldCount)
+    {
+        int comparison=Double.compare(oldRating,suggestion.bestRating);
+        return comparison!=0 ? comparison : Integer.compare(oldCount,suggestion.ratings.size());
+    }
+}
@@ -0,0 +1,233 @@
+package api;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * The {@code TermStatistics} class keeps the statistics of the words (terms) of the fields of content by which
+ * {@link Bm25Scorer} ranks the results of searches: how many pieces of content have every term, in any field and in
+ * each of the title, people involved and genre, and how many terms these fields have on average. The terms of every
+ * piece of content are kept too, so that content is scored without splitting its fields again.
+ * <p>
+ * Content is compared by identity.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class TermStatistics
+{
+    /**
+     * The fields whose terms are counted, in the order of the arrays of terms and statistics.
+     */
+    static final int TITLE=0,PEOPLE_INVOLVED=1,GENRE=2,FIELDS=3;
+
+    private static final String[] NO_TERMS=new String[0];
+
+    private final HashMap<String,int[]> documentFrequencies;
+    private final long[] totalLengths;
+    private final IdentityHashMap<Content,String[][]> indexedTerms;
+
+    /**
+     * Constructs new empty TermStatistics.
+     */
+    TermStatistics()
+    {
+        documentFrequencies=new HashMap<>();
+        totalLengths=new long[FIELDS];
+        indexedTerms=new IdentityHashMap<>();
+    }
+
+    /**
+     * Counts the terms of a piece of content. If the content is already counted, its terms are replaced,
+     * such as after they were edited.
+     *
+     * @param content The content to be counted.
+     */
+    void add(Content content)
+    {
+        remove(content);
+        String[][] terms=termsOf(content);
+        indexedTerms.put(content,terms);
+        for (int field=0;field<FIELDS;field++)
+        {
+            totalLengths[field]+=terms[field].length;
+            for (int i=0;i<terms[field].length;i++)
+            {
+                if(isFirst(terms[field],i))
+                {
+                    int[] frequencies=documentFrequencies.computeIfAbsent(terms[field][i],term -> new int[FIELDS+1]);
+                    frequencies[field]++;
+                    if(isFirstField(terms,field,terms[field][i]))
+                    {
+                        frequencies[FIELDS]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops counting the terms of a piece of content.
+     *
+     * @param content The content to be removed.
+     */
+    void remove(Content content)
+    {
+        String[][] terms=indexedTerms.remove(content);
+        if(terms==null)
+        {
+            return;
+        }
+        for (int field=0;field<FIELDS;field++)
+        {
+            totalLengths[field]-=terms[field].length;
+            for (int i=0;i<terms[field].length;i++)
+            {
+                if(isFirst(terms[field],i))
+                {
+                    int[] frequencies=documentFrequencies.get(terms[field][i]);
+                    frequencies[field]--;
+                    if(isFirstField(terms,field,terms[field][i]))
+                    {
+                        frequencies[FIELDS]--;
+                    }
+                }
+            }
+        }
+        //Terms are dropped once no field of any content has them, after all the fields of the content are counted out
+        for (String[] fieldTerms : terms)
+        {
+            for (String term : fieldTerms)
+            {
+                int[] frequencies=documentFrequencies.get(term);
+                if(frequencies!=null && frequencies[FIELDS]==0)
+                {
+                    documentFrequencies.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops counting the terms of all content.
+     */
+    void clear()
+    {
+        documentFrequencies.clear();
+        indexedTerms.clear();
+        for (int field=0;field<FIELDS;field++)
+        {
+            totalLengths[field]=0;
+        }
+    }
+
+    /**
+     * Returns the number of pieces of content whose terms are counted.
+     *
+     * @return The number of pieces of content.
+     */
+    int size()
+    {
+        return indexedTerms.size();
+    }
+
+    /**
+     * Returns the number of pieces of content that have a term in any field.
+     *
+     * @param term The term, lower-cased.
+     * @return The document frequency of the term.
+     */
+    int documentFrequency(String term)
+    {
+        int[] frequencies=documentFrequencies.get(term);
+        return frequencies==null ? 0 : frequencies[FIELDS];
+    }
+
+    /**
+     * Returns the number of pieces of content that have a term in a field.
+     *
+     * @param term  The term, lower-cased.
+     * @param field The field, such as {@link #TITLE}.
+     * @return The document frequency of the term in the field.
+     */
+    int documentFrequency(String term, int field)
+    {
+        int[] frequencies=documentFrequencies.get(term);
+        return frequencies==null ? 0 : frequencies[field];
+    }
+
+    /**
+     * Returns the average number of terms of a field.
+     *
+     * @param field The field, such as {@link #TITLE}.
+     * @return The average length of the field, or 0 if no content is counted.
+     */
+    double averageLength(int field)
+    {
+        return indexedTerms.isEmpty() ? 0 : (double) totalLengths[field]/indexedTerms.size();
+    }
+
+    /**
+     * Returns the terms of the fields of a piece of content, as they were counted.
+     *
+     * @param content The content.
+     * @return The terms of every field, in order, or the current terms of the content if it isn't counted.
+     */
+    String[][] terms(Content content)
+    {
+        String[][] terms=indexedTerms.get(content);
+        return terms!=null ? terms : termsOf(content);
+    }
+
+    /**
+     * Splits the title, people involved and genre of a piece of content into terms.
+     */
+    private static String[][] termsOf(Content content)
+    {
+        String[][] terms=new String[FIELDS][];
+        terms[TITLE]=toArray(FuzzyIndex.terms(content.getTitle()));
+        terms[PEOPLE_INVOLVED]=toArray(FuzzyIndex.terms(content.getPeopleInvolved()));
+        terms[GENRE]=content instanceof ViewableContent viewableContent && viewableContent.getGenre()!=null
+                ? toArray(FuzzyIndex.terms(viewableContent.getGenre())) : NO_TERMS;
+        return terms;
+    }
+
+    private static String[] toArray(List<String> terms)
+    {
+        return terms.isEmpty() ? NO_TERMS : terms.toArray(NO_TERMS);
+    }
+
+    /**
+     * Checks if a term isn't in any field before a field, so that content that has it is counted once for all fields.
+     */
+    private static boolean isFirstField(String[][] terms, int field, String term)
+    {
+        for (int earlier=0;earlier<field;earlier++)
+        {
+            for (String earlierTerm : terms[earlier])
+            {
+                if(earlierTerm.equals(term))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a term of a field isn't repeated earlier in the field, so that it is counted once.
+     */
+    private static boolean isFirst(String[] terms, int index)
+    {
+        for (int i=0;i<index;i++)
+        {
+            if(terms[i].equals(terms[index]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
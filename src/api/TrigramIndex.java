@@ -0,0 +1,231 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code TrigramIndex} class is an index of the substrings of three characters (trigrams) of the title,
+ * people involved, category and genre of content, which lets the search bar of {@link SearchManager} find the
+ * content that may match a search without checking every piece of content.
+ * <p>
+ * The search bar matches a field if the field contains the search or the search contains the field, after both
+ * are lower-cased and stripped of whitespace. A field can only contain a search if it contains every trigram of the
+ * search, so the content that may contain the search is found by intersecting the content of its trigrams, starting
+ * from the rarest. Searches shorter than three characters are looked up as a whole, since the substrings of one and
+ * two characters of the fields are indexed too. The fields that a search contains are found by looking up every
+ * substring of the search among the whole fields. The content found (the candidates) is then checked by the search
+ * itself, so the results are the same as when every piece of content is checked.
+ * <p>
+ * Content is compared by identity.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class TrigramIndex
+{
+    /**
+     * The length of the longest substrings of the fields that are indexed.
+     */
+    static final int GRAM_LENGTH=3;
+
+    private final HashMap<String,Set<Content>> grams;
+    private final HashMap<String,Set<Content>> fields;
+    private final IdentityHashMap<Content,List<String>> indexedFields;
+
+    /**
+     * Constructs a new empty TrigramIndex.
+     */
+    TrigramIndex()
+    {
+        grams=new HashMap<>();
+        fields=new HashMap<>();
+        indexedFields=new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds the fields of a piece of content to the index. If the content is already indexed,
+     * its fields are replaced, such as after they were edited.
+     *
+     * @param content The content to be indexed.
+     */
+    void add(Content content)
+    {
+        remove(content);
+
+        ArrayList<String> contentFields=new ArrayList<>();
+        contentFields.add(content.getTitleKey());
+        contentFields.add(content.getPeopleInvolvedKey());
+        contentFields.add(content.getCategoryKey());
+        if(content instanceof ViewableContent viewableContent && viewableContent.getGenre()!=null)
+        {
+            contentFields.add(viewableContent.getGenreKey());
+        }
+        indexedFields.put(content,contentFields);
+
+        for (String field : contentFields)
+        {
+            add(fields,field,content);
+            for (int start=0;start<field.length();start++)
+            {
+                for (int end=start+1;end<=Math.min(start+GRAM_LENGTH,field.length());end++)
+                {
+                    add(grams,field.substring(start,end),content);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the fields of a piece of content from the index.
+     *
+     * @param content The content to be removed.
+     */
+    void remove(Content content)
+    {
+        List<String> contentFields=indexedFields.remove(content);
+        if(contentFields==null)
+        {
+            return;
+        }
+        for (String field : contentFields)
+        {
+            remove(fields,field,content);
+            for (int start=0;start<field.length();start++)
+            {
+                for (int end=start+1;end<=Math.min(start+GRAM_LENGTH,field.length());end++)
+                {
+                    remove(grams,field.substring(start,end),content);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all content from the index.
+     */
+    void clear()
+    {
+        grams.clear();
+        fields.clear();
+        indexedFields.clear();
+    }
+
+    /**
+     * Returns the number of pieces of content in the index.
+     *
+     * @return The number of indexed pieces of content.
+     */
+    int size()
+    {
+        return indexedFields.size();
+    }
+
+    /**
+     * Estimates the number of pieces of content that {@link #candidates(String)} finds for a search, without
+     * finding them. The estimate is the size of the content of the rarest trigram of the search, so it may be
+     * larger than the number of candidates, and it leaves out fields the search contains.
+     *
+     * @param search The search, lower-cased and stripped of whitespace. Must not be empty.
+     * @return The estimated number of candidates.
+     */
+    int estimate(String search)
+    {
+        if(search.length()<=GRAM_LENGTH)
+        {
+            Set<Content> set=grams.get(search);
+            return set==null ? 0 : set.size();
+        }
+        int estimate=Integer.MAX_VALUE;
+        for (int start=0;start+GRAM_LENGTH<=search.length() && estimate>0;start++)
+        {
+            Set<Content> set=grams.get(search.substring(start,start+GRAM_LENGTH));
+            estimate=Math.min(estimate,set==null ? 0 : set.size());
+        }
+        return estimate;
+    }
+
+    /**
+     * Finds the content whose title, people involved, category or genre may match a search of the search bar.
+     *
+     * @param search The search, lower-cased and stripped of whitespace. Must not be empty.
+     * @return A set of the content that may match the search, which contains every piece of content that does.
+     */
+    Set<Content> candidates(String search)
+    {
+        Set<Content> candidates=Collections.newSetFromMap(new IdentityHashMap<>());
+
+        //Fields that contain the search
+        if(search.length()<=GRAM_LENGTH)
+        {
+            Set<Content> set=grams.get(search);
+            if(set!=null)
+            {
+                candidates.addAll(set);
+            }
+        }
+        else
+        {
+            ArrayList<Set<Content>> postings=new ArrayList<>();
+            boolean missing=false;
+            for (int start=0;start+GRAM_LENGTH<=search.length() && !missing;start++)
+            {
+                Set<Content> set=grams.get(search.substring(start,start+GRAM_LENGTH));
+                missing=set==null;
+                postings.add(set);
+            }
+            if(!missing)
+            {
+                postings.sort((set1,set2) -> Integer.compare(set1.size(),set2.size()));
+                for (Content content : postings.get(0))
+                {
+                    boolean inAll=true;
+                    for (int i=1;i<postings.size() && inAll;i++)
+                    {
+                        inAll=postings.get(i).contains(content);
+                    }
+                    if(inAll)
+                    {
+                        candidates.add(content);
+                    }
+                }
+            }
+        }
+
+        //Fields that the search contains, including empty fields
+        Set<Content> withEmptyField=fields.get("");
+        if(withEmptyField!=null)
+        {
+            candidates.addAll(withEmptyField);
+        }
+        for (int start=0;start<search.length();start++)
+        {
+            for (int end=start+1;end<=search.length();end++)
+            {
+                Set<Content> set=fields.get(search.substring(start,end));
+                if(set!=null)
+                {
+                    candidates.addAll(set);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static void add(HashMap<String,Set<Content>> map, String key, Content content)
+    {
+        map.computeIfAbsent(key,k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(content);
+    }
+
+    private static void remove(HashMap<String,Set<Content>> map, String key, Content content)
+    {
+        Set<Content> set=map.get(key);
+        if(set!=null && set.remove(content) && set.isEmpty())
+        {
+            map.remove(key);
+        }
+    }
+}
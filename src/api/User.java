@@ -1,22 +1,34 @@
 package api;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Base64;
 import java.util.HashMap;
-import java.util.Objects;
 
 /**
  * Represents a user in the system and provides functionality related to user management.
+ * <p>
+ * A user remembers whether it has been changed since it was last written to disk, so that the database
+ * only needs to write the users that actually changed.
+ * <p>
+ * Every user has an ID that never changes, even when its username is edited, by which
+ * {@link DataBase#getUserById(long)} finds it. Users are equal if they have the same ID.
  *
  * @authors Iraklis Fountoukidis, Chrysoula Tegousi
  * @version 2024-01-10
  */
 public class User implements Serializable
 {
+    //The version of the class before IDs were introduced, so that users serialized back then can still be read
+    private static final long serialVersionUID=-2171144836088616789L;
+
+    private long id=EntityIds.next();
     private String username,password,name,surname,salt;
+    private transient boolean dirty,keyChanged;
 
     /**
      * Constructs a User object with specified username, password, name, and surname.
@@ -43,6 +55,25 @@ public class User implements Serializable
         this.surname=surname.trim();
     }
 
+    /**
+     * Constructs a User object with a password that is already hashed.
+     * Used when users are read from a file.
+     *
+     * @param username the username of the user
+     * @param password the hashed password of the user
+     * @param salt     the salt the password was hashed with
+     * @param name     the name of the user
+     * @param surname  the surname of the user
+     */
+    User(String username,String password,String salt,String name,String surname)
+    {
+        this.username=username;
+        this.password=password;
+        this.salt=salt;
+        this.name=name;
+        this.surname=surname;
+    }
+
     /**
      * Sets a new username for the user, updating the authentication map.
      *
@@ -52,8 +83,10 @@ public class User implements Serializable
     public void setUsername(String username,HashMap<String,User> authentication)
     {
         authentication.remove(this.username,this);
+        keyChanged|=!this.username.equals(username.trim());
         this.username=username.trim();
         authentication.put(this.username,this);
+        markDirty();
     }
 
 
@@ -66,6 +99,7 @@ public class User implements Serializable
     {
         if (!password.trim().isEmpty())
         {
+            markDirty();
             salt = generateSalt();
             try
             {
@@ -86,6 +120,7 @@ public class User implements Serializable
     public void setName(String name)
     {
         this.name=name.trim();
+        markDirty();
     }
 
 
@@ -97,6 +132,27 @@ public class User implements Serializable
     public void setSurname(String surname)
     {
         this.surname = surname.trim();
+        markDirty();
+    }
+
+    /**
+     * Gets the ID of the user, which identifies it in the database.
+     *
+     * @return the ID of the user
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+    /**
+     * Sets the ID of a user read from a file to the ID it was written with.
+     *
+     * @param id the ID of the user
+     */
+    void restoreId(long id)
+    {
+        this.id=id;
     }
 
     /**
@@ -138,6 +194,16 @@ public class User implements Serializable
         return surname;
     }
 
+    /**
+     * Gets the salt the password of the user was hashed with.
+     *
+     * @return the salt of the password
+     */
+    String getSalt()
+    {
+        return salt;
+    }
+
 
     /**
      * Generates a random salt for password hashing.
@@ -201,6 +267,7 @@ public class User implements Serializable
     {
         authentication.remove(this.username,this);
 
+        keyChanged|=!this.username.equals(username.trim());
         this.username=username.trim();
         if (!password.trim().isEmpty())
         {
@@ -217,6 +284,62 @@ public class User implements Serializable
         this.name=name.trim();
         this.surname=surname.trim();
         authentication.put(this.username,this);
+        markDirty();
+    }
+
+    /**
+     * Marks the user as changed since it was last written to disk.
+     */
+    void markDirty()
+    {
+        dirty=true;
+    }
+
+    /**
+     * Returns whether the user has been changed since it was last written to disk.
+     *
+     * @return {@code true} if the user has unsaved changes, {@code false} otherwise.
+     */
+    boolean isDirty()
+    {
+        return dirty;
+    }
+
+    /**
+     * Returns whether the username of the user, by which it is keyed in the segments of the user file,
+     * changed since it was last written to disk.
+     *
+     * @return {@code true} if the username changed, {@code false} otherwise.
+     */
+    boolean isKeyChanged()
+    {
+        return keyChanged;
+    }
+
+    /**
+     * Marks the user as written to disk.
+     */
+    void clearDirty()
+    {
+        dirty=false;
+        keyChanged=false;
+    }
+
+    /**
+     * Replaces the state of this user with the state of a newer copy of it, such as one replayed from
+     * the journal, so that references to this user stay valid.
+     *
+     * @param other The newer copy of the user, of the same class, which must not be used afterwards.
+     */
+    void restoreFrom(User other)
+    {
+        username=other.username;
+        password=other.password;
+        salt=other.salt;
+        name=other.name;
+        surname=other.surname;
+        dirty=false;
+        keyChanged=false;
     }
 
     /**
@@ -241,7 +364,8 @@ public class User implements Serializable
     }
 
     /**
-     * Checks if two user objects are equal based on their username, password, name, and surname.
+     * Checks if two user objects are equal based on their ID, which stays the same however the user is edited,
+     * so that an edited user is still found in the sets and maps that hold it.
      *
      * @param obj The object to compare with.
      * @return True if the objects are equal, false otherwise.
@@ -257,18 +381,34 @@ public class User implements Serializable
             return true;
         }
 
-        //due to hashing and salting, the randomly generated password isn't checked
-        return username.equals(user.getUsername()) && name.equals(user.getName()) && surname.equals(user.getSurname());
+        //users that are still being deserialized from before IDs were introduced don't have an ID yet
+        return id!=0 && id==user.getId();
     }
 
     /**
-     * Generates a hash code for the user based on their username and password.
+     * Generates a hash code for the user based on their ID.
      *
      * @return The hash code for the user.
      */
     @Override
     public int hashCode()
     {
-        return Objects.hash(username,name,surname);
+        return Long.hashCode(id);
+    }
+
+    /**
+     * Gives a user that was serialized before IDs were introduced a new ID.
+     *
+     * @param in the stream the user is read from
+     * @throws IOException            if the user couldn't be read
+     * @throws ClassNotFoundException if the class of a field couldn't be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        if(id==0)
+        {
+            id=EntityIds.next();
+        }
     }
 }
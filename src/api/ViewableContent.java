@@ -1,7 +1,6 @@
 package api;
 
 import java.util.HashSet;
-import java.util.Objects;
 
 /**
  * The {@code ViewableContent} class represents content that can be viewed, such as movies or TV shows.
@@ -13,9 +12,12 @@ import java.util.Objects;
  */
 public class ViewableContent extends Content
 {
+    private static final long serialVersionUID=7909198584702253576L;
+
     private String synopsis;
     private String isSuitableForMinors;
     private String genre;
+    private transient String suitabilityKey,genreKey;
 
     /**
      * Constructs a new ViewableContent object with the specified title, synopsis, suitability for minors, genre,
@@ -72,6 +74,7 @@ public class ViewableContent extends Content
 
     public void setSynopsis(String synopsis)
     {
+        markDirty();
         this.synopsis=synopsis;
     }
 
@@ -84,6 +87,8 @@ public class ViewableContent extends Content
      */
     public void setIsSuitableForMinors(String isSuitableForMinors) throws IllegalArgumentException
     {
+        markDirty();
+        suitabilityKey=null;
         if(isSuitableForMinors.toLowerCase().replaceAll("\\s", "").equals("yes"))
         {
             this.isSuitableForMinors="Yes";
@@ -122,32 +127,14 @@ public class ViewableContent extends Content
      */
     public void setGenre(String genre) throws IllegalArgumentException
     {
-        String newGenre=genre.toLowerCase().replaceAll("\\s", "");
-        if(newGenre.equals("comedy"))
-        {
-            this.genre="Comedy";
-        }
-        else if(newGenre.equals("drama"))
-        {
-            this.genre="Drama";
-        }
-        else if(newGenre.equals("action"))
-        {
-            this.genre="Action";
-        }
-        else if(newGenre.contains("scifi") || newGenre.contains("sci-fi") || newGenre.contains("sciencefiction"))
-        {
-            this.genre="Science fiction";
-        }
-        else if(newGenre.equals("horror"))
-        {
-            this.genre="Horror";
-        }
-        else
+        markDirty();
+        genreKey=null;
+        String newGenre=canonicalGenre(genre);
+        if(newGenre==null)
         {
             throw new IllegalArgumentException("Invalid argument passed as genre. Valid arguments are: Action, Drama, Horror, Science fiction, Comedy");
         }
-
+        this.genre=newGenre;
     }
 
     /**
@@ -157,25 +144,40 @@ public class ViewableContent extends Content
      * @return {@code true} if the value is valid, {@code false} otherwise.
      */
     public static boolean genreIsValid(String genre)
+    {
+        return canonicalGenre(genre)!=null;
+    }
+
+    /**
+     * Returns the genre a given genre value stands for, as it is stored by {@link #setGenre(String)}.
+     *
+     * @param genre The genre value, such as "sci-fi".
+     * @return The genre, such as "Science fiction", or {@code null} if the value is invalid.
+     */
+    static String canonicalGenre(String genre)
     {
         String newGenre=genre.toLowerCase().replaceAll("\\s", "");
         if(newGenre.equals("comedy"))
         {
-            return true;
+            return "Comedy";
         }
         else if(newGenre.equals("drama"))
         {
-            return true;
+            return "Drama";
         }
         else if(newGenre.equals("action"))
         {
-            return true;
+            return "Action";
         }
         else if(newGenre.contains("scifi") || newGenre.contains("sci-fi") || newGenre.contains("sciencefiction"))
         {
-            return true;
+            return "Science fiction";
         }
-        else return newGenre.equals("horror");
+        else if(newGenre.equals("horror"))
+        {
+            return "Horror";
+        }
+        return null;
     }
 
     /**
@@ -208,6 +210,38 @@ public class ViewableContent extends Content
         return genre;
     }
 
+    /**
+     * Returns the suitability for minors of the viewable content, lower-cased and stripped of whitespace.
+     *
+     * @return The search key of the suitability for minors.
+     */
+    String getSuitabilityKey()
+    {
+        String key=suitabilityKey;
+        if(key==null)
+        {
+            key=normalize(isSuitableForMinors);
+            suitabilityKey=key;
+        }
+        return key;
+    }
+
+    /**
+     * Returns the genre of the viewable content, lower-cased and stripped of whitespace.
+     *
+     * @return The search key of the genre.
+     */
+    String getGenreKey()
+    {
+        String key=genreKey;
+        if(key==null)
+        {
+            key=normalize(genre);
+            genreKey=key;
+        }
+        return key;
+    }
+
     /**
      * Edits the viewable content by updating the title, synopsis, suitability for minors, genre, and actors.
      *
@@ -267,34 +301,16 @@ public class ViewableContent extends Content
         }
     }
 
-    /**
-     * Overrides the equals method to compare ViewableContent objects based on their title, synopsis,
-     * suitability for minors, genre, and related content.
-     *
-     * @param obj The object to compare with this ViewableContent.
-     * @return {@code true} if the objects are equal, {@code false} otherwise.
-     */
-    public boolean equals(Object obj)
-    {
-        if(!(obj instanceof ViewableContent)) {
-            return false;
-        }
-
-        ViewableContent viewableContent=(ViewableContent) obj;
-        return super.equals(viewableContent) && synopsis.equals(viewableContent.getSynopsis())
-                && isSuitableForMinors.equals(viewableContent.getIsSuitableForMinors()) &&
-                genre.equals(viewableContent.getGenre());
-    }
-
-    /**
-     * Generates a hash code for this ViewableContent object based on its title, synopsis,
-     * suitability for minors, genre, and related content.
-     *
-     * @return The hash code value for this object.
-     */
-    public int hashCode()
+    @Override
+    void restoreFrom(Content other)
     {
-        return Objects.hash(super.hashCode(), synopsis,genre,isSuitableForMinors);
+        super.restoreFrom(other);
+        ViewableContent viewableContent=(ViewableContent) other;
+        synopsis=viewableContent.synopsis;
+        isSuitableForMinors=viewableContent.isSuitableForMinors;
+        genre=viewableContent.genre;
+        suitabilityKey=null;
+        genreKey=null;
     }
 
     /**
@@ -0,0 +1,216 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code WriteBehindPersister} class performs the disk writes of a {@link DataBase} on a background thread,
+ * so that the thread that changes the database (e.g. the Swing event dispatch thread) never waits for the disk.
+ * <p>
+ * Writes are marked as pending under a key, such as the file they write to. A write that is marked under the
+ * same key as a pending write replaces it, so a burst of changes to the same file results in a single write.
+ * Pending writes are performed in the order their keys were last marked, the configured delay after the first
+ * of them was marked, or immediately once the configured number of writes has been marked.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+public class WriteBehindPersister
+{
+    /**
+     * The default time in milliseconds that writes are held back, waiting for more changes.
+     */
+    public static final long DEFAULT_DELAY_MILLIS=200;
+
+    /**
+     * The default number of marked writes after which they are written without waiting.
+     */
+    public static final int DEFAULT_MAX_PENDING_WRITES=64;
+
+    private final long delayMillis;
+    private final int maxPendingWrites;
+    private final ScheduledExecutorService executor;
+    private final LinkedHashMap<Object,Runnable> pendingWrites;
+    private ScheduledFuture<?> scheduledFlush;
+    private int writesSinceFlush;
+    private long markedWrites, completedWrites, flushCount;
+
+    /**
+     * Constructs a new WriteBehindPersister with the default delay and number of pending writes.
+     */
+    public WriteBehindPersister()
+    {
+        this(DEFAULT_DELAY_MILLIS,DEFAULT_MAX_PENDING_WRITES);
+    }
+
+    /**
+     * Constructs a new WriteBehindPersister.
+     *
+     * @param delayMillis      The time in milliseconds that writes are held back, waiting for more changes.
+     * @param maxPendingWrites The number of marked writes after which they are written without waiting.
+     */
+    public WriteBehindPersister(long delayMillis,int maxPendingWrites)
+    {
+        if(delayMillis<0 || maxPendingWrites<=0)
+        {
+            throw new IllegalArgumentException("Delay must not be negative and pending writes must be positive");
+        }
+        this.delayMillis=delayMillis;
+        this.maxPendingWrites=maxPendingWrites;
+        pendingWrites=new LinkedHashMap<>();
+        executor=Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread=new Thread(runnable,"write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Marks a write as pending. If a write is already pending under the same key, it is replaced.
+     * Returns without waiting for the write.
+     *
+     * @param key   The key of the write, such as the file it writes to.
+     * @param write The write to be performed.
+     */
+    public synchronized void markDirty(Object key,Runnable write)
+    {
+        //Removing the key first moves it to the end, so writes are performed in the order they were last marked
+        pendingWrites.remove(key);
+        pendingWrites.put(key,write);
+        markedWrites++;
+        writesSinceFlush++;
+
+        if(writesSinceFlush>=maxPendingWrites)
+        {
+            flush();
+        }
+        else if(scheduledFlush==null)
+        {
+            scheduledFlush=executor.schedule(this::writePending,delayMillis,TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Starts performing the pending writes without waiting for the delay. Returns without waiting for them.
+     */
+    public synchronized void flush()
+    {
+        if(scheduledFlush!=null)
+        {
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush=null;
+        writesSinceFlush=0;
+        if(!pendingWrites.isEmpty())
+        {
+            executor.execute(this::writePending);
+        }
+    }
+
+    /**
+     * Performs the pending writes and waits until every write marked before this call has been performed.
+     */
+    public void awaitDurable()
+    {
+        long target;
+        synchronized (this)
+        {
+            target=markedWrites;
+            flush();
+        }
+
+        boolean interrupted=false;
+        synchronized (this)
+        {
+            while (completedWrites<target)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted=true;
+                }
+            }
+        }
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns whether there are writes that haven't been performed yet.
+     *
+     * @return {@code true} if writes are pending or being performed, {@code false} otherwise.
+     */
+    public synchronized boolean isDirty()
+    {
+        return completedWrites<markedWrites;
+    }
+
+    /**
+     * Returns the number of times pending writes have been performed. Marked writes that were replaced
+     * before being performed, or performed along with others, don't count separately.
+     *
+     * @return The number of flushes.
+     */
+    public synchronized long getFlushCount()
+    {
+        return flushCount;
+    }
+
+    /**
+     * Performs the pending writes and stops the background thread.
+     */
+    public void close()
+    {
+        awaitDurable();
+        executor.shutdown();
+    }
+
+    /**
+     * Performs the writes that are pending. Runs on the background thread.
+     */
+    private void writePending()
+    {
+        ArrayList<Runnable> writes;
+        long marked;
+        synchronized (this)
+        {
+            writes=new ArrayList<>(pendingWrites.values());
+            pendingWrites.clear();
+            scheduledFlush=null;
+            writesSinceFlush=0;
+            marked=markedWrites;
+            if(writes.isEmpty())
+            {
+                return;
+            }
+        }
+
+        for (Runnable write : writes)
+        {
+            try
+            {
+                write.run();
+            }
+            catch (RuntimeException e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        synchronized (this)
+        {
+            completedWrites=Math.max(completedWrites,marked);
+            flushCount++;
+            notifyAll();
+        }
+    }
+}
@@ -363,7 +363,7 @@ public class ContentFrame extends JFrame
                     favoritesButton.setText("Add to favorites");
                 }
             }
-            dataBase.editFiles();
+            dataBase.editUsers(subscriber);
 
             if(userProfileFrame!=null)
             {
@@ -379,8 +379,6 @@ public class ContentFrame extends JFrame
     This method is called by the EditContentFrame*/
     public void updateDisplayedContentInfo()
     {
-        dataBase.editFiles();
-
         if (!content.getRelatedContent().isEmpty())
         {
             buildRelatedContentPanel(false);
@@ -216,8 +216,14 @@ public class EditContentFrame extends JFrame
                     if(addContent)
                     {
                         registerContent();
-                        dataBase.addToContent(content);
-                        if(!dataBase.getContent().contains(content))
+                        //Content is equal to content with the same ID, so content with the same title and people is looked for
+                        boolean exists=dataBase.getContent().stream().anyMatch(content1 -> content1.getTitle().equals(content.getTitle())
+                                && content1.getPeopleInvolved().equals(content.getPeopleInvolved()));
+                        if(!exists)
+                        {
+                            dataBase.addToContent(content);
+                        }
+                        if(exists || !dataBase.getContent().contains(content))
                         {
                             JOptionPane.showMessageDialog(contentEditPanel,"Content registration failed! Please try again and check for errors (e.g content already exists)");
                         }
@@ -305,7 +311,7 @@ public class EditContentFrame extends JFrame
             series.edit(titleEditField.getText(),synopsisEditArea.getText(),suitabilityForMinorsEditField.getText(),genreEditField.getText(),peopleInvolvedEditArea.getText(),editedSeasons,editedRelatedContent);
             seriesFrame.updateDisplayedInfoForSeries();
         }
-        dataBase.editFiles();
+        dataBase.editContent(content);
     }
 
     //Checking if the fields contain values that are valid for the specific field
@@ -75,6 +75,8 @@ public class RelatedContentEditPanel extends JPanel
         private HashSet<Content> relatedToBeAdded;
         private JPanel relatedCandidatesPanel;
         private JPanel addToRelatedOptionsPanel;
+        //Only this many of the best candidates are shown, so the rest of the catalog isn't searched or drawn
+        private final int visibleRows=50;
 
         public AddToRelatedContentFrame()
         {
@@ -84,16 +86,29 @@ public class RelatedContentEditPanel extends JPanel
 
             //This HashSet stores all the content the admin wants to be added to the related section
             relatedToBeAdded = new HashSet<>();
-            relatedContentCandidates.addAll(dataBase.getContent());
-
-            if(content!=null)
-            {
-                relatedContentCandidates.remove(content);
-            }
+            findRelatedCandidates(SearchQuery.builder().build());
 
             buildAddToRelatedFrame();
         }
 
+        /*This method is called after an admin has searched for content,
+        to show the best matches of the search as the candidates*/
+        public void searchRelatedCandidates(SearchQuery query)
+        {
+            findRelatedCandidates(query);
+            updateRelatedCandidatesPanel();
+        }
+
+        /*The matches of the search are streamed in ranking order and only taken until the rows are filled,
+        skipping the content being edited and the content that's already related*/
+        private void findRelatedCandidates(SearchQuery query)
+        {
+            relatedContentCandidates.clear();
+            dataBase.stream(query,true).map(SearchHit::getContent)
+                    .filter(content1 -> !content1.equals(content) && !editedRelatedContent.contains(content1))
+                    .limit(visibleRows).forEach(relatedContentCandidates::add);
+        }
+
         public void buildAddToRelatedFrame()
         {
             setTitle("Add related content");
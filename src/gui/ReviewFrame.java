@@ -104,7 +104,7 @@ public class ReviewFrame extends JFrame
                     review=new Review(ratingSlider.getValue(), reviewTextArea.getText(), subscriber);
                     content.addToReviews(review);
                 }
-                dataBase.editFiles();
+                dataBase.editContent(content);
                 reviewsPanel.updateSubscriberReviewPanel();
                 dispose();
             }
@@ -154,7 +154,7 @@ public class ReviewsPanel extends JPanel
                             /*The subscriber will be given the option to submit a new review
                             after deleting one*/
                         addReviewButton.setVisible(true);
-                        dataBase.editFiles();
+                        dataBase.editContent(content);
                         updateSubscriberReviewPanel();
                     }
                 }
@@ -3,13 +3,20 @@ package gui;
 
 import api.Content;
 import api.DataBase;
+import api.SearchFacets;
+import api.SearchQuery;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 import java.util.Objects;
+import java.util.function.Function;
 
 //This class is for searching content in the Database
 public class SearchPanel extends JPanel
@@ -18,6 +25,9 @@ public class SearchPanel extends JPanel
     private DataBase dataBase;
     private MainPageFrame mainPageFrame;
     private RelatedContentEditPanel.AddToRelatedContentFrame addToRelatedContentFrame;
+    private JPopupMenu suggestionsMenu;
+    private Timer suggestionsTimer;
+    private SearchFacets facets;
 
     /*The searchResults ArrayList that's passed as a parameter will be used to
     transfer the results to the frame that used the class*/
@@ -146,28 +156,58 @@ public class SearchPanel extends JPanel
         searchButtonPanel.add(searchButton);
         searchPanel.add(searchButtonPanel);
 
+        buildSuggestionsMenu(searchBarField,searchButton);
+
+        /*The number of results that choosing each option of the filters would yield is shown next to it.
+        The numbers are counted from the other filters and the search bar whenever the options are opened*/
+        PopupMenuListener facetsListener=new PopupMenuListener()
+        {
+            @Override
+            public void popupMenuWillBecomeVisible(PopupMenuEvent e)
+            {
+                String[] userSearch=new String[]{"category", Objects.requireNonNull(categoryComboBox.getSelectedItem()).toString(),"genre", Objects.requireNonNull(genreComboBox.getSelectedItem()).toString(),
+                        "suitable for minors", Objects.requireNonNull(suitableForMinorsComboBox.getSelectedItem()).toString(),
+                        "min rating", Objects.requireNonNull(minimumAverageRatingComboBox.getSelectedItem()).toString(),searchBarField.getText()};
+                facets=dataBase.facets(SearchQuery.parse(userSearch).fuzzy());
+            }
+
+            @Override
+            public void popupMenuWillBecomeInvisible(PopupMenuEvent e)
+            {
+            }
+
+            @Override
+            public void popupMenuCanceled(PopupMenuEvent e)
+            {
+            }
+        };
+        categoryComboBox.addPopupMenuListener(facetsListener);
+        categoryComboBox.setRenderer(new FacetCountRenderer(option -> facets.getCategoryCounts()
+                .get(option.equals("Movie") ? SearchQuery.Category.MOVIES : SearchQuery.Category.SERIES)));
+        genreComboBox.addPopupMenuListener(facetsListener);
+        genreComboBox.setRenderer(new FacetCountRenderer(option -> facets.getGenreCounts().get(option)));
+        minimumAverageRatingComboBox.addPopupMenuListener(facetsListener);
+        minimumAverageRatingComboBox.setRenderer(new FacetCountRenderer(option -> facets.getMinRatingCounts().get(Integer.parseInt(option))));
+        suitableForMinorsComboBox.addPopupMenuListener(facetsListener);
+        suitableForMinorsComboBox.setRenderer(new FacetCountRenderer(option -> facets.getSuitabilityCounts().get(option.equals("Yes"))));
+
         /*After the button is pressed, all values of the search fields
-        are passed as parameters to the search method of DataBase*/
+        are passed as parameters to the search method of DataBase.
+        Words of the search bar with typos still match, after the exact matches*/
         searchButton.addActionListener(e -> {
+            hideSuggestions();
             searchResults.clear();
             String[] userSearch=new String[]{"category", Objects.requireNonNull(categoryComboBox.getSelectedItem()).toString(),"genre",genreComboBox.getSelectedItem().toString(),
                     "suitable for minors", Objects.requireNonNull(suitableForMinorsComboBox.getSelectedItem()).toString(),
                     "min rating", Objects.requireNonNull(minimumAverageRatingComboBox.getSelectedItem()).toString(),searchBarField.getText()};
 
-            for (Content content : dataBase.searchContent(userSearch))
-            {
-                if(!searchResults.contains(content))
-                {
-                    searchResults.add(content);
-                }
-            }
-
             if(addToRelatedContentFrame!=null)
             {
-                addToRelatedContentFrame.updateRelatedCandidatesPanel();
+                addToRelatedContentFrame.searchRelatedCandidates(SearchQuery.parse(userSearch).fuzzy());
             }
             else if(mainPageFrame!=null)
             {
+                searchResults.addAll(dataBase.search(SearchQuery.parse(userSearch).fuzzy()));
                 mainPageFrame.buildSearchResultsPanel();
             }
         });
@@ -181,27 +221,100 @@ public class SearchPanel extends JPanel
             {
                 if(e.getKeyCode()==KeyEvent.VK_ENTER)
                 {
+                    hideSuggestions();
                     searchResults.clear();
                     String[] userSearch=new String[]{"category", Objects.requireNonNull(categoryComboBox.getSelectedItem()).toString(),"genre", Objects.requireNonNull(genreComboBox.getSelectedItem()).toString(),
                             "suitable for minors", Objects.requireNonNull(suitableForMinorsComboBox.getSelectedItem()).toString(),
                             "min rating", Objects.requireNonNull(minimumAverageRatingComboBox.getSelectedItem()).toString(),searchBarField.getText()};
-                    for (Content content : dataBase.searchContent(userSearch))
-                    {
-                        if(!searchResults.contains(content))
-                        {
-                            searchResults.add(content);
-                        }
-                    }
                     if(addToRelatedContentFrame!=null)
                     {
-                        addToRelatedContentFrame.updateRelatedCandidatesPanel();
+                        addToRelatedContentFrame.searchRelatedCandidates(SearchQuery.parse(userSearch).fuzzy());
                     }
                     else if(mainPageFrame!=null)
                     {
+                        searchResults.addAll(dataBase.search(SearchQuery.parse(userSearch).fuzzy()));
                         mainPageFrame.buildSearchResultsPanel();
                     }
                 }
             }
         });
     }
+
+    /*Titles and names that start with what is typed in the search bar are suggested in a dropdown.
+    The suggestions are only looked up once the user stops typing for a moment, instead of on every keystroke,
+    and choosing one of them searches for it*/
+    private void buildSuggestionsMenu(JTextField searchBarField,JButton searchButton)
+    {
+        suggestionsMenu=new JPopupMenu();
+        suggestionsMenu.setFocusable(false);
+
+        suggestionsTimer=new Timer(200,e -> {
+            suggestionsMenu.setVisible(false);
+            suggestionsMenu.removeAll();
+            for (String suggestion : dataBase.suggest(searchBarField.getText(),8))
+            {
+                JMenuItem suggestionItem=new JMenuItem(suggestion);
+                suggestionItem.addActionListener(e1 -> {
+                    searchBarField.setText(suggestion);
+                    searchButton.doClick();
+                });
+                suggestionsMenu.add(suggestionItem);
+            }
+            if(suggestionsMenu.getComponentCount()>0 && searchBarField.isShowing())
+            {
+                suggestionsMenu.show(searchBarField,0,searchBarField.getHeight());
+            }
+        });
+        suggestionsTimer.setRepeats(false);
+
+        searchBarField.getDocument().addDocumentListener(new DocumentListener()
+        {
+            @Override
+            public void insertUpdate(DocumentEvent e)
+            {
+                suggestionsTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e)
+            {
+                suggestionsTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e)
+            {
+            }
+        });
+    }
+
+    /*Shows the number of results of every option of a filter next to it in the opened options,
+    while the chosen option and the one passed to the search stay the same*/
+    private class FacetCountRenderer extends DefaultListCellRenderer
+    {
+        private static final long serialVersionUID=2745833350616755704L;
+
+        private final Function<String,Integer> counts;
+
+        private FacetCountRenderer(Function<String,Integer> counts)
+        {
+            this.counts=counts;
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list,Object value,int index,boolean isSelected,boolean cellHasFocus)
+        {
+            //The chosen option that is shown in the combo box itself has an index of -1
+            String option=value==null ? "" : value.toString();
+            String text=facets==null || index<0 || option.isEmpty() ? option : option+" ("+counts.apply(option)+")";
+            return super.getListCellRendererComponent(list,text,index,isSelected,cellHasFocus);
+        }
+    }
+
+    //Hides the suggestions, including the ones that are about to be shown
+    private void hideSuggestions()
+    {
+        suggestionsTimer.stop();
+        suggestionsMenu.setVisible(false);
+    }
 }
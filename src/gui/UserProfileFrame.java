@@ -6,13 +6,15 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 
 //Class for viewing the profile of the user currently logged in
 public class UserProfileFrame extends JFrame
 {
     private JLabel helloLabel;
-    private JPanel panel,favoritesOuterPanel;
+    private JPanel panel,favoritesOuterPanel,reviewsOuterPanel;
     private User user;
     private Color primaryColor,textColor;
     private DataBase dataBase;
@@ -64,6 +66,20 @@ public class UserProfileFrame extends JFrame
             panel.add(favoritesDecorativePanel);
             panel.add(favoritesOuterPanel);
             buildSubscriberFavoritesPanel();
+
+            JPanel reviewsDecorativePanel=new JPanel();
+            reviewsDecorativePanel.setBackground(primaryColor);
+            reviewsDecorativePanel.setLayout(new FlowLayout());
+            JLabel reviewsLabel=new JLabel("Your Reviews:");
+            reviewsLabel.setForeground(textColor);
+            reviewsDecorativePanel.add(reviewsLabel);
+            reviewsDecorativePanel.add(new JLabel(" "));
+            panel.add(reviewsDecorativePanel);
+            reviewsOuterPanel=new JPanel();
+            reviewsOuterPanel.setLayout(new BoxLayout(reviewsOuterPanel,BoxLayout.Y_AXIS));
+            reviewsOuterPanel.setBackground(primaryColor);
+            panel.add(reviewsOuterPanel);
+            buildSubscriberReviewsPanel();
         }
 
         JPanel returnButtonPanel=new JPanel();
@@ -181,21 +197,7 @@ public class UserProfileFrame extends JFrame
                     @Override
                     public void mouseClicked(MouseEvent e)
                     {
-                        if (!(favorite instanceof ViewableContent))
-                        {
-                            new ContentFrame(dataBase,favorite, subscriber,UserProfileFrame.this);
-                        }
-                        else if (favorite instanceof Movie movie)
-                        {
-                            new MovieFrame(dataBase,movie,subscriber,UserProfileFrame.this);
-                        }
-                        else if (favorite instanceof Series series)
-                        {
-                            new SeriesFrame(dataBase,series,subscriber,UserProfileFrame.this);
-                        } else if (favorite instanceof ViewableContent viewableContent)
-                        {
-                            new ViewableContentFrame(dataBase,viewableContent, subscriber,UserProfileFrame.this);
-                        }
+                        openContentFrame(favorite,subscriber);
                     }
                 });
 
@@ -226,6 +228,73 @@ public class UserProfileFrame extends JFrame
         }
     }
 
+    //Method for listing the reviews the subscriber has submitted, which are looked up through the database's index of reviewers
+    public void buildSubscriberReviewsPanel()
+    {
+        Subscriber subscriber=(Subscriber) user;
+        HashMap<Content,Review> reviews=dataBase.getReviewsBy(subscriber);
+        if(reviews.isEmpty())
+        {
+            JPanel emptyReviewsPanel=new JPanel();
+            emptyReviewsPanel.setBackground(primaryColor);
+            emptyReviewsPanel.setLayout(new FlowLayout());
+            JLabel emptyReviewsLabel=new JLabel("You haven't reviewed any content yet!");
+            emptyReviewsLabel.setForeground(textColor);
+            emptyReviewsPanel.add(emptyReviewsLabel);
+            reviewsOuterPanel.add(emptyReviewsPanel);
+        }
+        else
+        {
+            JPanel reviewsInnerPanel=new JPanel();
+            reviewsInnerPanel.setLayout(new BoxLayout(reviewsInnerPanel,BoxLayout.Y_AXIS));
+            JScrollPane reviewsScrollPane=new JScrollPane(reviewsInnerPanel);
+            reviewsOuterPanel.add(reviewsScrollPane);
+
+            reviewsInnerPanel.add(new JLabel("Click on a title to view more details!"));
+
+            ArrayList<Content> reviewedContent=new ArrayList<>(reviews.keySet());
+            reviewedContent.sort(Comparator.comparing(Content::getTitle));
+            for (Content reviewed : reviewedContent)
+            {
+                Review review=reviews.get(reviewed);
+                JPanel reviewPanel=new JPanel();
+                reviewPanel.setLayout(new FlowLayout());
+                JLabel reviewLabel=new JLabel(reviewed.getTitle()+" - "+review.getRating()+"/5 ("+review.getFormattedDate()+")");
+                reviewPanel.add(reviewLabel);
+
+                reviewLabel.addMouseListener(new MouseAdapter()
+                {
+                    @Override
+                    public void mouseClicked(MouseEvent e)
+                    {
+                        openContentFrame(reviewed,subscriber);
+                    }
+                });
+                reviewsInnerPanel.add(reviewPanel);
+            }
+        }
+    }
+
+    //Method for opening the frame that matches the type of the content
+    private void openContentFrame(Content content, Subscriber subscriber)
+    {
+        if (!(content instanceof ViewableContent))
+        {
+            new ContentFrame(dataBase,content, subscriber,UserProfileFrame.this);
+        }
+        else if (content instanceof Movie movie)
+        {
+            new MovieFrame(dataBase,movie,subscriber,UserProfileFrame.this);
+        }
+        else if (content instanceof Series series)
+        {
+            new SeriesFrame(dataBase,series,subscriber,UserProfileFrame.this);
+        } else if (content instanceof ViewableContent viewableContent)
+        {
+            new ViewableContentFrame(dataBase,viewableContent, subscriber,UserProfileFrame.this);
+        }
+    }
+
     //Method for providing the user with options of how to handle their account(editing it, logging out, or deleting it)
     public void buildOptionsMenu()
     {
@@ -284,7 +353,7 @@ public class UserProfileFrame extends JFrame
 
     public void updateSubscriberFavoritesPanel()
     {
-        dataBase.editFiles();
+        dataBase.editUsers(user);
         favoritesOuterPanel.removeAll();
         buildSubscriberFavoritesPanel();
         favoritesOuterPanel.revalidate();
@@ -293,7 +362,6 @@ public class UserProfileFrame extends JFrame
 
     public void updateUserInfo()
     {
-        dataBase.editFiles();
         helloLabel.setText("Hello, "+user.getName());
     }
 }
@@ -335,9 +335,9 @@ public class UserRegistrationFrame extends JFrame
                         {
                             user.edit(username, password, name, surname,authentication);
                         }
+                        dataBase.editUsers(user);
                         userProfileFrame.updateUserInfo();
                     }
-                    dataBase.editFiles();
                 }
                 dispose();
             }
@@ -0,0 +1,371 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest
+{
+    private HashSet<Content> content;
+    private HashSet<User> users;
+    private Movie poorThings;
+    private Series breakingBad;
+    private Content related;
+    private Subscriber subscriber;
+    private Admin admin;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        subscriber=new Subscriber("subscriber1","password1","Γιάννης","Doe");
+        admin=new Admin("admin1","password1","Bob","Vance");
+
+        poorThings=new Movie("Poor Things","The incredible tale about the fantastical evolution of Bella Baxter.","No","Comedy","Emma Stone, Mark Ruffalo, William Dafoe",2023,141);
+        ArrayList<Season> seasons=new ArrayList<>();
+        seasons.add(new Season(1,2008,new Episode(50),new Episode(45)));
+        seasons.add(new Season(2,2009,new Episode(40)));
+        breakingBad=new Series("Breaking Bad","A chemistry teacher turns to manufacturing methamphetamine.","Yes","Drama","Bryan Cranston, Aaron Paul",seasons);
+        related=new Content("Not stored","Someone");
+
+        poorThings.addToRelatedContent(breakingBad,related);
+        breakingBad.addToRelatedContent(poorThings);
+        poorThings.addToReviews(new Review(5,"Great movie!",subscriber),new Review(3,"Fine",admin));
+
+        subscriber.addToFavorites(poorThings);
+
+        content=new HashSet<>();
+        content.add(poorThings);
+        content.add(breakingBad);
+        content.add(new ViewableContent("Some Title","Test synopsis","yes","Horror","Some people"));
+
+        users=new HashSet<>();
+        users.add(subscriber);
+        users.add(admin);
+    }
+
+    @Test
+    public void encodeAndDecodeContent() throws IOException
+    {
+        HashSet<Content> decoded=BinaryCodec.decodeContent(BinaryCodec.encodeContent(content));
+        assertEquals(content,decoded);
+        assertFalse(decoded.contains(related));
+
+        for (Content content1 : decoded)
+        {
+            if(content1.equals(poorThings))
+            {
+                assertEquals(2,content1.getRelatedContent().size());
+                assertTrue(content1.getRelatedContent().contains(related));
+                assertEquals(poorThings.getReviews(),content1.getReviews());
+                assertEquals(4.0,content1.getAverageRating(),0.0);
+                for (Content related1 : content1.getRelatedContent())
+                {
+                    if(related1.equals(breakingBad))
+                    {
+                        //related content that is stored is decoded only once
+                        assertTrue(decoded.stream().anyMatch(stored -> stored==related1));
+                    }
+                }
+            }
+            else if(content1 instanceof Series series)
+            {
+                assertEquals(2,series.getSeasons().size());
+                assertEquals(2,series.getSeasons().get(0).getEpisodes().size());
+            }
+        }
+    }
+
+    @Test
+    public void idsArePreserved() throws IOException
+    {
+        for (Content content1 : BinaryCodec.decodeContent(BinaryCodec.encodeContent(content)))
+        {
+            for (Content content2 : content)
+            {
+                if(content1.equals(content2))
+                {
+                    assertEquals(content2.getId(),content1.getId());
+                }
+            }
+        }
+        for (User user : BinaryCodec.decodeUsers(BinaryCodec.encodeUsers(users)))
+        {
+            assertEquals(user.equals(subscriber) ? subscriber.getId() : admin.getId(),user.getId());
+            if(user instanceof Subscriber subscriber1)
+            {
+                //favorites refer to the content by its ID
+                assertEquals(poorThings.getId(),subscriber1.getFavorites().iterator().next().getId());
+            }
+        }
+        for (Content content1 : BinaryCodec.decodeContent(BinaryCodec.encodeContent(content)))
+        {
+            //reviewers refer to the users by their IDs, which are also given to the reviewers that aren't found
+            for (User reviewer : content1.getReviews().keySet())
+            {
+                assertEquals(reviewer.equals(subscriber) ? subscriber.getId() : admin.getId(),reviewer.getId());
+            }
+        }
+        ArrayList<Long> reviewerIds=new ArrayList<>();
+        for (Content content1 : BinaryCodec.decodeContentLazily(ByteBuffer.wrap(BinaryCodec.encodeContent(content)),(id,username) -> {
+            reviewerIds.add(id);
+            return null;
+        }))
+        {
+            content1.getReviews();
+        }
+        assertEquals(2,reviewerIds.size());
+        assertTrue(reviewerIds.containsAll(List.of(subscriber.getId(),admin.getId())));
+    }
+
+    @Test
+    public void keyedReferencesAreDecoded() throws IOException
+    {
+        //Version 4 referred to reviewers by their username, and to favorites by their title and people involved
+        BinaryCodec.Encoder chunk=new BinaryCodec.Encoder();
+        chunk.writeVarint(1);
+        chunk.writeLong(subscriber.getId());
+        chunk.writeString(subscriber.getUsername());
+        chunk.writeString(subscriber.getPassword());
+        chunk.writeString(subscriber.getSalt());
+        chunk.writeString(subscriber.getName());
+        chunk.writeString(subscriber.getSurname());
+        chunk.writeVarint(1);
+        chunk.writeString(poorThings.getTitle());
+        chunk.writeString(poorThings.getPeopleInvolved());
+        BinaryCodec.Encoder encodedUsers=new BinaryCodec.Encoder();
+        encodedUsers.writeVarint(4);
+        encodedUsers.writeVarint(1);
+        encodedUsers.writeVarint(1);
+        encodedUsers.writeVarint(chunk.size());
+        encodedUsers.writeBytes(chunk.toByteArray());
+
+        Subscriber decodedSubscriber=(Subscriber) BinaryCodec.decodeUsers(encodedUsers.toByteArray()).iterator().next();
+        assertEquals(subscriber.getId(),decodedSubscriber.getId());
+        Content favorite=decodedSubscriber.getFavorites().iterator().next();
+        assertEquals(poorThings.getTitle(),favorite.getTitle());
+        assertEquals(poorThings.getPeopleInvolved(),favorite.getPeopleInvolved());
+
+        BinaryCodec.Encoder details=new BinaryCodec.Encoder();
+        details.writeVarint(0);
+        details.writeVarint(1);
+        details.writeVarint(5);
+        details.writeString("Great movie!");
+        details.writeSignedVarint(19000);
+        details.writeVarint(0);
+        chunk=new BinaryCodec.Encoder();
+        chunk.writeVarint(0);
+        chunk.writeLong(related.getId());
+        chunk.writeString(related.getTitle());
+        chunk.writeString(related.getPeopleInvolved());
+        chunk.writeVarint(details.size());
+        chunk.writeBytes(details.toByteArray());
+        BinaryCodec.Encoder encodedContent=new BinaryCodec.Encoder();
+        encodedContent.writeVarint(4);
+        encodedContent.writeVarint(1);
+        encodedContent.writeVarint(1);
+        encodedContent.writeString(subscriber.getUsername());
+        encodedContent.writeString(subscriber.getName());
+        encodedContent.writeString(subscriber.getSurname());
+        encodedContent.writeVarint(1);
+        encodedContent.writeVarint(1);
+        encodedContent.writeVarint(1);
+        encodedContent.writeVarint(chunk.size());
+        encodedContent.writeBytes(chunk.toByteArray());
+
+        Content decodedContent=BinaryCodec.decodeContentLazily(ByteBuffer.wrap(encodedContent.toByteArray()),
+                (id,username) -> id==0 && username.equals(subscriber.getUsername()) ? subscriber : null).iterator().next();
+        assertEquals(related.getId(),decodedContent.getId());
+        assertSame(subscriber,decodedContent.getReviews().values().iterator().next().getReviewer());
+    }
+
+    @Test
+    public void decodeContentLazily() throws IOException
+    {
+        HashSet<Content> decoded=BinaryCodec.decodeContentLazily(ByteBuffer.wrap(BinaryCodec.encodeContent(content)),
+                (id,username) -> id==subscriber.getId() ? subscriber : null);
+        for (Content content1 : decoded)
+        {
+            assertFalse(content1.detailsLoaded());
+        }
+
+        for (Content content1 : decoded)
+        {
+            if(content1.getTitle().equals(poorThings.getTitle()))
+            {
+                assertEquals(poorThings.getReviews(),content1.getReviews());
+                assertTrue(content1.detailsLoaded());
+                //reviewers that are found are used as they are, the rest are decoded
+                assertTrue(content1.getReviews().keySet().stream().anyMatch(reviewer -> reviewer==subscriber));
+                assertTrue(content1.getReviews().containsKey(admin));
+            }
+        }
+        for (Content content1 : decoded)
+        {
+            if(content1 instanceof Series series)
+            {
+                assertFalse(series.detailsLoaded());
+                assertEquals(breakingBad.getSeasons(),series.getSeasons());
+                assertEquals(1,series.getRelatedContent().size());
+            }
+            else if(!content1.getTitle().equals(poorThings.getTitle()))
+            {
+                assertFalse(content1.detailsLoaded());
+            }
+        }
+        assertEquals(content,decoded);
+    }
+
+    @Test
+    public void encodeAndDecodeSeveralChunks() throws IOException
+    {
+        HashSet<Content> catalog=new HashSet<>();
+        HashSet<User> subscribers=new HashSet<>();
+        Movie first=null;
+        for (int i=0;i<BinaryCodec.CHUNK_SIZE*2+10;i++)
+        {
+            Movie movie=new Movie("Movie " + i,"Synopsis","Yes","Drama","Someone",2000,90);
+            if(first==null)
+            {
+                first=movie;
+            }
+            movie.addToRelatedContent(first);
+            catalog.add(movie);
+            subscribers.add(new Subscriber("subscriber" + i,"password1","Name","Surname"));
+        }
+
+        HashSet<Content> decoded=BinaryCodec.decodeContent(BinaryCodec.encodeContent(catalog));
+        assertEquals(catalog,decoded);
+        Content decodedFirst=decoded.stream().filter(first::equals).findFirst().orElseThrow();
+        for (Content content1 : decoded)
+        {
+            //related content is shared across chunks
+            assertSame(decodedFirst,content1.getRelatedContent().iterator().next());
+        }
+
+        assertEquals(subscribers,BinaryCodec.decodeUsers(BinaryCodec.encodeUsers(subscribers)));
+    }
+
+    @Test
+    public void chunksAreHandedOverAsTheyAreDecoded() throws IOException
+    {
+        ArrayList<Content> catalog=new ArrayList<>();
+        Movie last=new Movie("Last movie","Synopsis","Yes","Drama","Someone",2000,90);
+        for (int i=0;i<BinaryCodec.CHUNK_SIZE*2+9;i++)
+        {
+            Movie movie=new Movie("Movie " + i,"Synopsis","Yes","Drama","Someone",2000,90);
+            movie.addToRelatedContent(last);
+            catalog.add(movie);
+        }
+        catalog.add(last);
+
+        ArrayList<Integer> chunkSizes=new ArrayList<>();
+        ArrayList<Content> decoded=new ArrayList<>();
+        ArrayList<Content> relatedToFirst=new ArrayList<>();
+        BinaryCodec.decodeContent(ByteBuffer.wrap(BinaryCodec.encodeContent(catalog)),(id,username) -> null,true,chunk -> {
+            if(decoded.isEmpty())
+            {
+                //details of the first chunk can refer to content in chunks that are still being decoded
+                relatedToFirst.addAll(chunk.get(0).getRelatedContent());
+            }
+            chunkSizes.add(chunk.size());
+            decoded.addAll(chunk);
+        });
+        assertEquals(List.of(BinaryCodec.CHUNK_SIZE,BinaryCodec.CHUNK_SIZE,10),chunkSizes);
+        assertEquals(catalog,decoded);
+        assertSame(decoded.get(decoded.size()-1),relatedToFirst.get(0));
+    }
+
+    @Test
+    public void encodeAndDecodeSegments() throws IOException
+    {
+        List<List<String>> removedKeys=List.of(Arrays.asList("Removed","Someone"));
+        BinaryCodec.Segment<Content> contentSegment=BinaryCodec.decodeContentSegment(
+                ByteBuffer.wrap(BinaryCodec.encodeContentSegment(List.of(poorThings),removedKeys)),(id,username) -> null);
+        assertEquals(List.of(poorThings),contentSegment.getChanged());
+        assertEquals(removedKeys,contentSegment.getRemovedKeys());
+        assertEquals(2,contentSegment.getChanged().get(0).getReviews().size());
+        assertFalse(contentSegment.getChanged().get(0).isDirty());
+
+        BinaryCodec.Segment<User> userSegment=BinaryCodec.decodeUserSegment(
+                ByteBuffer.wrap(BinaryCodec.encodeUserSegment(List.of(subscriber),List.of("admin1"))));
+        assertEquals(List.of(subscriber),userSegment.getChanged());
+        assertEquals(List.of(List.of("admin1")),userSegment.getRemovedKeys());
+        assertFalse(userSegment.getChanged().get(0).isDirty());
+    }
+
+    @Test
+    public void encodeAndDecodeUsers() throws IOException
+    {
+        HashSet<User> decoded=BinaryCodec.decodeUsers(BinaryCodec.encodeUsers(users));
+        assertEquals(users,decoded);
+
+        for (User user : decoded)
+        {
+            assertTrue(user.validatePassword("password1"));
+            if(user instanceof Subscriber subscriber1)
+            {
+                assertEquals("Γιάννης",subscriber1.getName());
+                assertEquals(1,subscriber1.getFavorites().size());
+                Content favorite=subscriber1.getFavorites().iterator().next();
+                assertEquals(poorThings.getTitle(),favorite.getTitle());
+            }
+            else
+            {
+                assertTrue(user instanceof Admin);
+            }
+        }
+    }
+
+    @Test
+    public void encodingIsSmallerThanSerialization() throws IOException
+    {
+        ByteArrayOutputStream serialized=new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(serialized))
+        {
+            for (Content content1 : content)
+            {
+                oos.writeObject(content1);
+            }
+        }
+        assertTrue(BinaryCodec.encodeContent(content).length*4<serialized.size());
+    }
+
+    @Test
+    public void damagedEncodingIsRejected()
+    {
+        byte[] bytes=BinaryCodec.encodeContent(content);
+        for (int length : new int[]{0,1,bytes.length/2,bytes.length-1})
+        {
+            try
+            {
+                BinaryCodec.decodeContent(Arrays.copyOf(bytes,length));
+                fail("Truncated encoding of length " + length + " was decoded");
+            }
+            catch (IOException e)
+            {
+                //expected
+            }
+        }
+
+        bytes[0]=(byte) (BinaryCodec.VERSION+1);
+        try
+        {
+            BinaryCodec.decodeUsers(bytes);
+            fail("Unknown version was decoded");
+        }
+        catch (IOException e)
+        {
+            //expected
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class Bm25ScorerTest
+{
+    private TermStatistics statistics;
+    private Movie darkKnight,darkWaters,knightAndDay;
+    private Series dark;
+    private Content documentary;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        statistics=new TermStatistics();
+        darkKnight=new Movie("The Dark Knight","Synopsis","Yes","Action","Christian Bale, Heath Ledger",2008,152);
+        darkWaters=new Movie("Dark Waters","Synopsis","Yes","Drama","Mark Ruffalo, Anne Hathaway",2019,126);
+        knightAndDay=new Movie("Knight and Day","Synopsis","Yes","Action","Tom Cruise, Cameron Diaz",2010,109);
+        dark=new Series("Dark","Synopsis","No","Science fiction","Louis Hofmann, Karoline Eichhorn",new ArrayList<>());
+        documentary=new Content("Behind the Scenes","Christian Dark");
+        for (Content content1 : new Content[]{darkKnight,darkWaters,knightAndDay,dark,documentary})
+        {
+            statistics.add(content1);
+        }
+    }
+
+    @Test
+    public void statistics()
+    {
+        assertEquals(5,statistics.size());
+        assertEquals(3,statistics.documentFrequency("dark",TermStatistics.TITLE));
+        assertEquals(1,statistics.documentFrequency("dark",TermStatistics.PEOPLE_INVOLVED));
+        assertEquals(2,statistics.documentFrequency("action",TermStatistics.GENRE));
+        assertEquals(0,statistics.documentFrequency("comedy",TermStatistics.GENRE));
+        assertEquals(4,statistics.documentFrequency("dark"));
+        assertEquals(12/5.0,statistics.averageLength(TermStatistics.TITLE),1e-9);
+
+        darkWaters.setTitle("Erin Brockovich");
+        statistics.add(darkWaters);
+        assertEquals(2,statistics.documentFrequency("dark",TermStatistics.TITLE));
+        statistics.remove(dark);
+        assertEquals(1,statistics.documentFrequency("dark",TermStatistics.TITLE));
+        assertEquals(2,statistics.documentFrequency("dark"));
+        assertEquals(4,statistics.size());
+        statistics.clear();
+        assertEquals(0,statistics.documentFrequency("dark"));
+        assertEquals(0,statistics.averageLength(TermStatistics.TITLE),0);
+    }
+
+    @Test
+    public void termsOfSeveralFieldsAreRemoved()
+    {
+        Movie jordan=new Movie("Michael Jordan","Synopsis","Yes","Documentary","Michael Jordan",2020,100);
+        statistics.add(jordan);
+        assertEquals(1,statistics.documentFrequency("jordan"));
+        assertEquals(1,statistics.documentFrequency("jordan",TermStatistics.PEOPLE_INVOLVED));
+
+        statistics.remove(jordan);
+        assertEquals(0,statistics.documentFrequency("jordan"));
+        assertEquals(0,statistics.documentFrequency("michael",TermStatistics.PEOPLE_INVOLVED));
+        assertEquals(5,statistics.size());
+        statistics.add(jordan);
+        assertEquals(1,statistics.documentFrequency("michael",TermStatistics.TITLE));
+    }
+
+    @Test
+    public void fieldsAreBoosted()
+    {
+        Bm25Scorer scorer=new Bm25Scorer(statistics,List.of("dark"));
+        //The title counts more than the people involved, which count more than the genre
+        assertTrue(scorer.score(darkWaters)>scorer.score(documentary));
+        assertEquals(0,scorer.score(knightAndDay),0);
+
+        Bm25Scorer genreScorer=new Bm25Scorer(statistics,List.of("action"));
+        Bm25Scorer peopleScorer=new Bm25Scorer(statistics,List.of("bale"));
+        assertTrue(genreScorer.score(darkKnight)>0);
+        assertTrue(peopleScorer.score(darkKnight)>genreScorer.score(darkKnight));
+    }
+
+    @Test
+    public void rareWordsAndShortFieldsScoreHigher()
+    {
+        Bm25Scorer scorer=new Bm25Scorer(statistics,List.of("dark","knight"));
+        //Both words beat one of them, and the rarer word beats the more common one
+        assertTrue(scorer.score(darkKnight)>scorer.score(knightAndDay));
+        assertTrue(scorer.score(knightAndDay)>scorer.score(darkWaters));
+        //A shorter title with the word beats a longer one
+        assertTrue(scorer.score(dark)>scorer.score(darkWaters));
+        //Repeated words of the search are scored once
+        assertEquals(scorer.score(darkKnight),new Bm25Scorer(statistics,List.of("dark","knight","dark")).score(darkKnight),0);
+        assertEquals(0,new Bm25Scorer(statistics,List.of()).score(darkKnight),0);
+    }
+}
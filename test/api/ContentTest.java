@@ -11,16 +11,17 @@ import static org.junit.Assert.*;
 
 public class ContentTest
 {
-    private Content content;
+    private Content content,related1,related2;
+    private User reviewer1,reviewer2;
 
     @Before
     public void setUp() throws Exception
     {
-        content = new Content("Title", "Director",
-                new Content("Related Content 1", "Actor 1"),
-                new Content("Related Content 2", "Actor 2"));
-        User reviewer1 = new User("user1", "password1","Name1","Surname1");
-        User reviewer2 = new User("user2", "password2","Name2","Surname2");
+        related1=new Content("Related Content 1", "Actor 1");
+        related2=new Content("Related Content 2", "Actor 2");
+        content = new Content("Title", "Director",related1,related2);
+        reviewer1 = new User("user1", "password1","Name1","Surname1");
+        reviewer2 = new User("user2", "password2","Name2","Surname2");
 
         content.addToReviews(
                 new Review(5, "Great movie!", reviewer1),
@@ -34,6 +35,20 @@ public class ContentTest
         assertEquals("Title", content.getTitle());
     }
 
+    @Test
+    public void searchKeysFollowEdits()
+    {
+        assertEquals("title",content.getTitleKey());
+        assertEquals("director",content.getPeopleInvolvedKey());
+        assertEquals("classapi.content",content.getCategoryKey());
+
+        content.setTitle("The  Second\tTitle");
+        assertEquals("thesecondtitle",content.getTitleKey());
+        content.edit("Other Title","Some Director");
+        assertEquals("othertitle",content.getTitleKey());
+        assertEquals("somedirector",content.getPeopleInvolvedKey());
+    }
+
     @Test
     public void getPeopleInvolved()
     {
@@ -44,8 +59,8 @@ public class ContentTest
     public void getRelatedContent()
     {
         HashSet<Content> relatedContent=new HashSet<>();
-        relatedContent.add(new Content("Related Content 1", "Actor 1"));
-        relatedContent.add(new Content("Related Content 2", "Actor 2"));
+        relatedContent.add(related1);
+        relatedContent.add(related2);
         assertTrue(content.getRelatedContent().containsAll(relatedContent));
         assertTrue(relatedContent.containsAll(content.getRelatedContent()));
     }
@@ -55,8 +70,6 @@ public class ContentTest
     {
         HashMap<User,Review> reviewers= content.getReviews();
         assertEquals(2, reviewers.size());
-        User reviewer1 = new User("user1", "password1","Name1","Surname1");
-        User reviewer2 = new User("user2", "password2","Name2","Surname2");
         Review review1=new Review(5, "Great movie!", reviewer1);
         Review review2=new Review(4, "Not bad", reviewer2);
         assertTrue(content.getReviews().containsKey(reviewer1));
@@ -81,11 +94,10 @@ public class ContentTest
     @Test
     public void  equals()
     {
-        Content sameContent = new Content("Title", "Director",
-                new Content("Related Content 1", "Actor 1"),
-                new Content("Related Content 2", "Actor 2"));
+        Content sameContent = new Content("Another Title","Director1");
+        sameContent.restoreId(content.getId());
 
-        Content differentContent=new Content("Another Title","Director1");
+        Content differentContent=new Content("Title", "Director",related1,related2);
         assertEquals(content, sameContent);
         assertNotEquals(content, differentContent);
     }
@@ -94,13 +106,11 @@ public class ContentTest
     @Test
     public void testHashCode()
     {
-        Content sameContent = new Content("Title", "Director",
-                new Content("Related Content 1", "Actor 1"),
-                new Content("Related Content 2", "Actor 2"));
+        int hashCode=content.hashCode();
+        content.edit("Another Title","Director1");
+        assertEquals(hashCode, content.hashCode());
 
-        assertEquals(content.hashCode(), sameContent.hashCode());
-
-        Content differentContent=new Content("Another Title","Director1");
+        Content differentContent=new Content("Title","Director");
         assertNotEquals(content.hashCode(),differentContent.hashCode());
     }
 
@@ -172,4 +182,20 @@ public class ContentTest
         assertTrue(newRelatedContent.containsAll(content.getRelatedContent()));
     }
 
+    @Test
+    public void editingReviewMakesContentDirty()
+    {
+        content.clearDirty();
+        assertFalse(content.isDirty());
+
+        content.getReviews().values().iterator().next().setText("Edited");
+        assertTrue(content.isDirty());
+
+        content.clearDirty();
+        content.removeFromRelatedContent(new Content("Not related","Nobody"));
+        assertFalse(content.isDirty());
+        content.deleteRelatedContent();
+        assertTrue(content.isDirty());
+    }
+
 }
\ No newline at end of file
@@ -5,7 +5,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -158,6 +164,29 @@ public class DataBaseTest
     }
 
 
+    @Test
+    public void getByIdAfterEditAndReload()
+    {
+        assertSame(poorThings,dataBase.getContentById(poorThings.getId()));
+        assertSame(subscriber1,dataBase.getUserById(subscriber1.getId()));
+
+        long id=poorThings.getId();
+        poorThings.setTitle("Poor Things (Director's Cut)");
+        dataBase.editFiles();
+        assertSame(poorThings,dataBase.getContentById(id));
+
+        DataBase restored=new DataBase("testContent.dat","testUsers.dat");
+        assertEquals("Poor Things (Director's Cut)",restored.getContentById(id).getTitle());
+        assertEquals("subscriber1",restored.getUserById(subscriber1.getId()).getUsername());
+
+        dataBase.removeFromContent(poorThings);
+        dataBase.removeFromUsers(subscriber1);
+        assertNull(dataBase.getContentById(id));
+        assertNull(dataBase.getUserById(subscriber1.getId()));
+        dataBase.deleteAllContent();
+        assertNull(dataBase.getContentById(talkToMe.getId()));
+    }
+
     @Test
     public void removeFromContent()
     {
@@ -170,6 +199,14 @@ public class DataBaseTest
         assertFalse(dataBase.getContent().contains(poorThings));
         assertFalse(dataBase.getViewableContent().contains(poorThings));
         assertFalse(dataBase.getMovies().contains(poorThings));
+
+        //A word of both the title and the people involved is counted out of the search index once
+        Movie jordan=new Movie("Michael Jordan","Synopsis","Yes","Drama","Michael Jordan",2020,100);
+        dataBase.addToContent(jordan);
+        assertEquals(List.of(jordan),dataBase.search(SearchQuery.builder().text("jordan").build()));
+        dataBase.removeFromContent(jordan);
+        assertFalse(dataBase.getContent().contains(jordan));
+        assertTrue(dataBase.search(SearchQuery.builder().text("jordan").build()).isEmpty());
     }
 
     @Test
@@ -200,6 +237,33 @@ public class DataBaseTest
         assertFalse(dataBase.getContent().contains(talkToMe));
     }
 
+    @Test
+    public void referrersAddedLaterAreUnlinked()
+    {
+        //The first removal builds the index of referrers, which is then kept up to date by the edits
+        dataBase.removeFromContent(content2);
+
+        content1.addToRelatedContent(poorThings);
+        dataBase.editContent(content1);
+        subscriber2.addToFavorites(talkToMe);
+        dataBase.editUsers(subscriber2);
+        Subscriber subscriber3=new Subscriber("subscriber3","password3","Name3","Surname3");
+        subscriber3.addToFavorites(poorThings);
+        dataBase.addToUsers(subscriber3);
+
+        dataBase.deleteAllMovies();
+        assertFalse(content1.getRelatedContent().contains(poorThings));
+        assertFalse(subscriber2.getFavorites().contains(talkToMe));
+        assertFalse(subscriber3.getFavorites().contains(poorThings));
+
+        dataBase.editFiles();
+        content1.addToRelatedContent(breakingBad);
+        subscriber3.addToFavorites(breakingBad);
+        dataBase.removeFromContent(breakingBad);
+        assertFalse(content1.getRelatedContent().contains(breakingBad));
+        assertFalse(subscriber3.getFavorites().contains(breakingBad));
+    }
+
     @Test
     public void deleteAllSeries()
     {
@@ -245,11 +309,377 @@ public class DataBaseTest
         assertFalse(dataBase.getUsers().contains(subscriber1));
         assertFalse(dataBase.getUsers().contains(subscriber2));
         assertTrue(dataBase.getSubscribers().isEmpty());
+        assertTrue(content1.getReviews().isEmpty());
+    }
+
+    @Test
+    public void searchContentFollowsChanges()
+    {
+        assertTrue(dataBase.searchContent("emmastone").contains(poorThings));
+
+        Movie barbie=new Movie("Barbie","Synopsis","Yes","Comedy","Margot Robbie, Ryan Gosling",2023,114);
+        dataBase.addToContent(barbie);
+        assertEquals(1,dataBase.searchContent("Margot").size());
+
+        dataBase.removeFromContent(poorThings);
+        assertFalse(dataBase.searchContent("emmastone").contains(poorThings));
+
+        barbie.setTitle("Oppenheimer");
+        dataBase.editFiles();
+        assertTrue(dataBase.searchContent("barbie").isEmpty());
+        assertTrue(dataBase.searchContent("oppenheimer").contains(barbie));
+
+        dataBase.deleteAllMovies();
+        assertTrue(dataBase.searchContent("oppenheimer").isEmpty());
+        assertEquals(dataBase.getContent().size(),dataBase.searchContent("").size());
+    }
+
+    @Test
+    public void searchCacheFollowsChanges()
+    {
+        SearchQuery topRated=SearchQuery.builder().minRating(4).build();
+        long misses=dataBase.getSearchCacheMisses();
+        assertEquals(1,dataBase.search(topRated).size());
+        assertEquals(1,dataBase.search(topRated).size());
+        assertEquals(misses+1,dataBase.getSearchCacheMisses());
+        assertEquals(1,dataBase.getSearchCacheHits());
+
+        //A changed review is a change of the content
+        poorThings.addToReviews(new Review(5,"Great",subscriber1));
+        dataBase.editContent(poorThings);
+        assertEquals(2,dataBase.search(topRated).size());
+        assertEquals(misses+2,dataBase.getSearchCacheMisses());
+
+        //Changes to users that don't affect content keep the results
+        dataBase.addToUsers(new Subscriber("subscriber3","password3","Name3","Surname3"));
+        assertEquals(2,dataBase.search(topRated).size());
+        assertEquals(2,dataBase.getSearchCacheHits());
+
+        dataBase.removeFromUsers(subscriber1);
+        assertEquals(1,dataBase.search(topRated).size());
+        dataBase.removeFromContent(content1);
+        assertTrue(dataBase.search(topRated).isEmpty());
+        assertEquals(misses+4,dataBase.getSearchCacheMisses());
+
+        //The results that are returned are copies
+        dataBase.search(topRated).add(content1);
+        assertTrue(dataBase.search(topRated).isEmpty());
+    }
+
+    @Test
+    public void spellingsOfATitleAreCachedApart()
+    {
+        //Without the words of the text, the titles are ranked by their IDs
+        Content badlands=new Content("Breaking Badlands 5","Director");
+        badlands.restoreId(Long.MIN_VALUE);
+        dataBase.addToContent(badlands);
+        assertEquals("Breaking Badlands 5",dataBase.searchContent("breakingbad").get(0).getTitle());
+        long misses=dataBase.getSearchCacheMisses();
+        assertEquals("Breaking Bad",dataBase.searchContent("breaking bad").get(0).getTitle());
+        assertEquals(misses+1,dataBase.getSearchCacheMisses());
+    }
+
+    @Test
+    public void suggestionsFollowRatings()
+    {
+        assertEquals("Title",dataBase.suggest("t",10).get(0));
+        assertTrue(dataBase.suggest("T",10).containsAll(List.of("Talk to Me","Tom Wilkinson")));
+        assertEquals(List.of("Breaking Bad","Bryan Cranston"),dataBase.suggest("b r",10));
+        assertEquals(1,dataBase.suggest("t",1).size());
+        assertTrue(dataBase.suggest("",10).isEmpty());
+        assertTrue(dataBase.suggest("xyz",10).isEmpty());
+
+        talkToMe.addToReviews(new Review(5,"Scary",subscriber1));
+        dataBase.editContent(talkToMe);
+        assertEquals(List.of("Talk to Me","Title"),dataBase.suggest("t",2));
+
+        //The reviews of removed users are removed too
+        dataBase.removeFromUsers(subscriber1);
+        assertEquals("Title",dataBase.suggest("t",10).get(0));
+        dataBase.removeFromContent(content1);
+        assertFalse(dataBase.suggest("t",10).contains("Title"));
+    }
+
+    @Test
+    public void searchIndexedInTheBackgroundFollowsChanges()
+    {
+        dataBase.indexSearchInBackground();
+        Content background=new Content("Background","Director");
+        dataBase.addToContent(background);
+        dataBase.removeFromContent(content1);
+        talkToMe.addToReviews(new Review(5,"Scary",subscriber1));
+        dataBase.editContent(talkToMe);
+        dataBase.indexSearchInBackground();
+
+        assertEquals(List.of("Talk to Me"),dataBase.suggest("t",1));
+        assertFalse(dataBase.suggest("t",10).contains("Title"));
+        assertEquals(List.of(background),dataBase.searchContent("background"));
+        assertFalse(dataBase.searchContent("title").contains(content1));
+        assertEquals(dataBase.getContent().size(),dataBase.searchContent("").size());
+
+        //Indexes that were built aren't built again
+        dataBase.indexSearchInBackground();
+        dataBase.removeFromContent(background);
+        assertTrue(dataBase.searchContent("background").isEmpty());
+    }
+
+    @Test
+    public void facetsFollowReviews()
+    {
+        SearchQuery query=SearchQuery.builder().genre("Horror").build();
+        SearchFacets facets=dataBase.facets(query);
+        assertEquals(dataBase.search(query).size(),facets.getTotal());
+        int rated=facets.getMinRatingCounts().get(5);
+        assertEquals(dataBase.search(SearchQuery.builder().genre("Horror").minRating(5).build()).size(),rated);
+        assertEquals(Integer.valueOf(dataBase.search(SearchQuery.builder().genre("Drama").build()).size()),facets.getGenreCounts().get("Drama"));
+
+        talkToMe.addToReviews(new Review(5,"Scary",subscriber1));
+        dataBase.editContent(talkToMe);
+        assertEquals(Integer.valueOf(rated+1),dataBase.facets(query).getMinRatingCounts().get(5));
+        //The best rated content follows the reviews too
+        assertTrue(dataBase.search(SearchQuery.builder().genre("Horror").minRating(5).build()).contains(talkToMe));
+        assertTrue(dataBase.search(SearchQuery.builder().genre("Horror").ratingWeight(1).build(),0,rated+1)
+                .getResults().contains(talkToMe));
+        dataBase.removeFromContent(talkToMe);
+        assertEquals(Integer.valueOf(rated),dataBase.facets(query).getMinRatingCounts().get(5));
+        assertEquals(facets.getTotal()-1,dataBase.facets(query).getTotal());
+    }
+
+    @Test
+    public void getReviewsBy()
+    {
+        HashMap<Content,Review> reviews=dataBase.getReviewsBy(subscriber1);
+        assertEquals(1,reviews.size());
+        assertEquals(5,reviews.get(content1).getRating());
+
+        poorThings.addToReviews(new Review(3,"Odd",subscriber1));
+        dataBase.editContent(poorThings);
+        assertEquals(2,dataBase.getReviewsBy(subscriber1).size());
+
+        dataBase.removeFromContent(poorThings);
+        assertEquals(1,dataBase.getReviewsBy(subscriber1).size());
+
+        content1.removeFromReviews(content1.getReviews().get(subscriber1));
+        dataBase.editContent(content1);
+        assertTrue(dataBase.getReviewsBy(subscriber1).isEmpty());
+        assertEquals(1,dataBase.getReviewsBy(subscriber2).size());
+        assertTrue(dataBase.getReviewsBy(admin1).isEmpty());
+    }
+
+    @Test
+    public void renamedContentAndUsersKeepTheirReferences()
+    {
+        subscriber2.addToFavorites(content2);
+        dataBase.editUsers(subscriber2);
+        subscriber1.edit("renamed1","","Renamed","Subscriber",dataBase.getAuthentication());
+        dataBase.editUsers(subscriber1);
+        content2.edit("Renamed Title","Renamed Director");
+        dataBase.editContent(content2);
+        assertEquals(1,dataBase.getReviewsBy(subscriber1).size());
+        assertTrue(dataBase.getContent().contains(content2));
+
+        dataBase.removeFromUsers(subscriber1);
+        assertNull(content1.getReviews().get(subscriber1));
+        assertEquals(1,content1.getReviews().size());
+        dataBase.removeFromContent(content2);
+        assertFalse(content1.getRelatedContent().contains(content2));
+        assertTrue(subscriber2.getFavorites().isEmpty());
+
+        DataBase reloaded=new DataBase("testContent.dat","testUsers.dat");
+        assertNull(reloaded.getContentById(content2.getId()));
+        assertNull(reloaded.getUserById(subscriber1.getId()));
+        assertTrue(((Subscriber) reloaded.getUserById(subscriber2.getId())).getFavorites().isEmpty());
+        assertEquals(1,reloaded.getContentById(content1.getId()).getReviews().size());
+    }
+
+    @Test
+    public void removingManyUsersRemovesTheirReviews()
+    {
+        HashSet<User> churned=new HashSet<>();
+        for (int i=0;i<200;i++)
+        {
+            Subscriber subscriber=new Subscriber("churned"+i,"password","Name"+i,"Surname"+i);
+            dataBase.addToUsers(subscriber);
+            content2.addToReviews(new Review(1+i%5,"Review "+i,subscriber));
+            churned.add(subscriber);
+        }
+        dataBase.editContent(content2);
+        assertEquals(200,content2.getReviews().size());
+
+        dataBase.removeFromUsers(churned);
+        assertTrue(content2.getReviews().isEmpty());
+        assertEquals(2,content1.getReviews().size());
+        assertEquals(2,dataBase.getSubscribers().size());
+    }
+
+    @Test
+    public void editedKeysArePersisted()
+    {
+        talkToMe.edit("Talk to Me Again",talkToMe.getSynopsis(),"No","Horror","Sophie Wilde",2023,95);
+        dataBase.editContent(talkToMe);
+        assertEquals(8,dataBase.getContent().size());
+        assertTrue(dataBase.getMovies().contains(talkToMe));
+        assertEquals("Talk to Me Again",new DataBase("testContent.dat","testUsers.dat").getContentById(talkToMe.getId()).getTitle());
+
+        DataBase journaled=new DataBase("testContent.dat","testUsers.dat","testJournal.dat");
+        Content renamed=journaled.getContentById(talkToMe.getId());
+        ((Movie) renamed).edit("Talk to Me 3",talkToMe.getSynopsis(),"No","Horror","Sophie Wilde",2024,95);
+        journaled.editContent(renamed);
+        assertEquals(8,journaled.getContent().size());
+        assertTrue(journaled.getContent().contains(renamed));
+
+        //Renames are replayed from the journal, and written by the next checkpoint
+        DataBase restored=new DataBase("testContent.dat","testUsers.dat","testJournal.dat");
+        assertEquals(8,restored.getContent().size());
+        assertEquals("Talk to Me 3",restored.getContentById(talkToMe.getId()).getTitle());
+        restored.checkpoint();
+        DataBase checkpointed=new DataBase("testContent.dat","testUsers.dat");
+        assertEquals(8,checkpointed.getContent().size());
+        assertEquals(2024,((Movie) checkpointed.getContentById(talkToMe.getId())).getYearOfRelease());
+
+        journaled=new DataBase("testContent.dat","testUsers.dat","testJournal.dat");
+        User user=journaled.getUserById(subscriber2.getId());
+        user.edit("subscriber3","","Name3","Surname3",journaled.getAuthentication());
+        journaled.editUsers(user);
+        assertTrue(journaled.getSubscribers().contains(user));
+        assertEquals(4,journaled.getUsers().size());
+
+        restored=new DataBase("testContent.dat","testUsers.dat","testJournal.dat");
+        assertSame(restored.getUserById(subscriber2.getId()),restored.getAuthentication().get("subscriber3"));
+        assertNull(restored.getAuthentication().get("subscriber2"));
+        restored.checkpoint();
+        checkpointed=new DataBase("testContent.dat","testUsers.dat");
+        assertEquals(4,checkpointed.getUsers().size());
+        assertTrue(checkpointed.getAuthentication().containsKey("subscriber3"));
+        assertFalse(checkpointed.getAuthentication().containsKey("subscriber2"));
+    }
+
+    @Test
+    public void journaledDataBaseIsRestored()
+    {
+        DataBase journaled=new DataBase("testContent.dat","testUsers.dat","testJournal.dat");
+        assertTrue(journaled.isJournaled());
+        assertEquals(8,journaled.getContent().size());
+
+        journaled.removeFromContent(poorThings);
+        journaled.deleteAllSeries();
+        journaled.removeFromUsers(subscriber2);
+        content2.addToReviews(new Review(3,"Fine",subscriber1));
+        journaled.editContent(content2);
+        subscriber1.addToFavorites(talkToMe);
+        journaled.editUsers(subscriber1);
+
+        DataBase restored=new DataBase("testContent.dat","testUsers.dat","testJournal.dat");
+        assertEquals(6,restored.getContent().size());
+        assertFalse(restored.getContent().contains(poorThings));
+        assertTrue(restored.getSeries().isEmpty());
+        assertFalse(restored.getUsers().contains(subscriber2));
+        assertEquals(3,restored.getUsers().size());
+        for (Content content : restored.getContent())
+        {
+            if(content.equals(content2))
+            {
+                assertTrue(content.getReviews().containsKey(subscriber1));
+            }
+        }
+
+        //Edits are replayed into the stored content and users, which are still found by their IDs and searches
+        Content restoredContent2=restored.getContentById(content2.getId());
+        assertTrue(restoredContent2.getReviews().containsKey(subscriber1));
+        assertTrue(restored.getContent().stream().anyMatch(content -> content==restoredContent2));
+        assertTrue(restored.searchContent("Another Title").stream().anyMatch(content -> content==restoredContent2));
+        Subscriber restoredSubscriber1=(Subscriber) restored.getUserById(subscriber1.getId());
+        assertSame(restoredSubscriber1,restored.getAuthentication().get("subscriber1"));
+        assertTrue(restoredSubscriber1.getFavorites().stream().anyMatch(content -> content==restored.getContentById(talkToMe.getId())));
+        assertSame(restoredSubscriber1,restoredContent2.getReviews().get(subscriber1).getReviewer());
+
+        restored.checkpoint();
+        DataBase checkpointed=new DataBase("testContent.dat","testUsers.dat");
+        assertEquals(6,checkpointed.getContent().size());
+        assertEquals(3,checkpointed.getUsers().size());
+    }
+
+    @Test
+    public void checkpointOnlyWritesChanges() throws IOException
+    {
+        byte[] contentFile=Files.readAllBytes(Paths.get("testContent.dat"));
+        byte[] userFile=Files.readAllBytes(Paths.get("testUsers.dat"));
+
+        content2.addToReviews(new Review(3,"Fine",subscriber1));
+        dataBase.editContent(content2);
+        dataBase.removeFromContent(poorThings);
+
+        assertArrayEquals(contentFile,Files.readAllBytes(Paths.get("testContent.dat")));
+        assertArrayEquals(userFile,Files.readAllBytes(Paths.get("testUsers.dat")));
+        assertTrue(new File("testContent.dat.segments").exists());
+
+        DataBase restored=new DataBase("testContent.dat","testUsers.dat");
+        assertEquals(7,restored.getContent().size());
+        assertFalse(restored.getContent().contains(poorThings));
+        assertFalse(restored.getMovies().contains(poorThings));
+        for (Content content : restored.getContent())
+        {
+            if(content.equals(content2))
+            {
+                assertEquals(3,content.getReviews().get(subscriber1).getRating());
+                assertSame(restored.getAuthentication().get("subscriber1"),content.getReviews().get(subscriber1).getReviewer());
+            }
+        }
+    }
+
+    @Test
+    public void removedUsersAreRemovedFromSegments()
+    {
+        dataBase.removeFromUsers(subscriber2);
+
+        DataBase restored=new DataBase("testContent.dat","testUsers.dat");
+        assertEquals(3,restored.getUsers().size());
+        assertNull(restored.getAuthentication().get("subscriber2"));
+        for (Content content : restored.getContent())
+        {
+            if(content.equals(content1))
+            {
+                assertFalse(content.getReviews().containsKey(subscriber2));
+                assertTrue(content.getReviews().containsKey(subscriber1));
+            }
+        }
+    }
+
+    @Test
+    public void segmentsAreCompacted()
+    {
+        dataBase.setMaxSegments(1);
+        dataBase.editFiles();
+        assertFalse(new File("testUsers.dat.segments").exists());
+
+        content2.addToReviews(new Review(3,"Fine",subscriber1));
+        dataBase.editContent(content2);
+        assertTrue(new File("testContent.dat.segments").exists());
+
+        dataBase.removeFromContent(talkToMe);
+        assertFalse(new File("testContent.dat.segments").exists());
+        assertFalse(new File("testUsers.dat.segments").exists());
+
+        DataBase restored=new DataBase("testContent.dat","testUsers.dat");
+        assertEquals(7,restored.getContent().size());
+        assertFalse(restored.getContent().contains(talkToMe));
     }
 
     @After
     public void cleanup()
     {
+        try {
+            deleteFile("testContent.dat.segments");
+        } catch (RuntimeException e) {
+            System.out.println("RuntimeException: " + e.getMessage());
+        }
+
+        try {
+            deleteFile("testUsers.dat.segments");
+        } catch (RuntimeException e) {
+            System.out.println("RuntimeException: " + e.getMessage());
+        }
+
         try {
             deleteFile("testContent.dat");
         } catch (RuntimeException e) {
@@ -261,6 +691,24 @@ public class DataBaseTest
         } catch (RuntimeException e) {
             System.out.println("RuntimeException: " + e.getMessage());
         }
+
+        try {
+            deleteFile("testJournal.dat");
+        } catch (RuntimeException e) {
+            System.out.println("RuntimeException: " + e.getMessage());
+        }
+
+        try {
+            deleteFile("testContent.dat.prev");
+        } catch (RuntimeException e) {
+            System.out.println("RuntimeException: " + e.getMessage());
+        }
+
+        try {
+            deleteFile("testUsers.dat.prev");
+        } catch (RuntimeException e) {
+            System.out.println("RuntimeException: " + e.getMessage());
+        }
     }
 
     private void deleteFile(String filePath) throws RuntimeException
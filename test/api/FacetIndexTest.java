@@ -0,0 +1,133 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FacetIndexTest
+{
+    private FacetIndex facets;
+    private Movie movie;
+    private Series series;
+    private Content content;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        facets=new FacetIndex();
+        movie=new Movie("Movie1","Synopsis1","Yes","Action","Daniel Day-Lewis",2022,120);
+        series=new Series("Series1","Synopsis2","No","Drama","Viola Davis",new ArrayList<>());
+        content=new Content("Documentary","Director");
+        facets.add(movie);
+        facets.add(series);
+        facets.add(content);
+    }
+
+    @Test
+    public void ordinalsAreDense()
+    {
+        assertEquals(3,facets.size());
+        assertEquals(0,facets.ordinal(movie));
+        assertSame(series,facets.content(facets.ordinal(series)));
+        facets.add(movie);
+        assertEquals(0,facets.ordinal(movie));
+
+        facets.remove(series);
+        assertEquals(-1,facets.ordinal(series));
+        assertNull(facets.content(1));
+        Movie other=new Movie("Movie2","Synopsis","Yes","Comedy","Actor",2020,100);
+        facets.add(other);
+        assertEquals(1,facets.ordinal(other));
+        assertEquals(3,facets.size());
+
+        facets.clear();
+        assertEquals(0,facets.size());
+        assertTrue(facets.all().isEmpty());
+    }
+
+    @Test
+    public void filtersAreCombinedThroughPostings()
+    {
+        Subscriber reviewer=new Subscriber("reviewer","password","Name","Surname");
+        movie.addToReviews(new Review(4,"Review",reviewer));
+        series.addToReviews(new Review(2,"Review",reviewer));
+        facets.add(movie);
+        facets.add(series);
+
+        assertEquals(ordinals(movie,content),facets.matching(SearchQuery.builder().genre("Action").build().getFilters()));
+        assertEquals(ordinals(series),facets.matching(SearchQuery.builder().suitableForMinors(false).category(SearchQuery.Category.SERIES).build().getFilters()));
+        assertEquals(ordinals(movie),facets.matching(SearchQuery.builder().minRating(3.5).build().getFilters()));
+        assertEquals(ordinals(movie,series),facets.matching(SearchQuery.builder().minRating(0).build().getFilters()));
+        //Content that the category "content" accepts passes the filters that follow it
+        assertEquals(ordinals(content),facets.matching(SearchQuery.parse("category","content","min rating","3").getFilters()));
+        assertEquals(ordinals(),facets.matching(SearchQuery.parse("min rating","3","category","content").getFilters()));
+        assertEquals(ordinals(movie,series,content),facets.matching(List.of()));
+    }
+
+    @Test
+    public void matchingAgreesWithTheFilters()
+    {
+        Random random=new Random(23);
+        String[][] criteria={{"category","","movie","series","content","viewable content"},{"genre","","action","drama","comedy"},
+                {"suitable for minors","","yes","no"},{"min rating","","1","2.5","3","4","5"}};
+        facets.clear();
+        ArrayList<Content> catalog=new ArrayList<>();
+        for (int i=0;i<2000;i++)
+        {
+            int operation=catalog.isEmpty() ? 0 : random.nextInt(5);
+            if(operation<=2)
+            {
+                Content content1=TestCatalog.content(random,i);
+                catalog.add(content1);
+                facets.add(content1);
+            }
+            else if(operation==3)
+            {
+                Content content1=catalog.get(random.nextInt(catalog.size()));
+                content1.addToReviews(new Review(1+random.nextInt(5),"Review",new Subscriber("reviewer"+i,"password","Name","Surname")));
+                facets.add(content1);
+            }
+            else
+            {
+                facets.remove(catalog.remove(random.nextInt(catalog.size())));
+            }
+
+            if(i%20==0)
+            {
+                ArrayList<String> searchCriteria=new ArrayList<>();
+                for (int criterion : new int[]{random.nextInt(4),random.nextInt(4),random.nextInt(4)})
+                {
+                    searchCriteria.add(criteria[criterion][0]);
+                    searchCriteria.add(criteria[criterion][1+random.nextInt(criteria[criterion].length-1)]);
+                }
+                SearchQuery query=SearchQuery.parse(searchCriteria.toArray(new String[0]));
+                BitSet expected=new BitSet();
+                for (Content content1 : catalog)
+                {
+                    if(query.matchesFilters(content1))
+                    {
+                        expected.set(facets.ordinal(content1));
+                    }
+                }
+                assertEquals(searchCriteria.toString(),expected,facets.matching(query.getFilters()));
+                assertEquals(catalog.size(),facets.size());
+            }
+        }
+    }
+
+    private BitSet ordinals(Content...content)
+    {
+        BitSet ordinals=new BitSet();
+        for (Content content1 : content)
+        {
+            ordinals.set(facets.ordinal(content1));
+        }
+        return ordinals;
+    }
+}
@@ -5,7 +5,16 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -53,19 +62,275 @@ public class FileManagerTest
 
     }
 
-    @After
-    public void cleanup()
+    @Test
+    public void readContentFileLazily()
+    {
+        Subscriber subscriber=new Subscriber("subscriber1", "password1", "John", "Doe");
+        Movie poorThings=new Movie("Poor Things","Synopsis","No","Comedy","Emma Stone",2023,141);
+        Movie memento=new Movie("Memento","Synopsis","No","Drama","Guy Pearce",2000,113);
+        poorThings.addToRelatedContent(memento);
+        poorThings.addToReviews(new Review(4,"Good",subscriber));
+
+        HashSet<Content> testContent = new HashSet<>();
+        testContent.add(poorThings);
+        testContent.add(memento);
+        fileManager.writeContentFile(testContent);
+
+        HashSet<Content> readContent=new HashSet<>();
+        fileManager.readContentFile((id,username) -> subscriber,readContent::add);
+        for (Content content : readContent)
+        {
+            assertFalse(content.detailsLoaded());
+        }
+        assertEquals(testContent, readContent);
+        for (Content content : readContent)
+        {
+            if(content.equals(poorThings))
+            {
+                assertEquals(4.0,content.getAverageRating(),0.0);
+                assertSame(subscriber,content.getReviews().keySet().iterator().next());
+                assertTrue(readContent.stream().anyMatch(stored -> stored==content.getRelatedContent().iterator().next()));
+            }
+        }
+    }
+
+    @Test
+    public void damagedContentFileFallsBackToPreviousSnapshot() throws IOException
+    {
+        HashSet<Content> firstSnapshot = new HashSet<>();
+        firstSnapshot.add(new Movie("Poor Things","Synopsis","No","Comedy","Emma Stone",2023,141));
+        fileManager.writeContentFile(firstSnapshot);
+
+        HashSet<Content> secondSnapshot = new HashSet<>(firstSnapshot);
+        secondSnapshot.add(new Movie("Memento","Synopsis","No","Drama","Guy Pearce",2000,113));
+        fileManager.writeContentFile(secondSnapshot);
+        assertEquals(secondSnapshot, fileManager.readContentFile());
+
+        try (RandomAccessFile file = new RandomAccessFile(contentFilePath,"rw"))
+        {
+            file.seek(file.length()/2);
+            file.write(file.read()^0xFF);
+        }
+        assertEquals(firstSnapshot, fileManager.readContentFile());
+
+        try (RandomAccessFile file = new RandomAccessFile(contentFilePath,"rw"))
+        {
+            file.setLength(file.length()-4);
+        }
+        assertEquals(firstSnapshot, fileManager.readContentFile());
+    }
+
+    @Test
+    public void lazilyReadBlocksAreVerifiedWhenDecoded() throws IOException
+    {
+        Subscriber subscriber=new Subscriber("subscriber1", "password1", "John", "Doe");
+        HashSet<Content> testContent = new HashSet<>();
+        for (int i=0;i<1000;i++)
+        {
+            Movie movie=new Movie("Movie " + i,"Synopsis","No","Comedy","Someone",2023,141);
+            movie.addToReviews(new Review(4,"A review long enough for the details to fill more than one block of the file".repeat(2),subscriber));
+            testContent.add(movie);
+        }
+        fileManager.writeContentFile(testContent);
+        fileManager.writeContentFile(testContent);
+
+        //The last block only holds details, which are only verified when they are decoded
+        try (RandomAccessFile file = new RandomAccessFile(contentFilePath,"rw"))
+        {
+            file.seek(file.length()-1);
+            int last=file.read();
+            file.seek(file.length()-1);
+            file.write(last^0xFF);
+        }
+        HashSet<Content> readContent=new HashSet<>();
+        fileManager.readContentFile((id,username) -> subscriber,readContent::add);
+        assertEquals(testContent, readContent);
+        long withoutReviews=readContent.stream().filter(content -> content.getReviews().isEmpty()).count();
+        assertTrue(withoutReviews>0 && withoutReviews<readContent.size()/2);
+
+        //Content that is read at once is verified at once
+        assertTrue(fileManager.readContentFile().stream().noneMatch(content -> content.getReviews().isEmpty()));
+    }
+
+    @Test
+    public void missingContentFileFallsBackToPreviousSnapshot()
+    {
+        HashSet<Content> testContent = new HashSet<>();
+        testContent.add(new Movie("Poor Things","Synopsis","No","Comedy","Emma Stone",2023,141));
+        fileManager.writeContentFile(testContent);
+        fileManager.writeContentFile(testContent);
+
+        deleteFile(contentFilePath);
+        assertTrue(fileManager.contentFileExists());
+        assertEquals(testContent, fileManager.readContentFile());
+    }
+
+    @Test
+    public void readUnchecksummedUserFile() throws IOException
+    {
+        Subscriber subscriber=new Subscriber("subscriber1", "password1", "John", "Doe");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(usersFilePath)))
+        {
+            oos.writeObject(subscriber);
+        }
+
+        HashSet<User> readUsers = fileManager.readUserFile();
+        assertEquals(1, readUsers.size());
+        assertTrue(readUsers.contains(subscriber));
+    }
+
+    @Test
+    public void migrateSerializedFiles() throws IOException
+    {
+        Movie poorThings=new Movie("Poor Things","Synopsis","No","Comedy","Emma Stone",2023,141);
+        Subscriber subscriber=new Subscriber("subscriber1", "password1", "John", "Doe");
+        poorThings.addToReviews(new Review(4,"Good",subscriber));
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(contentFilePath)))
+        {
+            oos.writeObject(poorThings);
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(usersFilePath)))
+        {
+            oos.writeObject(subscriber);
+        }
+        long serializedLength=new File(contentFilePath).length();
+
+        assertTrue(fileManager.migrateFiles());
+        assertFalse(fileManager.migrateFiles());
+        assertTrue(new File(contentFilePath).length()<serializedLength);
+
+        HashSet<Content> readContent=fileManager.readContentFile();
+        assertTrue(readContent.contains(poorThings));
+        assertEquals(4.0,readContent.iterator().next().getAverageRating(),0.0);
+        assertTrue(fileManager.readUserFile().contains(subscriber));
+    }
+
+    @Test
+    public void segmentsAreReadUntilNextSnapshot()
+    {
+        Movie poorThings=new Movie("Poor Things","The incredible tale about the fantastical evolution of Bella Baxter.","No","Comedy","Emma Stone, Mark Ruffalo, William Dafoe",2023,141);
+        HashSet<Content> testContent=new HashSet<>();
+        testContent.add(poorThings);
+        fileManager.writeContentFile(testContent);
+
+        Content added=new Content("Added","Someone");
+        fileManager.appendContentSegment(BinaryCodec.encodeContentSegment(List.of(added),List.of()));
+        fileManager.appendContentSegment(BinaryCodec.encodeContentSegment(List.of(),List.of(Arrays.asList("Poor Things","Emma Stone, Mark Ruffalo, William Dafoe"))));
+
+        List<BinaryCodec.Segment<Content>> segments=fileManager.readContentSegments((id,username) -> null);
+        assertEquals(2,segments.size());
+        assertEquals(List.of(added),segments.get(0).getChanged());
+        assertEquals(1,segments.get(1).getRemovedKeys().size());
+
+        //A new snapshot discards the segments, and segments of another snapshot are never read
+        fileManager.writeContentFile(testContent);
+        assertFalse(new File(contentFilePath+".segments").exists());
+        assertTrue(fileManager.readContentSegments((id,username) -> null).isEmpty());
+    }
+
+    @Test
+    public void interruptedSnapshotKeepsSegments() throws IOException
+    {
+        HashSet<Content> testContent=new HashSet<>();
+        testContent.add(new Movie("Poor Things","Synopsis","No","Comedy","Emma Stone",2023,141));
+        fileManager.writeContentFile(testContent);
+        Content added=new Content("Added","Someone");
+        fileManager.appendContentSegment(BinaryCodec.encodeContentSegment(List.of(added),List.of()));
+
+        //The next snapshot was written and the current one kept as the previous one, but the new one wasn't renamed
+        Files.copy(Paths.get(contentFilePath),Paths.get(contentFilePath+".prev"));
+        try (FileOutputStream temporary = new FileOutputStream(contentFilePath+".tmp"))
+        {
+            temporary.write(new byte[]{1,2,3});
+        }
+
+        assertEquals(testContent,fileManager.readContentFile());
+        List<BinaryCodec.Segment<Content>> segments=fileManager.readContentSegments((id,username) -> null);
+        assertEquals(1,segments.size());
+        assertEquals(List.of(added),segments.get(0).getChanged());
+
+        testContent.add(added);
+        fileManager.writeContentFile(testContent);
+        assertEquals(testContent,fileManager.readContentFile());
+        assertTrue(fileManager.readContentSegments((id,username) -> null).isEmpty());
+        assertFalse(new File(contentFilePath+".tmp").exists());
+    }
+
+    @Test
+    public void onlySegmentsOfTheSnapshotThatWasReadAreRead() throws IOException
+    {
+        HashSet<Content> firstSnapshot=new HashSet<>();
+        firstSnapshot.add(new Movie("Poor Things","Synopsis","No","Comedy","Emma Stone",2023,141));
+        fileManager.writeContentFile(firstSnapshot);
+        HashSet<Content> secondSnapshot=new HashSet<>(firstSnapshot);
+        secondSnapshot.add(new Movie("Memento","Synopsis","No","Drama","Guy Pearce",2000,113));
+        fileManager.writeContentFile(secondSnapshot);
+        fileManager.appendContentSegment(BinaryCodec.encodeContentSegment(List.of(new Content("Added","Someone")),List.of()));
+
+        //The objects of the current snapshot are damaged, but its header and checksums, its identity, aren't
+        try (RandomAccessFile file = new RandomAccessFile(contentFilePath,"rw"))
+        {
+            file.seek(file.length()-1);
+            int last=file.read();
+            file.seek(file.length()-1);
+            file.write(last^0xFF);
+        }
+        assertFalse(fileManager.isPreviousSnapshotRead());
+        assertEquals(firstSnapshot,fileManager.readContentFile());
+        assertTrue(fileManager.isPreviousSnapshotRead());
+        assertTrue(fileManager.readContentSegments((id,username) -> null).isEmpty());
+
+        //Segments that belong to the previous snapshot are read along with it
+        fileManager.writeContentFile(firstSnapshot);
+        assertFalse(fileManager.isPreviousSnapshotRead());
+        Content added=new Content("Added","Someone");
+        fileManager.appendContentSegment(BinaryCodec.encodeContentSegment(List.of(added),List.of()));
+        Files.copy(Paths.get(contentFilePath),Paths.get(contentFilePath+".prev"),StandardCopyOption.REPLACE_EXISTING);
+        try (FileOutputStream current = new FileOutputStream(contentFilePath))
+        {
+            current.write(new byte[]{1,2,3});
+        }
+        assertEquals(firstSnapshot,fileManager.readContentFile());
+        assertEquals(List.of(added),fileManager.readContentSegments((id,username) -> null).get(0).getChanged());
+    }
+
+    @Test
+    public void incompleteSegmentIsIgnored() throws IOException
     {
-        try {
-            deleteFile(contentFilePath);
-        } catch (RuntimeException e) {
-            System.out.println("RuntimeException: " + e.getMessage());
+        HashSet<User> testUsers=new HashSet<>();
+        testUsers.add(new Subscriber("subscriber1","password1","John","Doe"));
+        fileManager.writeUserFile(testUsers);
+
+        Admin admin=new Admin("admin1","password1","Bob","Vance");
+        fileManager.appendUserSegment(BinaryCodec.encodeUserSegment(List.of(admin),List.of()));
+        long validLength=new File(usersFilePath+".segments").length();
+        fileManager.appendUserSegment(BinaryCodec.encodeUserSegment(List.of(),List.of("subscriber1")));
+        try (RandomAccessFile file = new RandomAccessFile(usersFilePath+".segments","rw"))
+        {
+            file.setLength(file.length()-3);
         }
 
-        try {
-            deleteFile(usersFilePath);
-        } catch (RuntimeException e) {
-            System.out.println("RuntimeException: " + e.getMessage());
+        List<BinaryCodec.Segment<User>> segments=fileManager.readUserSegments();
+        assertEquals(1,segments.size());
+        assertEquals(List.of(admin),segments.get(0).getChanged());
+
+        //The incomplete segment is cut off before the next one is appended
+        fileManager.appendUserSegment(BinaryCodec.encodeUserSegment(List.of(),List.of("admin1")));
+        assertTrue(new File(usersFilePath+".segments").length()>validLength);
+        assertEquals(2,fileManager.readUserSegments().size());
+    }
+
+    @After
+    public void cleanup()
+    {
+        for (String filePath : new String[]{contentFilePath, usersFilePath, contentFilePath + ".prev", usersFilePath + ".prev",
+                contentFilePath + ".segments", usersFilePath + ".segments", contentFilePath + ".tmp"})
+        {
+            try {
+                deleteFile(filePath);
+            } catch (RuntimeException e) {
+                System.out.println("RuntimeException: " + e.getMessage());
+            }
         }
     }
 
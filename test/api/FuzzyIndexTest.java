@@ -0,0 +1,132 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FuzzyIndexTest
+{
+    private FuzzyIndex index;
+    private Movie spiderVerse;
+    private Series breakingBad;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        index=new FuzzyIndex();
+        spiderVerse=new Movie("Spider-Man: Into the Spider-Verse","Synopsis","Yes","Action","Shameik Moore, Hailee Steinfeld",2018,117);
+        ArrayList<Season> seasons=new ArrayList<>();
+        seasons.add(new Season(1,2008,new Episode(50)));
+        breakingBad=new Series("Breaking Bad 2","Synopsis","Yes","Drama","Bryan Cranston, Aaron Paul",seasons);
+        index.add(spiderVerse);
+        index.add(breakingBad);
+    }
+
+    @Test
+    public void distance()
+    {
+        assertEquals(0,FuzzyIndex.distance("breaking","breaking",2));
+        assertEquals(1,FuzzyIndex.distance("breking","breaking",2));
+        assertEquals(1,FuzzyIndex.distance("braeking","breaking",2));
+        assertEquals(2,FuzzyIndex.distance("brekingg","breaking",2));
+        assertEquals(1,FuzzyIndex.distance("spidr","spider",1));
+        //Distances larger than the maximum aren't calculated exactly
+        assertTrue(FuzzyIndex.distance("spider","breaking",1)>1);
+        assertTrue(FuzzyIndex.distance("ab","abcd",1)>1);
+    }
+
+    @Test
+    public void matchingTerms()
+    {
+        assertEquals(Set.of("breaking"),index.matchingTerms("breking"));
+        assertEquals(Set.of("steinfeld"),index.matchingTerms("stienfelt"));
+        assertEquals(Set.of("spider"),index.matchingTerms("spidr"));
+        //Short words and words with digits only match exactly
+        assertEquals(Set.of("bad"),index.matchingTerms("bad"));
+        assertTrue(index.matchingTerms("bda").isEmpty());
+        assertEquals(Set.of("2"),index.matchingTerms("2"));
+        assertTrue(index.matchingTerms("3").isEmpty());
+    }
+
+    @Test
+    public void matchesEveryWord()
+    {
+        assertEquals(Set.of(breakingBad),index.matches(FuzzyIndex.terms("Breking Bad")));
+        assertEquals(Set.of(breakingBad),index.matches(FuzzyIndex.terms("bryan cranstn")));
+        assertEquals(Set.of(spiderVerse),index.matches(FuzzyIndex.terms("Spidr-Man")));
+        assertTrue(index.matches(FuzzyIndex.terms("Breking Spidr")).isEmpty());
+        assertTrue(index.matches(FuzzyIndex.terms("Breking Bad 3")).isEmpty());
+    }
+
+    @Test
+    public void matchesLikeBruteForce()
+    {
+        Random random=new Random(20);
+        String[] words={"breaking","bad","spider","verse","steinfeld","moore","cranston","paul","2","into","the"};
+        for (int i=0;i<500;i++)
+        {
+            StringBuilder search=new StringBuilder();
+            for (int j=random.nextInt(3);j>=0;j--)
+            {
+                StringBuilder word=new StringBuilder(words[random.nextInt(words.length)]);
+                for (int typos=random.nextInt(4);typos>0 && word.length()>1;typos--)
+                {
+                    int position=random.nextInt(word.length());
+                    switch (random.nextInt(3))
+                    {
+                        case 0 -> word.deleteCharAt(position);
+                        case 1 -> word.setCharAt(position,(char)('a'+random.nextInt(26)));
+                        default -> word.insert(position,(char)('a'+random.nextInt(26)));
+                    }
+                }
+                search.append(word).append(' ');
+            }
+            List<String> terms=FuzzyIndex.terms(search.toString());
+            Set<Content> matches=index.matches(terms);
+            assertEquals(search.toString(),FuzzyIndex.matches(spiderVerse,terms),matches.contains(spiderVerse));
+            assertEquals(search.toString(),FuzzyIndex.matches(breakingBad,terms),matches.contains(breakingBad));
+        }
+    }
+
+    @Test
+    public void matchesThroughTheRarestWord()
+    {
+        Movie matrix=new Movie("The Matrix","Synopsis","No","Action","Keanu Reeves",1999,136);
+        index.add(matrix);
+        for (int i=0;i<100;i++)
+        {
+            index.add(new Movie("The Movie "+i,"Synopsis","Yes","Drama","Actor",2020,90));
+        }
+        assertEquals(Set.of(matrix),index.matches(FuzzyIndex.terms("the matrx")));
+        assertEquals(Set.of(matrix),index.matches(FuzzyIndex.terms("matrix the")));
+        assertEquals(102,index.matches(FuzzyIndex.terms("the")).size());
+
+        //The matches are a copy of the postings
+        index.matches(FuzzyIndex.terms("the")).clear();
+        assertEquals(102,index.matches(FuzzyIndex.terms("the")).size());
+    }
+
+    @Test
+    public void removeAndReindex()
+    {
+        index.remove(spiderVerse);
+        assertEquals(1,index.size());
+        assertTrue(index.matchingTerms("spidr").isEmpty());
+
+        breakingBad.setTitle("Better Call Saul");
+        index.add(breakingBad);
+        assertEquals(1,index.size());
+        assertTrue(index.matchingTerms("breking").isEmpty());
+        assertEquals(Set.of(breakingBad),index.matches(FuzzyIndex.terms("beter call saul")));
+
+        index.clear();
+        assertEquals(0,index.size());
+        assertTrue(index.matchingTerms("saul").isEmpty());
+    }
+}
@@ -0,0 +1,125 @@
+package api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class JournalTest
+{
+    private Journal journal;
+    private String journalFilePath="testJournal.dat";
+    private Movie poorThings;
+    private Subscriber subscriber;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        journal=new Journal(journalFilePath);
+        poorThings=new Movie("Poor Things","The incredible tale about the fantastical evolution of Bella Baxter; a young woman brought back to life by the brilliant and unorthodox scientist, Dr. Godwin Baxter.","No","Comedy","Emma Stone, Mark Ruffalo, William Dafoe",2023,141);
+        subscriber=new Subscriber("subscriber1","password1","John","Doe");
+    }
+
+    @Test
+    public void appendAndReadRecords()
+    {
+        journal.append(new JournalRecord(JournalRecord.Operation.ADD_CONTENT,poorThings));
+        journal.append(new JournalRecord(JournalRecord.Operation.ADD_USERS,subscriber));
+        journal.append(new JournalRecord(JournalRecord.Operation.DELETE_ALL_MOVIES));
+        assertEquals(3,journal.getRecordCount());
+
+        ArrayList<JournalRecord> records=new Journal(journalFilePath).readRecords();
+        assertEquals(3,records.size());
+        assertEquals(JournalRecord.Operation.ADD_CONTENT,records.get(0).getOperation());
+        assertEquals(poorThings,records.get(0).getContent()[0]);
+        assertEquals(subscriber,records.get(1).getUsers()[0]);
+        assertEquals(0,records.get(2).getContent().length);
+    }
+
+    @Test
+    public void clear()
+    {
+        journal.append(new JournalRecord(JournalRecord.Operation.ADD_CONTENT,poorThings));
+        journal.clear();
+        assertEquals(0,journal.getRecordCount());
+        assertTrue(journal.readRecords().isEmpty());
+    }
+
+    @Test
+    public void incompleteRecordIsDiscarded() throws IOException
+    {
+        journal.append(new JournalRecord(JournalRecord.Operation.ADD_CONTENT,poorThings));
+        journal.append(new JournalRecord(JournalRecord.Operation.ADD_USERS,subscriber));
+
+        try (RandomAccessFile file = new RandomAccessFile(journalFilePath,"rw"))
+        {
+            file.setLength(file.length()-5);
+        }
+
+        Journal reopened=new Journal(journalFilePath);
+        assertEquals(1,reopened.getRecordCount());
+        reopened.append(new JournalRecord(JournalRecord.Operation.DELETE_USERS));
+
+        ArrayList<JournalRecord> records=reopened.readRecords();
+        assertEquals(2,records.size());
+        assertEquals(JournalRecord.Operation.DELETE_USERS,records.get(1).getOperation());
+    }
+
+    @Test
+    public void recordsOnlyReferToOtherEntities()
+    {
+        //A long chain of related content, each reviewed, which the record must not follow
+        Content next=null;
+        for (int i=0;i<20000;i++)
+        {
+            Content content=next==null ? new Content("Content "+i,"People") : new Content("Content "+i,"People",next);
+            content.addToReviews(new Review(4,"Review "+i,new Subscriber("reviewer"+i,"password","Name","Surname")));
+            next=content;
+        }
+        poorThings.addToRelatedContent(next);
+        poorThings.addToReviews(new Review(5,"Review",subscriber));
+        subscriber.addToFavorites(poorThings);
+
+        byte[] frame=Journal.encode(new JournalRecord(JournalRecord.Operation.EDIT_CONTENT,poorThings));
+        assertTrue(frame.length<1024);
+        journal.append(new JournalRecord(JournalRecord.Operation.EDIT_CONTENT,poorThings));
+        journal.append(new JournalRecord(JournalRecord.Operation.EDIT_USERS,subscriber));
+        journal.append(new JournalRecord(JournalRecord.Operation.REMOVE_CONTENT,poorThings));
+
+        ArrayList<JournalRecord> records=journal.readRecords();
+        Content edited=records.get(0).getContent()[0];
+        assertEquals(poorThings,edited);
+        assertEquals(poorThings.getId(),edited.getId());
+        assertEquals(poorThings.getSynopsis(),((Movie) edited).getSynopsis());
+        Content related=edited.getRelatedContent().iterator().next();
+        assertEquals(next.getId(),related.getId());
+        assertEquals(next,related);
+        assertTrue(related.getRelatedContent().isEmpty());
+        Review review=edited.getReviews().values().iterator().next();
+        assertEquals(5,review.getRating());
+        assertEquals(subscriber.getId(),review.getReviewer().getId());
+        assertEquals(subscriber,review.getReviewer());
+
+        Subscriber edited1=(Subscriber) records.get(1).getUsers()[0];
+        assertEquals(subscriber.getId(),edited1.getId());
+        assertEquals(subscriber.getPassword(),edited1.getPassword());
+        assertEquals(poorThings.getId(),edited1.getFavorites().iterator().next().getId());
+        assertEquals(poorThings.getId(),records.get(2).getContent()[0].getId());
+    }
+
+    @After
+    public void cleanup()
+    {
+        File file = new File(journalFilePath);
+        if (file.exists() && !file.delete())
+        {
+            System.out.println("RuntimeException: Failed to delete file: " + journalFilePath);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongHashMapTest
+{
+    private LongHashMap<String> map;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        map=new LongHashMap<>();
+    }
+
+    @Test
+    public void putAndGet()
+    {
+        assertNull(map.put(42,"first"));
+        assertEquals("first",map.put(42,"second"));
+        assertEquals("second",map.get(42));
+        assertNull(map.get(43));
+        assertNull(map.get(0));
+        assertEquals(1,map.size());
+    }
+
+    @Test
+    public void remove()
+    {
+        map.put(1,"one");
+        map.put(-1,"minus one");
+        assertEquals("one",map.remove(1));
+        assertNull(map.remove(1));
+        assertNull(map.get(1));
+        assertEquals("minus one",map.get(-1));
+        assertEquals(1,map.size());
+
+        map.clear();
+        assertNull(map.get(-1));
+        assertEquals(0,map.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroKeyIsRejected()
+    {
+        map.put(0,"zero");
+    }
+
+    @Test
+    public void matchesHashMap()
+    {
+        //Few distinct keys with many puts and removes, so that probe sequences wrap and are shifted back
+        HashMap<Long,String> expected=new HashMap<>();
+        Random random=new Random(7);
+        for (int i=0;i<100000;i++)
+        {
+            long key=random.nextInt(2000)+1;
+            if(random.nextBoolean())
+            {
+                assertEquals(expected.put(key,"value"+i),map.put(key,"value"+i));
+            }
+            else
+            {
+                assertEquals(expected.remove(key),map.remove(key));
+            }
+        }
+        assertEquals(expected.size(),map.size());
+        for (long key=1;key<=2000;key++)
+        {
+            assertEquals(expected.get(key),map.get(key));
+        }
+    }
+}
@@ -32,24 +32,25 @@ public class MovieTest
     @Test
     public void testEquals()
     {
-        Movie sameMovie = new Movie("Movie Title", "Movie Synopsis",
-                "Yes", "Action", "Actor 1, Actor 2", 2022, 120);
+        Movie sameMovie = new Movie("Different Title", "Different Synopsis",
+                "No", "Comedy", "Actor 5, Actor 6", 2023, 150);
+        sameMovie.restoreId(movie.getId());
         assertEquals(movie, sameMovie);
 
-        Movie differentMovie = new Movie("Different Title", "Different Synopsis",
-                "No", "Comedy", "Actor 5, Actor 6", 2023, 150);
+        Movie differentMovie = new Movie("Movie Title", "Movie Synopsis",
+                "Yes", "Action", "Actor 1, Actor 2", 2022, 120);
         assertNotEquals(movie, differentMovie);
     }
 
     @Test
     public void testHashCode()
     {
-        Movie sameMovie = new Movie("Movie Title", "Movie Synopsis",
-                "Yes", "Action", "Actor 1, Actor 2", 2022, 120);
-        assertEquals(movie.hashCode(), sameMovie.hashCode());
+        int hashCode=movie.hashCode();
+        movie.edit("New Title", "New Synopsis", "No", "Drama", "Actor 3, Actor 4", 2023, 150);
+        assertEquals(hashCode, movie.hashCode());
 
-        Movie differentMovie = new Movie("Different Title", "Different Synopsis",
-                "No", "Comedy", "Actor 5, Actor 6", 2023, 150);
+        Movie differentMovie = new Movie("Movie Title", "Movie Synopsis",
+                "Yes", "Action", "Actor 1, Actor 2", 2022, 120);
 
         assertNotEquals(movie.hashCode(),differentMovie.hashCode());
     }
@@ -0,0 +1,141 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RatingIndexTest
+{
+    private RatingIndex ratings;
+    private Subscriber reviewer1,reviewer2;
+    private Movie movie;
+    private Series series;
+    private Content content;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        ratings=new RatingIndex();
+        reviewer1=new Subscriber("reviewer1","password","Name","Surname");
+        reviewer2=new Subscriber("reviewer2","password","Name","Surname");
+        movie=new Movie("Movie1","Synopsis1","Yes","Action","Daniel Day-Lewis",2022,120);
+        series=new Series("Series1","Synopsis2","No","Drama","Viola Davis",new ArrayList<>());
+        content=new Content("Documentary","Director");
+        movie.addToReviews(new Review(4,"Review",reviewer1),new Review(3,"Review",reviewer2));
+        series.addToReviews(new Review(5,"Review",reviewer1));
+        ratings.add(movie);
+        ratings.add(series);
+        ratings.add(content);
+    }
+
+    @Test
+    public void contentIsOrderedByRating()
+    {
+        assertEquals(3,ratings.size());
+        assertEquals(List.of(series,movie,content),list(ratings.iterator(Double.POSITIVE_INFINITY,0)));
+        assertEquals(List.of(movie),list(ratings.iterator(4.5,3.5)));
+        assertEquals(3.5,ratings.rating(movie),0);
+        assertEquals(0,ratings.rating(content),0);
+
+        //Content without reviews doesn't have any minimum rating
+        assertEquals(List.of(series,movie),ratings.atLeast(0));
+        assertEquals(List.of(series,movie),ratings.atLeast(3.5));
+        assertEquals(1,ratings.count(4));
+        assertEquals(2,ratings.count(-1));
+        assertTrue(ratings.atLeast(5.5).isEmpty());
+
+        //Content is moved when its reviews change
+        movie.addToReviews(new Review(5,"Review",reviewer2));
+        ratings.add(movie);
+        assertEquals(3,ratings.size());
+        assertEquals(List.of(series,movie),ratings.atLeast(4.5));
+        content.addToReviews(new Review(1,"Review",reviewer1));
+        ratings.add(content);
+        assertEquals(3,ratings.count(1));
+
+        ratings.remove(series);
+        assertEquals(List.of(movie,content),ratings.atLeast(1));
+        assertEquals(5,ratings.rating(series),0);
+        ratings.clear();
+        assertEquals(0,ratings.size());
+        assertEquals(0,ratings.count(0));
+    }
+
+    @Test
+    public void rangesAgreeWithTheAverageRatings()
+    {
+        Random random=new Random(25);
+        ratings.clear();
+        ArrayList<Content> catalog=new ArrayList<>();
+        for (int i=0;i<3000;i++)
+        {
+            int operation=catalog.isEmpty() ? 0 : random.nextInt(6);
+            if(operation<=1)
+            {
+                Content content1=TestCatalog.content(random,i);
+                catalog.add(content1);
+                ratings.add(content1);
+            }
+            else if(operation<=3)
+            {
+                Content content1=catalog.get(random.nextInt(catalog.size()));
+                content1.addToReviews(new Review(1+random.nextInt(5),"Review",new Subscriber("reviewer"+random.nextInt(10),"password","Name","Surname")));
+                ratings.add(content1);
+            }
+            else if(operation==4)
+            {
+                Content content1=catalog.get(random.nextInt(catalog.size()));
+                content1.deleteReviews();
+                ratings.add(content1);
+            }
+            else
+            {
+                ratings.remove(catalog.remove(random.nextInt(catalog.size())));
+            }
+
+            if(i%25==0)
+            {
+                double minRating=random.nextInt(13)/2.0-0.5;
+                ArrayList<Content> expected=new ArrayList<>();
+                for (Content content1 : catalog)
+                {
+                    if(!content1.getReviews().isEmpty() && content1.getAverageRating()>=minRating)
+                    {
+                        expected.add(content1);
+                    }
+                }
+                expected.sort((content1,content2) -> {
+                    int comparison=Double.compare(content2.getAverageRating(),content1.getAverageRating());
+                    return comparison!=0 ? comparison : Long.compare(content1.getId(),content2.getId());
+                });
+                assertEquals(String.valueOf(minRating),expected,ratings.atLeast(minRating));
+                assertEquals(expected.size(),ratings.count(minRating));
+                assertEquals(catalog.size(),ratings.size());
+
+                //The best rated content comes first, and content without reviews last
+                List<Content> all=list(ratings.iterator(Double.POSITIVE_INFINITY,0));
+                assertEquals(catalog.size(),all.size());
+                assertEquals(expected,all.subList(0,expected.size()).stream().filter(content1 ->
+                        !content1.getReviews().isEmpty() && content1.getAverageRating()>=minRating).toList());
+                for (int j=1;j<all.size();j++)
+                {
+                    assertTrue(ratings.rating(all.get(j-1))>=ratings.rating(all.get(j)));
+                    assertEquals(all.get(j).getAverageRating(),ratings.rating(all.get(j)),0);
+                }
+            }
+        }
+    }
+
+    private static List<Content> list(Iterator<Content> iterator)
+    {
+        ArrayList<Content> list=new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+}
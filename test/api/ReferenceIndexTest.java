@@ -0,0 +1,72 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReferenceIndexTest
+{
+    private ReferenceIndex<Content> index;
+    private Content content1;
+    private Content content2;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        index=new ReferenceIndex<>();
+        content1=new Content("Title","Director");
+        content2=new Content("Title","Director");
+    }
+
+    @Test
+    public void addAndGet()
+    {
+        index.add(1,content1);
+        index.add(1,content1);
+        index.add(1,content2);
+        index.add(2,content2);
+
+        //Equal referrers are still different referrers
+        List<Content> referrers=index.get(1);
+        assertEquals(2,referrers.size());
+        assertTrue(referrers.stream().anyMatch(c -> c==content1));
+        assertTrue(referrers.stream().anyMatch(c -> c==content2));
+        assertEquals(1,index.get(2).size());
+        assertTrue(index.get(3).isEmpty());
+    }
+
+    @Test
+    public void remove()
+    {
+        index.add(1,content1);
+        index.add(1,content2);
+        index.remove(1,content1);
+        index.remove(3,content1);
+
+        List<Content> referrers=index.get(1);
+        assertEquals(1,referrers.size());
+        assertSame(content2,referrers.get(0));
+
+        index.remove(1,content2);
+        assertTrue(index.get(1).isEmpty());
+    }
+
+    @Test
+    public void removeAll()
+    {
+        index.add(1,content1);
+        index.add(1,content2);
+        index.add(2,content1);
+
+        assertEquals(2,index.removeAll(1).size());
+        assertTrue(index.get(1).isEmpty());
+        assertTrue(index.removeAll(1).isEmpty());
+        assertEquals(1,index.get(2).size());
+
+        index.clear();
+        assertTrue(index.get(2).isEmpty());
+    }
+}
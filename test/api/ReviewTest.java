@@ -9,11 +9,12 @@ public class ReviewTest
 {
 
     private Review review;
+    private User reviewer;
 
     @Before
     public void setUp() throws Exception
     {
-        User reviewer = new User("testUser", "password123", "John", "Doe");
+        reviewer = new User("testUser", "password123", "John", "Doe");
         review=new Review(5, "Great movie!", reviewer);
     }
 
@@ -32,7 +33,8 @@ public class ReviewTest
     @Test
     public void getReviewer()
     {
-        User sameReviewer=new User("testUser", "password123", "John", "Doe");
+        User sameReviewer=new User("editedUser", "password123", "Jane", "Doe");
+        sameReviewer.restoreId(reviewer.getId());
         assertEquals(sameReviewer,review.getReviewer());
     }
 
@@ -45,10 +47,9 @@ public class ReviewTest
     @Test
     public void testEquals()
     {
-        User reviewer1 = new User("testUser", "password123", "John", "Doe");
         User reviewer2 = new User("differentUser", "securepass", "Jane", "Doe");
 
-        Review review1 = new Review(5, "Great movie!", reviewer1);
+        Review review1 = new Review(5, "Great movie!", reviewer);
         Review review2 = new Review(3, "meh meh", reviewer2);
 
         assertEquals(review, review1);
@@ -58,10 +59,9 @@ public class ReviewTest
     @Test
     public void testHashCode()
     {
-        User reviewer1 = new User("testUser", "password123", "John", "Doe");
         User reviewer2 = new User("differentUser", "securepass", "Jane", "Doe");
 
-        Review review1 = new Review(5, "Great movie!", reviewer1);
+        Review review1 = new Review(5, "Great movie!", reviewer);
         Review review2 = new Review(3, "meh meh", reviewer2);
 
         assertEquals(review.hashCode(),review1.hashCode());
@@ -0,0 +1,78 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SearchCacheTest
+{
+    private SearchCache cache;
+    private SearchQuery drama,comedy,horror;
+    private ArrayList<Content> results;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        cache=new SearchCache(2,5);
+        drama=SearchQuery.builder().genre("Drama").build();
+        comedy=SearchQuery.builder().genre("Comedy").build();
+        horror=SearchQuery.builder().genre("Horror").build();
+        results=new ArrayList<>(Arrays.asList(new Content("Title 1","People"),new Content("Title 2","People")));
+    }
+
+    @Test
+    public void getAndPut()
+    {
+        assertNull(cache.get(drama,1));
+        cache.put(drama,results,1);
+        assertSame(results,cache.get(drama,1));
+        assertSame(results,cache.get(SearchQuery.builder().genre("drama").build(),1));
+        assertEquals(2,cache.getHits());
+        assertEquals(1,cache.getMisses());
+    }
+
+    @Test
+    public void resultsOfOlderVersionsAreDropped()
+    {
+        cache.put(drama,results,1);
+        assertNull(cache.get(drama,2));
+        assertEquals(0,cache.size());
+        assertEquals(1,cache.getMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsedQueriesAreDropped()
+    {
+        cache.put(drama,results,1);
+        cache.put(comedy,new ArrayList<>(),1);
+        cache.get(drama,1);
+        cache.put(horror,new ArrayList<>(),1);
+        assertEquals(2,cache.size());
+        assertNull(cache.get(comedy,1));
+        assertNotNull(cache.get(drama,1));
+
+        //Queries are dropped when there are too many results too
+        ArrayList<Content> four=new ArrayList<>(results);
+        four.addAll(results);
+        cache.put(horror,four,1);
+        assertEquals(1,cache.size());
+        assertNull(cache.get(drama,1));
+        assertNotNull(cache.get(horror,1));
+
+        //Results that are too many on their own aren't kept
+        ArrayList<Content> many=new ArrayList<>();
+        for (int i=0;i<6;i++)
+        {
+            many.add(new Content("Title "+i,"People"));
+        }
+        cache.put(drama,many,1);
+        assertNull(cache.get(drama,1));
+
+        cache.clear();
+        assertEquals(0,cache.size());
+    }
+}
@@ -0,0 +1,78 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class SearchIndexTest
+{
+    private SearchIndex index;
+    private Content content;
+    private Movie movie;
+    private Series series;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        index=new SearchIndex();
+        content=new Content("Title","Director");
+        movie=new Movie("Movie","Synopsis","No","Science fiction","Actor 1",2020,100);
+        series=new Series("Series","Synopsis","Yes","Drama","Actor 2",new ArrayList<>());
+        index.add(content);
+        index.add(movie);
+        index.add(series);
+    }
+
+    @Test
+    public void postings()
+    {
+        assertEquals(3,index.size());
+        assertTrue(contains(index.getFacets().getCategory(SearchQuery.Category.CONTENT),content));
+        assertTrue(contains(index.getFacets().getCategory(SearchQuery.Category.MOVIES),movie));
+        assertTrue(index.getFacets().getCategory(SearchQuery.Category.VIEWABLE_CONTENT).isEmpty());
+        assertTrue(contains(index.getFacets().getGenre("sciencefiction"),movie));
+        assertEquals(1,index.getFacets().getGenre("drama").cardinality());
+        assertTrue(index.getFacets().getGenre("comedy").isEmpty());
+        assertTrue(contains(index.getFacets().getSuitability("yes"),series));
+        assertFalse(contains(index.getFacets().getSuitability("yes"),content));
+        assertTrue(index.getTrigrams().candidates("movie").contains(movie));
+        assertEquals(movie,index.getViewableById().get(movie.getId()));
+        assertEquals(2,index.getViewableById().size());
+        assertEquals(content,index.getOtherById().get(content.getId()));
+    }
+
+    @Test
+    public void removeAndReindex()
+    {
+        index.remove(movie);
+        assertEquals(2,index.size());
+        assertTrue(index.getFacets().getCategory(SearchQuery.Category.MOVIES).isEmpty());
+        assertTrue(index.getFacets().getGenre("sciencefiction").isEmpty());
+        assertFalse(index.getViewableById().containsKey(movie.getId()));
+        assertEquals(2,index.getTrigrams().size());
+
+        series.setGenre("Comedy");
+        series.setIsSuitableForMinors("No");
+        index.add(series);
+        assertEquals(2,index.size());
+        assertTrue(index.getFacets().getGenre("drama").isEmpty());
+        assertTrue(contains(index.getFacets().getGenre("comedy"),series));
+        assertTrue(index.getFacets().getSuitability("yes").isEmpty());
+        assertTrue(contains(index.getFacets().getSuitability("no"),series));
+
+        index.clear();
+        assertEquals(0,index.size());
+        assertTrue(index.getFacets().getCategory(SearchQuery.Category.CONTENT).isEmpty());
+        assertTrue(index.getFacets().getGenre("comedy").isEmpty());
+    }
+
+    private boolean contains(BitSet postings, Content content)
+    {
+        int ordinal=index.getFacets().ordinal(content);
+        return ordinal>=0 && postings.get(ordinal);
+    }
+}
@@ -4,7 +4,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -84,4 +90,681 @@ public class SearchManagerTest
         criterionMatched=searchManager.matchesCriteriaInFilters(movie,"suitableforminors","no");
         assertFalse(criterionMatched);
     }
+
+    @Test
+    public void searchWithIndexesMatchesFullScan()
+    {
+        Random random=new Random(12);
+        String[] words={"Spider-Man","Into the","Spider-Verse","Emma","Stone","dark","Knight","a","ar","Drama","Movie","series","X"};
+        String[] genres=TestCatalog.GENRES;
+        String[] suitability={"Yes","No"};
+
+        HashSet<Content> catalog=new HashSet<>(TestCatalog.create(300,12,words));
+        SearchIndex index=TestCatalog.index(catalog);
+        ArrayList<String> fields=new ArrayList<>();
+        for (Content content1 : catalog)
+        {
+            fields.add(content1.getTitle());
+            fields.add(content1.getPeopleInvolved());
+        }
+        //Some content is edited or removed after it was indexed
+        int edited=0;
+        for (Content content1 : new ArrayList<>(catalog))
+        {
+            if(edited++%10==0)
+            {
+                catalog.remove(content1);
+                index.remove(content1);
+            }
+            else if(edited%10==5)
+            {
+                content1.setTitle(TestCatalog.phrase(random,words)+" edited "+edited);
+                index.add(content1);
+            }
+        }
+
+        SearchManager scan=new SearchManager(catalog);
+        SearchManager indexed=new SearchManager(catalog,index);
+        for (int i=0;i<500;i++)
+        {
+            String search=search(random,words,fields);
+            String[] criteria;
+            if(random.nextBoolean())
+            {
+                criteria=new String[]{search};
+            }
+            else
+            {
+                criteria=new String[]{"category",random.nextBoolean() ? "" : random.nextBoolean() ? "Movie" : "Series",
+                        "genre",random.nextBoolean() ? "" : genres[random.nextInt(genres.length)],
+                        "suitable for minors",random.nextBoolean() ? "" : suitability[random.nextInt(2)],
+                        "min rating",random.nextBoolean() ? "" : String.valueOf(1+random.nextInt(5)),search};
+            }
+
+            ArrayList<Content> expected=scan.searchContent(criteria);
+            ArrayList<Content> actual=indexed.searchContent(criteria);
+            assertEquals(search,new HashSet<>(expected),new HashSet<>(actual));
+            //The statistics of the index score content like the ones counted from the content
+            assertEquals(search,expected,actual);
+            assertEquals(search,expected.size(),actual.size());
+            String lastCriterion=criteria[criteria.length-1];
+            for (int j=0;j<expected.size();j++)
+            {
+                //Results are ordered by the number of fields they match
+                assertEquals(search,scan.matchedCriteriaInSearchBar(expected.get(j),lastCriterion),
+                        scan.matchedCriteriaInSearchBar(actual.get(j),lastCriterion));
+            }
+        }
+    }
+
+    @Test
+    public void planChoosesTheSmallestAccessPath()
+    {
+        HashSet<Content> catalog=new HashSet<>();
+        SearchIndex index=new SearchIndex();
+        Subscriber reviewer=new Subscriber("reviewer","password","Name","Surname");
+        for (int i=0;i<20;i++)
+        {
+            Movie movie=new Movie("Action Movie "+i,"Synopsis","Yes","Action","Actor",2000,100);
+            movie.addToReviews(new Review(i<10 ? 4 : 2,"Review",reviewer));
+            catalog.add(movie);
+        }
+        Movie drama=new Movie("Drama Movie","Synopsis","No","Drama","Actor",2000,100);
+        Content content1=new Content("Documentary","Director");
+        catalog.add(drama);
+        catalog.add(content1);
+        for (Content content2 : catalog)
+        {
+            index.add(content2);
+        }
+        SearchManager indexed=new SearchManager(catalog,index);
+
+        SearchPlan plan=indexed.plan(SearchQuery.builder().category(SearchQuery.Category.MOVIES).genre("Drama").build());
+        assertTrue(plan.getAccessPath().toString().startsWith("postings of"));
+        //The postings of both filters are combined, so the candidates are exactly the results
+        assertEquals(List.of(drama),new ArrayList<>(plan.candidates()));
+        assertTrue(plan.candidatesPassFilters());
+        assertEquals(1,indexed.search(SearchQuery.builder().category(SearchQuery.Category.MOVIES).genre("Drama").build()).size());
+        //Content that isn't viewable passes genre filters
+        assertEquals(2,indexed.plan(SearchQuery.builder().genre("Drama").build()).candidates().size());
+
+        plan=indexed.plan(SearchQuery.builder().suitableForMinors(true).text("movie 7").build());
+        assertTrue(plan.getAccessPath().toString().startsWith("trigram index"));
+
+        //The minimum rating is still checked against the candidates of the postings
+        assertFalse(indexed.plan(SearchQuery.builder().genre("Drama").minRating(3).build()).candidatesPassFilters());
+
+        //The content with the minimum rating is found through a range scan of the rating index
+        plan=indexed.plan(SearchQuery.builder().minRating(3).build());
+        assertEquals("rating index from 3.0 (10 passing the filters)",plan.getAccessPath().toString());
+        assertEquals(10,plan.candidates().size());
+        //The filter that rejects the most content for its cost is checked first, and one that rejects almost nothing last
+        plan=indexed.plan(SearchQuery.builder().category(SearchQuery.Category.MOVIES).minRating(3).suitableForMinors(false).build());
+        assertTrue(plan.getFilters().get(0) instanceof SearchQuery.SuitabilityFilter);
+        assertTrue(plan.getFilters().get(1) instanceof SearchQuery.MinRatingFilter);
+        assertTrue(plan.getFilters().get(2) instanceof SearchQuery.CategoryFilter);
+
+        assertEquals(catalog.size(),new SearchManager(catalog).plan(SearchQuery.builder().genre("Drama").build()).candidates().size());
+    }
+
+    @Test
+    public void planKeepsFiltersThatAcceptContentInPlace()
+    {
+        HashSet<Content> catalog=new HashSet<>();
+        SearchIndex index=new SearchIndex();
+        Content content1=new Content("Documentary","Director");
+        Movie movie=new Movie("Drama Movie","Synopsis","No","Drama","Actor",2000,100);
+        Movie comedy=new Movie("Comedy Movie","Synopsis","Yes","Comedy","Actor",2000,100);
+        catalog.add(content1);
+        catalog.add(movie);
+        catalog.add(comedy);
+        index.add(content1);
+        index.add(movie);
+        index.add(comedy);
+        SearchManager indexed=new SearchManager(catalog,index);
+
+        //Plain content is accepted by the category "content" before its genre is checked, but not before its rating
+        SearchQuery query=SearchQuery.parse("min rating","4","category","content","genre","comedy");
+        SearchPlan plan=indexed.plan(query);
+        assertTrue(plan.getFilters().get(0) instanceof SearchQuery.MinRatingFilter);
+        assertTrue(plan.getFilters().get(1).mayAccept());
+        //No content has the minimum rating, which every result has since it comes before the category
+        assertEquals("rating index from 4.0 (estimated 0)",plan.getAccessPath().toString());
+        assertTrue(plan.candidates().isEmpty());
+        assertTrue(indexed.search(query).isEmpty());
+
+        //The postings of the genre and the minimum rating don't apply to the content that the category accepts
+        query=SearchQuery.parse("category","content","min rating","4","genre","comedy");
+        plan=indexed.plan(query);
+        assertTrue(plan.getAccessPath().toString().startsWith("postings of"));
+        assertEquals(List.of(content1),new ArrayList<>(plan.candidates()));
+        assertEquals(List.of(content1),indexed.search(query));
+
+        query=SearchQuery.parse("category","content","genre","comedy");
+        assertEquals(1,indexed.search(query).size());
+        assertTrue(indexed.search(query).contains(content1));
+
+        String explanation=indexed.explain(SearchQuery.builder().genre("Drama").minRating(2).text("drama").build());
+        assertTrue(explanation.startsWith("Access path: "));
+        assertTrue(explanation.contains("1. min rating 2.0 (selectivity 0.00, cost 1)"));
+        assertTrue(explanation.contains("2. genre in [drama] (selectivity 0.67, cost 1)"));
+        assertTrue(explanation.contains("Text: \"drama\""));
+    }
+
+    @Test
+    public void plannedFiltersMatchTheQuery()
+    {
+        Random random=new Random(15);
+        String[] criteria={"category","genre","min rating","suitable for minors"};
+        String[] filters={"","Movie","Series","content","viewable","Drama","sci","comedy","action","Yes","No","not suitable"};
+
+        HashSet<Content> catalog=new HashSet<>(TestCatalog.create(200,15));
+        SearchIndex index=TestCatalog.index(catalog);
+        SearchManager indexed=new SearchManager(catalog,index);
+
+        for (int i=0;i<1000;i++)
+        {
+            String[] searchCriteria=new String[2*(1+random.nextInt(4))];
+            for (int j=0;j<searchCriteria.length;j+=2)
+            {
+                searchCriteria[j]=criteria[random.nextInt(criteria.length)];
+                searchCriteria[j+1]=searchCriteria[j].equals("min rating") ? String.valueOf(random.nextInt(6))
+                        : filters[random.nextInt(filters.length)];
+            }
+            SearchQuery query=SearchQuery.parse(searchCriteria);
+            HashSet<Content> expected=new HashSet<>();
+            for (Content content1 : catalog)
+            {
+                if(query.matchesFilters(content1))
+                {
+                    expected.add(content1);
+                }
+            }
+            ArrayList<Content> actual=indexed.search(query);
+            assertEquals(String.join(",",searchCriteria),expected,new HashSet<>(actual));
+            assertEquals(String.join(",",searchCriteria),expected.size(),actual.size());
+            for (int j=1;j<actual.size();j++)
+            {
+                assertTrue(actual.get(j-1).getId()<actual.get(j).getId());
+            }
+        }
+    }
+
+    @Test
+    public void pagesMatchTheFullSearch()
+    {
+        Random random=new Random(16);
+        String[] words={"Dark","Knight","Drama","Movie","Series","a","ar","Emma"};
+        String[] genres=TestCatalog.GENRES;
+        HashSet<Content> catalog=new HashSet<>(TestCatalog.create(150,16,words));
+        SearchIndex index=TestCatalog.index(catalog);
+        SearchManager indexed=new SearchManager(catalog,index);
+
+        for (int i=0;i<200;i++)
+        {
+            SearchQuery.Builder builder=SearchQuery.builder();
+            if(random.nextBoolean())
+            {
+                builder.text(random.nextInt(4)==0 ? "" : words[random.nextInt(words.length)]);
+            }
+            if(random.nextBoolean())
+            {
+                builder.genre(genres[random.nextInt(genres.length)]);
+            }
+            SearchQuery query=builder.build();
+            ArrayList<Content> expected=indexed.search(query);
+            int limit=1+random.nextInt(20);
+
+            ArrayList<Content> byCursor=new ArrayList<>();
+            SearchPage.Cursor cursor=null;
+            SearchPage page;
+            do
+            {
+                page=indexed.search(query,cursor,limit);
+                assertTrue(page.getResults().size()<=limit);
+                byCursor.addAll(page.getResults());
+                cursor=page.getNextCursor();
+            }
+            while (page.hasNext());
+            assertEquals(expected,byCursor);
+
+            ArrayList<Content> byOffset=new ArrayList<>();
+            for (int offset=0;offset<=expected.size();offset+=limit)
+            {
+                page=indexed.search(query,offset,limit);
+                byOffset.addAll(page.getResults());
+                assertEquals(offset+limit<expected.size(),page.hasNext());
+            }
+            assertEquals(expected,byOffset);
+        }
+    }
+
+    @Test
+    public void resultsWithTheSameScoreAreOrderedById()
+    {
+        ArrayList<Content> results=searchManager.search(SearchQuery.builder().build());
+        assertEquals(2,results.size());
+        assertTrue(results.get(0).getId()<results.get(1).getId());
+
+        SearchPage page=searchManager.search(SearchQuery.builder().build(),0,1);
+        assertEquals(results.get(0),page.getResults().get(0));
+        assertTrue(page.hasNext());
+        page=searchManager.search(SearchQuery.builder().build(),page.getNextCursor(),1);
+        assertEquals(results.get(1),page.getResults().get(0));
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void streamMatchesTheSearch()
+    {
+        Random random=new Random(17);
+        String[] words={"Dark","Knight","Drama","Movie","Series","a","Emma"};
+        String[] genres={"Action","Drama","Comedy"};
+        HashSet<Content> catalog=new HashSet<>(TestCatalog.create(100,17,words));
+        SearchIndex index=TestCatalog.index(catalog);
+
+        for (SearchManager searchManager1 : new SearchManager[]{new SearchManager(catalog),new SearchManager(catalog,index)})
+        {
+            for (int i=0;i<100;i++)
+            {
+                SearchQuery.Builder builder=SearchQuery.builder();
+                if(random.nextInt(3)>0)
+                {
+                    builder.text(random.nextBoolean() ? "" : words[random.nextInt(words.length)]);
+                }
+                if(random.nextBoolean())
+                {
+                    builder.genre(genres[random.nextInt(genres.length)]);
+                }
+                SearchQuery query=builder.build();
+                ArrayList<Content> expected=searchManager1.search(query);
+
+                assertEquals(expected,searchManager1.stream(query,true).map(SearchHit::getContent).collect(Collectors.toList()));
+                assertEquals(new HashSet<>(expected),searchManager1.stream(query,false).map(SearchHit::getContent).collect(Collectors.toSet()));
+                int limit=1+random.nextInt(10);
+                assertEquals(expected.subList(0,Math.min(limit,expected.size())),
+                        searchManager1.stream(query,true).limit(limit).map(SearchHit::getContent).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    public void streamChecksContentOnlyAsItIsConsumed()
+    {
+        int[] checked={0};
+        HashSet<Content> catalog=new HashSet<>();
+        for (int i=0;i<100;i++)
+        {
+            catalog.add(new Content("Title "+i,"People")
+            {
+                @Override
+                String getTitleKey()
+                {
+                    checked[0]++;
+                    return super.getTitleKey();
+                }
+            });
+        }
+        SearchManager searchManager1=new SearchManager(catalog);
+
+        Stream<SearchHit> stream=searchManager1.stream(SearchQuery.builder().text("title").build(),false);
+        assertEquals(0,checked[0]);
+        assertEquals(3,stream.limit(3).count());
+        assertEquals(3,checked[0]);
+
+        SearchHit hit=searchManager1.stream(SearchQuery.builder().text("title").build(),true).findFirst().orElseThrow();
+        assertEquals(1,hit.getMatchedFields());
+        assertEquals(103,checked[0]);
+    }
+
+    @Test
+    public void parallelScanMatchesSequentialScan()
+    {
+        Random random=new Random(18);
+        HashSet<Content> catalog=new HashSet<>(TestCatalog.create(2000,18,"Dark","Knight","Drama","Movie","Series","a","Emma","Stone"));
+        SearchIndex index=TestCatalog.index(catalog);
+
+        ForkJoinPool pool=new ForkJoinPool(4);
+        try
+        {
+            SearchManager sequential=new SearchManager(catalog,index,pool,Integer.MAX_VALUE);
+            SearchManager parallel=new SearchManager(catalog,index,pool,1);
+            String[] searches={"a","dark","suitable","not suitable","movie","knight emma",""};
+            for (int i=0;i<50;i++)
+            {
+                SearchQuery.Builder builder=SearchQuery.builder().text(searches[random.nextInt(searches.length)]);
+                if(random.nextBoolean())
+                {
+                    builder.minRating(1+random.nextInt(5));
+                }
+                SearchQuery query=builder.build();
+                assertEquals(sequential.search(query),parallel.search(query));
+                int offset=random.nextInt(30),limit=1+random.nextInt(30);
+                assertEquals(sequential.search(query,offset,limit).getResults(),parallel.search(query,offset,limit).getResults());
+                assertEquals(sequential.search(query).subList(0,Math.min(5,sequential.search(query).size())),
+                        parallel.stream(query,true).limit(5).map(SearchHit::getContent).collect(Collectors.toList()));
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void fuzzySearchRanksTyposAfterExactMatches()
+    {
+        HashSet<Content> catalog=new HashSet<>();
+        Series breakingBad=new Series("Breaking Bad","Synopsis","Yes","Drama","Bryan Cranston, Aaron Paul",new ArrayList<>());
+        Movie breakingBadMovie=new Movie("Breking Bad","Synopsis","Yes","Drama","Aaron Paul",2019,122);
+        Movie movie=new Movie("Movie1","Synopsis1","Yes","Action","Daniel Day-Lewis",2022,120);
+        catalog.add(breakingBad);
+        catalog.add(breakingBadMovie);
+        catalog.add(movie);
+        SearchIndex index=new SearchIndex();
+        for (Content content1 : catalog)
+        {
+            index.add(content1);
+        }
+
+        for (SearchManager searchManager1 : new SearchManager[]{new SearchManager(catalog),new SearchManager(catalog,index)})
+        {
+            assertEquals(List.of(breakingBadMovie),searchManager1.search(SearchQuery.builder().text("breking bad").build()));
+            assertEquals(List.of(breakingBadMovie,breakingBad),searchManager1.search(SearchQuery.builder().text("breking bad").fuzzy(true).build()));
+            assertEquals(List.of(breakingBadMovie,breakingBad),searchManager1.search(SearchQuery.builder().text("breking bad").build().fuzzy()));
+            assertEquals(List.of(breakingBad),searchManager1.search(SearchQuery.builder().text("bryan cranstn").build().fuzzy()));
+            assertEquals(List.of(breakingBad),searchManager1.search(SearchQuery.builder().text("breakng bad").category(SearchQuery.Category.SERIES).build().fuzzy()));
+            assertTrue(searchManager1.search(SearchQuery.builder().text("breking bda").build().fuzzy()).isEmpty());
+            SearchPage page=searchManager1.search(SearchQuery.builder().text("breking bad").build().fuzzy(),0,1);
+            assertEquals(List.of(breakingBadMovie),page.getResults());
+            assertEquals(List.of(breakingBad),searchManager1.search(SearchQuery.builder().text("breking bad").build().fuzzy(),page.getNextCursor(),1).getResults());
+            assertEquals(List.of(1,0),searchManager1.stream(SearchQuery.builder().text("breking bad").build().fuzzy(),true)
+                    .map(SearchHit::getMatchedFields).collect(Collectors.toList()));
+            assertEquals(2,searchManager1.stream(SearchQuery.builder().text("breking bad").build().fuzzy(),false).count());
+        }
+        assertTrue(new SearchManager(catalog,index).explain(SearchQuery.builder().text("breking bad").build().fuzzy()).contains("fuzzy index"));
+
+        //Fuzzy matches of more than a quarter of the content aren't added to the candidates of the trigram index
+        assertFalse(new SearchManager(catalog,index).explain(SearchQuery.builder().text("breking bad").build().fuzzy()).contains("and fuzzy index"));
+        for (int i=2;i<10;i++)
+        {
+            Movie movie1=new Movie("Movie"+i,"Synopsis"+i,"Yes","Action","Daniel Day-Lewis",2022,120);
+            catalog.add(movie1);
+            index.add(movie1);
+        }
+        assertTrue(new SearchManager(catalog,index).explain(SearchQuery.builder().text("bryan cranstn").build().fuzzy()).contains("and fuzzy index"));
+        assertEquals(List.of(breakingBad),new SearchManager(catalog,index).search(SearchQuery.builder().text("bryan cranstn").build().fuzzy()));
+    }
+
+    @Test
+    public void fuzzySearchWithIndexesMatchesFullScan()
+    {
+        Random random=new Random(20);
+        String[] words={"Spider-Man","Into the","Spider-Verse","Emma","Stone","dark","Knight","Breaking","Bad","Drama","2"};
+        HashSet<Content> catalog=new HashSet<>(TestCatalog.create(300,20,words));
+        SearchIndex index=TestCatalog.index(catalog);
+
+        SearchManager scan=new SearchManager(catalog);
+        SearchManager indexed=new SearchManager(catalog,index);
+        for (int i=0;i<300;i++)
+        {
+            StringBuilder search=new StringBuilder();
+            for (String word : TestCatalog.phrase(random,words).split(" "))
+            {
+                StringBuilder typo=new StringBuilder(word);
+                for (int typos=random.nextInt(3);typos>0 && typo.length()>1;typos--)
+                {
+                    int position=random.nextInt(typo.length());
+                    switch (random.nextInt(3))
+                    {
+                        case 0 -> typo.deleteCharAt(position);
+                        case 1 -> typo.setCharAt(position,(char)('a'+random.nextInt(26)));
+                        default -> typo.insert(position,(char)('a'+random.nextInt(26)));
+                    }
+                }
+                search.append(typo).append(' ');
+            }
+            SearchQuery.Builder builder=SearchQuery.builder().text(search.toString()).fuzzy(true);
+            if(random.nextBoolean())
+            {
+                builder.category(random.nextBoolean() ? SearchQuery.Category.MOVIES : SearchQuery.Category.CONTENT);
+            }
+            SearchQuery query=builder.build();
+            assertEquals(search.toString(),scan.search(query),indexed.search(query));
+        }
+    }
+
+    @Test
+    public void searchRanksByRelevanceAndRating()
+    {
+        HashSet<Content> catalog=new HashSet<>();
+        Movie titleMatch=new Movie("Dark City","Synopsis","Yes","Action","Rufus Sewell",1998,100);
+        Movie peopleMatch=new Movie("City Lights","Synopsis","Yes","Comedy","Jennifer Dark",1931,87);
+        Movie other=new Movie("Movie1","Synopsis1","Yes","Action","Daniel Day-Lewis",2022,120);
+        catalog.add(titleMatch);
+        catalog.add(peopleMatch);
+        catalog.add(other);
+        peopleMatch.addToReviews(new Review(5,"Review",new Subscriber("reviewer","password","Name","Surname")));
+        SearchIndex index=new SearchIndex();
+        for (Content content1 : catalog)
+        {
+            index.add(content1);
+        }
+
+        for (SearchManager searchManager1 : new SearchManager[]{new SearchManager(catalog),new SearchManager(catalog,index)})
+        {
+            //A word of the title counts more than a word of the people involved
+            SearchQuery query=SearchQuery.builder().text("dark").build();
+            assertEquals(List.of(titleMatch,peopleMatch),searchManager1.search(query));
+            List<SearchHit> hits=searchManager1.stream(query,true).collect(Collectors.toList());
+            assertTrue(hits.get(0).getScore()>hits.get(1).getScore());
+            assertTrue(hits.get(1).getScore()>0);
+            //Blending in the rating puts the reviewed content first
+            SearchQuery ratedQuery=SearchQuery.builder().text("dark").ratingWeight(1).build();
+            assertEquals(List.of(peopleMatch,titleMatch),searchManager1.search(ratedQuery));
+            SearchPage page=searchManager1.search(ratedQuery,0,1);
+            assertEquals(List.of(peopleMatch),page.getResults());
+            assertEquals(List.of(titleMatch),searchManager1.search(ratedQuery,page.getNextCursor(),1).getResults());
+            //Without a search text the rating alone ranks the content
+            assertEquals(peopleMatch,searchManager1.search(SearchQuery.builder().ratingWeight(1).build()).get(0));
+        }
+        assertTrue(new SearchManager(catalog,index).explain(SearchQuery.builder().text("dark").build()).contains("BM25"));
+    }
+
+    @Test
+    public void topRatedContentIsFoundInRatingOrder()
+    {
+        Random random=new Random(25);
+        String[] genres={"Action","Drama","Comedy"};
+        ArrayList<Content> reviewable=TestCatalog.create(300,25);
+        HashSet<Content> catalog=new HashSet<>(reviewable);
+        SearchIndex index=TestCatalog.index(catalog);
+        SearchManager indexed=new SearchManager(catalog,index);
+
+        for (int i=0;i<200;i++)
+        {
+            //The rating index follows the reviews of the content
+            Content reviewed=reviewable.get(random.nextInt(reviewable.size()));
+            reviewed.addToReviews(new Review(1+random.nextInt(5),"Review",new Subscriber("reviewer"+i,"password","Name","Surname")));
+            index.add(reviewed);
+
+            SearchQuery.Builder builder=SearchQuery.builder().ratingWeight(0.5+random.nextInt(3));
+            if(random.nextBoolean())
+            {
+                builder.genre(genres[random.nextInt(genres.length)]);
+            }
+            if(random.nextBoolean())
+            {
+                builder.minRating(random.nextInt(11)/2.0);
+            }
+            if(random.nextInt(4)==0)
+            {
+                builder.text("");
+            }
+            SearchQuery query=builder.build();
+            ArrayList<Content> expected=new ArrayList<>();
+            for (Content content1 : catalog)
+            {
+                if(query.matchesFilters(content1))
+                {
+                    expected.add(content1);
+                }
+            }
+            expected.sort((content1,content2) -> {
+                int comparison=Double.compare(content2.getAverageRating(),content1.getAverageRating());
+                return comparison!=0 ? comparison : Long.compare(content1.getId(),content2.getId());
+            });
+            assertEquals(query.toString(),expected,indexed.search(query));
+            assertEquals(query.toString(),expected,indexed.stream(query,true).map(SearchHit::getContent).collect(Collectors.toList()));
+
+            int limit=1+random.nextInt(50);
+            assertEquals(query.toString(),expected.subList(0,Math.min(limit,expected.size())),indexed.search(query,0,limit).getResults());
+            ArrayList<Content> byCursor=new ArrayList<>();
+            SearchPage.Cursor cursor=null;
+            SearchPage page;
+            do
+            {
+                page=indexed.search(query,cursor,limit);
+                byCursor.addAll(page.getResults());
+                cursor=page.getNextCursor();
+            }
+            while (page.hasNext());
+            assertEquals(query.toString(),expected,byCursor);
+        }
+    }
+
+    @Test
+    public void topRatedPageWalksOnlyTheBestRatedContent()
+    {
+        int[] checked={0};
+        Subscriber reviewer=new Subscriber("reviewer","password","Name","Surname");
+        HashSet<Content> catalog=new HashSet<>();
+        SearchIndex index=new SearchIndex();
+        for (int i=0;i<200;i++)
+        {
+            Movie movie=new Movie("Title "+i,"Synopsis","Yes",i%2==0 ? "Drama" : "Comedy","People",2000,100)
+            {
+                @Override
+                String getGenreKey()
+                {
+                    checked[0]++;
+                    return super.getGenreKey();
+                }
+            };
+            movie.addToReviews(new Review(1+i%5,"Review",reviewer));
+            catalog.add(movie);
+            index.add(movie);
+        }
+        SearchManager indexed=new SearchManager(catalog,index);
+        checked[0]=0;
+
+        SearchPage page=indexed.search(SearchQuery.builder().genre("Drama").ratingWeight(1).build(),0,5);
+        assertEquals(5,page.getResults().size());
+        for (Content content1 : page.getResults())
+        {
+            assertEquals(5,content1.getAverageRating(),0);
+        }
+        assertTrue(page.hasNext());
+        //The best rated content is checked until the page is full, instead of every drama
+        assertTrue(checked[0]<=20);
+    }
+
+    @Test
+    public void facetsCountTheResultsOfEveryOption()
+    {
+        Random random=new Random(23);
+        String[] words={"Spider-Man","Into the","Emma","Stone","dark","Knight","Breaking","Bad"};
+        HashSet<Content> catalog=new HashSet<>(TestCatalog.create(400,23,words));
+        SearchIndex index=TestCatalog.index(catalog);
+
+        SearchManager scan=new SearchManager(catalog);
+        SearchManager indexed=new SearchManager(catalog,index);
+        String[][] options={{"","Movie","Series","content"},{"","Action","Drama","Comedy"},{"","Yes","No"},{"","1","3","4"}};
+        for (int i=0;i<60;i++)
+        {
+            //The filters of the search panel, followed by the text of the search bar
+            String[] searchCriteria={"category",options[0][random.nextInt(4)],"genre",options[1][random.nextInt(4)],
+                    "suitable for minors",options[2][random.nextInt(3)],"min rating",options[3][random.nextInt(4)],
+                    random.nextBoolean() ? "" : TestCatalog.phrase(random,words)};
+            SearchQuery query=SearchQuery.parse(searchCriteria);
+            if(i%3==0)
+            {
+                query=query.fuzzy();
+            }
+            SearchFacets facets=indexed.facets(query);
+            assertEquals(Arrays.toString(searchCriteria),scan.facets(query),facets);
+            assertEquals(scan.search(query).size(),facets.getTotal());
+
+            assertEquals(facets.getCategoryCounts().get(SearchQuery.Category.MOVIES),count(scan,query,searchCriteria,1,"movies"));
+            assertEquals(facets.getCategoryCounts().get(SearchQuery.Category.SERIES),count(scan,query,searchCriteria,1,"series"));
+            for (String genre : TestCatalog.GENRES)
+            {
+                assertEquals(facets.getGenreCounts().get(genre),count(scan,query,searchCriteria,3,genre));
+            }
+            for (int stars=1;stars<=5;stars++)
+            {
+                assertEquals(facets.getMinRatingCounts().get(stars),count(scan,query,searchCriteria,7,String.valueOf(stars)));
+            }
+            assertEquals(facets.getSuitabilityCounts().get(true),count(scan,query,searchCriteria,5,"Yes"));
+            assertEquals(facets.getSuitabilityCounts().get(false),count(scan,query,searchCriteria,5,"No"));
+        }
+    }
+
+    /**
+     * Counts the results of a search with one of its filters replaced.
+     */
+    private static Integer count(SearchManager searchManager, SearchQuery query, String[] searchCriteria, int criterion, String option)
+    {
+        String[] replaced=searchCriteria.clone();
+        replaced[criterion]=option;
+        SearchQuery replacedQuery=SearchQuery.parse(replaced);
+        return searchManager.search(query.isFuzzy() ? replacedQuery.fuzzy() : replacedQuery).size();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void pageRejectsInvalidLimit()
+    {
+        searchManager.search(SearchQuery.builder().build(),0,0);
+    }
+
+    /**
+     * Makes a random search: a part of a field, several fields, a phrase, random characters or a keyword,
+     * with random case and whitespace.
+     */
+    private static String search(Random random, String[] words, ArrayList<String> fields)
+    {
+        String search;
+        switch (random.nextInt(6))
+        {
+            case 0 ->
+            {
+                String field=fields.get(random.nextInt(fields.size()));
+                int start=random.nextInt(field.length());
+                search=field.substring(start,start+random.nextInt(field.length()-start+1));
+            }
+            case 1 -> search=fields.get(random.nextInt(fields.size()))+fields.get(random.nextInt(fields.size()));
+            case 2 -> search=TestCatalog.phrase(random,words);
+            case 3 ->
+            {
+                StringBuilder characters=new StringBuilder();
+                for (int i=random.nextInt(5);i>=0;i--)
+                {
+                    characters.append("adeikmnorst -:".charAt(random.nextInt(14)));
+                }
+                search=characters.toString();
+            }
+            case 4 -> search=new String[]{"","  ","not suitable","Suitable","<18",">=18","class","content"}[random.nextInt(8)];
+            default -> search=words[random.nextInt(words.length)];
+        }
+        StringBuilder cased=new StringBuilder();
+        for (char character : search.toCharArray())
+        {
+            cased.append(random.nextBoolean() ? Character.toUpperCase(character) : character);
+            if(random.nextInt(8)==0)
+            {
+                cased.append(' ');
+            }
+        }
+        return cased.toString();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SearchQueryTest
+{
+    private Content content;
+    private Movie drama,comedy;
+    private Series series;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        content=new Content("Title","Director");
+        drama=new Movie("Drama Movie","Synopsis","No","Drama","Actor 1",2020,100);
+        comedy=new Movie("Comedy Movie","Synopsis","Yes","Comedy","Actor 2",2021,90);
+        series=new Series("Series","Synopsis","Yes","Science fiction","Actor 3",new ArrayList<>());
+        comedy.addToReviews(new Review(4,"Funny",new Subscriber("subscriber1","password1","Name1","Surname1")));
+    }
+
+    @Test
+    public void builder()
+    {
+        SearchQuery query=SearchQuery.builder().category(SearchQuery.Category.MOVIES).build();
+        assertTrue(query.matchesFilters(drama));
+        assertFalse(query.matchesFilters(series));
+        assertFalse(query.matchesFilters(content));
+        assertNull(query.getText());
+
+        query=SearchQuery.builder().genre("drama","sci-fi").suitableForMinors(true).text("Some Text").build();
+        assertFalse(query.matchesFilters(drama));
+        assertTrue(query.matchesFilters(series));
+        assertFalse(query.matchesFilters(comedy));
+        assertEquals("sometext",query.getText());
+
+        query=SearchQuery.builder().minRating(3.5).build();
+        assertTrue(query.matchesFilters(comedy));
+        assertFalse(query.matchesFilters(drama));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void builderRejectsInvalidGenre()
+    {
+        SearchQuery.builder().genre("Western");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void builderRejectsNegativeRatingWeight()
+    {
+        SearchQuery.builder().ratingWeight(-1);
+    }
+
+    @Test
+    public void parse()
+    {
+        SearchQuery query=SearchQuery.parse("category","Movie","genre","","min rating","","Drama");
+        assertEquals("drama",query.getText());
+        assertTrue(query.matchesFilters(drama));
+        assertFalse(query.matchesFilters(series));
+
+        //Choosing the category "content" lets plain content skip the filters that follow
+        query=SearchQuery.parse("category","content","min rating","5");
+        assertTrue(query.matchesFilters(content));
+        assertFalse(query.matchesFilters(comedy));
+    }
+
+    @Test
+    public void parseMatchesTheFormerFilters()
+    {
+        Random random=new Random(14);
+        String[] criteria={"category","Category","genre","min rating","minrating","suitable for minors","unknown"};
+        String[] filters={"","Movie","movies","Series","content","viewable","Viewable Content","Drama","drama","sci",
+                "Science fiction","fiction","action","comedy","horror","x","Yes","No","y","not suitable","<18",">=18",
+                "suitable","1","2","3.5","4","5"};
+        Subscriber reviewer=new Subscriber("reviewer","password","Name","Surname");
+
+        ArrayList<Content> catalog=TestCatalog.create(40,14);
+        catalog.get(1).addToReviews(new Review(5,"Review",reviewer));
+
+        for (int i=0;i<2000;i++)
+        {
+            String[] searchCriteria=new String[2*(1+random.nextInt(4))];
+            for (int j=0;j<searchCriteria.length;j+=2)
+            {
+                String filter=filters[random.nextInt(filters.length)];
+                String criterion=criteria[random.nextInt(criteria.length)];
+                //Minimum ratings have to be numbers
+                if((criterion.equals("min rating") || criterion.equals("minrating")) && !filter.matches("[0-9.]*"))
+                {
+                    filter="";
+                }
+                searchCriteria[j]=criterion;
+                searchCriteria[j+1]=filter;
+            }
+
+            SearchQuery query=SearchQuery.parse(searchCriteria);
+            for (Content content1 : catalog)
+            {
+                assertEquals(String.join(",",searchCriteria)+" "+content1.getTitle(),
+                        formerMatchesCriteriaInFilters(content1,searchCriteria),query.matchesFilters(content1));
+            }
+        }
+    }
+
+    @Test
+    public void equalQueries()
+    {
+        assertEquals(SearchQuery.builder().genre("drama").text("Breaking Bad").build(),
+                SearchQuery.builder().genre("Drama").text("breaking bad").build());
+        assertNotEquals(SearchQuery.parse("breaking bad"),SearchQuery.parse("breakingbad"));
+        assertEquals(SearchQuery.builder().genre("drama").build().hashCode(),SearchQuery.builder().genre("Drama").build().hashCode());
+        assertEquals(SearchQuery.parse("category","Movie","min rating","4"),SearchQuery.parse("category","movies","min rating","4.0"));
+        assertNotEquals(SearchQuery.parse("category","movies"),SearchQuery.parse("category","content"));
+        assertNotEquals(SearchQuery.builder().minRating(4).build(),SearchQuery.builder().minRating(4).text("").build());
+        assertNotEquals(SearchQuery.builder().text("dark").build(),SearchQuery.builder().text("dark").ratingWeight(0.5).build());
+        assertEquals(0.5,SearchQuery.builder().ratingWeight(0.5).build().getRatingWeight(),0);
+    }
+
+    @Test
+    public void searchManagerUsesTheQuery()
+    {
+        HashSet<Content> catalog=new HashSet<>();
+        catalog.add(content);
+        catalog.add(drama);
+        catalog.add(comedy);
+        catalog.add(series);
+        SearchManager searchManager=new SearchManager(catalog);
+
+        ArrayList<Content> results=searchManager.search(SearchQuery.builder().category(SearchQuery.Category.MOVIES).text("movie").build());
+        assertEquals(2,results.size());
+        assertTrue(results.contains(drama));
+        assertTrue(results.contains(comedy));
+
+        assertEquals(4,searchManager.search(SearchQuery.builder().build()).size());
+        assertEquals(searchManager.searchContent("category","Movie","comedy"),
+                searchManager.search(SearchQuery.builder().category(SearchQuery.Category.MOVIES).text("comedy").build()));
+    }
+
+    /**
+     * The way filters were matched before queries were compiled, which parsing has to keep.
+     */
+    private static boolean formerMatchesCriteriaInFilters(Content content, String...searchCriteria)
+    {
+        boolean criterionMatched=true;
+
+        String contentCategory;
+        if(content instanceof Movie)
+        {
+            contentCategory="movies";
+        } else if (content instanceof Series)
+        {
+            contentCategory="series";
+        } else if (content instanceof ViewableContent)
+        {
+            contentCategory="viewablecontent";
+        }
+        else
+        {
+            contentCategory="content";
+        }
+
+        String contentGenre=null,contentSuitability=null;
+        if(content instanceof ViewableContent viewableContent)
+        {
+            contentGenre=viewableContent.getGenre().toLowerCase().replaceAll("\\s", "");
+            contentSuitability=viewableContent.getIsSuitableForMinors().toLowerCase().replaceAll("\\s", "");
+        }
+
+        for(int i=0;i<searchCriteria.length-1;i+=2)
+        {
+            String criterion=searchCriteria[i].toLowerCase().replaceAll("\\s", "");
+            String userChosenFilter=searchCriteria[i+1].toLowerCase().replaceAll("\\s", "");
+
+            if(userChosenFilter.isEmpty())
+            {
+                continue;
+            }
+
+            if(criterion.equals("category"))
+            {
+                if(userChosenFilter.equals("content") && contentCategory.equals("content"))
+                {
+                    return true;
+                }
+            }
+
+            switch (criterion)
+            {
+                case "category":
+                    criterionMatched=contentCategory.contains(userChosenFilter) || userChosenFilter.contains(contentCategory);
+                    break;
+                case "minrating":
+                    if(content.getReviews().isEmpty())
+                    {
+                        criterionMatched=false;
+                    }
+                    else {
+                        criterionMatched = content.getAverageRating() >= Double.parseDouble(userChosenFilter);
+                    }
+                    break;
+                case "genre":
+                    if (contentGenre != null) {
+                        criterionMatched=contentGenre.contains(userChosenFilter) || userChosenFilter.contains(contentGenre);
+                    }
+                    break;
+                case "suitableforminors":
+                    if(contentSuitability!=null)
+                    {
+                        if (userChosenFilter.contains("notsuitable") || userChosenFilter.contains("nosuitable")
+                                || userChosenFilter.contains("unsuitable") || userChosenFilter.contains(">18") ||
+                                userChosenFilter.contains(">=18")) {
+
+                            criterionMatched = contentSuitability.equals("no");
+
+                        }
+                        else if (userChosenFilter.contains("suitable") || userChosenFilter.contains("<18")) {
+                            criterionMatched = contentSuitability.equals("yes");
+                        }
+                        else {
+                            criterionMatched = contentSuitability.contains(userChosenFilter) || userChosenFilter.contains(contentSuitability);
+                        }
+                    }
+                    break;
+            }
+
+            if(!criterionMatched)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -49,12 +49,13 @@ public class SeriesTest
         seasons.add(season1);
         seasons.add(season2);
 
-        Series sameSeries = new Series("Series Title", "Series Synopsis",
-                "Yes", "Drama", "Actor 1, Actor 2", seasons);
+        Series sameSeries = new Series("Different Title", "Different Synopsis",
+                "No", "Action", "Actor 5, Actor 6", new ArrayList<>());
+        sameSeries.restoreId(series.getId());
         assertEquals(series, sameSeries);
 
-        Series differentSeries = new Series("Different Title", "Different Synopsis",
-                "No", "Action", "Actor 5, Actor 6",
+        Series differentSeries = new Series("Series Title", "Series Synopsis",
+                "Yes", "Drama", "Actor 1, Actor 2",
                 seasons);
         assertNotEquals(series, differentSeries);
     }
@@ -69,13 +70,12 @@ public class SeriesTest
         seasons.add(season1);
         seasons.add(season2);
 
-        Series sameSeries = new Series("Series Title", "Series Synopsis",
-                "Yes", "Drama", "Actor 1, Actor 2",
-                seasons);
-        assertEquals(series.hashCode(), sameSeries.hashCode());
+        int hashCode=series.hashCode();
+        series.edit("New Title", "New Synopsis", "No", "Comedy", "Actor 3, Actor 4", seasons);
+        assertEquals(hashCode, series.hashCode());
 
-        Series differentSeries = new Series("Different Title", "Different Synopsis",
-                "No", "Action", "Actor 5, Actor 6",
+        Series differentSeries = new Series("Series Title", "Series Synopsis",
+                "Yes", "Drama", "Actor 1, Actor 2",
                 seasons);
 
         assertNotEquals(series.hashCode(),differentSeries.hashCode());
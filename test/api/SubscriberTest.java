@@ -24,6 +24,16 @@ public class SubscriberTest
         assertTrue(subscriber.getFavorites().contains(favorite) && subscriber.getFavorites().size()==1);
     }
 
+    @Test
+    public void changingFavoritesMakesSubscriberDirty()
+    {
+        subscriber.clearDirty();
+        subscriber.removeFromFavorites(new Content("Not a favorite","Nobody"));
+        assertFalse(subscriber.isDirty());
+        subscriber.removeFromFavorites(favorite);
+        assertTrue(subscriber.isDirty());
+    }
+
     @Test
     public void addToFavorites()
     {
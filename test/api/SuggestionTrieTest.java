@@ -0,0 +1,184 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SuggestionTrieTest
+{
+    private SuggestionTrie trie;
+    private Movie spiderVerse;
+    private Series breakingBad;
+    private Subscriber reviewer;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        trie=new SuggestionTrie();
+        reviewer=new Subscriber("reviewer","password","Name","Surname");
+        spiderVerse=new Movie("Spider-Man: Into the Spider-Verse","Synopsis","Yes","Action","Shameik Moore, Hailee Steinfeld",2018,117);
+        ArrayList<Season> seasons=new ArrayList<>();
+        seasons.add(new Season(1,2008,new Episode(50)));
+        breakingBad=new Series("Breaking Bad","Synopsis","Yes","Drama","Bryan Cranston, Aaron Paul",seasons);
+        trie.add(spiderVerse);
+        trie.add(breakingBad);
+    }
+
+    @Test
+    public void suggestTitlesAndNames()
+    {
+        assertEquals(List.of("Shameik Moore","Spider-Man: Into the Spider-Verse"),trie.suggest("s",10));
+        assertEquals(List.of("Breaking Bad","Bryan Cranston"),trie.suggest("B",10));
+        assertEquals(List.of("Breaking Bad"),trie.suggest("breaking b",10));
+        assertEquals(List.of("Breaking Bad"),trie.suggest("b",1));
+        assertTrue(trie.suggest("spiderx",10).isEmpty());
+        assertTrue(trie.suggest(" ",10).isEmpty());
+    }
+
+    @Test
+    public void suggestionsAreRankedByRating()
+    {
+        breakingBad.addToReviews(new Review(4,"Review",reviewer));
+        trie.add(breakingBad);
+        spiderVerse.addToReviews(new Review(3,"Review",reviewer));
+        trie.add(spiderVerse);
+        Movie shining=new Movie("The Shining","Synopsis","No","Horror","Jack Nicholson, Shelley Duvall",1980,146);
+        shining.addToReviews(new Review(5,"Review",reviewer));
+        trie.add(shining);
+        assertEquals(List.of("Shelley Duvall","Shameik Moore","Spider-Man: Into the Spider-Verse"),trie.suggest("s",10));
+
+        Movie breakfast=new Movie("Breakfast at Tiffany's","Synopsis","Yes","Comedy","Audrey Hepburn",1961,115);
+        breakfast.addToReviews(new Review(5,"Review",reviewer));
+        trie.add(breakfast);
+        assertEquals(List.of("Breakfast at Tiffany's","Breaking Bad","Bryan Cranston"),trie.suggest("b",10));
+
+        trie.remove(breakfast);
+        assertEquals(List.of("Breaking Bad","Bryan Cranston"),trie.suggest("b",10));
+        trie.clear();
+        assertEquals(0,trie.size());
+        assertTrue(trie.suggest("b",10).isEmpty());
+    }
+
+    @Test
+    public void sharedTitlesKeepTheirBestRating()
+    {
+        ArrayList<Movie> dunes=new ArrayList<>();
+        for (int rating : new int[]{2,5,4})
+        {
+            Movie dune=new Movie("Dune","Synopsis","Yes","Science fiction","Person",2021,155);
+            dune.addToReviews(new Review(rating,"Review",reviewer));
+            trie.add(dune);
+            dunes.add(dune);
+        }
+        Movie drive=new Movie("Drive","Synopsis","No","Drama","Person",2011,100);
+        drive.addToReviews(new Review(4,"Review",reviewer));
+        trie.add(drive);
+        assertEquals(List.of("Dune","Drive"),trie.suggest("d",10));
+
+        //With the same best rating, the title of more content comes first
+        trie.remove(dunes.get(1));
+        assertEquals(List.of("Dune","Drive"),trie.suggest("d",10));
+        trie.remove(dunes.get(2));
+        assertEquals(List.of("Drive","Dune"),trie.suggest("d",10));
+
+        dunes.get(0).addToReviews(new Review(5,"Review",new Subscriber("reviewer2","password","Name","Surname")));
+        trie.add(dunes.get(0));
+        trie.add(dunes.get(0));
+        assertEquals(List.of("Drive","Dune"),trie.suggest("d",10));
+        drive.getReviews().clear();
+        trie.add(drive);
+        assertEquals(List.of("Dune","Drive"),trie.suggest("d",10));
+    }
+
+    @Test
+    public void suggestionsMatchBruteForce()
+    {
+        trie.clear();
+        Random random=new Random(21);
+        String[] words={"Dark","Knight","Dawn","Da","Spider","Spy","Emma","Stone","Star","S"};
+        ArrayList<Content> catalog=new ArrayList<>();
+        for (int i=0;i<3000;i++)
+        {
+            int operation=catalog.isEmpty() ? 0 : random.nextInt(4);
+            if(operation<=1)
+            {
+                Content content1=TestCatalog.content(random,i,words);
+                review(random,content1);
+                catalog.add(content1);
+                trie.add(content1);
+            }
+            else if(operation==2)
+            {
+                Content content1=catalog.get(random.nextInt(catalog.size()));
+                review(random,content1);
+                trie.add(content1);
+            }
+            else
+            {
+                trie.remove(catalog.remove(random.nextInt(catalog.size())));
+            }
+
+            if(i%50==0)
+            {
+                for (String prefix : new String[]{"d","da","dar","dark k","s","sp","spy","st","star e","e","k"})
+                {
+                    assertEquals(prefix,bruteForce(catalog,prefix),trie.suggest(prefix,SuggestionTrie.MAX_SUGGESTIONS));
+                }
+            }
+        }
+    }
+
+    private void review(Random random, Content content1)
+    {
+        User user=new Subscriber("reviewer"+random.nextInt(5),"password","Name","Surname");
+        content1.getReviews().remove(user);
+        if(random.nextBoolean())
+        {
+            content1.addToReviews(new Review(1+random.nextInt(5),"Review",user));
+        }
+    }
+
+    /**
+     * Finds the suggestions of a prefix by ranking the titles and names of every piece of content.
+     */
+    private static List<String> bruteForce(List<Content> catalog, String prefix)
+    {
+        HashMap<String,String> texts=new HashMap<>();
+        HashMap<String,Double> ratings=new HashMap<>();
+        HashMap<String,Integer> counts=new HashMap<>();
+        for (Content content1 : catalog)
+        {
+            ArrayList<String> keys=new ArrayList<>();
+            ArrayList<String> names=new ArrayList<>(List.of(content1.getTitle()));
+            names.addAll(List.of(content1.getPeopleInvolved().split(",")));
+            for (String name : names)
+            {
+                String key=Content.normalize(name);
+                if(key.isEmpty() || keys.contains(key) || !key.startsWith(Content.normalize(prefix)))
+                {
+                    continue;
+                }
+                keys.add(key);
+                texts.putIfAbsent(key,name.trim());
+                ratings.merge(key,content1.getAverageRating(),Math::max);
+                counts.merge(key,1,Integer::sum);
+            }
+        }
+        ArrayList<String> keys=new ArrayList<>(texts.keySet());
+        keys.sort(Comparator.comparing((String key) -> -ratings.get(key)).thenComparing(key -> -counts.get(key))
+                .thenComparing(texts::get));
+        ArrayList<String> suggestions=new ArrayList<>();
+        for (int i=0;i<Math.min(SuggestionTrie.MAX_SUGGESTIONS,keys.size());i++)
+        {
+            suggestions.add(texts.get(keys.get(i)));
+        }
+        return suggestions;
+    }
+}
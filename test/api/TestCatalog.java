@@ -0,0 +1,98 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * Makes random catalogs of content for the tests of searches and of the indexes they use.
+ * <p>
+ * Content is made in turn as plain content, viewable content, a movie and a series, with a random genre and
+ * suitability for minors and up to two reviews by different reviewers. Titles and the names of the people involved
+ * are phrases of the given words, or "Title" and "People" if there are none, and every title ends with the number of
+ * its content, so that no two pieces of content are equal.
+ *
+ * @authors Iraklis Fountoukidis, Chrysoula Tegousi
+ * @version 2024-01-10
+ */
+class TestCatalog
+{
+    static final String[] GENRES={"Action","Drama","Horror","Science fiction","Comedy"};
+
+    /**
+     * Makes a random catalog.
+     *
+     * @param size  The number of pieces of content.
+     * @param seed  The seed of the random choices, so that the same catalog is made every time.
+     * @param words The words of the titles and names, or none for plain titles and names.
+     * @return The content, in the order it was made.
+     */
+    static ArrayList<Content> create(int size, long seed, String...words)
+    {
+        Random random=new Random(seed);
+        ArrayList<Content> catalog=new ArrayList<>();
+        for (int i=0;i<size;i++)
+        {
+            catalog.add(content(random,i,words));
+        }
+        return catalog;
+    }
+
+    /**
+     * Makes a random piece of content, such as for tests that add content to an index along with other changes.
+     *
+     * @param random The source of the random choices.
+     * @param number The number of the content, which decides its kind and ends its title.
+     * @param words  The words of the title and names, or none for a plain title and names.
+     * @return The content.
+     */
+    static Content content(Random random, int number, String...words)
+    {
+        String title=words.length==0 ? "Title "+number : phrase(random,words)+" "+number;
+        String people=words.length==0 ? "People" : random.nextInt(10)==0 ? " "
+                : random.nextInt(3)==0 ? phrase(random,words)+", "+phrase(random,words) : phrase(random,words);
+        String suitability=random.nextBoolean() ? "Yes" : "No";
+        String genre=GENRES[random.nextInt(GENRES.length)];
+        Content content=switch (number%4)
+        {
+            case 0 -> new Content(title,people);
+            case 1 -> new ViewableContent(title,"Synopsis",suitability,genre,people);
+            case 2 -> new Movie(title,"Synopsis",suitability,genre,people,2000,100);
+            default -> new Series(title,"Synopsis",suitability,genre,people,new ArrayList<>());
+        };
+        for (int reviews=random.nextInt(3);reviews>0;reviews--)
+        {
+            content.addToReviews(new Review(1+random.nextInt(5),"Review",new Subscriber("reviewer"+reviews,"password","Name","Surname")));
+        }
+        return content;
+    }
+
+    /**
+     * Indexes a catalog for searches.
+     *
+     * @param catalog The content to be indexed.
+     * @return The indexes of the content.
+     */
+    static SearchIndex index(Collection<? extends Content> catalog)
+    {
+        SearchIndex index=new SearchIndex();
+        for (Content content : catalog)
+        {
+            index.add(content);
+        }
+        return index;
+    }
+
+    /**
+     * Makes a phrase of one to three of the words.
+     */
+    static String phrase(Random random, String...words)
+    {
+        StringBuilder phrase=new StringBuilder(words[random.nextInt(words.length)]);
+        for (int i=random.nextInt(3);i>0;i--)
+        {
+            phrase.append(' ').append(words[random.nextInt(words.length)]);
+        }
+        return phrase.toString();
+    }
+}
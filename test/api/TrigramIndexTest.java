@@ -0,0 +1,76 @@
+package api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class TrigramIndexTest
+{
+    private TrigramIndex index;
+    private Movie spiderVerse;
+    private Series breakingBad;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        index=new TrigramIndex();
+        spiderVerse=new Movie("Spider-Man: Into the Spider-Verse","Synopsis","Yes","Action","Shameik Moore, Hailee Steinfeld",2018,117);
+        ArrayList<Season> seasons=new ArrayList<>();
+        seasons.add(new Season(1,2008,new Episode(50)));
+        breakingBad=new Series("Breaking Bad","Synopsis","Yes","Drama","Bryan Cranston, Aaron Paul",seasons);
+        index.add(spiderVerse);
+        index.add(breakingBad);
+    }
+
+    @Test
+    public void candidatesContainingTheSearch()
+    {
+        assertTrue(index.candidates("spider").contains(spiderVerse));
+        assertTrue(index.candidates("intothespider").contains(spiderVerse));
+        assertFalse(index.candidates("spider").contains(breakingBad));
+        assertTrue(index.candidates("ad").contains(breakingBad));
+        assertTrue(index.candidates("series").contains(breakingBad));
+        assertTrue(index.candidates("xyz").isEmpty());
+        assertTrue(index.candidates("spidex").isEmpty());
+    }
+
+    @Test
+    public void candidatesContainedInTheSearch()
+    {
+        assertTrue(index.candidates("watchbreakingbadtonight").contains(breakingBad));
+        assertTrue(index.candidates("dramaorcomedy").contains(breakingBad));
+        assertFalse(index.candidates("dramaorcomedy").contains(spiderVerse));
+    }
+
+    @Test
+    public void estimate()
+    {
+        assertEquals(1,index.estimate("spider"));
+        assertEquals(2,index.estimate("a"));
+        assertEquals(0,index.estimate("spidex"));
+        //The estimate is the content of the rarest trigram, which may not contain the whole search
+        assertEquals(1,index.estimate("erser"));
+        assertTrue(index.candidates("erser").isEmpty());
+    }
+
+    @Test
+    public void removeAndReindex()
+    {
+        index.remove(spiderVerse);
+        assertEquals(1,index.size());
+        assertTrue(index.candidates("spider").isEmpty());
+
+        breakingBad.setTitle("Better Call Saul");
+        index.add(breakingBad);
+        assertEquals(1,index.size());
+        assertTrue(index.candidates("breaking").isEmpty());
+        assertTrue(index.candidates("callsaul").contains(breakingBad));
+
+        index.clear();
+        assertEquals(0,index.size());
+        assertTrue(index.candidates("saul").isEmpty());
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.HashSet;
 
 import static org.junit.Assert.*;
 
@@ -49,8 +50,9 @@ public class UserTest
     @Test
     public void testEquals()
     {
-        User sameUser=new User("testUser","testPassword1","John","Doe");
-        User differentUser=new User("differentUser","diffPass2","Mike","Colman");
+        User sameUser=new User("differentUser","diffPass2","Mike","Colman");
+        sameUser.restoreId(user.getId());
+        User differentUser=new User("testUser","testPassword1","John","Doe");
 
         assertTrue(user.equals(sameUser));
         assertFalse(user.equals(differentUser));
@@ -82,9 +84,11 @@ public class UserTest
     @Test
     public void edit()
     {
+        HashSet<User> users=new HashSet<>();
+        users.add(user);
         user.edit("editedUser", "newPassword1", "Will", "Simons", authentication);
-        User editedUser=new User("editedUser", "newPassword1", "Will", "Simons");
-        assertEquals(user,editedUser);
+        assertTrue(users.contains(user));
+        assertTrue(user.validatePassword("newPassword1"));
         assertFalse(authentication.containsKey("testUser"));
         assertEquals(authentication.get("editedUser"),user);
     }
@@ -18,6 +18,19 @@ public class ViewableContentTest
                 "Yes", "Action", "Actor 1, Actor 2");
     }
 
+    @Test
+    public void searchKeysFollowEdits()
+    {
+        assertEquals("action",viewableContent.getGenreKey());
+        assertEquals("yes",viewableContent.getSuitabilityKey());
+        assertEquals("classapi.viewablecontent",viewableContent.getCategoryKey());
+
+        viewableContent.edit("Movie Title","Movie Synopsis","No","Science fiction","Actor 1");
+        assertEquals("sciencefiction",viewableContent.getGenreKey());
+        assertEquals("no",viewableContent.getSuitabilityKey());
+        assertEquals("actor1",viewableContent.getPeopleInvolvedKey());
+    }
+
     @Test
     public void getSynopsis()
     {
@@ -39,10 +52,11 @@ public class ViewableContentTest
     @Test
     public void testEquals()
     {
-        ViewableContent sameContent = new ViewableContent("Movie Title", "Movie Synopsis",
-                "Yes", "Action", "Actor 1, Actor 2");
-        ViewableContent differentContent = new ViewableContent("Different Title", "Different Synopsis",
+        ViewableContent sameContent = new ViewableContent("Different Title", "Different Synopsis",
                 "No", "Comedy", "Actor 3, Actor 4");
+        sameContent.restoreId(viewableContent.getId());
+        ViewableContent differentContent = new ViewableContent("Movie Title", "Movie Synopsis",
+                "Yes", "Action", "Actor 1, Actor 2");
 
         assertEquals(viewableContent, sameContent);
         assertNotEquals(viewableContent, differentContent);
@@ -52,14 +66,14 @@ public class ViewableContentTest
     @Test
     public void testHashCode()
     {
-        // Test the hashCode method
-        ViewableContent sameContent = new ViewableContent("Movie Title", "Movie Synopsis",
-                "Yes", "Action", "Actor 1, Actor 2");
-
-        assertEquals(viewableContent.hashCode(), sameContent.hashCode());
+        // The hash code stays the same when the content is edited, so that it is still found in hash sets
+        HashSet<Content> set=new HashSet<>();
+        set.add(viewableContent);
+        viewableContent.edit("New Title", "New Synopsis", "No", "Drama", "Actor 4");
+        assertTrue(set.contains(viewableContent));
 
-        ViewableContent differentContent = new ViewableContent("Different Title", "Different Synopsis",
-                "No", "Comedy", "Actor 3, Actor 4");
+        ViewableContent differentContent = new ViewableContent("Movie Title", "Movie Synopsis",
+                "Yes", "Action", "Actor 1, Actor 2");
 
         assertNotEquals(viewableContent.hashCode(),differentContent.hashCode());
     }
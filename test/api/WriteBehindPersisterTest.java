@@ -0,0 +1,92 @@
+package api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindPersisterTest
+{
+    private WriteBehindPersister persister;
+    private List<String> writes;
+
+    @Before
+    public void setUp()
+    {
+        persister=new WriteBehindPersister(60000,10);
+        writes=Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Test
+    public void writesUnderTheSameKeyCoalesce()
+    {
+        for (int i=0;i<5;i++)
+        {
+            int write=i;
+            persister.markDirty("content",() -> writes.add("content" + write));
+        }
+        persister.markDirty("users",() -> writes.add("users"));
+        assertTrue(persister.isDirty());
+        assertTrue(writes.isEmpty());
+
+        persister.awaitDurable();
+        assertEquals(List.of("content4","users"),writes);
+        assertFalse(persister.isDirty());
+        assertEquals(1,persister.getFlushCount());
+    }
+
+    @Test
+    public void writesAreOrderedByLastMark()
+    {
+        persister.markDirty("content",() -> writes.add("content"));
+        persister.markDirty("users",() -> writes.add("users"));
+        persister.markDirty("content",() -> writes.add("content again"));
+        persister.awaitDurable();
+        assertEquals(List.of("users","content again"),writes);
+    }
+
+    @Test
+    public void writesAreFlushedOnceThresholdIsReached() throws InterruptedException
+    {
+        for (int i=0;i<10;i++)
+        {
+            persister.markDirty("journal",() -> writes.add("journal"));
+        }
+        for (int i=0;i<100 && persister.isDirty();i++)
+        {
+            Thread.sleep(10);
+        }
+        assertFalse(persister.isDirty());
+        assertEquals(List.of("journal"),writes);
+    }
+
+    @Test
+    public void writesAreFlushedAfterDelay() throws InterruptedException
+    {
+        WriteBehindPersister delayed=new WriteBehindPersister(10,1000);
+        delayed.markDirty("content",() -> writes.add("content"));
+        for (int i=0;i<100 && delayed.isDirty();i++)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("content"),writes);
+        delayed.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidThresholdIsRejected()
+    {
+        new WriteBehindPersister(10,0);
+    }
+
+    @After
+    public void cleanup()
+    {
+        persister.close();
+    }
+}